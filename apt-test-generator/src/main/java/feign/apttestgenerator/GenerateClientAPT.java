@@ -0,0 +1,801 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.apttestgenerator;
+
+import feign.GeneratedContract;
+import feign.Request.HttpMethod;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates an implementation of each interface declaring {@code @RequestLine} methods, with the
+ * {@link feign.MethodMetadata} that {@link feign.Contract.Default} would parse written out as code
+ * and a field holding the handler of each method. Builders opting in with
+ * {@link feign.Feign.Builder#generatedClients()} use the generated class at runtime, so neither the
+ * contract nor a {@link java.lang.reflect.Proxy} is needed.
+ *
+ * <p>
+ * Unlike {@link GenerateTestStubAPT}, this processor isn't registered as a service: it only runs
+ * when selected explicitly, so adding this module for test stubs doesn't generate clients.
+ * </p>
+ *
+ * <p>
+ * Interfaces the contract would reject, or that use features this processor doesn't cover (such as
+ * generic methods), are skipped with a note and keep being parsed reflectively.
+ * </p>
+ *
+ * @see GeneratedContract
+ */
+@SupportedAnnotationTypes({
+    "feign.RequestLine"
+})
+public class GenerateClientAPT extends AbstractProcessor {
+
+  private static final Pattern REQUEST_LINE_PATTERN = Pattern.compile("^([A-Z]+)[ ]*(.*)$");
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    final Set<TypeElement> interfaces = new LinkedHashSet<>();
+    for (final Element element : roundEnv.getRootElements()) {
+      collectClients(element, interfaces);
+    }
+
+    for (final TypeElement type : interfaces) {
+      final String source;
+      try {
+        source = new ClientWriter(processingEnv, type).write();
+      } catch (final UnsupportedClientException e) {
+        processingEnv.getMessager().printMessage(Kind.NOTE,
+            "Not generating a client for " + type + ", it will be parsed at runtime: "
+                + e.getMessage(),
+            type);
+        continue;
+      }
+
+      final String name = generatedName(type);
+      try (Writer writer = processingEnv.getFiler().createSourceFile(name, type).openWriter()) {
+        writer.append(source);
+      } catch (final IOException e) {
+        processingEnv.getMessager().printMessage(Kind.ERROR,
+            "Unable to generate client for " + type + ": " + e.getMessage(), type);
+      }
+    }
+
+    /* don't claim the annotation, other processors may want it as well */
+    return false;
+  }
+
+  private void collectClients(Element element, Set<TypeElement> interfaces) {
+    if (element.getKind() == ElementKind.INTERFACE
+        && hasRequestLine((TypeElement) element)) {
+      interfaces.add((TypeElement) element);
+    }
+    for (final TypeElement nested : ElementFilter.typesIn(element.getEnclosedElements())) {
+      collectClients(nested, interfaces);
+    }
+  }
+
+  private boolean hasRequestLine(TypeElement type) {
+    for (final ExecutableElement method : ElementFilter
+        .methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+      if (annotation(method, "feign.RequestLine") != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The name of the generated class, see {@link GeneratedContract}.
+   */
+  static String generatedName(TypeElement type) {
+    final StringBuilder name = new StringBuilder(type.getSimpleName());
+    Element enclosing = type.getEnclosingElement();
+    while (enclosing.getKind() != ElementKind.PACKAGE) {
+      name.insert(0, '_').insert(0, enclosing.getSimpleName());
+      enclosing = enclosing.getEnclosingElement();
+    }
+    final PackageElement packageElement = (PackageElement) enclosing;
+    if (!packageElement.isUnnamed()) {
+      name.insert(0, '.').insert(0, packageElement.getQualifiedName());
+    }
+    return name.append(GeneratedContract.GENERATED_CLIENT_SUFFIX).toString();
+  }
+
+  static AnnotationMirror annotation(Element element, String annotationType) {
+    for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (annotationType.equals(qualifiedName(mirror))) {
+        return mirror;
+      }
+    }
+    return null;
+  }
+
+  static String qualifiedName(AnnotationMirror mirror) {
+    return ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+  }
+
+  /**
+   * Thrown when an interface can't be generated, the message explains why.
+   */
+  static final class UnsupportedClientException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedClientException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Writes the source of the client for a single interface.
+   */
+  static final class ClientWriter {
+
+    private final Elements elements;
+    private final Types types;
+    private final TypeElement type;
+    private final DeclaredType declaredType;
+    private final String typeName;
+    private final String className;
+    private final StringBuilder fields = new StringBuilder();
+    private final StringBuilder constructor = new StringBuilder();
+    private final StringBuilder metadata = new StringBuilder();
+    private final StringBuilder methods = new StringBuilder();
+    private final Set<String> configKeys = new HashSet<>();
+    private final Set<String> fieldNames = new HashSet<>();
+
+    ClientWriter(ProcessingEnvironment processingEnv, TypeElement type) {
+      this.elements = processingEnv.getElementUtils();
+      this.types = processingEnv.getTypeUtils();
+      this.type = type;
+      this.declaredType = (DeclaredType) type.asType();
+      this.typeName = type.getQualifiedName().toString();
+      final String generatedName = generatedName(type);
+      this.className = generatedName.substring(generatedName.lastIndexOf('.') + 1);
+    }
+
+    String write() throws UnsupportedClientException {
+      if (!type.getTypeParameters().isEmpty()) {
+        throw new UnsupportedClientException("parameterized types are unsupported");
+      }
+      for (Element element = type; element.getKind() != ElementKind.PACKAGE;
+          element = element.getEnclosingElement()) {
+        if (element.getModifiers().contains(Modifier.PRIVATE)) {
+          throw new UnsupportedClientException("private types are unsupported");
+        }
+      }
+
+      final List<? extends TypeMirror> interfaces = type.getInterfaces();
+      TypeElement parent = null;
+      if (interfaces.size() > 1) {
+        throw new UnsupportedClientException("only single inheritance is supported");
+      } else if (interfaces.size() == 1) {
+        parent = (TypeElement) types.asElement(interfaces.get(0));
+        if (!parent.getInterfaces().isEmpty()) {
+          throw new UnsupportedClientException("only single-level inheritance is supported");
+        }
+      }
+
+      /* Class.getMethods() lists the methods of both the interface and its parent */
+      final List<String> classHeaders = new ArrayList<>();
+      if (parent != null) {
+        classHeaders.addAll(classHeaders(parent));
+      }
+      classHeaders.addAll(classHeaders(type));
+      if (parent != null) {
+        writeMethods(parent, classHeaders);
+      }
+      writeMethods(type, classHeaders);
+
+      final StringBuilder source = new StringBuilder();
+      final PackageElement packageElement = elements.getPackageOf(type);
+      if (!packageElement.isUnnamed()) {
+        source.append("package ").append(packageElement.getQualifiedName()).append(";\n\n");
+      }
+      source.append("/**\n")
+          .append(" * Feign client for {@link ").append(typeName).append("}, generated by\n")
+          .append(" * {@code ").append(GenerateClientAPT.class.getName())
+          .append("}. Do not edit.\n")
+          .append(" */\n")
+          .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+          .append("public final class ").append(className).append(" implements ")
+          .append(typeName).append(" {\n\n")
+          .append("  private final feign.Target<").append(typeName).append("> target$;\n")
+          .append(fields)
+          .append("\n")
+          .append("  public ").append(className).append("(feign.Target<").append(typeName)
+          .append("> target$,\n")
+          .append("      java.util.Map<java.lang.String, ")
+          .append("feign.InvocationHandlerFactory.MethodHandler> handlers$) {\n")
+          .append("    this.target$ = target$;\n")
+          .append(constructor)
+          .append("  }\n\n")
+          .append("  public static java.util.List<feign.MethodMetadata> metadata() {\n")
+          .append("    java.util.List<feign.MethodMetadata> metadata$ = new java.util.ArrayList<>(")
+          .append(configKeys.size()).append(");\n")
+          .append("    feign.MethodMetadata data$;\n")
+          .append(metadata)
+          .append("    return metadata$;\n")
+          .append("  }\n")
+          .append(methods)
+          .append("\n")
+          .append("  @Override\n")
+          .append("  public boolean equals(java.lang.Object obj) {\n")
+          .append("    if (obj instanceof ").append(className).append(") {\n")
+          .append("      return target$.equals(((").append(className)
+          .append(") obj).target$);\n")
+          .append("    }\n")
+          .append("    return false;\n")
+          .append("  }\n\n")
+          .append("  @Override\n")
+          .append("  public int hashCode() {\n")
+          .append("    return target$.hashCode();\n")
+          .append("  }\n\n")
+          .append("  @Override\n")
+          .append("  public java.lang.String toString() {\n")
+          .append("    return target$.toString();\n")
+          .append("  }\n")
+          .append("}\n");
+      return source.toString();
+    }
+
+    private List<String> classHeaders(TypeElement element) throws UnsupportedClientException {
+      final AnnotationMirror headers = annotation(element, "feign.Headers");
+      if (headers == null) {
+        return Collections.emptyList();
+      }
+      final List<String> values = stringValues(headers, "value");
+      if (values.isEmpty()) {
+        throw new UnsupportedClientException("Headers annotation was empty on " + element);
+      }
+      return Collections.singletonList(
+          "    feign.GeneratedContract.classHeaders(data$" + stringArguments(values) + ");\n");
+    }
+
+    private void writeMethods(TypeElement declaring, List<String> classHeaders)
+        throws UnsupportedClientException {
+      for (final ExecutableElement method : ElementFilter
+          .methodsIn(declaring.getEnclosedElements())) {
+        final Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.DEFAULT)
+            || modifiers.contains(Modifier.PRIVATE)) {
+          continue;
+        }
+        writeMethod(method, classHeaders);
+      }
+    }
+
+    private void writeMethod(ExecutableElement method, List<String> classHeaders)
+        throws UnsupportedClientException {
+      final String name = method.getSimpleName().toString();
+      if (!method.getTypeParameters().isEmpty()) {
+        throw new UnsupportedClientException("generic method " + name + " is unsupported");
+      }
+      final ExecutableType executableType =
+          (ExecutableType) types.asMemberOf(declaredType, method);
+      final List<? extends TypeMirror> parameterTypes = executableType.getParameterTypes();
+      if ((name.equals("equals") && parameterTypes.size() == 1)
+          || ((name.equals("hashCode") || name.equals("toString")) && parameterTypes.isEmpty())) {
+        throw new UnsupportedClientException("method " + name + " overrides Object");
+      }
+
+      final String configKey = configKey(method, parameterTypes);
+      if (!configKeys.add(configKey)) {
+        throw new UnsupportedClientException("overrides unsupported: " + configKey);
+      }
+
+      final StringBuilder data = new StringBuilder();
+      data.append("\n    data$ = feign.GeneratedContract.newMethodMetadata(")
+          .append(typeName).append(".class, ").append(literal(configKey)).append(",\n")
+          .append("        ").append(typeLiteral(executableType.getReturnType()))
+          .append(");\n");
+      for (final String classHeader : classHeaders) {
+        data.append(classHeader);
+      }
+
+      boolean hasRequestLine = false;
+      for (final AnnotationMirror annotation : method.getAnnotationMirrors()) {
+        switch (qualifiedName(annotation)) {
+          case "feign.RequestLine":
+            hasRequestLine = true;
+            data.append(requestLine(configKey, annotation));
+            break;
+          case "feign.Body":
+            final String body = (String) value(annotation, "value");
+            if (body.isEmpty()) {
+              throw new UnsupportedClientException(
+                  "Body annotation was empty on method " + configKey);
+            }
+            data.append("    feign.GeneratedContract.body(data$, ").append(literal(body))
+                .append(");\n");
+            break;
+          case "feign.Headers":
+            final List<String> headers = stringValues(annotation, "value");
+            if (headers.isEmpty()) {
+              throw new UnsupportedClientException(
+                  "Headers annotation was empty on method " + configKey);
+            }
+            data.append("    feign.GeneratedContract.headers(data$")
+                .append(stringArguments(headers)).append(");\n");
+            break;
+          default:
+            /* not part of the default contract */
+        }
+      }
+      if (!hasRequestLine) {
+        throw new UnsupportedClientException(
+            "method " + configKey + " is not annotated with RequestLine");
+      }
+
+      data.append(parameters(method, parameterTypes, configKey));
+      data.append("    metadata$.add(data$);\n");
+      metadata.append(data);
+
+      writeImplementation(method, executableType, configKey);
+    }
+
+    private String requestLine(String configKey, AnnotationMirror annotation)
+        throws UnsupportedClientException {
+      final String requestLine = (String) value(annotation, "value");
+      final Matcher matcher = REQUEST_LINE_PATTERN.matcher(requestLine);
+      if (requestLine.isEmpty() || !matcher.find()) {
+        throw new UnsupportedClientException(
+            "RequestLine annotation didn't start with an HTTP verb on method " + configKey);
+      }
+      try {
+        HttpMethod.valueOf(matcher.group(1));
+      } catch (final IllegalArgumentException e) {
+        throw new UnsupportedClientException(
+            "unknown HTTP method " + matcher.group(1) + " on method " + configKey);
+      }
+      final boolean decodeSlash = (Boolean) value(annotation, "decodeSlash");
+      final VariableElement collectionFormat =
+          (VariableElement) value(annotation, "collectionFormat");
+      return "    feign.GeneratedContract.requestLine(data$, feign.Request.HttpMethod."
+          + matcher.group(1) + ", " + literal(matcher.group(2)) + ",\n"
+          + "        " + decodeSlash + ", feign.CollectionFormat."
+          + collectionFormat.getSimpleName() + ");\n";
+    }
+
+    /**
+     * Mirrors the parameter handling of {@code Contract.BaseContract#parseAndValidateMetadata}.
+     */
+    private String parameters(ExecutableElement method,
+                              List<? extends TypeMirror> parameterTypes,
+                              String configKey)
+        throws UnsupportedClientException {
+      final StringBuilder data = new StringBuilder();
+      final List<? extends VariableElement> parameters = method.getParameters();
+      boolean hasBody = false;
+      boolean hasQueryMap = false;
+      boolean hasHeaderMap = false;
+      for (int i = 0; i < parameters.size(); i++) {
+        final TypeMirror parameterType = parameterTypes.get(i);
+        boolean processed = false;
+        for (final AnnotationMirror annotation : parameters.get(i).getAnnotationMirrors()) {
+          switch (qualifiedName(annotation)) {
+            case "feign.Param":
+              final String name = (String) value(annotation, "value");
+              if (name.isEmpty()) {
+                throw new UnsupportedClientException(
+                    "Param annotation was empty on param " + i + " of " + configKey);
+              }
+              final TypeMirror expander = (TypeMirror) value(annotation, "expander");
+              final String expanderClass = "feign.Param.ToStringExpander".equals(
+                  nameOf(types.asElement(expander))) ? "null" : classLiteral(expander);
+              data.append("    feign.GeneratedContract.param(data$, ").append(i).append(", ")
+                  .append(literal(name)).append(", ").append(expanderClass).append(");\n");
+              processed = true;
+              break;
+            case "feign.QueryMap":
+              if (hasQueryMap) {
+                throw new UnsupportedClientException(
+                    "QueryMap annotation was present on multiple parameters of " + configKey);
+              }
+              checkMapKeys(parameterType, configKey, false);
+              data.append("    feign.GeneratedContract.queryMap(data$, ").append(i).append(", ")
+                  .append(value(annotation, "encoded")).append(");\n");
+              hasQueryMap = processed = true;
+              break;
+            case "feign.HeaderMap":
+              if (hasHeaderMap) {
+                throw new UnsupportedClientException(
+                    "HeaderMap annotation was present on multiple parameters of " + configKey);
+              }
+              checkMapKeys(parameterType, configKey, true);
+              data.append("    feign.GeneratedContract.headerMap(data$, ").append(i)
+                  .append(");\n");
+              hasHeaderMap = processed = true;
+              break;
+            default:
+              /* not part of the default contract */
+          }
+        }
+
+        final TypeMirror erasure = types.erasure(parameterType);
+        final String rawType =
+            erasure.getKind() == TypeKind.DECLARED ? nameOf(types.asElement(erasure)) : "";
+        if ("java.net.URI".equals(rawType)) {
+          data.append("    data$.urlIndex(").append(i).append(");\n");
+        } else if ("feign.Request.Options".equals(rawType)) {
+          /* options are not part of the request */
+        } else if (processed) {
+          data.append("    feign.GeneratedContract.annotatedParameter(data$);\n");
+        } else {
+          if (hasBody) {
+            throw new UnsupportedClientException(
+                "method has too many Body parameters: " + configKey);
+          }
+          hasBody = true;
+          data.append("    feign.GeneratedContract.bodyParameter(data$, ").append(i)
+              .append(",\n        ").append(typeLiteral(parameterType)).append(");\n");
+        }
+      }
+      return data.toString();
+    }
+
+    /**
+     * The checks of {@code Contract.BaseContract#checkMapKeys}, any parameter that may fail them
+     * at runtime is rejected.
+     */
+    private void checkMapKeys(TypeMirror parameterType, String configKey, boolean required)
+        throws UnsupportedClientException {
+      final TypeMirror map =
+          types.erasure(elements.getTypeElement("java.util.Map").asType());
+      if (!types.isAssignable(types.erasure(parameterType), map)) {
+        if (required) {
+          throw new UnsupportedClientException("HeaderMap parameter must be a Map: " + configKey);
+        }
+        return;
+      }
+
+      TypeMirror key = null;
+      final List<? extends TypeMirror> arguments =
+          ((DeclaredType) parameterType).getTypeArguments();
+      if (!arguments.isEmpty()) {
+        key = arguments.get(0);
+      } else {
+        final TypeElement element = (TypeElement) types.asElement(parameterType);
+        for (final TypeMirror extended : element.getInterfaces()) {
+          if (!((DeclaredType) extended).getTypeArguments().isEmpty()) {
+            key = ((DeclaredType) extended).getTypeArguments().get(0);
+            break;
+          }
+        }
+      }
+      if (key != null && (key.getKind() != TypeKind.DECLARED
+          || !"java.lang.String".equals(nameOf(types.asElement(key))))) {
+        throw new UnsupportedClientException("map keys must be a String: " + configKey);
+      }
+    }
+
+    private void writeImplementation(ExecutableElement method,
+                                     ExecutableType executableType,
+                                     String configKey)
+        throws UnsupportedClientException {
+      String field = method.getSimpleName() + "$";
+      for (int i = 1; !fieldNames.add(field); i++) {
+        field = method.getSimpleName() + "$" + i;
+      }
+      fields.append("  private final feign.InvocationHandlerFactory.MethodHandler ")
+          .append(field).append(";\n");
+      constructor.append("    this.").append(field).append(" = handlers$.get(")
+          .append(literal(configKey)).append(");\n");
+
+      final TypeMirror returnType = executableType.getReturnType();
+      final List<? extends TypeMirror> parameterTypes = executableType.getParameterTypes();
+      final StringBuilder parameters = new StringBuilder();
+      final StringBuilder arguments = new StringBuilder();
+      for (int i = 0; i < parameterTypes.size(); i++) {
+        if (i > 0) {
+          parameters.append(", ");
+          arguments.append(", ");
+        }
+        if (method.isVarArgs() && i == parameterTypes.size() - 1) {
+          parameters.append(source(((ArrayType) parameterTypes.get(i)).getComponentType()))
+              .append("...");
+        } else {
+          parameters.append(source(parameterTypes.get(i)));
+        }
+        parameters.append(" arg").append(i).append("$");
+        arguments.append("arg").append(i).append("$");
+      }
+
+      final List<TypeMirror> thrown = new ArrayList<>(executableType.getThrownTypes());
+      final StringBuilder throwsClause = new StringBuilder();
+      for (final TypeMirror exception : thrown) {
+        throwsClause.append(throwsClause.length() == 0 ? " throws " : ", ")
+            .append(source(exception));
+      }
+
+      final String invoke = field + ".invoke(new java.lang.Object[] {" + arguments + "})";
+      final String statement = returnType.getKind() == TypeKind.VOID
+          ? invoke + ";"
+          : "return (" + source(returnType) + ") " + invoke + ";";
+
+      methods.append("\n  @Override\n")
+          .append("  public ").append(source(returnType)).append(" ")
+          .append(method.getSimpleName()).append("(").append(parameters).append(")")
+          .append(throwsClause).append(" {\n");
+
+      final List<String> rethrown = rethrown(thrown);
+      if (rethrown == null) {
+        /* Throwable is declared */
+        methods.append("    ").append(statement).append("\n");
+      } else {
+        methods.append("    try {\n")
+            .append("      ").append(statement).append("\n")
+            .append("    } catch (").append(String.join(" | ", rethrown)).append(" e$) {\n")
+            .append("      throw e$;\n")
+            .append("    } catch (java.lang.Throwable e$) {\n")
+            .append("      throw new java.lang.reflect.UndeclaredThrowableException(e$);\n")
+            .append("    }\n");
+      }
+      methods.append("  }\n");
+    }
+
+    /**
+     * @return the exceptions that can be rethrown as is, like a {@link java.lang.reflect.Proxy}
+     *         does, or {@code null} if any exception can.
+     */
+    private List<String> rethrown(List<TypeMirror> thrown) throws UnsupportedClientException {
+      final List<TypeMirror> candidates = new ArrayList<>();
+      candidates.add(elements.getTypeElement("java.lang.RuntimeException").asType());
+      candidates.add(elements.getTypeElement("java.lang.Error").asType());
+      candidates.addAll(thrown);
+
+      final TypeMirror throwable = elements.getTypeElement("java.lang.Throwable").asType();
+      final List<String> rethrown = new ArrayList<>();
+      for (int i = 0; i < candidates.size(); i++) {
+        final TypeMirror candidate = candidates.get(i);
+        if (types.isSameType(candidate, throwable)) {
+          return null;
+        }
+        /* multi-catch alternatives can't be subclasses of each other */
+        boolean covered = false;
+        for (int j = 0; j < candidates.size() && !covered; j++) {
+          final TypeMirror other = candidates.get(j);
+          covered = j != i && types.isSubtype(candidate, other)
+              && (j < i || !types.isSameType(candidate, other));
+        }
+        if (!covered) {
+          rethrown.add(source(candidate));
+        }
+      }
+      return rethrown;
+    }
+
+    /**
+     * The key returned by {@link feign.Feign#configKey(Class, java.lang.reflect.Method)}.
+     */
+    private String configKey(ExecutableElement method, List<? extends TypeMirror> parameterTypes)
+        throws UnsupportedClientException {
+      final StringBuilder key = new StringBuilder();
+      key.append(type.getSimpleName()).append('#').append(method.getSimpleName()).append('(');
+      for (int i = 0; i < parameterTypes.size(); i++) {
+        if (i > 0) {
+          key.append(',');
+        }
+        key.append(simpleName(types.erasure(parameterTypes.get(i))));
+      }
+      return key.append(')').toString();
+    }
+
+    private String simpleName(TypeMirror type) throws UnsupportedClientException {
+      switch (type.getKind()) {
+        case ARRAY:
+          return simpleName(((ArrayType) type).getComponentType()) + "[]";
+        case DECLARED:
+          return ((DeclaredType) type).asElement().getSimpleName().toString();
+        default:
+          if (type.getKind().isPrimitive()) {
+            return type.getKind().name().toLowerCase(Locale.ROOT);
+          }
+          throw new UnsupportedClientException("unsupported type " + type);
+      }
+    }
+
+    /**
+     * @return the type as it is written in source code.
+     */
+    private String source(TypeMirror type) throws UnsupportedClientException {
+      switch (type.getKind()) {
+        case VOID:
+          return "void";
+        case ARRAY:
+          return source(((ArrayType) type).getComponentType()) + "[]";
+        case WILDCARD:
+          final WildcardType wildcard = (WildcardType) type;
+          if (wildcard.getExtendsBound() != null) {
+            return "? extends " + source(wildcard.getExtendsBound());
+          } else if (wildcard.getSuperBound() != null) {
+            return "? super " + source(wildcard.getSuperBound());
+          }
+          return "?";
+        case DECLARED:
+          final DeclaredType declared = (DeclaredType) type;
+          checkOwner(declared);
+          final StringBuilder source =
+              new StringBuilder(nameOf(declared.asElement()));
+          final List<? extends TypeMirror> arguments = declared.getTypeArguments();
+          for (int i = 0; i < arguments.size(); i++) {
+            source.append(i == 0 ? "<" : ", ").append(source(arguments.get(i)));
+          }
+          return arguments.isEmpty() ? source.toString() : source.append(">").toString();
+        default:
+          if (type.getKind().isPrimitive()) {
+            return type.getKind().name().toLowerCase(Locale.ROOT);
+          }
+          throw new UnsupportedClientException("unsupported type " + type);
+      }
+    }
+
+    /**
+     * @return an expression creating the {@link java.lang.reflect.Type} reflection would return.
+     */
+    private String typeLiteral(TypeMirror type) throws UnsupportedClientException {
+      switch (type.getKind()) {
+        case ARRAY:
+          final TypeMirror component = ((ArrayType) type).getComponentType();
+          final String componentLiteral = typeLiteral(component);
+          return componentLiteral.endsWith(".class")
+              ? classLiteral(type)
+              : "feign.GeneratedContract.genericArrayType(" + componentLiteral + ")";
+        case WILDCARD:
+          final WildcardType wildcard = (WildcardType) type;
+          if (wildcard.getSuperBound() != null) {
+            return "feign.GeneratedContract.wildcardType("
+                + "new java.lang.reflect.Type[] {java.lang.Object.class},"
+                + " new java.lang.reflect.Type[] {" + typeLiteral(wildcard.getSuperBound()) + "})";
+          }
+          final String upper = wildcard.getExtendsBound() != null
+              ? typeLiteral(wildcard.getExtendsBound())
+              : "java.lang.Object.class";
+          return "feign.GeneratedContract.wildcardType(new java.lang.reflect.Type[] {" + upper
+              + "}, new java.lang.reflect.Type[0])";
+        case DECLARED:
+          final DeclaredType declared = (DeclaredType) type;
+          checkOwner(declared);
+          if (declared.getTypeArguments().isEmpty()) {
+            return classLiteral(type);
+          }
+          final Element enclosing = declared.asElement().getEnclosingElement();
+          final String owner = enclosing.getKind().isClass() || enclosing.getKind().isInterface()
+              ? nameOf(enclosing) + ".class"
+              : "null";
+          final StringBuilder literal =
+              new StringBuilder("feign.GeneratedContract.parameterizedType(")
+                  .append(owner).append(", ").append(classLiteral(type));
+          for (final TypeMirror argument : declared.getTypeArguments()) {
+            literal.append(", ").append(typeLiteral(argument));
+          }
+          return literal.append(")").toString();
+        default:
+          if (type.getKind().isPrimitive() || type.getKind() == TypeKind.VOID) {
+            return classLiteral(type);
+          }
+          throw new UnsupportedClientException("unsupported type " + type);
+      }
+    }
+
+    private String classLiteral(TypeMirror type) throws UnsupportedClientException {
+      final TypeMirror erasure = types.erasure(type);
+      if (erasure.getKind() == TypeKind.DECLARED) {
+        return nameOf(((DeclaredType) erasure).asElement()) + ".class";
+      }
+      return source(erasure) + ".class";
+    }
+
+    /* inner classes of parameterized types have a parameterized owner, which isn't supported */
+    private void checkOwner(DeclaredType declared) throws UnsupportedClientException {
+      final TypeMirror owner = declared.getEnclosingType();
+      if (owner.getKind() == TypeKind.DECLARED
+          && !((DeclaredType) owner).getTypeArguments().isEmpty()) {
+        throw new UnsupportedClientException("inner class of a parameterized type " + declared);
+      }
+      final Element element = declared.asElement();
+      if (element.getModifiers().contains(Modifier.PRIVATE)) {
+        throw new UnsupportedClientException("private type " + declared);
+      }
+    }
+
+    private String nameOf(Element element) {
+      return ((TypeElement) element).getQualifiedName().toString();
+    }
+
+    private Object value(AnnotationMirror annotation, String name) {
+      for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements
+          .getElementValuesWithDefaults(annotation).entrySet()) {
+        if (entry.getKey().getSimpleName().contentEquals(name)) {
+          return entry.getValue().getValue();
+        }
+      }
+      return null;
+    }
+
+    private List<String> stringValues(AnnotationMirror annotation, String name) {
+      final List<String> values = new ArrayList<>();
+      final Object value = value(annotation, name);
+      if (value instanceof List) {
+        for (final Object element : (List<?>) value) {
+          values.add((String) ((AnnotationValue) element).getValue());
+        }
+      } else if (value != null) {
+        values.add((String) value);
+      }
+      return values;
+    }
+
+    private static String stringArguments(List<String> values) {
+      final StringBuilder arguments = new StringBuilder();
+      for (final String value : values) {
+        arguments.append(",\n        ").append(literal(value));
+      }
+      return arguments.toString();
+    }
+
+    /**
+     * @return {@code value} as a Java string literal.
+     */
+    static String literal(String value) {
+      final StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+      for (int i = 0; i < value.length(); i++) {
+        final char c = value.charAt(i);
+        switch (c) {
+          case '"':
+            literal.append("\\\"");
+            break;
+          case '\\':
+            literal.append("\\\\");
+            break;
+          case '\n':
+            literal.append("\\n");
+            break;
+          case '\r':
+            literal.append("\\r");
+            break;
+          case '\t':
+            literal.append("\\t");
+            break;
+          default:
+            if (c < 0x20) {
+              literal.append(String.format("\\%03o", (int) c));
+            } else if (c > 0x7e) {
+              literal.append(String.format("\\u%04x", (int) c));
+            } else {
+              literal.append(c);
+            }
+        }
+      }
+      return literal.append('"').toString();
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.apttestgenerator;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import com.google.common.io.ByteStreams;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import feign.Contract;
+import feign.MethodMetadata;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.JavaFileObject;
+
+/**
+ * Test for {@link GenerateClientAPT}
+ */
+public class GenerateClientAPTTest {
+
+  private final File main = new File("../example-github/src/main/java/").getAbsoluteFile();
+
+  @Test
+  public void generatesClient() throws Exception {
+    final Compilation compilation =
+        javac()
+            .withProcessors(new GenerateClientAPT())
+            .compile(JavaFileObjects.forResource(
+                new File(main, "example/github/GitHubExample.java")
+                    .toURI()
+                    .toURL()));
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("example.github.GitHubExample_GitHub_FeignClient")
+        .contentsAsUtf8String()
+        .contains("public final class GitHubExample_GitHub_FeignClient"
+            + " implements example.github.GitHubExample.GitHub");
+    assertThat(compilation)
+        .generatedSourceFile("example.github.GitHubExample_GitHub_FeignClient")
+        .contentsAsUtf8String()
+        .contains("feign.GeneratedContract.requestLine(data$, feign.Request.HttpMethod.GET,"
+            + " \"/repos/{owner}/{repo}/contributors\",");
+  }
+
+  @Test
+  public void skipsInterfacesTheContractRejects() {
+    final Compilation compilation =
+        javac()
+            .withProcessors(new GenerateClientAPT())
+            .compile(JavaFileObjects.forSourceLines("example.Generic",
+                "package example;",
+                "import feign.*;",
+                "public interface Generic {",
+                "  @RequestLine(\"GET /\")",
+                "  <T> T get(@Param(\"id\") T id);",
+                "}"));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadNoteContaining("generic method get is unsupported");
+  }
+
+  @Test
+  public void generatesTheMetadataOfTheContract() throws Exception {
+    final ClassLoader loader = compile(
+        "  @RequestLine(\"POST /{id}\")",
+        "  void post(String body, @Param(\"id\") String id);");
+
+    final MethodMetadata expected = new Contract.Default()
+        .parseAndValidateMetadata(loader.loadClass("example.BodyAndParam")).get(0);
+    final MethodMetadata actual = generatedMetadata(loader).get(0);
+
+    assertThat(actual.configKey()).isEqualTo(expected.configKey());
+    assertThat(actual.returnType()).isEqualTo(expected.returnType());
+    assertThat(actual.bodyIndex()).isEqualTo(expected.bodyIndex());
+    assertThat(actual.bodyType()).isEqualTo(expected.bodyType());
+    assertThat(actual.indexToName()).isEqualTo(expected.indexToName());
+    assertThat(actual.formParams()).isEqualTo(expected.formParams());
+    assertThat(actual.template().method()).isEqualTo(expected.template().method());
+    assertThat(actual.template().url()).isEqualTo(expected.template().url());
+  }
+
+  @Test
+  public void rejectsFormParametersAfterTheBodyLikeTheContract() throws Exception {
+    // the default contract checks annotated parameters too, as already processed ones
+    final ClassLoader loader = compile(
+        "  @RequestLine(\"POST /\")",
+        "  void post(String body, @Param(\"x\") String x);");
+
+    final Throwable parsed = catchThrowable(() -> new Contract.Default()
+        .parseAndValidateMetadata(loader.loadClass("example.BodyAndParam")));
+    final Throwable generated = catchThrowable(() -> generatedMetadata(loader));
+
+    assertThat(parsed).isInstanceOf(IllegalStateException.class);
+    assertThat(generated).isInstanceOf(IllegalStateException.class);
+    assertThat(generated).hasMessageThat().isEqualTo(parsed.getMessage());
+  }
+
+  private static ClassLoader compile(String... methodLines) {
+    final List<String> lines = new ArrayList<>();
+    lines.add("package example;");
+    lines.add("import feign.*;");
+    lines.add("public interface BodyAndParam {");
+    lines.addAll(Arrays.asList(methodLines));
+    lines.add("}");
+    final Compilation compilation =
+        javac()
+            .withProcessors(new GenerateClientAPT())
+            .compile(JavaFileObjects.forSourceLines("example.BodyAndParam", lines));
+    assertThat(compilation).succeeded();
+    return new CompiledClassLoader(compilation);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<MethodMetadata> generatedMetadata(ClassLoader loader) throws Exception {
+    try {
+      return (List<MethodMetadata>) loader.loadClass("example.BodyAndParam_FeignClient")
+          .getMethod("metadata")
+          .invoke(null);
+    } catch (final InvocationTargetException e) {
+      throw (Exception) e.getCause();
+    }
+  }
+
+  /** Functional interface for code expected to throw. */
+  interface ThrowingCallable {
+
+    void call() throws Exception;
+  }
+
+  private static Throwable catchThrowable(ThrowingCallable callable) {
+    try {
+      callable.call();
+      return null;
+    } catch (final Throwable e) {
+      return e;
+    }
+  }
+
+  /** Loads the classes compiled by a {@link Compilation}. */
+  static final class CompiledClassLoader extends ClassLoader {
+
+    private final Compilation compilation;
+
+    CompiledClassLoader(Compilation compilation) {
+      super(GenerateClientAPTTest.class.getClassLoader());
+      this.compilation = compilation;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      final String path = "/" + name.replace('.', '/') + ".class";
+      for (final JavaFileObject file : compilation.generatedFiles()) {
+        if (file.getKind() == JavaFileObject.Kind.CLASS && file.toUri().getPath().endsWith(path)) {
+          try (InputStream in = file.openInputStream()) {
+            final byte[] bytes = ByteStreams.toByteArray(in);
+            return defineClass(name, bytes, 0, bytes.length);
+          } catch (final IOException e) {
+            throw new ClassNotFoundException(name, e);
+          }
+        }
+      }
+      throw new ClassNotFoundException(name);
+    }
+  }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.benchmark;
+
+import feign.Client;
+import feign.Feign;
+import feign.Logger;
+import feign.Logger.Level;
+import feign.Response;
+import feign.Retryer;
+import feign.hc5.ApacheHttp5Client;
+import feign.httpclient.ApacheHttpClient;
+import io.netty.buffer.ByteBuf;
+import io.reactivex.netty.protocol.http.server.HttpServer;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the Apache clients when 64 callers share them, with the pool of their library's
+ * defaults and with the one of their builders.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@Threads(64)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ConcurrentRequestBenchmarks {
+
+  private static final int SERVER_PORT = 8766;
+  private HttpServer<ByteBuf, ByteBuf> server;
+  private ApacheHttpClient apacheDefault;
+  private ApacheHttpClient apachePooled;
+  private ApacheHttp5Client hc5Default;
+  private ApacheHttp5Client hc5Pooled;
+  private FeignTestInterface apacheDefaultFeign;
+  private FeignTestInterface apachePooledFeign;
+  private FeignTestInterface hc5DefaultFeign;
+  private FeignTestInterface hc5PooledFeign;
+
+  @Setup
+  public void setup() {
+    server = HttpServer.newServer(SERVER_PORT)
+        .start((request, response) -> null);
+    apacheDefault = new ApacheHttpClient(
+        org.apache.http.impl.client.HttpClientBuilder.create().build());
+    apachePooled = ApacheHttpClient.builder().maxConnectionsPerRoute(64).build();
+    hc5Default = new ApacheHttp5Client(
+        org.apache.hc.client5.http.impl.classic.HttpClientBuilder.create().build());
+    hc5Pooled = ApacheHttp5Client.builder().maxConnectionsPerRoute(64).build();
+    apacheDefaultFeign = feign(apacheDefault);
+    apachePooledFeign = feign(apachePooled);
+    hc5DefaultFeign = feign(hc5Default);
+    hc5PooledFeign = feign(hc5Pooled);
+  }
+
+  private static FeignTestInterface feign(Client client) {
+    return Feign.builder()
+        .client(client)
+        .logLevel(Level.NONE)
+        .logger(new Logger.ErrorLogger())
+        .retryer(new Retryer.Default())
+        .target(FeignTestInterface.class, "http://localhost:" + SERVER_PORT);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException, InterruptedException {
+    apacheDefault.close();
+    apachePooled.close();
+    hc5Default.close();
+    hc5Pooled.close();
+    server.shutdown();
+  }
+
+  /**
+   * HttpClient 4 with its default pool of 2 connections per route.
+   */
+  @Benchmark
+  public boolean query_apacheHttpClientWithDefaultPool() {
+    try (Response ignored = apacheDefaultFeign.query()) {
+      return true;
+    }
+  }
+
+  /**
+   * HttpClient 4 with a connection per caller.
+   */
+  @Benchmark
+  public boolean query_apacheHttpClientWithBuilderPool() {
+    try (Response ignored = apachePooledFeign.query()) {
+      return true;
+    }
+  }
+
+  /**
+   * HttpClient 5 with its default pool of 5 connections per route.
+   */
+  @Benchmark
+  public boolean query_apacheHttp5ClientWithDefaultPool() {
+    try (Response ignored = hc5DefaultFeign.query()) {
+      return true;
+    }
+  }
+
+  /**
+   * HttpClient 5 with a connection per caller.
+   */
+  @Benchmark
+  public boolean query_apacheHttp5ClientWithBuilderPool() {
+    try (Response ignored = hc5PooledFeign.query()) {
+      return true;
+    }
+  }
+}
@@ -17,6 +17,7 @@ import java.util.List;
 import feign.Body;
 import feign.Headers;
 import feign.Param;
+import feign.Request;
 import feign.RequestLine;
 import feign.Response;
 
@@ -26,6 +27,9 @@ interface FeignTestInterface {
   @RequestLine("GET /?Action=GetUser&Version=2010-05-08&limit=1")
   Response query();
 
+  @RequestLine("GET /?Action=GetUser&Version=2010-05-08&limit=1")
+  Response query(Request.Options options);
+
   @RequestLine("GET /domains/{domainId}/records?name={name}&type={type}")
   Response mixedParams(@Param("domainId") int id,
                        @Param("name") String nameFilter,
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.benchmark;
+
+import feign.AsyncClient;
+import feign.AsyncFeign;
+import feign.Client;
+import feign.Feign;
+import feign.HeaderMap;
+import feign.Param;
+import feign.QueryMap;
+import feign.Request;
+import feign.RequestLine;
+import feign.Response;
+import org.openjdk.jmh.annotations.*;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a call through the synchronous and asynchronous method handlers against clients that do
+ * no I/O, so only the work done by Feign itself is measured. Run with {@code -prof gc} and compare
+ * {@code gc.alloc.rate.norm}, the bytes allocated per call, with a previous run to catch
+ * allocation regressions on the invocation path.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar InvocationBenchmarks -prof gc
+ * </pre>
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class InvocationBenchmarks {
+
+  private InvocationTestInterface api;
+  private AsyncInvocationTestInterface asyncApi;
+  private Request.Options options;
+  private Map<String, Object> queryMap;
+  private Map<String, Object> headerMap;
+
+  @Setup
+  public void setup() {
+    Client fakeClient = (request, options) -> Response.builder()
+        .status(200)
+        .reason("OK")
+        .headers(Collections.emptyMap())
+        .request(request)
+        .build();
+    api = Feign.builder()
+        .client(fakeClient)
+        .target(InvocationTestInterface.class, "http://localhost");
+    asyncApi = AsyncFeign.<Void>asyncBuilder()
+        .client(new AsyncClient.Pseudo<>(fakeClient))
+        .target(AsyncInvocationTestInterface.class, "http://localhost");
+    options = new Request.Options(1, TimeUnit.SECONDS, 1, TimeUnit.SECONDS, true);
+    queryMap = new LinkedHashMap<>();
+    queryMap.put("limit", 10);
+    queryMap.put("offset", 20);
+    headerMap = new LinkedHashMap<>();
+    headerMap.put("X-Tenant", "tenant");
+  }
+
+  /**
+   * How much does a call without arguments cost?
+   */
+  @Benchmark
+  public Response noArguments() {
+    return api.noArguments();
+  }
+
+  /**
+   * How much does a call with path and query parameters cost?
+   */
+  @Benchmark
+  public Response pathAndQuery() {
+    return api.pathAndQuery("d290f1ee", "name");
+  }
+
+  /**
+   * How much does a call overriding the options cost?
+   */
+  @Benchmark
+  public Response withOptions() {
+    return api.withOptions("d290f1ee", options);
+  }
+
+  /**
+   * How much does a call with query and header maps cost?
+   */
+  @Benchmark
+  public Response withMaps() {
+    return api.withMaps(queryMap, headerMap);
+  }
+
+  /**
+   * How much does an asynchronous call without arguments cost, compared to {@link #noArguments()}?
+   */
+  @Benchmark
+  public Response asyncNoArguments() {
+    return asyncApi.noArguments().join();
+  }
+
+  /**
+   * How much does an asynchronous call with path and query parameters cost?
+   */
+  @Benchmark
+  public Response asyncPathAndQuery() {
+    return asyncApi.pathAndQuery("d290f1ee", "name").join();
+  }
+
+  interface InvocationTestInterface {
+
+    @RequestLine("GET /")
+    Response noArguments();
+
+    @RequestLine("GET /records/{id}?name={name}")
+    Response pathAndQuery(@Param("id") String id, @Param("name") String name);
+
+    @RequestLine("GET /records/{id}")
+    Response withOptions(@Param("id") String id, Request.Options options);
+
+    @RequestLine("GET /records")
+    Response withMaps(@QueryMap Map<String, Object> queryMap,
+                      @HeaderMap Map<String, Object> headerMap);
+  }
+
+  interface AsyncInvocationTestInterface {
+
+    @RequestLine("GET /")
+    CompletableFuture<Response> noArguments();
+
+    @RequestLine("GET /records/{id}?name={name}")
+    CompletableFuture<Response> pathAndQuery(@Param("id") String id, @Param("name") String name);
+  }
+}
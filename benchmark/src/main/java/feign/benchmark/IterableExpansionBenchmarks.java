@@ -0,0 +1,82 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.benchmark;
+
+import feign.CollectionFormat;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Util;
+import feign.template.QueryTemplate;
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the expansion of iterable query parameters for each {@link CollectionFormat}. The time
+ * per operation should grow linearly with the number of elements.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class IterableExpansionBenchmarks {
+
+  @Param({"10", "1000", "100000"})
+  private int size;
+
+  @Param({"EXPLODED", "CSV", "SSV", "TSV", "PIPES"})
+  private CollectionFormat collectionFormat;
+
+  private Map<String, ?> variables;
+  private QueryTemplate queryTemplate;
+  private RequestTemplate requestTemplate;
+
+  @Setup
+  public void setup() {
+    List<String> ids = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      ids.add("d290f1ee-" + i);
+    }
+    variables = Collections.singletonMap("ids", ids);
+    queryTemplate = QueryTemplate.create("ids", Collections.singletonList("{ids}"), Util.UTF_8,
+        collectionFormat);
+    requestTemplate = new RequestTemplate()
+        .method(Request.HttpMethod.GET)
+        .uri("/items")
+        .collectionFormat(collectionFormat)
+        .query("ids", "{ids}");
+    requestTemplate.target("http://localhost");
+  }
+
+  /**
+   * How long does it take to expand a single query template?
+   */
+  @Benchmark
+  public String expandQuery() {
+    return queryTemplate.expand(variables);
+  }
+
+  /**
+   * How long does it take to resolve a request template into a request?
+   */
+  @Benchmark
+  public Request resolveRequest() {
+    return requestTemplate.resolve(variables).request();
+  }
+}
@@ -15,11 +15,14 @@ package feign.benchmark;
 
 
 
+import feign.Client;
 import feign.Feign;
 import feign.Logger;
 import feign.Logger.Level;
+import feign.PoolingClient;
 import feign.Response;
 import feign.Retryer;
+import feign.netty.NettyClient;
 import io.reactivex.netty.protocol.http.server.HttpServer;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
@@ -50,7 +53,14 @@ public class RealRequestBenchmarks {
   private HttpServer<ByteBuf, ByteBuf> server;
   private OkHttpClient client;
   private FeignTestInterface okFeign;
+  private PoolingClient poolingClient;
+  private FeignTestInterface poolingFeign;
+  private FeignTestInterface defaultFeign;
+  private NettyClient nettyClient;
+  private FeignTestInterface nettyFeign;
   private Request queryRequest;
+  /* differs from the client's defaults, like most per-method options */
+  private feign.Request.Options queryOptions;
 
   @Setup
   public void setup() {
@@ -65,13 +75,30 @@ public class RealRequestBenchmarks {
         .logger(new Logger.ErrorLogger())
         .retryer(new Retryer.Default())
         .target(FeignTestInterface.class, "http://localhost:" + SERVER_PORT);
+    poolingClient = new PoolingClient();
+    poolingFeign = feign(poolingClient);
+    defaultFeign = feign(new Client.Default(null, null));
+    nettyClient = new NettyClient();
+    nettyFeign = feign(nettyClient);
     queryRequest = new Request.Builder()
         .url("http://localhost:" + SERVER_PORT + "/?Action=GetUser&Version=2010-05-08&limit=1")
         .build();
+    queryOptions = new feign.Request.Options(5, TimeUnit.SECONDS, 30, TimeUnit.SECONDS, true);
+  }
+
+  private static FeignTestInterface feign(Client client) {
+    return Feign.builder()
+        .client(client)
+        .logLevel(Level.NONE)
+        .logger(new Logger.ErrorLogger())
+        .retryer(new Retryer.Default())
+        .target(FeignTestInterface.class, "http://localhost:" + SERVER_PORT);
   }
 
   @TearDown
   public void tearDown() throws InterruptedException {
+    poolingClient.close();
+    nettyClient.close();
     server.shutdown();
   }
 
@@ -95,4 +122,46 @@ public class RealRequestBenchmarks {
       return true;
     }
   }
+
+  /**
+   * How fast can we execute get commands synchronously using Feign, with options that differ from
+   * the client's?
+   */
+  @Benchmark
+  public boolean query_feignUsingOkHttpWithOptions() {
+    try (Response ignored = okFeign.query(queryOptions)) {
+      return true;
+    }
+  }
+
+  /**
+   * How fast can we execute get commands synchronously using Feign and the JDK's
+   * HttpURLConnection?
+   */
+  @Benchmark
+  public boolean query_feignUsingDefaultClient() {
+    try (Response ignored = defaultFeign.query()) {
+      return true;
+    }
+  }
+
+  /**
+   * How fast can we execute get commands synchronously using Feign and its pooling client?
+   */
+  @Benchmark
+  public boolean query_feignUsingPoolingClient() {
+    try (Response ignored = poolingFeign.query()) {
+      return true;
+    }
+  }
+
+  /**
+   * How fast can we execute get commands synchronously using Feign and Netty?
+   */
+  @Benchmark
+  public boolean query_feignUsingNettyClient() {
+    try (Response ignored = nettyFeign.query()) {
+      return true;
+    }
+  }
 }
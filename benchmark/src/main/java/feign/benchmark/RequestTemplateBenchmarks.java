@@ -0,0 +1,112 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import feign.Contract;
+import feign.Feign;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+
+/**
+ * How long does it take to turn the template of a method and its arguments into a request, without
+ * considering network?
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RequestTemplateBenchmarks {
+
+  private RequestTemplate mixedParams;
+  private RequestTemplate headers;
+  private Map<String, Object> mixedParamsVariables;
+  private Map<String, Object> headersVariables;
+  private FeignTestInterface api;
+
+  @Setup
+  public void setup() {
+    List<MethodMetadata> metadata =
+        new Contract.Default().parseAndValidateMetadata(FeignTestInterface.class);
+    for (MethodMetadata md : metadata) {
+      if (md.configKey().startsWith("FeignTestInterface#mixedParams")) {
+        mixedParams = md.template();
+      } else if (md.configKey().startsWith("FeignTestInterface#headers")) {
+        headers = md.template();
+      }
+    }
+    mixedParamsVariables = new LinkedHashMap<>();
+    mixedParamsVariables.put("domainId", 1234);
+    mixedParamsVariables.put("name", "www.denominator.io.");
+    mixedParamsVariables.put("type", "CNAME");
+    headersVariables = new LinkedHashMap<>();
+    headersVariables.put("authToken", "ABCDEFG");
+
+    api = Feign.builder()
+        .client((request, options) -> Response.builder()
+            .status(200)
+            .reason("ok")
+            .headers(new LinkedHashMap<>())
+            .request(request)
+            .build())
+        .target(FeignTestInterface.class, "http://localhost");
+  }
+
+  /**
+   * Copying and resolving the template of a method with path and query expressions.
+   */
+  @Benchmark
+  public Request resolve_mixedParams() {
+    return resolve(mixedParams, mixedParamsVariables);
+  }
+
+  /**
+   * Copying and resolving the template of a method with a header expression.
+   */
+  @Benchmark
+  public Request resolve_headers() {
+    return resolve(headers, headersVariables);
+  }
+
+  /**
+   * The whole call through the proxy, answered by a client that does nothing.
+   */
+  @Benchmark
+  public Response invoke_mixedParams() {
+    return api.mixedParams(1234, "www.denominator.io.", "CNAME");
+  }
+
+  private static Request resolve(RequestTemplate template, Map<String, Object> variables) {
+    RequestTemplate mutable = RequestTemplate.from(template);
+    mutable.target("http://localhost");
+    return mutable.resolve(variables).request();
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.benchmark;
+
+import feign.Util;
+import feign.template.UriUtils;
+import org.openjdk.jmh.annotations.*;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares pct-encoding of path and query values against the previous regex and
+ * {@link ByteArrayOutputStream} based implementation. Run with {@code -prof gc} to compare the
+ * bytes allocated per operation.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class UriEncodingBenchmarks {
+
+  private static final Pattern PCT_ENCODED_PATTERN = Pattern.compile("%[0-9A-Fa-f][0-9A-Fa-f]");
+
+  @Param({"unreserved", "reserved", "encoded", "unicode"})
+  private String value;
+
+  private String input;
+  private StringBuilder builder;
+
+  @Setup
+  public void setup() {
+    switch (value) {
+      case "unreserved":
+        input = "d290f1ee-6c54-4b01-90e6-d701748f0851";
+        break;
+      case "reserved":
+        input = "name=James Bond;location=England&Britain/London";
+        break;
+      case "encoded":
+        input = "name%3DJames%20Bond%3Blocation%3DEngland";
+        break;
+      default:
+        input = "Jürgen Müller/Köln";
+    }
+    builder = new StringBuilder(256);
+  }
+
+  /**
+   * How fast is the previous implementation?
+   */
+  @Benchmark
+  public String encode_previous() {
+    return previousEncodeChunk(input, Util.UTF_8, false);
+  }
+
+  /**
+   * How fast is the lookup table implementation?
+   */
+  @Benchmark
+  public String encode() {
+    return UriUtils.encode(input, Util.UTF_8);
+  }
+
+  /**
+   * How fast is encoding directly into an existing buffer?
+   */
+  @Benchmark
+  public StringBuilder appendEncoded() {
+    builder.setLength(0);
+    return UriUtils.appendEncoded(builder, input, Util.UTF_8);
+  }
+
+  /**
+   * How fast is encoding a value that may already contain pct-encoded sequences, previously?
+   */
+  @Benchmark
+  public String encodeReserved_previous() {
+    String encoded = previousEncodeChunk(input, Util.UTF_8, true);
+    return encoded.replaceAll("%2F", "/");
+  }
+
+  /**
+   * How fast is encoding a value that may already contain pct-encoded sequences?
+   */
+  @Benchmark
+  public String encodeReserved() {
+    return UriUtils.decodeSlash(UriUtils.encode(input, Util.UTF_8, true));
+  }
+
+  /* the implementation of UriUtils prior to the lookup table, kept for comparison */
+  private static String previousEncodeChunk(String value, Charset charset, boolean allowReserved) {
+    if (previousIsEncoded(value, charset)) {
+      return value;
+    }
+    byte[] data = value.getBytes(charset);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    for (byte b : data) {
+      if (isUnreserved((char) b)) {
+        bos.write(b);
+      } else if (isReserved((char) b) && allowReserved) {
+        bos.write(b);
+      } else {
+        bos.write('%');
+        bos.write(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)));
+        bos.write(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+      }
+    }
+    return new String(bos.toByteArray(), charset);
+  }
+
+  private static boolean previousIsEncoded(String value, Charset charset) {
+    for (byte b : value.getBytes(charset)) {
+      if (!isUnreserved((char) b) && b != '%') {
+        return false;
+      }
+    }
+    return PCT_ENCODED_PATTERN.matcher(value).find();
+  }
+
+  private static boolean isUnreserved(int c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+        || c == '-' || c == '.' || c == '_' || c == '~';
+  }
+
+  private static boolean isReserved(int c) {
+    return ":/?#[]@!$&'()*+,;=".indexOf(c) != -1;
+  }
+}
@@ -107,7 +107,8 @@ public class WhatShouldWeCacheBenchmarks {
   }
 
   /**
-   * How fast re-parsing the annotated http api for each http request, without considering network?
+   * How fast is binding the annotated http api to a new target for each http request, without
+   * considering network? The api is only parsed the first time it is targeted.
    */
   @Benchmark
   public Response buildAndQuery_fake_cachedFeign() {
@@ -116,6 +117,15 @@ public class WhatShouldWeCacheBenchmarks {
         .query();
   }
 
+  /**
+   * How fast is creating a feign instance for an api that was already targeted?
+   */
+  @Benchmark
+  public FeignTestInterface newInstance_cachedFeign() {
+    return cachedFakeFeign.newInstance(
+        new HardCodedTarget<FeignTestInterface>(FeignTestInterface.class, "http://localhost"));
+  }
+
   /**
    * How fast is our advice to use a cached api for each http request, without considering network?
    */
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.benchmark;
+
+import feign.AsyncFeign;
+import feign.Feign;
+import feign.Logger;
+import feign.Logger.Level;
+import feign.RequestLine;
+import feign.Response;
+import feign.Retryer;
+import feign.http2client.Http2Client;
+import io.netty.buffer.ByteBuf;
+import io.reactivex.netty.protocol.http.server.HttpServer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Http2Client}, only built on JDK 11, through {@link Feign} and {@link AsyncFeign}.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class Http2ClientBenchmarks {
+
+  private static final int SERVER_PORT = 8767;
+  private HttpServer<ByteBuf, ByteBuf> server;
+  private FeignTestInterface feign;
+  private AsyncTestInterface asyncFeign;
+
+  public interface AsyncTestInterface {
+
+    @RequestLine("GET /?Action=GetUser&Version=2010-05-08&limit=1")
+    CompletableFuture<Response> query();
+  }
+
+  @Setup
+  public void setup() {
+    server = HttpServer.newServer(SERVER_PORT)
+        .start((request, response) -> null);
+    Http2Client client = new Http2Client();
+    feign = Feign.builder()
+        .client(client)
+        .logLevel(Level.NONE)
+        .logger(new Logger.ErrorLogger())
+        .retryer(new Retryer.Default())
+        .target(FeignTestInterface.class, "http://localhost:" + SERVER_PORT);
+    asyncFeign = AsyncFeign.<Object>asyncBuilder()
+        .client(client)
+        .logLevel(Level.NONE)
+        .logger(new Logger.ErrorLogger())
+        .target(AsyncTestInterface.class, "http://localhost:" + SERVER_PORT);
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    server.shutdown();
+  }
+
+  /**
+   * How fast can we execute get commands synchronously using Feign and the JDK's HttpClient?
+   */
+  @Benchmark
+  public boolean query_feignUsingHttp2Client() {
+    try (Response ignored = feign.query()) {
+      return true;
+    }
+  }
+
+  /**
+   * How fast can we execute get commands asynchronously, waiting for each in turn?
+   */
+  @Benchmark
+  public boolean query_asyncFeignUsingHttp2Client() {
+    try (Response ignored = asyncFeign.query().join()) {
+      return true;
+    }
+  }
+}
@@ -13,27 +13,28 @@
  */
 package feign;
 
-import java.io.IOException;
-import java.lang.reflect.Type;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.function.Supplier;
 import feign.Logger.NoOpLogger;
+import feign.ReflectiveFeign.ParseHandlersByName;
 import feign.Request.Options;
 import feign.Target.HardCodedTarget;
 import feign.codec.Decoder;
 import feign.codec.Encoder;
 import feign.codec.ErrorDecoder;
+import feign.querymap.FieldQueryMapEncoder;
 
 /**
  * Enhances {@link Feign} to provide support for asynchronous clients. Context (for example for
  * session cookies or tokens) is explicit, as calls for the same session may be done across several
  * threads. <br>
  * <br>
- * {@link Retryer} is not supported in this model, as that is a blocking API.
- * {@link ExceptionPropagationPolicy} is made redundant as {@link RetryableException} is never
- * thrown. <br>
- * Alternative approaches to retrying can be handled through {@link AsyncClient clients}. <br>
+ * {@link Retryer} is not supported in this model, as that is a blocking API. Retries are configured
+ * with an {@link AsyncRetryer} instead, which schedules each new attempt on a timer rather than
+ * parking a thread. {@link ExceptionPropagationPolicy} is made redundant, as a failure is completed
+ * with its original cause once the retries are exhausted. <br>
  * <br>
  * Target interface methods must return {@link CompletableFuture} with a non-wildcard type. As the
  * completion is done by the {@link AsyncClient}, it is important that any subsequent processing on
@@ -57,14 +58,39 @@ public abstract class AsyncFeign<C> extends Feign {
     });
   }
 
+  private static class LazyInitializedRetryScheduler {
+
+    private static final ScheduledExecutorService instance = newRetryScheduler();
+
+    private static ScheduledExecutorService newRetryScheduler() {
+      final ScheduledThreadPoolExecutor result = new ScheduledThreadPoolExecutor(1, r -> {
+        final Thread thread = new Thread(r, "feign-async-retry");
+        thread.setDaemon(true);
+        return thread;
+      });
+      // cancelled invocations don't leave their retries queued
+      result.setRemoveOnCancelPolicy(true);
+      return result;
+    }
+  }
+
   public static class AsyncBuilder<C> {
 
-    private final Builder builder;
     private Supplier<C> defaultContextSupplier = () -> null;
     private AsyncClient<C> client;
-
-    private final Logger.Level logLevel = Logger.Level.NONE;
-    private final Logger logger = new NoOpLogger();
+    private AsyncRetryer retryer = AsyncRetryer.NEVER_RETRY;
+    private ScheduledExecutorService retryScheduler;
+
+    private final List<RequestInterceptor> requestInterceptors = new ArrayList<>();
+    private Logger.Level logLevel = Logger.Level.NONE;
+    private Contract contract = new Contract.Default();
+    private Logger logger = new NoOpLogger();
+    private Encoder encoder = new Encoder.Default();
+    private QueryMapEncoder queryMapEncoder = new FieldQueryMapEncoder();
+    private Options options = new Options();
+    private InvocationHandlerFactory invocationHandlerFactory =
+        new InvocationHandlerFactory.Default();
+    private boolean lazyMethodHandlers;
 
     private Decoder decoder = new Decoder.Default();
     private ErrorDecoder errorDecoder = new ErrorDecoder.Default();
@@ -73,7 +99,6 @@ public abstract class AsyncFeign<C> extends Feign {
 
     public AsyncBuilder() {
       super();
-      this.builder = Feign.builder();
     }
 
     public AsyncBuilder<C> defaultContextSupplier(Supplier<C> supplier) {
@@ -86,6 +111,26 @@ public abstract class AsyncFeign<C> extends Feign {
       return this;
     }
 
+    /**
+     * Retries failed requests, and responses decoded to a {@link RetryableException}, by sending
+     * the request again through the {@link AsyncClient}. Defaults to
+     * {@link AsyncRetryer#NEVER_RETRY}.
+     */
+    public AsyncBuilder<C> retryer(AsyncRetryer retryer) {
+      this.retryer = retryer;
+      return this;
+    }
+
+    /**
+     * The timer on which retries wait for their backoff. The scheduled task only submits the next
+     * attempt to the {@link AsyncClient}. Defaults to a single daemon thread shared by all
+     * instances.
+     */
+    public AsyncBuilder<C> retryScheduler(ScheduledExecutorService retryScheduler) {
+      this.retryScheduler = retryScheduler;
+      return this;
+    }
+
     /**
      * @see Builder#mapAndDecode(ResponseMapper, Decoder)
      */
@@ -144,6 +189,9 @@ public abstract class AsyncFeign<C> extends Feign {
         client = new AsyncClient.Default<>(new Client.Default(null, null),
             LazyInitializedExecutorService.instance);
       }
+      if (retryScheduler == null) {
+        retryScheduler = LazyInitializedRetryScheduler.instance;
+      }
 
       return this;
     }
@@ -152,13 +200,13 @@ public abstract class AsyncFeign<C> extends Feign {
       return new ReflectiveAsyncFeign<>(lazyInits());
     }
 
-    // start of builder delgates
+    // start of Feign.Builder settings
 
     /**
      * @see Builder#logLevel(Logger.Level)
      */
     public AsyncBuilder<C> logLevel(Logger.Level logLevel) {
-      builder.logLevel(logLevel);
+      this.logLevel = logLevel;
       return this;
     }
 
@@ -166,7 +214,7 @@ public abstract class AsyncFeign<C> extends Feign {
      * @see Builder#contract(Contract)
      */
     public AsyncBuilder<C> contract(Contract contract) {
-      builder.contract(contract);
+      this.contract = contract;
       return this;
     }
 
@@ -174,7 +222,7 @@ public abstract class AsyncFeign<C> extends Feign {
      * @see Builder#logLevel(Logger.Level)
      */
     public AsyncBuilder<C> logger(Logger logger) {
-      builder.logger(logger);
+      this.logger = logger;
       return this;
     }
 
@@ -182,7 +230,7 @@ public abstract class AsyncFeign<C> extends Feign {
      * @see Builder#encoder(Encoder)
      */
     public AsyncBuilder<C> encoder(Encoder encoder) {
-      builder.encoder(encoder);
+      this.encoder = encoder;
       return this;
     }
 
@@ -190,7 +238,7 @@ public abstract class AsyncFeign<C> extends Feign {
      * @see Builder#queryMapEncoder(QueryMapEncoder)
      */
     public AsyncBuilder<C> queryMapEncoder(QueryMapEncoder queryMapEncoder) {
-      builder.queryMapEncoder(queryMapEncoder);
+      this.queryMapEncoder = queryMapEncoder;
       return this;
     }
 
@@ -199,7 +247,7 @@ public abstract class AsyncFeign<C> extends Feign {
      * @see Builder#options(Options)
      */
     public AsyncBuilder<C> options(Options options) {
-      builder.options(options);
+      this.options = options;
       return this;
     }
 
@@ -207,7 +255,7 @@ public abstract class AsyncFeign<C> extends Feign {
      * @see Builder#requestInterceptor(RequestInterceptor)
      */
     public AsyncBuilder<C> requestInterceptor(RequestInterceptor requestInterceptor) {
-      builder.requestInterceptor(requestInterceptor);
+      this.requestInterceptors.add(requestInterceptor);
       return this;
     }
 
@@ -215,7 +263,19 @@ public abstract class AsyncFeign<C> extends Feign {
      * @see Builder#requestInterceptors(Iterable)
      */
     public AsyncBuilder<C> requestInterceptors(Iterable<RequestInterceptor> requestInterceptors) {
-      builder.requestInterceptors(requestInterceptors);
+      this.requestInterceptors.clear();
+      for (RequestInterceptor requestInterceptor : requestInterceptors) {
+        this.requestInterceptors.add(requestInterceptor);
+      }
+      return this;
+    }
+
+    /**
+     * @see Builder#lazyMethodHandlers()
+     */
+    @Experimental
+    public AsyncBuilder<C> lazyMethodHandlers() {
+      this.lazyMethodHandlers = true;
       return this;
     }
 
@@ -223,33 +283,36 @@ public abstract class AsyncFeign<C> extends Feign {
      * @see Builder#invocationHandlerFactory(InvocationHandlerFactory)
      */
     public AsyncBuilder<C> invocationHandlerFactory(InvocationHandlerFactory invocationHandlerFactory) {
-      builder.invocationHandlerFactory(invocationHandlerFactory);
+      this.invocationHandlerFactory = invocationHandlerFactory;
       return this;
     }
   }
 
-  private final ThreadLocal<AsyncInvocation<C>> activeContext;
-
-  private final Feign feign;
-
   private final Supplier<C> defaultContextSupplier;
-  private final AsyncClient<C> client;
 
-  private final Logger.Level logLevel;
-  private final Logger logger;
-
-  private final AsyncResponseHandler responseHandler;
+  private final Contract contract;
+  private final Options options;
+  private final Encoder encoder;
+  private final Decoder decoder;
+  private final ErrorDecoder errorDecoder;
+  private final QueryMapEncoder queryMapEncoder;
+  private final InvocationHandlerFactory invocationHandlerFactory;
+  private final boolean lazyMethodHandlers;
+  private final AsynchronousMethodHandler.Factory<C> methodHandlerFactory;
 
   protected AsyncFeign(AsyncBuilder<C> asyncBuilder) {
-    this.activeContext = new ThreadLocal<>();
-
     this.defaultContextSupplier = asyncBuilder.defaultContextSupplier;
-    this.client = asyncBuilder.client;
 
-    this.logLevel = asyncBuilder.logLevel;
-    this.logger = asyncBuilder.logger;
+    this.contract = asyncBuilder.contract;
+    this.options = asyncBuilder.options;
+    this.encoder = asyncBuilder.encoder;
+    this.decoder = asyncBuilder.decoder;
+    this.errorDecoder = asyncBuilder.errorDecoder;
+    this.queryMapEncoder = asyncBuilder.queryMapEncoder;
+    this.invocationHandlerFactory = asyncBuilder.invocationHandlerFactory;
+    this.lazyMethodHandlers = asyncBuilder.lazyMethodHandlers;
 
-    this.responseHandler = new AsyncResponseHandler(
+    final AsyncResponseHandler responseHandler = new AsyncResponseHandler(
         asyncBuilder.logLevel,
         asyncBuilder.logger,
         asyncBuilder.decoder,
@@ -257,82 +320,14 @@ public abstract class AsyncFeign<C> extends Feign {
         asyncBuilder.decode404,
         asyncBuilder.closeAfterDecode);
 
-    asyncBuilder.builder.client(this::stageExecution);
-    asyncBuilder.builder.decoder(this::stageDecode);
-    asyncBuilder.builder.forceDecoding(); // force all handling through stageDecode
-
-    this.feign = asyncBuilder.builder.build();
-  }
-
-  private Response stageExecution(Request request, Options options) {
-    final Response result = Response.builder()
-        .status(200)
-        .request(request)
-        .build();
-
-    final AsyncInvocation<C> invocationContext = activeContext.get();
-
-    invocationContext.setResponseFuture(
-        client.execute(request, options, Optional.ofNullable(invocationContext.context())));
-
-
-    return result;
-  }
-
-  // from SynchronousMethodHandler
-  long elapsedTime(long start) {
-    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
-  }
-
-
-  private Object stageDecode(Response response, Type type) {
-    final AsyncInvocation<C> invocationContext = activeContext.get();
-
-    final CompletableFuture<Object> result = new CompletableFuture<>();
-
-    invocationContext.responseFuture().whenComplete((r, t) -> {
-      final long elapsedTime = elapsedTime(invocationContext.startNanos());
-
-      if (t != null) {
-        if (logLevel != Logger.Level.NONE && t instanceof IOException) {
-          final IOException e = (IOException) t;
-          logger.logIOException(invocationContext.configKey(), logLevel, e, elapsedTime);
-        }
-        result.completeExceptionally(t);
-      } else {
-        responseHandler.handleResponse(result, invocationContext.configKey(), r,
-            invocationContext.underlyingType(), elapsedTime);
-      }
-    });
-
-    result.whenComplete((r, t) -> {
-      if (result.isCancelled()) {
-        invocationContext.responseFuture().cancel(true);
-      }
-    });
-
-    if (invocationContext.isAsyncReturnType()) {
-      return result;
-    }
-    try {
-      return result.join();
-    } catch (final CompletionException e) {
-      final Response r = invocationContext.responseFuture().join();
-      Throwable cause = e.getCause();
-      if (cause == null) {
-        cause = e;
-      }
-      throw new AsyncJoinException(r.status(), cause.getMessage(), r.request(), cause);
-    }
-  }
-
-
-  protected void setInvocationContext(AsyncInvocation<C> invocationContext) {
-    activeContext.set(invocationContext);
-  }
-
-  protected void clearInvocationContext() {
-    activeContext.remove();
+    this.methodHandlerFactory = new AsynchronousMethodHandler.Factory<>(
+        asyncBuilder.client,
+        asyncBuilder.retryer,
+        asyncBuilder.retryScheduler,
+        new ArrayList<>(asyncBuilder.requestInterceptors),
+        asyncBuilder.logger,
+        asyncBuilder.logLevel,
+        responseHandler);
   }
 
   @Override
@@ -340,9 +335,17 @@ public abstract class AsyncFeign<C> extends Feign {
     return newInstance(target, defaultContextSupplier.get());
   }
 
-  public <T> T newInstance(Target<T> target, C context) {
-    return wrap(target.type(), feign.newInstance(target), context);
+  public abstract <T> T newInstance(Target<T> target, C context);
+
+  /**
+   * Creates a proxy whose methods send their requests straight to the {@link AsyncClient}, with
+   * {@code context}. The interface is only parsed the first time it is targeted.
+   */
+  protected <T> T newProxy(Target<T> target, C context) {
+    final ParseHandlersByName handlersByName = new ParseHandlersByName(contract, options, encoder,
+        decoder, queryMapEncoder, errorDecoder, methodHandlerFactory.withContext(context),
+        lazyMethodHandlers);
+    return new ReflectiveFeign(handlersByName, invocationHandlerFactory, queryMapEncoder)
+        .newInstance(target);
   }
-
-  protected abstract <T> T wrap(Class<T> type, T instance, C context);
 }
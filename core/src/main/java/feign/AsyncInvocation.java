@@ -15,6 +15,7 @@ package feign;
 
 import java.lang.reflect.Type;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 /**
  * A specific invocation of an APU
@@ -24,8 +25,12 @@ class AsyncInvocation<C> {
 
   private final C context;
   private final MethodInfo methodInfo;
-  private final long startNanos;
-  private CompletableFuture<Response> responseFuture;
+  private long startNanos;
+  private Request request;
+  private Request.Options options;
+  private AsyncRetryer retryer;
+  private volatile CompletableFuture<Response> responseFuture;
+  private volatile Future<?> pendingRetry;
 
   AsyncInvocation(C context, MethodInfo methodInfo) {
     super();
@@ -54,11 +59,53 @@ class AsyncInvocation<C> {
     return methodInfo.isAsyncReturnType();
   }
 
+  void setRequest(Request request, Request.Options options) {
+    this.request = request;
+    this.options = options;
+  }
+
+  Request request() {
+    return request;
+  }
+
+  Request.Options options() {
+    return options;
+  }
+
+  /**
+   * Only cloned once a retry is needed, the prototype is never used directly.
+   */
+  AsyncRetryer retryer(AsyncRetryer prototype) {
+    if (retryer == null) {
+      retryer = prototype.clone();
+    }
+    return retryer;
+  }
+
   void setResponseFuture(CompletableFuture<Response> responseFuture) {
+    this.startNanos = System.nanoTime();
     this.responseFuture = responseFuture;
   }
 
   CompletableFuture<Response> responseFuture() {
     return responseFuture;
   }
+
+  void setPendingRetry(Future<?> pendingRetry) {
+    this.pendingRetry = pendingRetry;
+  }
+
+  /**
+   * Cancels the attempt in flight, or the one waiting to be sent.
+   */
+  void cancel() {
+    final Future<?> retry = pendingRetry;
+    if (retry != null) {
+      retry.cancel(false);
+    }
+    final CompletableFuture<Response> response = responseFuture;
+    if (response != null) {
+      response.cancel(true);
+    }
+  }
 }
@@ -60,54 +60,78 @@ class AsyncResponseHandler {
                       Response response,
                       Type returnType,
                       long elapsedTime) {
+    try {
+      resultFuture.complete(handleResponse(configKey, response, returnType, elapsedTime));
+    } catch (final Exception e) {
+      resultFuture.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Like {@link #handleResponse(CompletableFuture, String, Response, Type, long)}, but returns the
+   * result or throws the failure directly, for synchronous callers.
+   */
+  Object handleResponse(String configKey,
+                        Response response,
+                        Type returnType,
+                        long elapsedTime)
+      throws Exception {
     // copied fairly liberally from SynchronousMethodHandler
     boolean shouldClose = true;
+    Exception error;
 
     try {
       if (logLevel != Level.NONE) {
-        response = logger.logAndRebufferResponse(configKey, logLevel, response,
-            elapsedTime);
+        if (Download.class == returnType && response.status() >= 200 && response.status() < 300) {
+          // log the headers only, the body stays unread
+          logger.logAndRebufferResponse(configKey, logLevel,
+              response.toBuilder().body((Response.Body) null).build(), elapsedTime);
+        } else {
+          response = logger.logAndRebufferResponse(configKey, logLevel, response,
+              elapsedTime);
+        }
       }
       if (Response.class == returnType) {
         if (response.body() == null) {
-          resultFuture.complete(response);
+          return response;
         } else if (response.body().length() == null
             || response.body().length() > MAX_RESPONSE_BUFFER_SIZE) {
           shouldClose = false;
-          resultFuture.complete(response);
+          return response;
         } else {
           // Ensure the response body is disconnected
           final byte[] bodyData = Util.toByteArray(response.body().asInputStream());
-          resultFuture.complete(response.toBuilder().body(bodyData).build());
+          return response.toBuilder().body(bodyData).build();
         }
       } else if (response.status() >= 200 && response.status() < 300) {
-        if (isVoidType(returnType)) {
-          resultFuture.complete(null);
+        if (Download.class == returnType) {
+          shouldClose = false;
+          return new Download(response);
+        } else if (isVoidType(returnType)) {
+          return null;
         } else {
           final Object result = decode(response, returnType);
           shouldClose = closeAfterDecode;
-          resultFuture.complete(result);
+          return result;
         }
       } else if (decode404 && response.status() == 404 && !isVoidType(returnType)) {
         final Object result = decode(response, returnType);
         shouldClose = closeAfterDecode;
-        resultFuture.complete(result);
+        return result;
       } else {
-        resultFuture.completeExceptionally(errorDecoder.decode(configKey, response));
+        error = errorDecoder.decode(configKey, response);
       }
     } catch (final IOException e) {
       if (logLevel != Level.NONE) {
         logger.logIOException(configKey, logLevel, e, elapsedTime);
       }
-      resultFuture.completeExceptionally(errorReading(response.request(), response, e));
-    } catch (final Exception e) {
-      resultFuture.completeExceptionally(e);
+      throw errorReading(response.request(), response, e);
     } finally {
       if (shouldClose) {
         ensureClosed(response.body());
       }
     }
-
+    throw error;
   }
 
   Object decode(Response response, Type type) throws IOException {
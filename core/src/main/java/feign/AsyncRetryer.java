@@ -0,0 +1,93 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * The non-blocking counterpart of {@link Retryer}, for {@link AsyncFeign}. Instead of sleeping, it
+ * tells how long to wait, and the next attempt is scheduled on a timer. Cloned for each invocation
+ * that needs a retry; implementations may keep state to determine if retries should continue.
+ */
+@Experimental
+public interface AsyncRetryer extends Cloneable {
+
+  /**
+   * If retry is permitted, returns the delay before the next attempt. Otherwise propagates the
+   * exception.
+   *
+   * @return time in milliseconds from now until the next attempt, {@code 0} or less to retry
+   *         immediately.
+   */
+  long nextAttemptDelay(RetryableException e);
+
+  AsyncRetryer clone();
+
+  /**
+   * Backs off exponentially, like {@link Retryer.Default}, and honours
+   * {@link RetryableException#retryAfter()} up to the maximum period.
+   */
+  class Default implements AsyncRetryer {
+
+    private Retryer.Default backoff;
+
+    public Default() {
+      this(100, SECONDS.toMillis(1), 5);
+    }
+
+    public Default(long period, long maxPeriod, int maxAttempts) {
+      this(new Retryer.Default(period, maxPeriod, maxAttempts));
+    }
+
+    private Default(Retryer.Default backoff) {
+      this.backoff = backoff;
+    }
+
+    @Override
+    public long nextAttemptDelay(RetryableException e) {
+      return backoff.nextInterval(e);
+    }
+
+    /**
+     * Copies this retryer with a fresh backoff, keeping its class so that subclasses keep their
+     * overrides.
+     */
+    @Override
+    public AsyncRetryer clone() {
+      try {
+        Default clone = (Default) super.clone();
+        clone.backoff = (Retryer.Default) backoff.clone();
+        return clone;
+      } catch (CloneNotSupportedException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+
+  /**
+   * Implementation that never retries request. It propagates the RetryableException.
+   */
+  AsyncRetryer NEVER_RETRY = new AsyncRetryer() {
+
+    @Override
+    public long nextAttemptDelay(RetryableException e) {
+      throw e;
+    }
+
+    @Override
+    public AsyncRetryer clone() {
+      return this;
+    }
+  };
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import static feign.Util.checkNotNull;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import feign.InvocationHandlerFactory.MethodHandler;
+import feign.Request.Options;
+import feign.codec.Decoder;
+import feign.codec.ErrorDecoder;
+
+/**
+ * Sends the request of a method through an {@link AsyncClient}, and decodes the response once the
+ * client completes it. Methods returning {@link CompletableFuture} get the result as is, others
+ * wait for it.
+ */
+@Experimental
+final class AsynchronousMethodHandler<C> implements MethodHandler {
+
+  private final MethodMetadata metadata;
+  private final MethodInfo methodInfo;
+  private final Target<?> target;
+  private final AsyncClient<C> client;
+  private final C context;
+  private final Optional<C> requestContext;
+  private final AsyncRetryer retryer;
+  private final ScheduledExecutorService retryScheduler;
+  private final List<RequestInterceptor> requestInterceptors;
+  private final Logger logger;
+  private final Logger.Level logLevel;
+  private final RequestTemplate.Factory buildTemplateFromArgs;
+  private final Options options;
+  /* parameters that may receive options, null when all of them are checked */
+  private final int[] optionsIndexes;
+  private final AsyncResponseHandler responseHandler;
+
+  private AsynchronousMethodHandler(Target<?> target, MethodMetadata metadata,
+      RequestTemplate.Factory buildTemplateFromArgs, Options options, Factory<C> factory) {
+    this.target = checkNotNull(target, "target");
+    this.metadata = checkNotNull(metadata, "metadata for %s", target);
+    this.methodInfo = new MethodInfo(metadata);
+    this.buildTemplateFromArgs = checkNotNull(buildTemplateFromArgs, "metadata for %s", target);
+    this.options = checkNotNull(options, "options for %s", target);
+    this.optionsIndexes = SynchronousMethodHandler.optionsIndexes(metadata.method());
+    this.client = factory.client;
+    this.context = factory.context;
+    this.requestContext = factory.requestContext;
+    this.retryer = factory.retryer;
+    this.retryScheduler = factory.retryScheduler;
+    this.requestInterceptors = factory.requestInterceptors;
+    this.logger = factory.logger;
+    this.logLevel = factory.logLevel;
+    this.responseHandler = factory.responseHandler;
+  }
+
+  @Override
+  public Object invoke(Object[] argv) throws Throwable {
+    RequestTemplate template = buildTemplateFromArgs.create(argv);
+    Options options = SynchronousMethodHandler.findOptions(argv, optionsIndexes, this.options);
+    Request request = targetRequest(template);
+
+    if (logLevel != Logger.Level.NONE) {
+      logger.logRequest(metadata.configKey(), logLevel, request);
+    }
+
+    AsyncInvocation<C> invocation = new AsyncInvocation<>(context, methodInfo);
+    invocation.setRequest(request, options);
+    CompletableFuture<Object> result = new CompletableFuture<>();
+    execute(invocation, result);
+
+    if (methodInfo.isAsyncReturnType()) {
+      result.whenComplete((r, t) -> {
+        if (result.isCancelled()) {
+          invocation.cancel();
+        }
+      });
+      return result;
+    }
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      throw e.getCause() != null ? e.getCause() : e;
+    }
+  }
+
+  Request targetRequest(RequestTemplate template) {
+    for (RequestInterceptor interceptor : requestInterceptors) {
+      interceptor.apply(template);
+    }
+    return target.apply(template);
+  }
+
+  private void execute(AsyncInvocation<C> invocation, CompletableFuture<Object> result) {
+    CompletableFuture<Response> response;
+    try {
+      response = client.execute(invocation.request(), invocation.options(), requestContext);
+    } catch (RuntimeException e) {
+      response = new CompletableFuture<>();
+      response.completeExceptionally(e);
+    }
+    invocation.setResponseFuture(response);
+    if (result.isCancelled()) {
+      response.cancel(true);
+    }
+    response.whenComplete((r, t) -> {
+      try {
+        handleResponse(invocation, r, t, result);
+      } catch (Throwable e) {
+        /* whenComplete would drop it, leaving the result pending forever */
+        result.completeExceptionally(e);
+      }
+    });
+  }
+
+  private void handleResponse(AsyncInvocation<C> invocation,
+                              Response response,
+                              Throwable t,
+                              CompletableFuture<Object> result) {
+    final long elapsedTime =
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - invocation.startNanos());
+
+    Throwable error = t;
+    if (t != null) {
+      if (logLevel != Logger.Level.NONE && t instanceof IOException) {
+        logger.logIOException(metadata.configKey(), logLevel, (IOException) t, elapsedTime);
+      }
+    } else {
+      try {
+        result.complete(responseHandler.handleResponse(metadata.configKey(), response,
+            methodInfo.underlyingReturnType(), elapsedTime));
+        return;
+      } catch (final Throwable e) {
+        error = e;
+      }
+    }
+    if (!retry(invocation, error, result)) {
+      result.completeExceptionally(error);
+    }
+  }
+
+  /**
+   * Schedules the next attempt, if {@code error} can be retried and the retryer allows it.
+   *
+   * @return false if {@code error} should complete the result.
+   */
+  private boolean retry(AsyncInvocation<C> invocation,
+                        Throwable error,
+                        CompletableFuture<Object> result) {
+    final Throwable cause =
+        error instanceof CompletionException && error.getCause() != null ? error.getCause()
+            : error;
+    final Request request = invocation.request();
+    final RetryableException retryable;
+    if (cause instanceof RetryableException) {
+      retryable = (RetryableException) cause;
+    } else if (cause instanceof IOException) {
+      retryable = FeignException.errorExecuting(request, (IOException) cause);
+    } else {
+      return false;
+    }
+    if (result.isDone() || (request.requestBody() != null
+        && !request.requestBody().isReplayable())) {
+      return false;
+    }
+
+    final long delay;
+    try {
+      delay = invocation.retryer(retryer).nextAttemptDelay(retryable);
+    } catch (final RetryableException e) {
+      if (e == retryable) {
+        return false;
+      }
+      result.completeExceptionally(e);
+      return true;
+    }
+    if (logLevel != Logger.Level.NONE) {
+      logger.logRetry(metadata.configKey(), logLevel);
+    }
+
+    invocation.setPendingRetry(retryScheduler.schedule(() -> {
+      try {
+        if (!result.isDone()) {
+          execute(invocation, result);
+        }
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      }
+    }, Math.max(0, delay), TimeUnit.MILLISECONDS));
+    return true;
+  }
+
+  /**
+   * Creates the handlers of the proxies bound to one context. The settings are shared, and so is
+   * the {@link AsyncResponseHandler}.
+   */
+  static final class Factory<C> implements ReflectiveFeign.MethodHandlerFactory {
+
+    private final AsyncClient<C> client;
+    private final C context;
+    private final Optional<C> requestContext;
+    private final AsyncRetryer retryer;
+    private final ScheduledExecutorService retryScheduler;
+    private final List<RequestInterceptor> requestInterceptors;
+    private final Logger logger;
+    private final Logger.Level logLevel;
+    private final AsyncResponseHandler responseHandler;
+
+    Factory(AsyncClient<C> client, AsyncRetryer retryer, ScheduledExecutorService retryScheduler,
+        List<RequestInterceptor> requestInterceptors, Logger logger, Logger.Level logLevel,
+        AsyncResponseHandler responseHandler) {
+      this(client, null, retryer, retryScheduler, requestInterceptors, logger, logLevel,
+          responseHandler);
+    }
+
+    private Factory(AsyncClient<C> client, C context, AsyncRetryer retryer,
+        ScheduledExecutorService retryScheduler, List<RequestInterceptor> requestInterceptors,
+        Logger logger, Logger.Level logLevel, AsyncResponseHandler responseHandler) {
+      this.client = checkNotNull(client, "client");
+      this.context = context;
+      this.requestContext = Optional.ofNullable(context);
+      this.retryer = checkNotNull(retryer, "retryer");
+      this.retryScheduler = checkNotNull(retryScheduler, "retryScheduler");
+      this.requestInterceptors = checkNotNull(requestInterceptors, "requestInterceptors");
+      this.logger = checkNotNull(logger, "logger");
+      this.logLevel = checkNotNull(logLevel, "logLevel");
+      this.responseHandler = checkNotNull(responseHandler, "responseHandler");
+    }
+
+    /**
+     * @return a factory for handlers sending {@code context} with each request.
+     */
+    Factory<C> withContext(C context) {
+      return new Factory<>(client, context, retryer, retryScheduler, requestInterceptors, logger,
+          logLevel, responseHandler);
+    }
+
+    /**
+     * The decoders are those of the shared {@link AsyncResponseHandler}.
+     */
+    @Override
+    public MethodHandler create(Target<?> target,
+                                MethodMetadata md,
+                                RequestTemplate.Factory buildTemplateFromArgs,
+                                Options options,
+                                Decoder decoder,
+                                ErrorDecoder errorDecoder) {
+      return new AsynchronousMethodHandler<>(target, md, buildTemplateFromArgs, options, this);
+    }
+  }
+}
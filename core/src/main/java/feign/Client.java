@@ -30,8 +30,6 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPOutputStream;
@@ -83,13 +81,8 @@ public interface Client {
             connection.getRequestMethod(), connection.getURL()));
       }
 
-      Map<String, Collection<String>> headers = new LinkedHashMap<>();
-      for (Map.Entry<String, List<String>> field : connection.getHeaderFields().entrySet()) {
-        // response message
-        if (field.getKey() != null) {
-          headers.put(field.getKey(), field.getValue());
-        }
-      }
+      // skips the status line, which is listed under a null name
+      Map<String, Collection<String>> headers = HttpHeaders.wrap(connection.getHeaderFields());
 
       Integer length = connection.getContentLength();
       if (length == -1) {
@@ -139,7 +132,7 @@ public interface Client {
           contentEncodingValues != null && contentEncodingValues.contains(ENCODING_DEFLATE);
 
       boolean hasAcceptHeader = false;
-      Integer contentLength = null;
+      Long contentLength = null;
       for (String field : request.headers().keySet()) {
         if (field.equalsIgnoreCase("Accept")) {
           hasAcceptHeader = true;
@@ -147,7 +140,7 @@ public interface Client {
         for (String value : request.headers().get(field)) {
           if (field.equals(CONTENT_LENGTH)) {
             if (!gzipEncodedRequest && !deflateEncodedRequest) {
-              contentLength = Integer.valueOf(value);
+              contentLength = Long.valueOf(value);
               connection.addRequestProperty(field, value);
             }
           } else {
@@ -160,7 +153,8 @@ public interface Client {
         connection.addRequestProperty("Accept", "*/*");
       }
 
-      if (request.body() != null) {
+      Request.Body body = request.requestBody();
+      if (body != null && (body.isStreaming() || body.asBytes() != null)) {
         if (contentLength != null) {
           connection.setFixedLengthStreamingMode(contentLength);
         } else {
@@ -174,7 +168,7 @@ public interface Client {
           out = new DeflaterOutputStream(out);
         }
         try {
-          out.write(request.body());
+          body.writeTo(out);
         } finally {
           try {
             out.close();
@@ -69,25 +69,30 @@ public enum CollectionFormat {
    */
   public CharSequence join(String field, Collection<String> values, Charset charset) {
     StringBuilder builder = new StringBuilder();
+    if (values.isEmpty()) {
+      return builder;
+    }
+    String encodedField = UriUtils.encode(field, charset);
     int valueCount = 0;
-    for (String value : values) {
-      if (separator == null) {
-        // exploded
+    if (separator == null) {
+      // exploded
+      for (String value : values) {
         builder.append(valueCount++ == 0 ? "" : "&");
-        builder.append(UriUtils.encode(field, charset));
+        builder.append(encodedField);
         if (value != null) {
           builder.append('=');
           builder.append(value);
         }
-      } else {
-        // delimited with a separator character
-        if (builder.length() == 0) {
-          builder.append(UriUtils.encode(field, charset));
-        }
+      }
+    } else {
+      // delimited with a separator character
+      String encodedSeparator = UriUtils.encode(separator, charset);
+      builder.append(encodedField);
+      for (String value : values) {
         if (value == null) {
           continue;
         }
-        builder.append(valueCount++ == 0 ? "=" : UriUtils.encode(separator, charset));
+        builder.append(valueCount++ == 0 ? "=" : encodedSeparator);
         builder.append(value);
       }
     }
@@ -0,0 +1,210 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * The idle connections of a {@link PoolingClient}, by route. At most {@code maxIdlePerRoute} of
+ * them are kept for each route, the most recently used leased first, and those idle for longer
+ * than the keep-alive are closed by a shared timer thread.
+ */
+final class ConnectionPool implements Closeable {
+
+  private final int maxIdlePerRoute;
+  private final long keepAliveNanos;
+  private final Map<String, ArrayDeque<HttpConnection>> idle = new HashMap<>();
+  private int idleCount;
+  private int leasedCount;
+  private long createdCount;
+  private long reusedCount;
+  private long evictedCount;
+  private ScheduledFuture<?> cleanup;
+  private boolean closed;
+
+  ConnectionPool(int maxIdlePerRoute, long keepAliveNanos) {
+    this.maxIdlePerRoute = maxIdlePerRoute;
+    this.keepAliveNanos = keepAliveNanos;
+  }
+
+  /**
+   * @return a healthy idle connection to {@code route}, or null if there is none.
+   */
+  HttpConnection lease(String route) {
+    List<HttpConnection> unhealthy = null;
+    HttpConnection leased = null;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("Client closed");
+      }
+      ArrayDeque<HttpConnection> connections = idle.get(route);
+      long now = System.nanoTime();
+      while (connections != null && !connections.isEmpty()) {
+        HttpConnection connection = connections.pollFirst();
+        idleCount--;
+        if (now - connection.idleSince < keepAliveNanos && connection.isHealthy()) {
+          leased = connection;
+          leasedCount++;
+          reusedCount++;
+          break;
+        }
+        evictedCount++;
+        if (unhealthy == null) {
+          unhealthy = new ArrayList<>();
+        }
+        unhealthy.add(connection);
+      }
+    }
+    closeAll(unhealthy);
+    return leased;
+  }
+
+  /**
+   * Counts a connection opened by the client, which goes back to the pool with
+   * {@link #release(HttpConnection)}.
+   */
+  synchronized void created() {
+    if (closed) {
+      throw new IllegalStateException("Client closed");
+    }
+    leasedCount++;
+    createdCount++;
+  }
+
+  /**
+   * Takes back a leased connection, keeping it only if it can serve another exchange.
+   */
+  void release(HttpConnection connection) {
+    HttpConnection evicted = connection;
+    synchronized (this) {
+      leasedCount--;
+      if (!closed && connection.isReusable()) {
+        ArrayDeque<HttpConnection> connections =
+            idle.computeIfAbsent(connection.route, route -> new ArrayDeque<>());
+        connection.idleSince = System.nanoTime();
+        connections.addFirst(connection);
+        idleCount++;
+        evicted = null;
+        if (connections.size() > maxIdlePerRoute) {
+          evicted = connections.pollLast();
+          idleCount--;
+          evictedCount++;
+        }
+        if (cleanup == null) {
+          scheduleCleanup(keepAliveNanos);
+        }
+      }
+    }
+    if (evicted != null) {
+      evicted.close();
+    }
+  }
+
+  /* runs on the timer, and schedules itself again while connections are idle */
+  private void evictExpired() {
+    List<HttpConnection> expired = new ArrayList<>();
+    synchronized (this) {
+      cleanup = null;
+      long now = System.nanoTime();
+      long next = Long.MAX_VALUE;
+      Iterator<ArrayDeque<HttpConnection>> routes = idle.values().iterator();
+      while (routes.hasNext()) {
+        ArrayDeque<HttpConnection> connections = routes.next();
+        /* the oldest are last */
+        while (!connections.isEmpty()
+            && now - connections.peekLast().idleSince >= keepAliveNanos) {
+          expired.add(connections.pollLast());
+          idleCount--;
+          evictedCount++;
+        }
+        if (connections.isEmpty()) {
+          routes.remove();
+        } else {
+          next = Math.min(next, connections.peekLast().idleSince + keepAliveNanos - now);
+        }
+      }
+      if (!closed && next != Long.MAX_VALUE) {
+        scheduleCleanup(next);
+      }
+    }
+    closeAll(expired);
+  }
+
+  private void scheduleCleanup(long delayNanos) {
+    cleanup = LazyInitializedCleaner.instance.schedule(this::evictExpired, delayNanos, NANOSECONDS);
+  }
+
+  synchronized PoolingClient.Stats stats() {
+    return new PoolingClient.Stats(idleCount, leasedCount, createdCount, reusedCount,
+        evictedCount);
+  }
+
+  /**
+   * Closes the idle connections. Those leased are closed as they are released.
+   */
+  @Override
+  public void close() {
+    List<HttpConnection> connections = new ArrayList<>();
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (ArrayDeque<HttpConnection> route : idle.values()) {
+        connections.addAll(route);
+      }
+      idle.clear();
+      idleCount = 0;
+      if (cleanup != null) {
+        cleanup.cancel(false);
+        cleanup = null;
+      }
+    }
+    closeAll(connections);
+  }
+
+  private static void closeAll(List<HttpConnection> connections) {
+    if (connections != null) {
+      for (HttpConnection connection : connections) {
+        connection.close();
+      }
+    }
+  }
+
+  private static class LazyInitializedCleaner {
+
+    private static final ScheduledExecutorService instance = newCleaner();
+
+    private static ScheduledExecutorService newCleaner() {
+      final ScheduledThreadPoolExecutor result = new ScheduledThreadPoolExecutor(1, r -> {
+        final Thread thread = new Thread(r, "feign-connection-cleaner");
+        thread.setDaemon(true);
+        return thread;
+      });
+      // closed pools don't leave their cleanups queued
+      result.setRemoveOnCancelPolicy(true);
+      return result;
+    }
+  }
+}
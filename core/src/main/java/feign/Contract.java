@@ -35,6 +35,20 @@ public interface Contract {
    */
   List<MethodMetadata> parseAndValidateMetadata(Class<?> targetType);
 
+  /**
+   * Lets {@link Feign} keep the metadata this contract parsed, instead of parsing each interface
+   * again for every target. The key is kept as long as the interface is loaded, so it must not
+   * reference the contract or anything it holds: the class of a contract without state is a good
+   * key.
+   *
+   * @return a key equal only for contracts that parse every interface the same way, or
+   *         {@literal null}, the default, to parse interfaces again for each target.
+   */
+  @Experimental
+  default Object cacheKey() {
+    return null;
+  }
+
   abstract class BaseContract implements Contract {
 
     /**
@@ -226,15 +240,8 @@ public interface Contract {
     static final Pattern REQUEST_LINE_PATTERN = Pattern.compile("^([A-Z]+)[ ]*(.*)$");
 
     public Default() {
-      super.registerClassAnnotation(Headers.class, (header, data) -> {
-        String[] headersOnType = header.value();
-        checkState(headersOnType.length > 0, "Headers annotation was empty on type %s.",
-            data.configKey());
-        Map<String, Collection<String>> headers = toMap(headersOnType);
-        headers.putAll(data.template().headers());
-        data.template().headers(null); // to clear
-        data.template().headers(headers);
-      });
+      super.registerClassAnnotation(Headers.class,
+          (header, data) -> GeneratedContract.classHeaders(data, header.value()));
       super.registerMethodAnnotation(RequestLine.class, (ann, data) -> {
         String requestLine = ann.value();
         checkState(emptyToNull(requestLine) != null,
@@ -246,29 +253,14 @@ public interface Contract {
               "RequestLine annotation didn't start with an HTTP verb on method %s",
               data.configKey()));
         } else {
-          data.template().method(HttpMethod.valueOf(requestLineMatcher.group(1)));
-          data.template().uri(requestLineMatcher.group(2));
-        }
-        data.template().decodeSlash(ann.decodeSlash());
-        data.template()
-            .collectionFormat(ann.collectionFormat());
-      });
-      super.registerMethodAnnotation(Body.class, (ann, data) -> {
-        String body = ann.value();
-        checkState(emptyToNull(body) != null, "Body annotation was empty on method %s.",
-            data.configKey());
-        if (body.indexOf('{') == -1) {
-          data.template().body(body);
-        } else {
-          data.template().bodyTemplate(body);
+          GeneratedContract.requestLine(data, HttpMethod.valueOf(requestLineMatcher.group(1)),
+              requestLineMatcher.group(2), ann.decodeSlash(), ann.collectionFormat());
         }
       });
-      super.registerMethodAnnotation(Headers.class, (header, data) -> {
-        String[] headersOnMethod = header.value();
-        checkState(headersOnMethod.length > 0, "Headers annotation was empty on method %s.",
-            data.configKey());
-        data.template().headers(toMap(headersOnMethod));
-      });
+      super.registerMethodAnnotation(Body.class,
+          (ann, data) -> GeneratedContract.body(data, ann.value()));
+      super.registerMethodAnnotation(Headers.class,
+          (header, data) -> GeneratedContract.headers(data, header.value()));
       super.registerParameterAnnotation(Param.class, (paramAnnotation, data, paramIndex) -> {
         String name = paramAnnotation.value();
         checkState(emptyToNull(name) != null, "Param annotation was empty on param %s.",
@@ -282,32 +274,21 @@ public interface Contract {
           data.formParams().add(name);
         }
       });
-      super.registerParameterAnnotation(QueryMap.class, (queryMap, data, paramIndex) -> {
-        checkState(data.queryMapIndex() == null,
-            "QueryMap annotation was present on multiple parameters.");
-        data.queryMapIndex(paramIndex);
-        data.queryMapEncoded(queryMap.encoded());
-      });
-      super.registerParameterAnnotation(HeaderMap.class, (queryMap, data, paramIndex) -> {
-        checkState(data.headerMapIndex() == null,
-            "HeaderMap annotation was present on multiple parameters.");
-        data.headerMapIndex(paramIndex);
-      });
+      super.registerParameterAnnotation(QueryMap.class,
+          (queryMap, data, paramIndex) -> GeneratedContract.queryMap(data, paramIndex,
+              queryMap.encoded()));
+      super.registerParameterAnnotation(HeaderMap.class,
+          (queryMap, data, paramIndex) -> GeneratedContract.headerMap(data, paramIndex));
     }
 
-    private static Map<String, Collection<String>> toMap(String[] input) {
-      Map<String, Collection<String>> result =
-          new LinkedHashMap<String, Collection<String>>(input.length);
-      for (String header : input) {
-        int colon = header.indexOf(':');
-        String name = header.substring(0, colon);
-        if (!result.containsKey(name)) {
-          result.put(name, new ArrayList<String>(1));
-        }
-        result.get(name).add(header.substring(colon + 1).trim());
-      }
-      return result;
+    /**
+     * @return this class, as default contracts have no state. Subclasses may parse differently, so
+     *         they aren't cached unless they override this method.
+     */
+    @Experimental
+    @Override
+    public Object cacheKey() {
+      return getClass() == Default.class ? Default.class : null;
     }
-
   }
 }
@@ -35,13 +35,28 @@ final class DefaultMethodHandler implements MethodHandler {
   private MethodHandle handle;
 
   public DefaultMethodHandler(Method defaultMethod) {
+    this(unreflect(defaultMethod));
+  }
+
+  /**
+   * @param unboundHandle obtained from {@link #unreflect(Method)}, which may be shared by many
+   *        handlers.
+   */
+  DefaultMethodHandler(MethodHandle unboundHandle) {
+    this.unboundHandle = unboundHandle;
+  }
+
+  /**
+   * @return a handle invoking the code of {@code defaultMethod}, not yet bound to a proxy.
+   */
+  static MethodHandle unreflect(Method defaultMethod) {
     try {
       Class<?> declaringClass = defaultMethod.getDeclaringClass();
       Field field = Lookup.class.getDeclaredField("IMPL_LOOKUP");
       field.setAccessible(true);
       Lookup lookup = (Lookup) field.get(null);
 
-      this.unboundHandle = lookup.unreflectSpecial(defaultMethod, declaringClass);
+      return lookup.unreflectSpecial(defaultMethod, declaringClass);
     } catch (NoSuchFieldException ex) {
       throw new IllegalStateException(ex);
     } catch (IllegalAccessException ex) {
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import static feign.Util.checkNotNull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The body of a successful response, still open, to be moved to a file, a channel or a consumer of
+ * buffers. Methods returning {@code Download} skip the {@link feign.codec.Decoder decoder}, and the
+ * body is never held in memory, not even to be logged. The body is read from the client's
+ * {@link Response.Body#asChannel() channel} into a direct buffer, so it doesn't pass through a
+ * heap array when the client supports channels.
+ *
+ * <pre>
+ * interface Snapshots {
+ *   &#64;RequestLine("GET /snapshots/{id}")
+ *   Download get(&#64;Param("id") String id);
+ * }
+ *
+ * long size = snapshots.get("latest").to(Paths.get("latest.snapshot"));
+ * </pre>
+ *
+ * <p>
+ * A download can only be read once. Each method reads the whole body and closes the response.
+ * </p>
+ */
+@Experimental
+public final class Download implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Response response;
+
+  Download(Response response) {
+    this.response = response;
+  }
+
+  public int status() {
+    return response.status();
+  }
+
+  public Map<String, Collection<String>> headers() {
+    return response.headers();
+  }
+
+  /**
+   * @return the length of the body in bytes, or {@code -1} if unknown.
+   */
+  public long length() {
+    Collection<String> values = response.headers().get(Util.CONTENT_LENGTH);
+    if (values != null && !values.isEmpty()) {
+      try {
+        return Long.parseLong(values.iterator().next().trim());
+      } catch (NumberFormatException e) {
+        return -1;
+      }
+    }
+    Response.Body body = response.body();
+    if (body == null) {
+      return 0;
+    }
+    return body.length() != null ? body.length() : -1;
+  }
+
+  /**
+   * Writes the body to {@code file}, which is created or truncated.
+   *
+   * @return the number of bytes written.
+   */
+  public long to(Path file) throws IOException {
+    checkNotNull(file, "file");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      return to(channel);
+    }
+  }
+
+  /**
+   * Writes the body to {@code channel}, which is not closed.
+   *
+   * @return the number of bytes written.
+   */
+  public long to(WritableByteChannel channel) throws IOException {
+    checkNotNull(channel, "channel");
+    if (channel instanceof FileChannel && response.body() != null) {
+      return transferTo((FileChannel) channel);
+    }
+    return forEach(buffer -> {
+      try {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      } catch (IOException e) {
+        throw new ChannelException(e);
+      }
+    });
+  }
+
+  /**
+   * Passes the body to {@code consumer} in chunks. The buffer is reused for the next chunk once
+   * {@code consumer} returns, so it must copy any bytes it keeps.
+   *
+   * @return the number of bytes read.
+   */
+  public long forEach(Consumer<ByteBuffer> consumer) throws IOException {
+    checkNotNull(consumer, "consumer");
+    Response.Body body = response.body();
+    if (body == null) {
+      return 0;
+    }
+    long total = 0;
+    try (ReadableByteChannel channel = body.asChannel()) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      while (channel.read(buffer) != -1) {
+        if (!buffer.hasRemaining()) {
+          total += accept(buffer, consumer);
+        }
+      }
+      if (buffer.position() > 0) {
+        total += accept(buffer, consumer);
+      }
+    } catch (ChannelException e) {
+      throw e.getCause();
+    } finally {
+      close();
+    }
+    return total;
+  }
+
+  /* the file channel reads the body itself, with no copy at all when the source is a file */
+  private long transferTo(FileChannel file) throws IOException {
+    long position = file.position();
+    long total = 0;
+    try (ReadableByteChannel channel = response.body().asChannel()) {
+      long transferred;
+      while ((transferred = file.transferFrom(channel, position + total, Long.MAX_VALUE)) > 0) {
+        total += transferred;
+      }
+      file.position(position + total);
+    } finally {
+      close();
+    }
+    return total;
+  }
+
+  private static int accept(ByteBuffer buffer, Consumer<ByteBuffer> consumer) {
+    buffer.flip();
+    int length = buffer.remaining();
+    consumer.accept(buffer);
+    buffer.clear();
+    return length;
+  }
+
+  @Override
+  public void close() {
+    response.close();
+  }
+
+  @Override
+  public String toString() {
+    return "Download(" + response.status() + ", " + length() + " bytes)";
+  }
+
+  /* carries the failure of a target channel out of the consumer */
+  private static final class ChannelException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    ChannelException(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+      return (IOException) super.getCause();
+    }
+  }
+}
@@ -112,7 +112,8 @@ public abstract class Feign {
     private boolean decode404;
     private boolean closeAfterDecode = true;
     private ExceptionPropagationPolicy propagationPolicy = NONE;
-    private boolean forceDecoding = false;
+    private boolean lazyMethodHandlers;
+    private boolean generatedClients;
 
     public Builder logLevel(Logger.Level logLevel) {
       this.logLevel = logLevel;
@@ -246,10 +247,32 @@ public abstract class Feign {
     }
 
     /**
-     * Internal - used to indicate that the decoder should be immediately called
+     * Defers creating the handler of each method until it is first invoked. The interface is still
+     * parsed and validated by the {@link #contract(Contract) contract} when targeted, but request
+     * template factories, {@link Param#expander() expanders} and handlers are only created for the
+     * methods that are used. This reduces the cost of targeting interfaces with many methods, of
+     * which few are called.
+     *
+     * <p/>
+     * Errors creating a handler, such as an expander that cannot be instantiated, are then thrown
+     * by the first invocation of the method instead of by {@link #target(Target)}.
+     */
+    @Experimental
+    public Builder lazyMethodHandlers() {
+      this.lazyMethodHandlers = true;
+      return this;
+    }
+
+    /**
+     * Uses the implementations generated at compile time by
+     * {@code feign.apttestgenerator.GenerateClientAPT}, when present, instead of parsing the
+     * interface and creating a {@link java.lang.reflect.Proxy}. They are only used while the
+     * contract and the invocation handler factory are the defaults. Interfaces without a generated
+     * implementation are parsed reflectively.
      */
-    Builder forceDecoding() {
-      this.forceDecoding = true;
+    @Experimental
+    public Builder generatedClients() {
+      this.generatedClients = true;
       return this;
     }
 
@@ -264,11 +287,15 @@ public abstract class Feign {
     public Feign build() {
       SynchronousMethodHandler.Factory synchronousMethodHandlerFactory =
           new SynchronousMethodHandler.Factory(client, retryer, requestInterceptors, logger,
-              logLevel, decode404, closeAfterDecode, propagationPolicy, forceDecoding);
+              logLevel, decode404, closeAfterDecode, propagationPolicy);
       ParseHandlersByName handlersByName =
           new ParseHandlersByName(contract, options, encoder, decoder, queryMapEncoder,
-              errorDecoder, synchronousMethodHandlerFactory);
-      return new ReflectiveFeign(handlersByName, invocationHandlerFactory, queryMapEncoder);
+              errorDecoder, synchronousMethodHandlerFactory, lazyMethodHandlers);
+      boolean generatedClients = this.generatedClients
+          && contract.getClass() == Contract.Default.class
+          && invocationHandlerFactory.getClass() == InvocationHandlerFactory.Default.class;
+      return new ReflectiveFeign(handlersByName, invocationHandlerFactory, queryMapEncoder,
+          generatedClients);
     }
   }
 
@@ -143,12 +143,14 @@ public class FeignException extends RuntimeException {
   }
 
   static FeignException errorReading(Request request, Response response, IOException cause) {
+    // don't buffer a streaming body that was already sent
+    Request.Body body = request.requestBody();
     return new FeignException(
         response.status(),
         format("%s reading %s %s", cause.getMessage(), request.httpMethod(), request.url()),
         request,
         cause,
-        request.body());
+        body != null && body.isStreaming() ? null : request.body());
   }
 
   public static FeignException errorStatus(String methodKey, Response response) {
@@ -242,7 +244,7 @@ public class FeignException extends RuntimeException {
     }
   }
 
-  static FeignException errorExecuting(Request request, IOException cause) {
+  static RetryableException errorExecuting(Request request, IOException cause) {
     return new RetryableException(
         -1,
         format("%s executing %s %s", cause.getMessage(), request.httpMethod(), request.url()),
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import static feign.Util.checkState;
+import static feign.Util.emptyToNull;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import feign.Request.HttpMethod;
+
+/**
+ * Builds {@link MethodMetadata} with the same rules as {@link Contract.Default}, from annotation
+ * values that were read at compile time. Client implementations generated by the Feign annotation
+ * processor call these methods in place of parsing the interface reflectively. Apart from
+ * {@link Param}, {@link Contract.Default} uses them for the annotations it finds at runtime, so
+ * both produce the same metadata.
+ *
+ * <p>
+ * Generated clients are named after their interface, with any enclosing types joined by
+ * {@code _}, followed by {@value #GENERATED_CLIENT_SUFFIX}; for example
+ * {@code example.github.GitHub_FeignClient}. They expose a public static {@code metadata()} method
+ * returning the metadata of each method and a public constructor accepting the {@link Target} and
+ * the {@link InvocationHandlerFactory.MethodHandler method handlers} keyed by
+ * {@link MethodMetadata#configKey() config key}. {@link Feign.Builder} uses them automatically when
+ * it is configured with the default contract and invocation handler factory.
+ * </p>
+ */
+@Experimental
+public final class GeneratedContract {
+
+  public static final String GENERATED_CLIENT_SUFFIX = "_FeignClient";
+
+  private GeneratedContract() {}
+
+  /**
+   * Create the metadata for a method of {@code targetType}.
+   *
+   * @param targetType of the Feign interface.
+   * @param configKey of the method, see {@link Feign#configKey(Class, java.lang.reflect.Method)}.
+   * @param returnType of the method, resolved against {@code targetType}.
+   * @return a new MethodMetadata.
+   */
+  public static MethodMetadata newMethodMetadata(Class<?> targetType, String configKey,
+                                                 Type returnType) {
+    MethodMetadata data = new MethodMetadata();
+    data.targetType(targetType);
+    data.returnType(returnType);
+    data.configKey(configKey);
+    return data;
+  }
+
+  /**
+   * Apply {@link Headers} present on the interface.
+   */
+  public static void classHeaders(MethodMetadata data, String... headersOnType) {
+    checkState(headersOnType.length > 0, "Headers annotation was empty on type %s.",
+        data.configKey());
+    Map<String, Collection<String>> headers = toMap(headersOnType);
+    headers.putAll(data.template().headers());
+    data.template().headers(null); // to clear
+    data.template().headers(headers);
+  }
+
+  /**
+   * Apply a {@link RequestLine} that has already been split into its method and uri.
+   */
+  public static void requestLine(MethodMetadata data,
+                                 HttpMethod method,
+                                 String uri,
+                                 boolean decodeSlash,
+                                 CollectionFormat collectionFormat) {
+    data.template().method(method);
+    data.template().uri(uri);
+    data.template().decodeSlash(decodeSlash);
+    data.template().collectionFormat(collectionFormat);
+  }
+
+  /**
+   * Apply {@link Body} present on the method.
+   */
+  public static void body(MethodMetadata data, String body) {
+    checkState(emptyToNull(body) != null, "Body annotation was empty on method %s.",
+        data.configKey());
+    if (body.indexOf('{') == -1) {
+      data.template().body(body);
+    } else {
+      data.template().bodyTemplate(body);
+    }
+  }
+
+  /**
+   * Apply {@link Headers} present on the method.
+   */
+  public static void headers(MethodMetadata data, String... headersOnMethod) {
+    checkState(headersOnMethod.length > 0, "Headers annotation was empty on method %s.",
+        data.configKey());
+    data.template().headers(toMap(headersOnMethod));
+  }
+
+  /**
+   * Apply {@link Param} present on the parameter at {@code paramIndex}.
+   *
+   * @param expander to use, or {@code null} for {@link Param.ToStringExpander}.
+   */
+  public static void param(MethodMetadata data,
+                           int paramIndex,
+                           String name,
+                           Class<? extends Param.Expander> expander) {
+    checkState(emptyToNull(name) != null, "Param annotation was empty on param %s.",
+        paramIndex);
+    Collection<String> names = data.indexToName().containsKey(paramIndex)
+        ? data.indexToName().get(paramIndex)
+        : new ArrayList<String>();
+    names.add(name);
+    data.indexToName().put(paramIndex, names);
+    if (expander != null && expander != Param.ToStringExpander.class) {
+      data.indexToExpanderClass().put(paramIndex, expander);
+    }
+    if (!data.template().hasRequestVariable(name)) {
+      data.formParams().add(name);
+    }
+  }
+
+  /**
+   * Apply {@link QueryMap} present on the parameter at {@code paramIndex}.
+   */
+  public static void queryMap(MethodMetadata data, int paramIndex, boolean encoded) {
+    checkState(data.queryMapIndex() == null,
+        "QueryMap annotation was present on multiple parameters.");
+    data.queryMapIndex(paramIndex);
+    data.queryMapEncoded(encoded);
+  }
+
+  /**
+   * Apply {@link HeaderMap} present on the parameter at {@code paramIndex}.
+   */
+  public static void headerMap(MethodMetadata data, int paramIndex) {
+    checkState(data.headerMapIndex() == null,
+        "HeaderMap annotation was present on multiple parameters.");
+    data.headerMapIndex(paramIndex);
+  }
+
+  /**
+   * Record a parameter that was consumed by an annotation. {@link Contract.Default} doesn't report
+   * parameters as http annotated, so {@code Contract.BaseContract} checks them as already processed
+   * parameters: form parameters can't follow a body parameter.
+   */
+  public static void annotatedParameter(MethodMetadata data) {
+    checkState(data.formParams().isEmpty() || data.bodyIndex() == null,
+        "Body parameters cannot be used with form parameters.");
+  }
+
+  /**
+   * Record the parameter at {@code paramIndex} as the body of the request.
+   *
+   * @param bodyType of the parameter, resolved against the target type.
+   */
+  public static void bodyParameter(MethodMetadata data, int paramIndex, Type bodyType) {
+    checkState(data.formParams().isEmpty(),
+        "Body parameters cannot be used with form parameters.");
+    data.bodyIndex(paramIndex);
+    data.bodyType(bodyType);
+  }
+
+  /**
+   * @return a parameterized type, equal to the one obtained through reflection.
+   */
+  public static Type parameterizedType(Type ownerType, Class<?> rawType, Type... typeArguments) {
+    return new Types.ParameterizedTypeImpl(ownerType, rawType, typeArguments);
+  }
+
+  /**
+   * @return a generic array type, equal to the one obtained through reflection.
+   */
+  public static Type genericArrayType(Type componentType) {
+    return new Types.GenericArrayTypeImpl(componentType);
+  }
+
+  /**
+   * @return a wildcard type, equal to the one obtained through reflection.
+   */
+  public static Type wildcardType(Type[] upperBounds, Type[] lowerBounds) {
+    return new Types.WildcardTypeImpl(upperBounds, lowerBounds);
+  }
+
+  static Map<String, Collection<String>> toMap(String[] input) {
+    Map<String, Collection<String>> result =
+        new LinkedHashMap<String, Collection<String>>(input.length);
+    for (String header : input) {
+      int colon = header.indexOf(':');
+      String name = header.substring(0, colon);
+      if (!result.containsKey(name)) {
+        result.put(name, new ArrayList<String>(1));
+      }
+      result.get(name).add(header.substring(colon + 1).trim());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,678 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+/**
+ * One HTTP/1.1 connection of a {@link PoolingClient}, over a non-blocking {@link SocketChannel}.
+ * Reads and writes wait on a selector of their own, which is how the timeouts apply, and TLS is
+ * done with an {@link SSLEngine} on the same buffers. A connection serves one exchange at a time:
+ * the request is written through {@link #out()}, and the head of the response is read with
+ * {@link #readLine()} before the body is.
+ */
+final class HttpConnection implements Closeable {
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final int MAX_LINE_LENGTH = 64 * 1024;
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  final String route;
+  private final SocketChannel channel;
+  private final Selector selector;
+  private final SelectionKey key;
+  private final SSLEngine engine;
+  /* decrypted bytes not yet read, in read mode */
+  private final ByteBuffer in;
+  /* bytes to send, in write mode */
+  private final ByteBuffer out;
+  /* TLS records received but not yet decrypted, in read mode, and records to send */
+  private final ByteBuffer netIn;
+  private final ByteBuffer netOut;
+  private final StringBuilder line = new StringBuilder(128);
+  private final OutputStream outputStream = new ConnectionOutputStream();
+  private int readTimeoutMillis;
+  private boolean reusable = true;
+  private boolean closed;
+  long idleSince;
+
+  private HttpConnection(String route, SocketChannel channel, Selector selector, SSLEngine engine)
+      throws IOException {
+    this.route = route;
+    this.channel = channel;
+    this.selector = selector;
+    this.key = channel.register(selector, 0);
+    this.engine = engine;
+    if (engine != null) {
+      int applicationSize = engine.getSession().getApplicationBufferSize();
+      int packetSize = engine.getSession().getPacketBufferSize();
+      this.in = ByteBuffer.allocate(Math.max(BUFFER_SIZE, applicationSize));
+      this.netIn = ByteBuffer.allocate(packetSize);
+      this.netOut = ByteBuffer.allocate(packetSize);
+      this.netIn.flip();
+    } else {
+      this.in = ByteBuffer.allocate(BUFFER_SIZE);
+      this.netIn = null;
+      this.netOut = null;
+    }
+    this.in.flip();
+    this.out = ByteBuffer.allocate(BUFFER_SIZE);
+  }
+
+  /**
+   * Connects to {@code host}, and completes the TLS handshake when {@code sslContext} is set.
+   *
+   * @param hostnameVerifier checks the peer instead of the endpoint identification of the engine.
+   *        May be null.
+   */
+  static HttpConnection open(String route, String host, int port, SSLContext sslContext,
+                             HostnameVerifier hostnameVerifier, Request.Options options)
+      throws IOException {
+    SocketChannel channel = SocketChannel.open();
+    Selector selector = null;
+    HttpConnection connection = null;
+    try {
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      selector = Selector.open();
+      SSLEngine engine = null;
+      if (sslContext != null) {
+        engine = sslContext.createSSLEngine(host, port);
+        engine.setUseClientMode(true);
+        if (hostnameVerifier == null) {
+          SSLParameters parameters = engine.getSSLParameters();
+          parameters.setEndpointIdentificationAlgorithm("HTTPS");
+          engine.setSSLParameters(parameters);
+        }
+      }
+      connection = new HttpConnection(route, channel, selector, engine);
+      connection.readTimeoutMillis = options.readTimeoutMillis();
+      if (!channel.connect(new InetSocketAddress(host, port))) {
+        do {
+          connection.await(SelectionKey.OP_CONNECT, options.connectTimeoutMillis(), "connect");
+        } while (!channel.finishConnect());
+      }
+      if (engine != null) {
+        connection.handshake();
+        if (hostnameVerifier != null && !hostnameVerifier.verify(host, engine.getSession())) {
+          throw new SSLPeerUnverifiedException("Hostname " + host + " not verified");
+        }
+      }
+      return connection;
+    } catch (IOException | RuntimeException e) {
+      if (connection != null) {
+        connection.close();
+      } else {
+        Util.ensureClosed(selector);
+        Util.ensureClosed(channel);
+      }
+      throw e;
+    }
+  }
+
+  void readTimeout(int readTimeoutMillis) {
+    this.readTimeoutMillis = readTimeoutMillis;
+  }
+
+  /**
+   * Stops the connection from going back to the pool, as when the response asks for it or an
+   * exchange fails halfway.
+   */
+  void doNotReuse() {
+    reusable = false;
+  }
+
+  boolean isReusable() {
+    return reusable && !closed;
+  }
+
+  /**
+   * Checks an idle connection before it's leased again, without blocking: the peer may have closed
+   * it, and nothing else should arrive between two exchanges.
+   */
+  boolean isHealthy() {
+    if (!isReusable() || in.hasRemaining()) {
+      return false;
+    }
+    try {
+      /* TLS 1.3 servers may still send tickets, which decrypt to nothing */
+      return fill(false) == 0 && !in.hasRemaining();
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  OutputStream out() {
+    return outputStream;
+  }
+
+  void writeAscii(String value) throws IOException {
+    for (int i = 0, length = value.length(); i < length; i++) {
+      if (!out.hasRemaining()) {
+        flush();
+      }
+      char c = value.charAt(i);
+      out.put(c <= 0xff ? (byte) c : (byte) '?');
+    }
+  }
+
+  void flush() throws IOException {
+    out.flip();
+    try {
+      if (engine == null) {
+        writeFully(out);
+      } else {
+        while (out.hasRemaining()) {
+          netOut.clear();
+          SSLEngineResult result = engine.wrap(out, netOut);
+          if (result.getStatus() != SSLEngineResult.Status.OK) {
+            throw new SSLException("Unexpected TLS state: " + result);
+          }
+          netOut.flip();
+          writeFully(netOut);
+        }
+      }
+    } finally {
+      out.clear();
+    }
+  }
+
+  /**
+   * @return the next line of the response head, without its terminator, or null if the peer
+   *         closed the connection before sending any byte of it.
+   */
+  String readLine() throws IOException {
+    StringBuilder line = this.line;
+    line.setLength(0);
+    boolean started = false;
+    while (true) {
+      while (in.hasRemaining()) {
+        started = true;
+        byte b = in.get();
+        if (b == '\n') {
+          int length = line.length();
+          if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+          }
+          return line.toString();
+        }
+        if (line.length() == MAX_LINE_LENGTH) {
+          throw new IOException("Response line longer than " + MAX_LINE_LENGTH + " bytes");
+        }
+        line.append((char) (b & 0xff));
+      }
+      if (fill(true) == -1) {
+        if (!started) {
+          return null;
+        }
+        throw new EOFException("Unexpected end of stream in the response head");
+      }
+    }
+  }
+
+  /**
+   * Reads the bytes already received or, when there are none, waits for more.
+   *
+   * @return -1 at the end of the stream.
+   */
+  int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (!in.hasRemaining()) {
+      if (fill(true) == -1) {
+        return -1;
+      }
+    }
+    int count = Math.min(len, in.remaining());
+    in.get(b, off, count);
+    return count;
+  }
+
+  int available() {
+    return in.remaining();
+  }
+
+  /* replaces the consumed bytes of the input buffer with new ones, returns how many */
+  private int fill(boolean block) throws IOException {
+    in.compact();
+    try {
+      if (engine == null) {
+        return readFully(in, block);
+      }
+      return unwrap(block);
+    } finally {
+      in.flip();
+    }
+  }
+
+  private int unwrap(boolean block) throws IOException {
+    while (true) {
+      if (netIn.hasRemaining()) {
+        SSLEngineResult result = engine.unwrap(netIn, in);
+        runDelegatedTasks(result);
+        switch (result.getStatus()) {
+          case OK:
+            if (result.bytesProduced() > 0) {
+              return result.bytesProduced();
+            }
+            if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+              wrapHandshake();
+            }
+            continue;
+          case CLOSED:
+            reusable = false;
+            return -1;
+          case BUFFER_OVERFLOW:
+            throw new SSLException("Application buffer too small: " + result);
+          case BUFFER_UNDERFLOW:
+            break;
+        }
+      }
+      netIn.compact();
+      int read;
+      try {
+        read = readFully(netIn, block);
+      } finally {
+        netIn.flip();
+      }
+      if (read <= 0) {
+        return read;
+      }
+    }
+  }
+
+  private void handshake() throws IOException {
+    in.clear();
+    engine.beginHandshake();
+    while (true) {
+      switch (engine.getHandshakeStatus()) {
+        case NEED_WRAP:
+          wrapHandshake();
+          break;
+        case NEED_UNWRAP:
+          SSLEngineResult result = engine.unwrap(netIn, in);
+          runDelegatedTasks(result);
+          if (result.getStatus() == SSLEngineResult.Status.CLOSED
+              || result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+            throw new SSLException("Unexpected TLS state: " + result);
+          }
+          if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+            netIn.compact();
+            try {
+              if (readFully(netIn, true) == -1) {
+                throw new EOFException("Connection closed during the TLS handshake");
+              }
+            } finally {
+              netIn.flip();
+            }
+          }
+          break;
+        case NEED_TASK:
+          runDelegatedTasks(null);
+          break;
+        default:
+          /* the handshake may leave decrypted bytes, which the caller reads from the buffer */
+          in.flip();
+          return;
+      }
+    }
+  }
+
+  private void wrapHandshake() throws IOException {
+    netOut.clear();
+    SSLEngineResult result = engine.wrap(EMPTY, netOut);
+    runDelegatedTasks(result);
+    if (result.getStatus() != SSLEngineResult.Status.OK) {
+      throw new SSLException("Unexpected TLS state: " + result);
+    }
+    netOut.flip();
+    writeFully(netOut);
+  }
+
+  private void runDelegatedTasks(SSLEngineResult result) {
+    if (result == null
+        || result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+      Runnable task;
+      while ((task = engine.getDelegatedTask()) != null) {
+        task.run();
+      }
+    }
+  }
+
+  private int readFully(ByteBuffer buffer, boolean block) throws IOException {
+    while (true) {
+      int read = channel.read(buffer);
+      if (read != 0 || !block) {
+        if (read == -1) {
+          reusable = false;
+        }
+        return read;
+      }
+      await(SelectionKey.OP_READ, readTimeoutMillis, "Read");
+    }
+  }
+
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.write(buffer) == 0) {
+        await(SelectionKey.OP_WRITE, readTimeoutMillis, "Write");
+      }
+    }
+  }
+
+  /* waits until the channel is ready for ops, timeoutMillis of 0 waiting forever */
+  private void await(int ops, int timeoutMillis, String operation) throws IOException {
+    key.interestOps(ops);
+    long deadline = System.nanoTime() + MILLISECONDS.toNanos(timeoutMillis);
+    while (true) {
+      long wait = 0;
+      if (timeoutMillis > 0) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          reusable = false;
+          throw new SocketTimeoutException(operation + " timed out");
+        }
+        wait = Math.max(1, NANOSECONDS.toMillis(remaining));
+      }
+      if (selector.select(wait) > 0) {
+        selector.selectedKeys().clear();
+        return;
+      }
+      if (Thread.interrupted()) {
+        reusable = false;
+        throw new InterruptedIOException(operation + " interrupted");
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (engine != null) {
+      engine.closeOutbound();
+    }
+    Util.ensureClosed(selector);
+    Util.ensureClosed(channel);
+  }
+
+  @Override
+  public String toString() {
+    return "HttpConnection(" + route + ")";
+  }
+
+  private final class ConnectionOutputStream extends OutputStream {
+
+    @Override
+    public void write(int b) throws IOException {
+      if (!out.hasRemaining()) {
+        HttpConnection.this.flush();
+      }
+      out.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (!out.hasRemaining()) {
+          HttpConnection.this.flush();
+        }
+        int count = Math.min(len, out.remaining());
+        out.put(b, off, count);
+        off += count;
+        len -= count;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      HttpConnection.this.flush();
+    }
+  }
+
+  /**
+   * The body of a response, which hands the connection back to its {@link ConnectionPool} as soon
+   * as the last byte is read. Closing the body early drains what is left, when that's cheap, so the
+   * connection can still be reused.
+   */
+  abstract static class BodyStream extends InputStream {
+
+    /* the most a close will read to save a connection */
+    private static final int MAX_DRAIN = 64 * 1024;
+    private static final int DRAIN_TIMEOUT_MILLIS = 100;
+
+    final HttpConnection connection;
+    private final ConnectionPool pool;
+    private boolean done;
+    private boolean closed;
+
+    BodyStream(HttpConnection connection, ConnectionPool pool) {
+      this.connection = connection;
+      this.pool = pool;
+    }
+
+    /* reads from the connection, within the framing of the body */
+    abstract int readBody(byte[] b, int off, int len) throws IOException;
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      int read = read(single, 0, 1);
+      return read == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (closed) {
+        throw new IOException("Response body closed");
+      }
+      if (done) {
+        return -1;
+      }
+      try {
+        return readBody(b, off, len);
+      } catch (IOException | RuntimeException e) {
+        connection.doNotReuse();
+        throw e;
+      }
+    }
+
+    /* called by the framing once the body is complete */
+    final void end() {
+      if (!done) {
+        done = true;
+        pool.release(connection);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (!done) {
+        drain();
+        if (!done) {
+          connection.doNotReuse();
+          end();
+        }
+      }
+    }
+
+    private void drain() {
+      if (!connection.isReusable()) {
+        return;
+      }
+      connection.readTimeout(DRAIN_TIMEOUT_MILLIS);
+      byte[] skip = new byte[4096];
+      try {
+        for (int total = 0; !done && total < MAX_DRAIN;) {
+          int read = readBody(skip, 0, skip.length);
+          if (read == -1) {
+            break;
+          }
+          total += read;
+        }
+      } catch (IOException | RuntimeException e) {
+        connection.doNotReuse();
+      }
+    }
+  }
+
+  /** A body delimited by {@code Content-Length}. */
+  static final class FixedLengthBody extends BodyStream {
+
+    private long remaining;
+
+    FixedLengthBody(HttpConnection connection, ConnectionPool pool, long length) {
+      super(connection, pool);
+      this.remaining = length;
+      if (length == 0) {
+        end();
+      }
+    }
+
+    @Override
+    int readBody(byte[] b, int off, int len) throws IOException {
+      if (remaining == 0) {
+        end();
+        return -1;
+      }
+      int read = connection.read(b, off, (int) Math.min(len, remaining));
+      if (read == -1) {
+        throw new EOFException(remaining + " bytes missing from the response body");
+      }
+      remaining -= read;
+      if (remaining == 0) {
+        end();
+      }
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(connection.available(), remaining);
+    }
+  }
+
+  /** A body sent with {@code Transfer-Encoding: chunked}, its trailers ignored. */
+  static final class ChunkedBody extends BodyStream {
+
+    private long remainingInChunk;
+    private boolean firstChunk = true;
+
+    ChunkedBody(HttpConnection connection, ConnectionPool pool) {
+      super(connection, pool);
+    }
+
+    @Override
+    int readBody(byte[] b, int off, int len) throws IOException {
+      if (remainingInChunk == 0 && !nextChunk()) {
+        return -1;
+      }
+      int read = connection.read(b, off, (int) Math.min(len, remainingInChunk));
+      if (read == -1) {
+        throw new EOFException("Unexpected end of stream in a chunk of the response body");
+      }
+      remainingInChunk -= read;
+      return read;
+    }
+
+    private boolean nextChunk() throws IOException {
+      if (!firstChunk && !"".equals(connection.readLine())) {
+        throw new IOException("Missing CRLF after a chunk of the response body");
+      }
+      firstChunk = false;
+      String line = connection.readLine();
+      if (line == null) {
+        throw new EOFException("Unexpected end of stream before a chunk of the response body");
+      }
+      int extensions = line.indexOf(';');
+      String size = (extensions == -1 ? line : line.substring(0, extensions)).trim();
+      try {
+        remainingInChunk = Long.parseLong(size, 16);
+      } catch (NumberFormatException e) {
+        throw new IOException("Invalid chunk size: " + line);
+      }
+      if (remainingInChunk < 0) {
+        throw new IOException("Invalid chunk size: " + line);
+      }
+      if (remainingInChunk == 0) {
+        String trailer;
+        do {
+          trailer = connection.readLine();
+          if (trailer == null) {
+            throw new EOFException("Unexpected end of stream in the trailers of the response");
+          }
+        } while (!trailer.isEmpty());
+        end();
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(connection.available(), remainingInChunk);
+    }
+  }
+
+  /** A body that ends when the server closes the connection, which can't be reused. */
+  static final class UntilCloseBody extends BodyStream {
+
+    UntilCloseBody(HttpConnection connection, ConnectionPool pool) {
+      super(connection, pool);
+      connection.doNotReuse();
+    }
+
+    @Override
+    int readBody(byte[] b, int off, int len) throws IOException {
+      int read = connection.read(b, off, len);
+      if (read == -1) {
+        end();
+      }
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return connection.available();
+    }
+  }
+}
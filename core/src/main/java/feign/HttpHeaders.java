@@ -0,0 +1,540 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * An immutable, case-insensitive multimap of HTTP headers, kept in flat arrays. It behaves like a
+ * {@link java.util.TreeMap} ordered by {@link String#CASE_INSENSITIVE_ORDER}: names iterate in that
+ * order, and the values of names that only differ in case are merged under the first of them.
+ * Common header names, such as {@code Content-Type}, are found without comparing them against the
+ * names present.
+ *
+ * <p>
+ * Clients should {@link #wrap(Source) wrap} the headers of their native response, which are then
+ * only copied the first time they are read, if at all.
+ * </p>
+ */
+@Experimental
+public final class HttpHeaders extends AbstractMap<String, Collection<String>> {
+
+  /**
+   * Headers as a flat list of name and value pairs, the way most clients expose them. A name
+   * appears once per value.
+   */
+  public interface Source {
+
+    int size();
+
+    String name(int index);
+
+    String value(int index);
+  }
+
+  private static final String[] COMMON_NAMES = {
+      "Accept", "Accept-Charset", "Accept-Encoding", "Accept-Language", "Accept-Ranges", "Age",
+      "Allow", "Authorization", "Cache-Control", "Connection", "Content-Disposition",
+      "Content-Encoding", "Content-Language", "Content-Length", "Content-Location",
+      "Content-Range", "Content-Type", "Cookie", "Date", "ETag", "Expect", "Expires", "Host",
+      "If-Match", "If-Modified-Since", "If-None-Match", "If-Range", "If-Unmodified-Since",
+      "Keep-Alive", "Last-Modified", "Link", "Location", "Origin", "Pragma", "Proxy-Authenticate",
+      "Proxy-Authorization", "Range", "Referer", "Retry-After", "Server", "Set-Cookie", "Trailer",
+      "Transfer-Encoding", "Upgrade", "User-Agent", "Vary", "Via", "Warning", "WWW-Authenticate",
+      "X-Forwarded-For", "X-Request-Id"};
+
+  private static final String[] COMMON_LOWER_CASE_NAMES = new String[COMMON_NAMES.length];
+
+  /* open addressing table of common name ids + 1, by case-insensitive hash */
+  private static final int[] COMMON_IDS = new int[256];
+
+  static {
+    for (int id = 0; id < COMMON_NAMES.length; id++) {
+      COMMON_LOWER_CASE_NAMES[id] = COMMON_NAMES[id].toLowerCase(Locale.ROOT);
+      int index = hash(COMMON_NAMES[id]) & (COMMON_IDS.length - 1);
+      while (COMMON_IDS[index] != 0) {
+        index = (index + 1) & (COMMON_IDS.length - 1);
+      }
+      COMMON_IDS[index] = id + 1;
+    }
+  }
+
+  /* common slots of a table without any common name */
+  private static final short[] NO_COMMON_SLOTS = new short[COMMON_NAMES.length];
+
+  /* has no names to lower case */
+  private static final HttpHeaders EMPTY =
+      new HttpHeaders(new Table(new String[0], new Values[0], NO_COMMON_SLOTS), true);
+
+  /* the headers that were wrapped, until they are copied */
+  private final Source source;
+  private final Map<String, ? extends Collection<String>> map;
+  private final boolean lowerCaseNames;
+
+  private volatile Table table;
+
+  private HttpHeaders(Table table, boolean lowerCaseNames) {
+    this.source = null;
+    this.map = null;
+    this.lowerCaseNames = lowerCaseNames;
+    this.table = table;
+  }
+
+  private HttpHeaders(Source source, Map<String, ? extends Collection<String>> map,
+      boolean lowerCaseNames) {
+    this.source = source;
+    this.map = map;
+    this.lowerCaseNames = lowerCaseNames;
+  }
+
+  /**
+   * @return headers without any values.
+   */
+  public static HttpHeaders empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Wraps the headers of a client. They are only copied when first read, so {@code source} must not
+   * change afterwards.
+   */
+  public static HttpHeaders wrap(Source source) {
+    return new HttpHeaders(source, null, false);
+  }
+
+  /**
+   * Wraps headers already grouped by name, as returned by
+   * {@link java.net.HttpURLConnection#getHeaderFields()}. They are only copied when first read, so
+   * {@code headers} must not change afterwards. Entries with a {@code null} name or values are
+   * skipped.
+   */
+  public static HttpHeaders wrap(Map<String, ? extends Collection<String>> headers) {
+    if (headers instanceof HttpHeaders) {
+      return (HttpHeaders) headers;
+    }
+    return new HttpHeaders(null, headers, false);
+  }
+
+  /**
+   * @return a copy of {@code headers}. Entries with a {@code null} name or values are skipped.
+   */
+  public static HttpHeaders copyOf(Map<String, ? extends Collection<String>> headers) {
+    if (headers instanceof HttpHeaders) {
+      return (HttpHeaders) headers;
+    }
+    return wrap(headers).copy();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return a copy of {@code headers} whose names are in lower case, as kept by {@link Response}.
+   */
+  static HttpHeaders lowerCaseCopyOf(Map<String, ? extends Collection<String>> headers) {
+    if (headers instanceof HttpHeaders) {
+      HttpHeaders httpHeaders = (HttpHeaders) headers;
+      if (httpHeaders.lowerCaseNames) {
+        return httpHeaders;
+      }
+      Table table = httpHeaders.table;
+      if (table == null) {
+        return new HttpHeaders(httpHeaders.source, httpHeaders.map, true);
+      }
+      return new HttpHeaders(table.withLowerCaseNames(), true);
+    }
+    if (headers.isEmpty()) {
+      return EMPTY;
+    }
+    return new HttpHeaders(null, headers, true).copy();
+  }
+
+  private HttpHeaders copy() {
+    table();
+    return this;
+  }
+
+  @Override
+  public Collection<String> get(Object name) {
+    Table table = table();
+    int slot = table.slot(name);
+    return slot < 0 ? null : table.values[slot];
+  }
+
+  @Override
+  public boolean containsKey(Object name) {
+    return table().slot(name) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return table().names.length;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public Set<Entry<String, Collection<String>>> entrySet() {
+    Table table = table();
+    return new AbstractSet<Entry<String, Collection<String>>>() {
+      @Override
+      public Iterator<Entry<String, Collection<String>>> iterator() {
+        return new Iterator<Entry<String, Collection<String>>>() {
+          private int slot;
+
+          @Override
+          public boolean hasNext() {
+            return slot < table.names.length;
+          }
+
+          @Override
+          public Entry<String, Collection<String>> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Entry<String, Collection<String>> entry =
+                new SimpleImmutableEntry<String, Collection<String>>(table.names[slot],
+                    table.values[slot]);
+            slot++;
+            return entry;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return table.names.length;
+      }
+    };
+  }
+
+  private Table table() {
+    Table table = this.table;
+    if (table == null) {
+      // concurrent readers may each copy the wrapped headers, the result is the same
+      table = source != null ? Table.of(source, lowerCaseNames) : Table.of(map, lowerCaseNames);
+      this.table = table;
+    }
+    return table;
+  }
+
+  /* hash of the name with ASCII letters in lower case */
+  private static int hash(String name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      hash = 31 * hash + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * @return the id of {@code name} in {@link #COMMON_NAMES}, ignoring case, or -1.
+   */
+  private static int commonId(String name) {
+    int mask = COMMON_IDS.length - 1;
+    for (int index = hash(name) & mask; COMMON_IDS[index] != 0; index = (index + 1) & mask) {
+      int id = COMMON_IDS[index] - 1;
+      if (COMMON_NAMES[id].equalsIgnoreCase(name)) {
+        return id;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isAscii(String name) {
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Collects headers in any order, to be sorted and merged by {@link #build()}.
+   */
+  public static final class Builder {
+
+    private String[] names;
+    /* a String or a Collection of them */
+    private Object[] values;
+    private int size;
+
+    private Builder() {}
+
+    public Builder add(String name, String value) {
+      return put(name, value);
+    }
+
+    public Builder add(String name, Collection<String> values) {
+      return put(name, values);
+    }
+
+    private Builder put(String name, Object value) {
+      if (name == null || value == null) {
+        return this;
+      }
+      if (names == null) {
+        names = new String[4];
+        values = new Object[4];
+      } else if (size == names.length) {
+        names = Arrays.copyOf(names, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      names[size] = name;
+      values[size] = value;
+      size++;
+      return this;
+    }
+
+    public HttpHeaders build() {
+      if (size == 0) {
+        return EMPTY;
+      }
+      return new HttpHeaders(Table.of(names, values, size, false), false);
+    }
+  }
+
+  private static final class Table {
+
+    /* in case-insensitive order */
+    final String[] names;
+    final Values[] values;
+    /* slot + 1 of each common name present, null if names can't be found by their hash */
+    private final short[] commonSlots;
+
+    Table(String[] names, Values[] values, short[] commonSlots) {
+      this.names = names;
+      this.values = values;
+      this.commonSlots = commonSlots;
+    }
+
+    static Table of(Source source, boolean lowerCaseNames) {
+      int size = source.size();
+      String[] names = new String[size];
+      Object[] values = new Object[size];
+      int count = 0;
+      for (int i = 0; i < size; i++) {
+        String name = source.name(i);
+        if (name != null) {
+          names[count] = name;
+          values[count] = source.value(i);
+          count++;
+        }
+      }
+      return of(names, values, count, lowerCaseNames);
+    }
+
+    static Table of(Map<String, ? extends Collection<String>> map, boolean lowerCaseNames) {
+      String[] names = new String[map.size()];
+      Object[] values = new Object[names.length];
+      int count = 0;
+      for (Entry<String, ? extends Collection<String>> entry : map.entrySet()) {
+        if (entry.getKey() != null && entry.getValue() != null) {
+          names[count] = entry.getKey();
+          values[count] = entry.getValue();
+          count++;
+        }
+      }
+      return of(names, values, count, lowerCaseNames);
+    }
+
+    /**
+     * @param values each a String or a Collection of them.
+     */
+    static Table of(String[] names, Object[] values, int count, boolean lowerCaseNames) {
+      int[] order = sort(names, count);
+
+      // count the distinct names and values
+      int distinct = 0;
+      int valueCount = 0;
+      for (int i = 0; i < count; i++) {
+        if (i == 0 || !names[order[i]].equalsIgnoreCase(names[order[i - 1]])) {
+          distinct++;
+        }
+        Object value = values[order[i]];
+        valueCount += value instanceof String ? 1 : ((Collection<?>) value).size();
+      }
+
+      String[] tableNames = new String[distinct];
+      Values[] tableValues = new Values[distinct];
+      String[] allValues = new String[valueCount];
+      boolean ascii = distinct <= Short.MAX_VALUE;
+      int slot = -1;
+      int from = 0;
+      int to = 0;
+      for (int i = 0; i < count; i++) {
+        String name = names[order[i]];
+        if (i == 0 || !name.equalsIgnoreCase(names[order[i - 1]])) {
+          if (slot >= 0) {
+            tableValues[slot] = new Values(allValues, from, to);
+          }
+          slot++;
+          from = to;
+          tableNames[slot] = name;
+          ascii &= isAscii(name);
+        }
+        Object value = values[order[i]];
+        if (value instanceof String) {
+          allValues[to++] = (String) value;
+        } else {
+          for (Object element : (Collection<?>) value) {
+            allValues[to++] = (String) element;
+          }
+        }
+      }
+      if (slot >= 0) {
+        tableValues[slot] = new Values(allValues, from, to);
+      }
+
+      short[] commonSlots = null;
+      if (ascii) {
+        commonSlots = NO_COMMON_SLOTS;
+        for (slot = 0; slot < tableNames.length; slot++) {
+          int id = commonId(tableNames[slot]);
+          if (id != -1) {
+            if (commonSlots == NO_COMMON_SLOTS) {
+              commonSlots = new short[COMMON_NAMES.length];
+            }
+            commonSlots[id] = (short) (slot + 1);
+            if (lowerCaseNames) {
+              tableNames[slot] = COMMON_LOWER_CASE_NAMES[id];
+            }
+          } else if (lowerCaseNames) {
+            tableNames[slot] = tableNames[slot].toLowerCase(Locale.ROOT);
+          }
+        }
+      } else if (lowerCaseNames) {
+        for (slot = 0; slot < tableNames.length; slot++) {
+          tableNames[slot] = tableNames[slot].toLowerCase(Locale.ROOT);
+        }
+      }
+      return new Table(tableNames, tableValues, commonSlots);
+    }
+
+    /**
+     * @return the indexes of {@code names}, in case-insensitive order. Equal names keep their
+     *         original order.
+     */
+    private static int[] sort(String[] names, int count) {
+      int[] order = new int[count];
+      for (int i = 0; i < count; i++) {
+        order[i] = i;
+      }
+      if (count <= 32) {
+        for (int i = 1; i < count; i++) {
+          int index = order[i];
+          int j = i - 1;
+          while (j >= 0
+              && String.CASE_INSENSITIVE_ORDER.compare(names[order[j]], names[index]) > 0) {
+            order[j + 1] = order[j];
+            j--;
+          }
+          order[j + 1] = index;
+        }
+        return order;
+      }
+      Integer[] boxed = new Integer[count];
+      for (int i = 0; i < count; i++) {
+        boxed[i] = i;
+      }
+      Arrays.sort(boxed, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(names[a], names[b]));
+      for (int i = 0; i < count; i++) {
+        order[i] = boxed[i];
+      }
+      return order;
+    }
+
+    Table withLowerCaseNames() {
+      String[] lowerCaseNames = new String[names.length];
+      for (int slot = 0; slot < names.length; slot++) {
+        int id = commonSlots != null ? commonId(names[slot]) : -1;
+        lowerCaseNames[slot] =
+            id != -1 ? COMMON_LOWER_CASE_NAMES[id] : names[slot].toLowerCase(Locale.ROOT);
+      }
+      return new Table(lowerCaseNames, values, commonSlots);
+    }
+
+    int slot(Object name) {
+      if (!(name instanceof String)) {
+        return -1;
+      }
+      if (commonSlots != null) {
+        int id = commonId((String) name);
+        if (id != -1) {
+          return commonSlots[id] - 1;
+        }
+      }
+      int low = 0;
+      int high = names.length - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int comparison = String.CASE_INSENSITIVE_ORDER.compare(names[middle], (String) name);
+        if (comparison < 0) {
+          low = middle + 1;
+        } else if (comparison > 0) {
+          high = middle - 1;
+        } else {
+          return middle;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * The values of a header, a range of the values of every header.
+   */
+  private static final class Values extends AbstractList<String> implements RandomAccess {
+
+    private final String[] values;
+    private final int from;
+    private final int to;
+
+    Values(String[] values, int from, int to) {
+      this.values = values;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public String get(int index) {
+      if (index < 0 || index >= to - from) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+      }
+      return values[from + index];
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Supplier;
+import feign.InvocationHandlerFactory.MethodHandler;
+
+/**
+ * Creates the handler of a method the first time it is invoked, see
+ * {@link Feign.Builder#lazyMethodHandlers()}. Concurrent first invocations may each create a
+ * handler, but only one of them is kept and used by every later invocation, without locking.
+ */
+final class LazyMethodHandler implements MethodHandler {
+
+  private static final AtomicReferenceFieldUpdater<LazyMethodHandler, MethodHandler> DELEGATE =
+      AtomicReferenceFieldUpdater.newUpdater(LazyMethodHandler.class, MethodHandler.class,
+          "delegate");
+
+  private final Supplier<MethodHandler> factory;
+  private volatile MethodHandler delegate;
+
+  LazyMethodHandler(Supplier<MethodHandler> factory) {
+    this.factory = factory;
+  }
+
+  @Override
+  public Object invoke(Object[] argv) throws Throwable {
+    MethodHandler handler = delegate;
+    if (handler == null) {
+      handler = factory.get();
+      if (!DELEGATE.compareAndSet(this, null, handler)) {
+        handler = delegate;
+      }
+    }
+    return handler.invoke(argv);
+  }
+}
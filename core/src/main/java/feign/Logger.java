@@ -52,15 +52,13 @@ public abstract class Logger {
       }
 
       int bodyLength = 0;
-      if (request.body() != null) {
-        bodyLength = request.length();
+      Request.Body body = request.requestBody();
+      // streaming bodies are not buffered to be logged
+      if (body != null && (body.isStreaming() || body.asBytes() != null)) {
+        bodyLength = body.length();
         if (logLevel.ordinal() >= Level.FULL.ordinal()) {
-          String bodyText =
-              request.charset() != null
-                  ? new String(request.body(), request.charset())
-                  : null;
           log(configKey, ""); // CRLF
-          log(configKey, "%s", bodyText != null ? bodyText : "Binary data");
+          log(configKey, "%s", body.asString());
         }
       }
       log(configKey, "---> END HTTP (%s-byte body)", bodyLength);
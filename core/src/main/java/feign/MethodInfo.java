@@ -13,7 +13,6 @@
  */
 package feign;
 
-import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.concurrent.CompletableFuture;
@@ -30,17 +29,18 @@ class MethodInfo {
     this.asyncReturnType = asyncReturnType;
   }
 
-  MethodInfo(Class<?> targetType, Method method) {
-    this.configKey = Feign.configKey(targetType, method);
+  MethodInfo(MethodMetadata metadata) {
+    this.configKey = metadata.configKey();
 
-    final Type type = method.getGenericReturnType();
+    final Type type = metadata.returnType();
 
-    if (method.getReturnType() != CompletableFuture.class) {
-      this.asyncReturnType = false;
-      this.underlyingReturnType = type;
-    } else {
+    if (type instanceof ParameterizedType
+        && ((ParameterizedType) type).getRawType() == CompletableFuture.class) {
       this.asyncReturnType = true;
       this.underlyingReturnType = ((ParameterizedType) type).getActualTypeArguments()[0];
+    } else {
+      this.asyncReturnType = false;
+      this.underlyingReturnType = type;
     }
   }
 
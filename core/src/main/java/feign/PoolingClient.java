@@ -0,0 +1,767 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import static feign.Util.CONTENT_ENCODING;
+import static feign.Util.CONTENT_LENGTH;
+import static feign.Util.ENCODING_DEFLATE;
+import static feign.Util.ENCODING_GZIP;
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.ProtocolException;
+import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import feign.Request.HttpMethod;
+import feign.Request.Options;
+
+/**
+ * An HTTP/1.1 client that keeps connections alive in a pool, with no dependency beyond the JDK.
+ * Connections are non-blocking {@link java.nio.channels.SocketChannel socket channels}, secured
+ * with an {@link javax.net.ssl.SSLEngine} for {@code https}, and each route (scheme, host and
+ * port) keeps a bounded number of them idle, closed once idle for longer than the keep-alive.
+ *
+ * <pre>
+ * PoolingClient client = PoolingClient.builder()
+ *     .maxIdleConnectionsPerRoute(10)
+ *     .keepAlive(30, TimeUnit.SECONDS)
+ *     .build();
+ *
+ * GitHub github = Feign.builder()
+ *     .client(client)
+ *     .target(GitHub.class, "https://api.github.com");
+ * </pre>
+ *
+ * <p>
+ * Request bodies of known length are sent with {@code Content-Length}, others chunked. A response
+ * body is read straight from the connection, which goes back to the pool once the body is read to
+ * the end, or closed with little enough left to skip. An idle connection closed by the server is
+ * noticed before it's reused, and a request sent on a connection that the server closed meanwhile
+ * is sent again on a new one, as long as no response was received and its body can be replayed.
+ * {@link #stats()} tells how well connections are reused.
+ * </p>
+ *
+ * <p>
+ * Proxies are not supported, nor are HTTP/2 and {@code Expect: 100-continue}. Redirects are
+ * followed, when the {@link Options} allow it, within the same scheme.
+ * </p>
+ */
+@Experimental
+public final class PoolingClient implements Client, Closeable {
+
+  private static final int MAX_REDIRECTS = 20;
+  private static final int CHUNK_SIZE = 8192;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final ConnectionPool pool;
+  private final SSLContext sslContext;
+  private final HostnameVerifier hostnameVerifier;
+
+  /**
+   * A client with the defaults of the {@link Builder}.
+   */
+  public PoolingClient() {
+    this(builder());
+  }
+
+  private PoolingClient(Builder builder) {
+    this.pool = new ConnectionPool(builder.maxIdleConnectionsPerRoute, builder.keepAliveNanos);
+    this.sslContext = builder.sslContext;
+    this.hostnameVerifier = builder.hostnameVerifier;
+  }
+
+  @Override
+  public Response execute(Request request, Options options) throws IOException {
+    Request current = request;
+    for (int redirects = 0;; redirects++) {
+      Response response = exchange(current, request, options);
+      Request redirect = options.isFollowRedirects() ? redirect(current, response) : null;
+      if (redirect == null) {
+        return response;
+      }
+      response.close();
+      if (redirects == MAX_REDIRECTS) {
+        throw new ProtocolException("Server redirected too many times (" + MAX_REDIRECTS + ")");
+      }
+      current = redirect;
+    }
+  }
+
+  /**
+   * @return the current state of the pool, and how many connections were reused so far.
+   */
+  public Stats stats() {
+    return pool.stats();
+  }
+
+  /**
+   * Closes the idle connections, and those in use as their responses are closed. Requests can't be
+   * sent anymore.
+   */
+  @Override
+  public void close() {
+    pool.close();
+  }
+
+  /* sends request, responding as original */
+  private Response exchange(Request request, Request original, Options options)
+      throws IOException {
+    Address address = Address.parse(request.url());
+    while (true) {
+      HttpConnection connection = pool.lease(address.route);
+      boolean reused = connection != null;
+      if (!reused) {
+        connection = HttpConnection.open(address.route, address.host, address.port,
+            address.secure ? sslContext() : null, hostnameVerifier, options);
+        try {
+          pool.created();
+        } catch (IllegalStateException e) {
+          connection.close();
+          throw e;
+        }
+      }
+      connection.readTimeout(options.readTimeoutMillis());
+      boolean responded = false;
+      try {
+        writeRequest(connection, request, address);
+        String statusLine = connection.readLine();
+        if (statusLine == null) {
+          throw new EOFException("Connection closed before the response to " + request.url());
+        }
+        responded = true;
+        return readResponse(connection, statusLine, request, original);
+      } catch (IOException | RuntimeException e) {
+        connection.doNotReuse();
+        pool.release(connection);
+        /* the server closed an idle connection while it was leased */
+        if (reused && !responded && e instanceof IOException
+            && !(e instanceof InterruptedIOException) && isReplayable(request)) {
+          continue;
+        }
+        throw e;
+      }
+    }
+  }
+
+  private SSLContext sslContext() throws IOException {
+    if (sslContext != null) {
+      return sslContext;
+    }
+    try {
+      return SSLContext.getDefault();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("No default SSLContext", e);
+    }
+  }
+
+  private static boolean isReplayable(Request request) {
+    return request.requestBody() == null || request.requestBody().isReplayable();
+  }
+
+  private static void writeRequest(HttpConnection connection, Request request, Address address)
+      throws IOException {
+    Map<String, Collection<String>> headers = request.headers();
+    Collection<String> contentEncodingValues = headers.get(CONTENT_ENCODING);
+    boolean gzipEncodedRequest =
+        contentEncodingValues != null && contentEncodingValues.contains(ENCODING_GZIP);
+    boolean deflateEncodedRequest =
+        contentEncodingValues != null && contentEncodingValues.contains(ENCODING_DEFLATE);
+    boolean encodedRequest = gzipEncodedRequest || deflateEncodedRequest;
+    Request.Body body = request.requestBody();
+    boolean hasBody = body != null && (body.isStreaming() || body.asBytes() != null);
+
+    connection.writeAscii(request.httpMethod().name());
+    connection.writeAscii(" ");
+    connection.writeAscii(address.target);
+    connection.writeAscii(" HTTP/1.1\r\n");
+
+    boolean hasHostHeader = false;
+    boolean hasAcceptHeader = false;
+    long contentLength = -1;
+    for (Map.Entry<String, Collection<String>> header : headers.entrySet()) {
+      String field = header.getKey();
+      if (field.equalsIgnoreCase(CONTENT_LENGTH)) {
+        for (String value : header.getValue()) {
+          contentLength = parseContentLength(value);
+        }
+        continue;
+      }
+      if (field.equalsIgnoreCase("Transfer-Encoding")) {
+        continue;
+      }
+      hasHostHeader |= field.equalsIgnoreCase("Host");
+      hasAcceptHeader |= field.equalsIgnoreCase("Accept");
+      for (String value : header.getValue()) {
+        writeHeader(connection, field, value);
+      }
+    }
+    if (!hasHostHeader) {
+      writeHeader(connection, "Host", address.authority);
+    }
+    // Some servers choke on the default accept string.
+    if (!hasAcceptHeader) {
+      writeHeader(connection, "Accept", "*/*");
+    }
+    if (hasBody) {
+      if (encodedRequest) {
+        contentLength = -1;
+      } else if (contentLength < 0) {
+        contentLength = body.contentLength();
+      }
+      if (contentLength >= 0) {
+        writeHeader(connection, CONTENT_LENGTH, Long.toString(contentLength));
+      } else {
+        writeHeader(connection, "Transfer-Encoding", "chunked");
+      }
+    } else if (permitsBody(request.httpMethod())) {
+      writeHeader(connection, CONTENT_LENGTH, "0");
+    }
+    connection.writeAscii("\r\n");
+
+    if (hasBody) {
+      OutputStream out = contentLength >= 0
+          ? new FixedLengthOutputStream(connection.out(), contentLength)
+          : new ChunkedOutputStream(connection.out());
+      if (gzipEncodedRequest) {
+        out = new GZIPOutputStream(out);
+      } else if (deflateEncodedRequest) {
+        out = new DeflaterOutputStream(out);
+      }
+      body.writeTo(out);
+      out.close();
+    }
+    connection.flush();
+  }
+
+  private static boolean permitsBody(HttpMethod method) {
+    return method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH;
+  }
+
+  private static void writeHeader(HttpConnection connection, String field, String value)
+      throws IOException {
+    if (value == null) {
+      return;
+    }
+    if (value.indexOf('\r') != -1 || value.indexOf('\n') != -1) {
+      throw new IllegalArgumentException("Illegal character in the value of header " + field);
+    }
+    connection.writeAscii(field);
+    connection.writeAscii(": ");
+    connection.writeAscii(value);
+    connection.writeAscii("\r\n");
+  }
+
+  private Response readResponse(HttpConnection connection, String statusLine, Request request,
+                                Request original)
+      throws IOException {
+    int status;
+    String reason;
+    boolean http10;
+    ResponseHead head;
+    while (true) {
+      if (statusLine.length() < 12 || !statusLine.startsWith("HTTP/1.")
+          || statusLine.charAt(8) != ' ') {
+        throw new ProtocolException("Unexpected status line: " + statusLine);
+      }
+      http10 = statusLine.charAt(7) == '0';
+      try {
+        status = Integer.parseInt(statusLine.substring(9, 12));
+      } catch (NumberFormatException e) {
+        throw new ProtocolException("Unexpected status line: " + statusLine);
+      }
+      reason = statusLine.length() > 13 ? statusLine.substring(13) : null;
+      head = readHeaders(connection);
+      /* interim responses, except for protocol switches which are not supported */
+      if (status < 100 || status >= 200 || status == 101) {
+        break;
+      }
+      statusLine = connection.readLine();
+      if (statusLine == null) {
+        throw new EOFException("Connection closed before the response to " + request.url());
+      }
+    }
+
+    boolean keepAlive = http10 ? head.keepAlive : !head.close;
+    if (!keepAlive || status == 101 || requestsClose(request)) {
+      connection.doNotReuse();
+    }
+    HttpConnection.BodyStream body;
+    Integer length = null;
+    if (request.httpMethod() == HttpMethod.HEAD || status == 204 || status == 304
+        || status == 101) {
+      body = new HttpConnection.FixedLengthBody(connection, pool, 0);
+      length = 0;
+    } else if (head.chunked) {
+      body = new HttpConnection.ChunkedBody(connection, pool);
+    } else if (head.contentLength >= 0) {
+      body = new HttpConnection.FixedLengthBody(connection, pool, head.contentLength);
+      if (head.contentLength <= Integer.MAX_VALUE) {
+        length = (int) head.contentLength;
+      }
+    } else {
+      body = new HttpConnection.UntilCloseBody(connection, pool);
+    }
+    return Response.builder()
+        .status(status)
+        .reason(reason)
+        .headers(head.headers)
+        .request(original)
+        .body(body, length)
+        .build();
+  }
+
+  private static boolean requestsClose(Request request) {
+    for (Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+      if (header.getKey().equalsIgnoreCase("Connection")) {
+        for (String value : header.getValue()) {
+          if ("close".equalsIgnoreCase(value.trim())) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private static ResponseHead readHeaders(HttpConnection connection) throws IOException {
+    ResponseHead head = new ResponseHead();
+    HttpHeaders.Builder headers = HttpHeaders.builder();
+    String field = null;
+    String value = null;
+    while (true) {
+      String line = connection.readLine();
+      if (line == null) {
+        throw new EOFException("Unexpected end of stream in the response headers");
+      }
+      if (!line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t')) {
+        /* obsolete line folding, continuing the previous value */
+        if (field == null) {
+          throw new ProtocolException("Unexpected header line: " + line);
+        }
+        value = value + ' ' + line.trim();
+        continue;
+      }
+      if (field != null) {
+        head.add(field, value);
+        headers.add(field, value);
+      }
+      if (line.isEmpty()) {
+        head.headers = headers.build();
+        return head;
+      }
+      int colon = line.indexOf(':');
+      if (colon <= 0) {
+        throw new ProtocolException("Unexpected header line: " + line);
+      }
+      field = line.substring(0, colon).trim();
+      value = line.substring(colon + 1).trim();
+    }
+  }
+
+  private static long parseContentLength(String value) throws ProtocolException {
+    try {
+      long length = Long.parseLong(value.trim());
+      if (length >= 0) {
+        return length;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new ProtocolException("Invalid Content-Length: " + value);
+  }
+
+  /**
+   * @return the request following the redirect in {@code response}, or null if there is none to
+   *         follow.
+   */
+  private static Request redirect(Request request, Response response) {
+    int status = response.status();
+    if (status != 301 && status != 302 && status != 303 && status != 307 && status != 308) {
+      return null;
+    }
+    Collection<String> locations = response.headers().get("location");
+    if (locations == null || locations.isEmpty()) {
+      return null;
+    }
+    String url;
+    try {
+      url = URI.create(request.url()).resolve(locations.iterator().next().trim()).toString();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    Address from;
+    Address to;
+    try {
+      from = Address.parse(request.url());
+      to = Address.parse(url);
+    } catch (MalformedURLException e) {
+      return null;
+    }
+    if (from.secure != to.secure) {
+      return null;
+    }
+
+    HttpMethod method = request.httpMethod();
+    Request.Body body = request.requestBody();
+    boolean changesMethod = method != HttpMethod.GET && method != HttpMethod.HEAD
+        && (status == 301 || status == 302 || status == 303);
+    if (!changesMethod && body != null && !body.isReplayable()) {
+      return null;
+    }
+    Map<String, Collection<String>> headers = new LinkedHashMap<>();
+    for (Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+      String field = header.getKey();
+      if (changesMethod && (field.equalsIgnoreCase(CONTENT_LENGTH)
+          || field.equalsIgnoreCase(CONTENT_ENCODING)
+          || field.equalsIgnoreCase("Content-Type"))) {
+        continue;
+      }
+      if (!from.route.equals(to.route) && field.equalsIgnoreCase("Authorization")) {
+        continue;
+      }
+      headers.put(field, header.getValue());
+    }
+    return changesMethod
+        ? Request.create(HttpMethod.GET, url, headers, null, request.requestTemplate())
+        : Request.create(method, url, headers, body, request.requestTemplate());
+  }
+
+  /**
+   * The current state of the pool of a {@link PoolingClient}, and its totals so far.
+   */
+  public static final class Stats {
+
+    private final int idleConnections;
+    private final int leasedConnections;
+    private final long createdConnections;
+    private final long reusedConnections;
+    private final long evictedConnections;
+
+    Stats(int idleConnections, int leasedConnections, long createdConnections,
+        long reusedConnections, long evictedConnections) {
+      this.idleConnections = idleConnections;
+      this.leasedConnections = leasedConnections;
+      this.createdConnections = createdConnections;
+      this.reusedConnections = reusedConnections;
+      this.evictedConnections = evictedConnections;
+    }
+
+    /**
+     * @return the connections kept alive in the pool.
+     */
+    public int idleConnections() {
+      return idleConnections;
+    }
+
+    /**
+     * @return the connections serving a request, or a response body not yet read.
+     */
+    public int leasedConnections() {
+      return leasedConnections;
+    }
+
+    /**
+     * @return the connections opened so far.
+     */
+    public long createdConnections() {
+      return createdConnections;
+    }
+
+    /**
+     * @return how many times so far a connection was taken from the pool rather than opened.
+     */
+    public long reusedConnections() {
+      return reusedConnections;
+    }
+
+    /**
+     * @return the idle connections closed so far, because they expired, the route already had
+     *         enough of them, or the server closed them.
+     */
+    public long evictedConnections() {
+      return evictedConnections;
+    }
+
+    @Override
+    public String toString() {
+      return "Stats(idle=" + idleConnections + ", leased=" + leasedConnections + ", created="
+          + createdConnections + ", reused=" + reusedConnections + ", evicted="
+          + evictedConnections + ")";
+    }
+  }
+
+  public static final class Builder {
+
+    private int maxIdleConnectionsPerRoute = 5;
+    private long keepAliveNanos = TimeUnit.MINUTES.toNanos(5);
+    private SSLContext sslContext;
+    private HostnameVerifier hostnameVerifier;
+
+    Builder() {}
+
+    /**
+     * The most connections kept idle for each route, {@code 5} by default. Requests are never
+     * queued: when none is idle a new connection is opened, and those in excess are closed when
+     * they are released.
+     */
+    public Builder maxIdleConnectionsPerRoute(int maxIdleConnectionsPerRoute) {
+      checkArgument(maxIdleConnectionsPerRoute >= 0,
+          "maxIdleConnectionsPerRoute must not be negative");
+      this.maxIdleConnectionsPerRoute = maxIdleConnectionsPerRoute;
+      return this;
+    }
+
+    /**
+     * How long a connection may stay idle before it's closed, five minutes by default.
+     */
+    public Builder keepAlive(long duration, TimeUnit unit) {
+      checkArgument(duration > 0, "keepAlive must be positive");
+      this.keepAliveNanos = checkNotNull(unit, "unit").toNanos(duration);
+      return this;
+    }
+
+    /**
+     * Secures {@code https} connections, {@link SSLContext#getDefault()} by default.
+     */
+    public Builder sslContext(SSLContext sslContext) {
+      this.sslContext = checkNotNull(sslContext, "sslContext");
+      return this;
+    }
+
+    /**
+     * Checks the host of {@code https} connections, instead of the endpoint identification of the
+     * {@link javax.net.ssl.SSLEngine}.
+     */
+    public Builder hostnameVerifier(HostnameVerifier hostnameVerifier) {
+      this.hostnameVerifier = checkNotNull(hostnameVerifier, "hostnameVerifier");
+      return this;
+    }
+
+    public PoolingClient build() {
+      return new PoolingClient(this);
+    }
+  }
+
+  /* what the response head tells about the body and the connection */
+  private static final class ResponseHead {
+
+    HttpHeaders headers;
+    long contentLength = -1;
+    boolean chunked;
+    boolean close;
+    boolean keepAlive;
+
+    void add(String field, String value) throws ProtocolException {
+      if (field.equalsIgnoreCase(CONTENT_LENGTH)) {
+        contentLength = parseContentLength(value);
+      } else if (field.equalsIgnoreCase("Transfer-Encoding")) {
+        chunked = value.regionMatches(true, value.length() - 7, "chunked", 0, 7);
+      } else if (field.equalsIgnoreCase("Connection")) {
+        close |= containsToken(value, "close");
+        keepAlive |= containsToken(value, "keep-alive");
+      }
+    }
+
+    private static boolean containsToken(String value, String token) {
+      for (String element : value.split(",")) {
+        if (element.trim().equalsIgnoreCase(token)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /* the parts of a url that a connection needs, without the allocations of java.net.URL */
+  private static final class Address {
+
+    final boolean secure;
+    final String host;
+    final int port;
+    final String authority;
+    final String target;
+    /* scheme and authority, which tell the connections that can be shared */
+    final String route;
+
+    private Address(boolean secure, String host, int port, String authority, String target,
+        String route) {
+      this.secure = secure;
+      this.host = host;
+      this.port = port;
+      this.authority = authority;
+      this.target = target;
+      this.route = route;
+    }
+
+    static Address parse(String url) throws MalformedURLException {
+      boolean secure;
+      int authorityStart;
+      if (url.regionMatches(true, 0, "http://", 0, 7)) {
+        secure = false;
+        authorityStart = 7;
+      } else if (url.regionMatches(true, 0, "https://", 0, 8)) {
+        secure = true;
+        authorityStart = 8;
+      } else {
+        throw new MalformedURLException("Unsupported url: " + url);
+      }
+      int authorityEnd = authorityStart;
+      while (authorityEnd < url.length() && "/?#".indexOf(url.charAt(authorityEnd)) == -1) {
+        authorityEnd++;
+      }
+      int userInfo = url.lastIndexOf('@', authorityEnd - 1);
+      if (userInfo >= authorityStart) {
+        authorityStart = userInfo + 1;
+      }
+      String authority = url.substring(authorityStart, authorityEnd);
+
+      String host;
+      int port = secure ? 443 : 80;
+      int portStart = authority.lastIndexOf(':');
+      if (portStart < authority.lastIndexOf(']')) {
+        portStart = -1;
+      }
+      host = portStart == -1 ? authority : authority.substring(0, portStart);
+      if (portStart != -1 && portStart < authority.length() - 1) {
+        try {
+          port = Integer.parseInt(authority.substring(portStart + 1));
+        } catch (NumberFormatException e) {
+          throw new MalformedURLException("Invalid port in url: " + url);
+        }
+      }
+      if (host.startsWith("[") && host.endsWith("]")) {
+        host = host.substring(1, host.length() - 1);
+      }
+      if (host.isEmpty() || port <= 0 || port > 65535) {
+        throw new MalformedURLException("Invalid authority in url: " + url);
+      }
+
+      int targetEnd = url.indexOf('#', authorityEnd);
+      String target = url.substring(authorityEnd, targetEnd == -1 ? url.length() : targetEnd);
+      if (target.isEmpty() || target.charAt(0) != '/') {
+        target = "/" + target;
+      }
+      String route = url.substring(0, authorityEnd);
+      return new Address(secure, host, port, authority, target, route);
+    }
+  }
+
+  /* writes exactly length bytes, leaving the connection open */
+  private static final class FixedLengthOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private long remaining;
+
+    FixedLengthOutputStream(OutputStream out, long length) {
+      this.out = out;
+      this.remaining = length;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (len > remaining) {
+        throw new ProtocolException("Request body longer than its Content-Length");
+      }
+      out.write(b, off, len);
+      remaining -= len;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (remaining > 0) {
+        throw new ProtocolException(
+            "Request body shorter than its Content-Length, " + remaining + " bytes missing");
+      }
+    }
+  }
+
+  /* writes chunks of up to CHUNK_SIZE bytes, and the last chunk when closed */
+  private static final class ChunkedOutputStream extends OutputStream {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final OutputStream out;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int count;
+    private boolean closed;
+
+    ChunkedOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == chunk.length) {
+        writeChunk();
+      }
+      chunk[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (count == chunk.length) {
+          writeChunk();
+        }
+        int copied = Math.min(len, chunk.length - count);
+        System.arraycopy(b, off, chunk, count, copied);
+        count += copied;
+        off += copied;
+        len -= copied;
+      }
+    }
+
+    private void writeChunk() throws IOException {
+      if (count > 0) {
+        out.write(Integer.toHexString(count).getBytes(Util.ISO_8859_1));
+        out.write(CRLF);
+        out.write(chunk, 0, count);
+        out.write(CRLF);
+        count = 0;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        writeChunk();
+        out.write('0');
+        out.write(CRLF);
+        out.write(CRLF);
+      }
+    }
+  }
+}
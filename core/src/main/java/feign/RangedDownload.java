@@ -0,0 +1,556 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import feign.Request.HttpMethod;
+import feign.Request.Options;
+
+/**
+ * Downloads a large resource to a file as several byte ranges fetched in parallel, for servers
+ * advertising {@code Accept-Ranges: bytes}.
+ *
+ * <p>
+ * A {@code HEAD} request learns the size of the resource, which is then split in ranges. Each
+ * range is fetched with its own {@code Range} request, through the configured {@link Client} or
+ * {@link AsyncClient}, and read straight from the {@link Response.Body#asChannel() body channel}
+ * into its memory-mapped region of the file. When a range fails, only that range is requested
+ * again, from the last byte received, as long as the {@link Retryer} allows it. Servers that don't
+ * support ranges, or resources too small to be worth splitting, are downloaded with a single
+ * {@code GET}.
+ * </p>
+ *
+ * <pre>
+ * RangedDownload download = RangedDownload.builder()
+ *     .client(client)
+ *     .parts(8)
+ *     .build();
+ *
+ * long size = download.to("https://example.com/images/disk.img", Paths.get("disk.img"));
+ * </pre>
+ */
+@Experimental
+public final class RangedDownload {
+
+  private static final String METHOD_KEY = "RangedDownload#to(Request,Path)";
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final Client client;
+  private final AsyncClient<?> asyncClient;
+  private final Options options;
+  private final Retryer retryer;
+  private final int parts;
+  private final long minPartSize;
+  private final long maxPartSize;
+  private final Executor executor;
+
+  private RangedDownload(Builder builder) {
+    this.client = builder.client;
+    this.asyncClient = builder.asyncClient;
+    this.options = builder.options;
+    this.retryer = builder.retryer;
+    this.parts = builder.parts;
+    this.minPartSize = builder.minPartSize;
+    this.maxPartSize = builder.maxPartSize;
+    this.executor = builder.executor;
+  }
+
+  /**
+   * Downloads {@code url} to {@code file}, which is created or truncated.
+   *
+   * @return the number of bytes written.
+   */
+  public long to(String url, Path file) throws IOException {
+    checkNotNull(url, "url");
+    return to(Request.create(HttpMethod.GET, url, Collections.emptyMap(), null, null, null), file);
+  }
+
+  /**
+   * Downloads the resource of {@code request}, a {@code GET} whose headers are sent with every
+   * range, to {@code file}, which is created or truncated. The file is forced to storage before this
+   * returns. If the download fails, the file is left incomplete.
+   *
+   * @return the number of bytes written.
+   */
+  public long to(Request request, Path file) throws IOException {
+    checkNotNull(request, "request");
+    checkNotNull(file, "file");
+    checkArgument(request.httpMethod() == HttpMethod.GET, "Only GET requests can be downloaded");
+
+    Resource resource = probe(request);
+    if (resource == null || resource.length < 2 * minPartSize) {
+      return single(request, file);
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      List<Part> split = split(request, resource, channel);
+      if (executor != null) {
+        fetch(split, executor);
+      } else {
+        ExecutorService pool =
+            Executors.newFixedThreadPool(Math.min(split.size(), parts), new ThreadFactory());
+        try {
+          fetch(split, pool);
+        } finally {
+          pool.shutdown();
+        }
+      }
+    }
+    return resource.length;
+  }
+
+  /* learns the length of the resource, or null if it can't be fetched in ranges */
+  private Resource probe(Request request) throws IOException {
+    Request head = Request.create(HttpMethod.HEAD, request.url(), request.headers(), null, null,
+        null);
+    try (Response response = executeWithRetries(head)) {
+      if (response.status() < 200 || response.status() > 299) {
+        return null;
+      }
+      Map<String, Collection<String>> headers = response.headers();
+      long length = parseLength(first(headers, Util.CONTENT_LENGTH));
+      String acceptRanges = first(headers, "Accept-Ranges");
+      if (length <= 0 || acceptRanges == null || !acceptRanges.trim().equalsIgnoreCase("bytes")) {
+        return null;
+      }
+      // guards against the resource changing between two ranges
+      String validator = first(headers, "ETag");
+      if (validator == null || validator.startsWith("W/")) {
+        validator = first(headers, "Last-Modified");
+      }
+      return new Resource(length, validator);
+    }
+  }
+
+  private long single(Request request, Path file) throws IOException {
+    Response response = executeWithRetries(request);
+    if (response.status() < 200 || response.status() > 299) {
+      throw FeignException.errorStatus(METHOD_KEY, response);
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      long length = new Download(response).to(channel);
+      channel.force(false);
+      return length;
+    }
+  }
+
+  /* retries failures to connect, the body is left to the caller */
+  private Response executeWithRetries(Request request) throws IOException {
+    Retryer retryer = null;
+    while (true) {
+      try {
+        return execute(request);
+      } catch (IOException e) {
+        if (retryer == null) {
+          retryer = this.retryer.clone();
+        }
+        retryer.continueOrPropagate(FeignException.errorExecuting(request, e));
+      }
+    }
+  }
+
+  private Response execute(Request request) throws IOException {
+    if (client != null) {
+      return client.execute(request, options);
+    }
+    try {
+      return executeAsync(asyncClient, request).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while downloading " + request.url());
+    } catch (ExecutionException e) {
+      throw rethrow(e.getCause());
+    }
+  }
+
+  private <C> CompletableFuture<Response> executeAsync(AsyncClient<C> client, Request request) {
+    return client.execute(request, options, Optional.empty());
+  }
+
+  private List<Part> split(Request request, Resource resource, FileChannel channel)
+      throws IOException {
+    long count = Math.max(1, Math.min(parts, resource.length / minPartSize));
+    long size = Math.min((resource.length + count - 1) / count, maxPartSize);
+    List<Part> split = new ArrayList<>();
+    for (long start = 0; start < resource.length; start += size) {
+      long length = Math.min(size, resource.length - start);
+      // mapping past the end grows the file to its final size
+      MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+      split.add(new Part(request, resource.validator, start, region));
+    }
+    return split;
+  }
+
+  private void fetch(List<Part> split, Executor executor) throws IOException {
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    CompletableFuture<?>[] fetches = new CompletableFuture<?>[split.size()];
+    for (int i = 0; i < fetches.length; i++) {
+      fetches[i] = fetch(split.get(i), executor, failure)
+          .whenComplete((result, error) -> {
+            if (error != null) {
+              failure.compareAndSet(null, unwrap(error));
+            }
+          });
+    }
+    try {
+      // the parts left stop at their next read once one of them has failed
+      CompletableFuture.allOf(fetches).handle((result, error) -> result).get();
+    } catch (InterruptedException e) {
+      failure.compareAndSet(null, e);
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while downloading " + split.get(0).url());
+    } catch (ExecutionException e) {
+      failure.compareAndSet(null, e.getCause());
+    }
+    if (failure.get() != null) {
+      throw rethrow(failure.get());
+    }
+  }
+
+  private CompletableFuture<Void> fetch(Part part,
+                                        Executor executor,
+                                        AtomicReference<Throwable> failure) {
+    Request request = part.request();
+    CompletableFuture<Response> response;
+    if (client != null) {
+      response = CompletableFuture.supplyAsync(() -> {
+        try {
+          return client.execute(request, options);
+        } catch (IOException e) {
+          throw new CompletionException(e);
+        }
+      }, executor);
+    } else {
+      response = executeAsync(asyncClient, request);
+    }
+    return response
+        .thenAcceptAsync(received -> read(part, received, failure), executor)
+        .handleAsync((result, error) -> error == null
+            ? CompletableFuture.<Void>completedFuture(null)
+            : retry(part, request, unwrap(error), executor, failure), executor)
+        .thenCompose(Function.identity());
+  }
+
+  private CompletableFuture<Void> retry(Part part,
+                                        Request request,
+                                        Throwable error,
+                                        Executor executor,
+                                        AtomicReference<Throwable> failure) {
+    RetryableException retryable;
+    if (failure.get() != null) {
+      retryable = null;
+    } else if (error instanceof RetryableException) {
+      retryable = (RetryableException) error;
+    } else if (error instanceof IOException) {
+      retryable = FeignException.errorExecuting(request, (IOException) error);
+    } else {
+      retryable = null;
+    }
+    if (retryable == null) {
+      return failed(error);
+    }
+    try {
+      part.retryer().continueOrPropagate(retryable);
+    } catch (RetryableException e) {
+      return failed(e);
+    }
+    return fetch(part, executor, failure);
+  }
+
+  /* reads the body into the region of the part, keeping its position if the connection drops */
+  private static void read(Part part,
+                           Response response,
+                           AtomicReference<Throwable> failure) {
+    try {
+      if (response.status() != 206) {
+        throw unexpected(response, part);
+      }
+      String contentRange = first(response.headers(), "Content-Range");
+      if (contentRange != null && !contentRange.startsWith("bytes " + part.offset() + "-")) {
+        throw new FeignException(response.status(),
+            "Expected the range starting at " + part.offset() + " but got " + contentRange,
+            response.request());
+      }
+      if (response.body() == null) {
+        throw new EOFException("No body for the range starting at " + part.offset());
+      }
+      try (ReadableByteChannel channel = response.body().asChannel()) {
+        while (part.region.hasRemaining()) {
+          if (failure.get() != null) {
+            throw new IOException("Download of " + part.url() + " was aborted");
+          }
+          if (channel.read(part.region) == -1) {
+            throw new EOFException("Range ended early at " + part.offset());
+          }
+        }
+      }
+      // on disk before the download reports success, so a crash can't leave a torn file
+      part.region.force();
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    } finally {
+      response.close();
+    }
+  }
+
+  private static FeignException unexpected(Response response, Part part) {
+    int status = response.status();
+    if (status == 200) {
+      // If-Range turns the range into the whole, changed, resource
+      return new FeignException(status,
+          "Got the whole resource instead of the range starting at " + part.offset()
+              + ", it may have changed since the download started",
+          response.request());
+    }
+    FeignException error = FeignException.errorStatus(METHOD_KEY, response);
+    if (status >= 500 || status == 429) {
+      return new RetryableException(status, error.getMessage(), HttpMethod.GET, error, null,
+          response.request());
+    }
+    return error;
+  }
+
+  private static <T> CompletableFuture<T> failed(Throwable error) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    result.completeExceptionally(error);
+    return result;
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    while (error instanceof CompletionException && error.getCause() != null) {
+      error = error.getCause();
+    }
+    return error;
+  }
+
+  private static IOException rethrow(Throwable error) {
+    error = unwrap(error);
+    if (error instanceof IOException) {
+      return (IOException) error;
+    }
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    }
+    if (error instanceof Error) {
+      throw (Error) error;
+    }
+    return new IOException(error);
+  }
+
+  private static String first(Map<String, Collection<String>> headers, String name) {
+    Collection<String> values = headers.get(name);
+    return values == null || values.isEmpty() ? null : values.iterator().next();
+  }
+
+  private static long parseLength(String value) {
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static final class Resource {
+
+    final long length;
+    final String validator;
+
+    Resource(long length, String validator) {
+      this.length = length;
+      this.validator = validator;
+    }
+  }
+
+  private final class Part {
+
+    private final Request download;
+    private final String validator;
+    private final long start;
+    private final MappedByteBuffer region;
+    private Retryer retryer;
+
+    Part(Request download, String validator, long start, MappedByteBuffer region) {
+      this.download = download;
+      this.validator = validator;
+      this.start = start;
+      this.region = region;
+    }
+
+    String url() {
+      return download.url();
+    }
+
+    /* where the next request starts, after the bytes already received */
+    long offset() {
+      return start + region.position();
+    }
+
+    Request request() {
+      HttpHeaders.Builder headers = HttpHeaders.builder();
+      for (Map.Entry<String, Collection<String>> header : download.headers().entrySet()) {
+        if (!header.getKey().equalsIgnoreCase("Range")
+            && !header.getKey().equalsIgnoreCase("If-Range")) {
+          headers.add(header.getKey(), header.getValue());
+        }
+      }
+      headers.add("Range", "bytes=" + offset() + "-" + (start + region.limit() - 1));
+      if (validator != null) {
+        headers.add("If-Range", validator);
+      }
+      return Request.create(HttpMethod.GET, download.url(), headers.build(), null, null, null);
+    }
+
+    /* each part has its own attempts */
+    Retryer retryer() {
+      if (retryer == null) {
+        retryer = RangedDownload.this.retryer.clone();
+      }
+      return retryer;
+    }
+  }
+
+  public static final class Builder {
+
+    private Client client;
+    private AsyncClient<?> asyncClient;
+    private Options options = new Options();
+    private Retryer retryer = new Retryer.Default();
+    private int parts = 4;
+    private long minPartSize = 1024 * 1024;
+    private long maxPartSize = Integer.MAX_VALUE;
+    private Executor executor;
+
+    Builder() {}
+
+    /**
+     * Sends the requests with {@code client}, on the executor. Defaults to {@link Client.Default}.
+     */
+    public Builder client(Client client) {
+      this.client = checkNotNull(client, "client");
+      this.asyncClient = null;
+      return this;
+    }
+
+    /**
+     * Sends the requests with {@code asyncClient}, without a context. Bodies are still read on the
+     * executor.
+     */
+    public Builder client(AsyncClient<?> asyncClient) {
+      this.asyncClient = checkNotNull(asyncClient, "asyncClient");
+      this.client = null;
+      return this;
+    }
+
+    public Builder options(Options options) {
+      this.options = checkNotNull(options, "options");
+      return this;
+    }
+
+    /**
+     * Decides whether a failed range, or a failed {@code HEAD}, is requested again. Each range
+     * gets its own {@link Retryer#clone() clone}.
+     */
+    public Builder retryer(Retryer retryer) {
+      this.retryer = checkNotNull(retryer, "retryer");
+      return this;
+    }
+
+    /**
+     * The number of ranges fetched in parallel, {@code 4} by default.
+     */
+    public Builder parts(int parts) {
+      checkArgument(parts > 0, "parts must be positive");
+      this.parts = parts;
+      return this;
+    }
+
+    /**
+     * Ranges are never smaller than {@code minPartSize} bytes, one megabyte by default, so that
+     * small resources are fetched with fewer requests.
+     */
+    public Builder minPartSize(long minPartSize) {
+      checkArgument(minPartSize > 0, "minPartSize must be positive");
+      this.minPartSize = minPartSize;
+      return this;
+    }
+
+    /* visible for testing, regions can't be mapped beyond 2GB */
+    Builder maxPartSize(long maxPartSize) {
+      checkArgument(maxPartSize > 0 && maxPartSize <= Integer.MAX_VALUE,
+          "maxPartSize must be between 1 and %s", Integer.MAX_VALUE);
+      this.maxPartSize = maxPartSize;
+      return this;
+    }
+
+    /**
+     * Runs the requests and reads the bodies. Reading blocks, so by default each download uses a
+     * pool of its own, with a thread per range.
+     */
+    public Builder executor(Executor executor) {
+      this.executor = checkNotNull(executor, "executor");
+      return this;
+    }
+
+    public RangedDownload build() {
+      if (client == null && asyncClient == null) {
+        client = new Client.Default(null, null);
+      }
+      return new RangedDownload(this);
+    }
+  }
+
+  private static final class ThreadFactory implements java.util.concurrent.ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "feign-download-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
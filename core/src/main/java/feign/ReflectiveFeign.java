@@ -15,11 +15,22 @@ package feign;
 
 import static feign.Util.checkArgument;
 import static feign.Util.checkNotNull;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 import feign.InvocationHandlerFactory.MethodHandler;
 import feign.Param.Expander;
 import feign.Request.Options;
@@ -31,34 +42,52 @@ public class ReflectiveFeign extends Feign {
   private final ParseHandlersByName targetToHandlersByName;
   private final InvocationHandlerFactory factory;
   private final QueryMapEncoder queryMapEncoder;
+  private final boolean generatedClients;
 
   ReflectiveFeign(ParseHandlersByName targetToHandlersByName, InvocationHandlerFactory factory,
       QueryMapEncoder queryMapEncoder) {
+    this(targetToHandlersByName, factory, queryMapEncoder, false);
+  }
+
+  /**
+   * @param generatedClients if implementations generated at compile time should be used when
+   *        present, see {@link GeneratedContract}.
+   */
+  ReflectiveFeign(ParseHandlersByName targetToHandlersByName, InvocationHandlerFactory factory,
+      QueryMapEncoder queryMapEncoder, boolean generatedClients) {
     this.targetToHandlersByName = targetToHandlersByName;
     this.factory = factory;
     this.queryMapEncoder = queryMapEncoder;
+    this.generatedClients = generatedClients;
   }
 
   /**
-   * creates an api binding to the {@code target}. As this invokes reflection, care should be taken
-   * to cache the result.
+   * creates an api binding to the {@code target}. With a contract exposing a
+   * {@link Contract#cacheKey() cache key}, the interface is only parsed the first time it is
+   * targeted, later calls bind the parsed methods to the new {@code target}. See {@link ParsedApi}.
    */
   @SuppressWarnings("unchecked")
   @Override
   public <T> T newInstance(Target<T> target) {
-    Map<String, MethodHandler> nameToHandler = targetToHandlersByName.apply(target);
-    Map<Method, MethodHandler> methodToHandler = new LinkedHashMap<Method, MethodHandler>();
+    GeneratedClient generated = generatedClients ? GeneratedClient.forType(target.type()) : null;
+    if (generated != null) {
+      ParsedApi parsed = ParsedApi.of(target.type(), generated, false, generated::metadata);
+      return generated.newInstance(target, targetToHandlersByName.apply(target, parsed));
+    }
+
+    ParsedApi parsed = targetToHandlersByName.parse(target.type());
+    Map<String, MethodHandler> nameToHandler = targetToHandlersByName.apply(target, parsed);
+    Map<Method, MethodHandler> methodToHandler =
+        new LinkedHashMap<Method, MethodHandler>(parsed.methods.length * 4 / 3 + 1);
     List<DefaultMethodHandler> defaultMethodHandlers = new LinkedList<DefaultMethodHandler>();
 
-    for (Method method : target.type().getMethods()) {
-      if (method.getDeclaringClass() == Object.class) {
-        continue;
-      } else if (Util.isDefault(method)) {
-        DefaultMethodHandler handler = new DefaultMethodHandler(method);
+    for (int i = 0; i < parsed.methods.length; i++) {
+      if (parsed.defaultMethods[i] != null) {
+        DefaultMethodHandler handler = new DefaultMethodHandler(parsed.defaultMethods[i]);
         defaultMethodHandlers.add(handler);
-        methodToHandler.put(method, handler);
+        methodToHandler.put(parsed.methods[i], handler);
       } else {
-        methodToHandler.put(method, nameToHandler.get(Feign.configKey(target.type(), method)));
+        methodToHandler.put(parsed.methods[i], nameToHandler.get(parsed.configKeys[i]));
       }
     }
     InvocationHandler handler = factory.create(target, methodToHandler);
@@ -120,6 +149,368 @@ public class ReflectiveFeign extends Feign {
     }
   }
 
+  /**
+   * An implementation of a Feign interface generated at compile time, which replaces both the
+   * {@link Contract} and the {@link Proxy}. Lookups are cached per interface, including the
+   * interfaces that have no generated implementation.
+   */
+  static final class GeneratedClient {
+
+    private static final ClassValue<GeneratedClient> GENERATED_CLIENTS =
+        new ClassValue<GeneratedClient>() {
+          @Override
+          protected GeneratedClient computeValue(Class<?> type) {
+            return load(type);
+          }
+        };
+
+    private final Method metadata;
+    private final Constructor<?> constructor;
+
+    private GeneratedClient(Method metadata, Constructor<?> constructor) {
+      this.metadata = metadata;
+      this.constructor = constructor;
+    }
+
+    /**
+     * @return the generated implementation of {@code type}, or {@code null} if there is none.
+     */
+    static GeneratedClient forType(Class<?> type) {
+      return GENERATED_CLIENTS.get(type);
+    }
+
+    private static GeneratedClient load(Class<?> type) {
+      if (!type.isInterface()) {
+        return null;
+      }
+      try {
+        Class<?> generated = Class.forName(className(type), true, type.getClassLoader());
+        if (!type.isAssignableFrom(generated)) {
+          return null;
+        }
+        return new GeneratedClient(generated.getMethod("metadata"),
+            generated.getConstructor(Target.class, Map.class));
+      } catch (ClassNotFoundException | NoSuchMethodException e) {
+        return null;
+      }
+    }
+
+    /**
+     * @return the name of the implementation generated for {@code type}, for example
+     *         {@code example.Outer_Inner_FeignClient} for {@code example.Outer.Inner}.
+     */
+    static String className(Class<?> type) {
+      StringBuilder name = new StringBuilder(type.getSimpleName());
+      Class<?> topLevel = type;
+      for (Class<?> enclosing = type.getEnclosingClass(); enclosing != null;
+          enclosing = enclosing.getEnclosingClass()) {
+        name.insert(0, '_').insert(0, enclosing.getSimpleName());
+        topLevel = enclosing;
+      }
+      int packageEnd = topLevel.getName().lastIndexOf('.');
+      if (packageEnd != -1) {
+        name.insert(0, topLevel.getName().substring(0, packageEnd + 1));
+      }
+      return name.append(GeneratedContract.GENERATED_CLIENT_SUFFIX).toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    List<MethodMetadata> metadata() {
+      return (List<MethodMetadata>) invoke(() -> metadata.invoke(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T newInstance(Target<T> target, Map<String, MethodHandler> nameToHandler) {
+      return (T) invoke(() -> constructor.newInstance(target, nameToHandler));
+    }
+
+    private static Object invoke(ReflectiveCall call) {
+      try {
+        return call.invoke();
+      } catch (InvocationTargetException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private interface ReflectiveCall {
+
+      Object invoke() throws ReflectiveOperationException;
+    }
+  }
+
+  /**
+   * The metadata of an interface parsed by a {@link Contract}, with everything that can be derived
+   * from it without a {@link Target}: the variable slots of each method and the methods of the
+   * interface that are dispatched to. Shared by every {@link ReflectiveFeign} using the same
+   * contract, so targeting an interface that was already parsed only binds the new target.
+   * {@link Param.Expander Expanders} are not shared, they are created for each target as before.
+   *
+   * <p>
+   * Entries are kept per interface, for the contracts exposing a {@link Contract#cacheKey() cache
+   * key}, and at most {@value #MAX_CONTRACTS_PER_TYPE} keys are remembered for each of them. Other
+   * contracts, or further keys, parse the interface again each time, so no contract instance is
+   * kept by the cache.
+   * </p>
+   */
+  static final class ParsedApi {
+
+    static final int MAX_CONTRACTS_PER_TYPE = 16;
+
+    private static final ClassValue<ConcurrentMap<Object, ParsedApi>> PARSED_APIS =
+        new ClassValue<ConcurrentMap<Object, ParsedApi>>() {
+          @Override
+          protected ConcurrentMap<Object, ParsedApi> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<Object, ParsedApi>(4);
+          }
+        };
+
+    final List<MethodMetadata> metadata;
+    /* indexed like metadata, created on first use */
+    private final ArgumentSlots[] arguments;
+
+    /* the methods of the interface, for the reflective proxy */
+    final Method[] methods;
+    final String[] configKeys;
+    final MethodHandle[] defaultMethods;
+
+    private ParsedApi(Class<?> type, List<MethodMetadata> metadata, boolean reflective) {
+      this.metadata = metadata;
+      this.arguments = new ArgumentSlots[metadata.size()];
+      List<Method> methods = new ArrayList<Method>();
+      if (reflective) {
+        for (Method method : type.getMethods()) {
+          if (method.getDeclaringClass() != Object.class) {
+            methods.add(method);
+          }
+        }
+      }
+      this.methods = methods.toArray(new Method[0]);
+      this.configKeys = new String[this.methods.length];
+      this.defaultMethods = new MethodHandle[this.methods.length];
+      for (int i = 0; i < this.methods.length; i++) {
+        if (Util.isDefault(this.methods[i])) {
+          defaultMethods[i] = DefaultMethodHandler.unreflect(this.methods[i]);
+        } else {
+          configKeys[i] = Feign.configKey(type, this.methods[i]);
+        }
+      }
+    }
+
+    /**
+     * @return the variable slots of {@code metadata.get(index)}. As slots are immutable, they may be
+     *         created more than once when first used concurrently.
+     */
+    ArgumentSlots arguments(int index) {
+      ArgumentSlots slots = arguments[index];
+      if (slots == null) {
+        slots = new ArgumentSlots(metadata.get(index));
+        arguments[index] = slots;
+      }
+      return slots;
+    }
+
+    /**
+     * @return the parsed api of {@code type}, computing it with {@code parser} if {@code key} did
+     *         not parse it yet, or every time if {@code key} is {@literal null}.
+     */
+    static ParsedApi of(Class<?> type,
+                        Object key,
+                        boolean reflective,
+                        Supplier<List<MethodMetadata>> parser) {
+      if (key == null) {
+        return new ParsedApi(type, parser.get(), reflective);
+      }
+      ConcurrentMap<Object, ParsedApi> parsedApis = PARSED_APIS.get(type);
+      ParsedApi parsed = parsedApis.get(key);
+      if (parsed == null) {
+        parsed = new ParsedApi(type, parser.get(), reflective);
+        if (parsedApis.size() >= MAX_CONTRACTS_PER_TYPE) {
+          /* keep the contracts seen first rather than evicting one arbitrarily */
+          return parsed;
+        }
+        ParsedApi existing = parsedApis.putIfAbsent(key, parsed);
+        if (existing != null) {
+          parsed = existing;
+        }
+      }
+      return parsed;
+    }
+  }
+
+  /**
+   * The variable slots of a method, indexed by position in the argument array. Fields are final so
+   * that slots can be shared between threads without synchronization.
+   */
+  static final class ArgumentSlots {
+
+    private final int[] argumentIndexes;
+    private final String[][] argumentNames;
+    private final boolean expanded;
+    private final int variableCount;
+    /* the slots assigning each variable, last first */
+    private final Map<String, int[]> variableSlots;
+
+    /* -1 when absent */
+    private final int urlIndex;
+    private final int queryMapIndex;
+    private final int headerMapIndex;
+
+    ArgumentSlots(MethodMetadata metadata) {
+      Set<Integer> expandedIndexes = metadata.indexToExpander() != null
+          ? metadata.indexToExpander().keySet()
+          : metadata.indexToExpanderClass().keySet();
+      int size = metadata.indexToName().size();
+      this.argumentIndexes = new int[size];
+      this.argumentNames = new String[size][];
+      this.variableSlots = new HashMap<String, int[]>();
+      int slot = 0;
+      int variables = 0;
+      boolean expanded = false;
+      for (Entry<Integer, Collection<String>> entry : metadata.indexToName().entrySet()) {
+        argumentIndexes[slot] = entry.getKey();
+        argumentNames[slot] = entry.getValue().toArray(new String[0]);
+        expanded |= expandedIndexes.contains(entry.getKey());
+        variables += argumentNames[slot].length;
+        for (String name : argumentNames[slot]) {
+          int[] slots = variableSlots.get(name);
+          int[] assigning = new int[slots == null ? 1 : slots.length + 1];
+          assigning[0] = slot;
+          if (slots != null) {
+            System.arraycopy(slots, 0, assigning, 1, slots.length);
+          }
+          variableSlots.put(name, assigning);
+        }
+        slot++;
+      }
+      this.expanded = expanded;
+      this.variableCount = variables;
+      this.urlIndex = metadata.urlIndex() != null ? metadata.urlIndex() : -1;
+      this.queryMapIndex = metadata.queryMapIndex() != null ? metadata.queryMapIndex() : -1;
+      this.headerMapIndex = metadata.headerMapIndex() != null ? metadata.headerMapIndex() : -1;
+    }
+
+    /**
+     * Creates the expanders of a new target, indexed by slot. Expanders given as classes are
+     * instantiated for each target, so that they are never shared between targets.
+     *
+     * @return null if no argument is expanded.
+     */
+    Expander[] expanders(MethodMetadata metadata) {
+      if (!expanded) {
+        return null;
+      }
+      Map<Integer, Expander> indexToExpander = indexToExpander(metadata);
+      Expander[] expanders = new Expander[argumentIndexes.length];
+      for (int slot = 0; slot < expanders.length; slot++) {
+        expanders[slot] = indexToExpander.get(argumentIndexes[slot]);
+      }
+      return expanders;
+    }
+
+    private static Map<Integer, Expander> indexToExpander(MethodMetadata metadata) {
+      if (metadata.indexToExpander() != null) {
+        return metadata.indexToExpander();
+      }
+      if (metadata.indexToExpanderClass().isEmpty()) {
+        return Collections.emptyMap();
+      }
+      Map<Integer, Expander> indexToExpander = new LinkedHashMap<Integer, Expander>();
+      for (Entry<Integer, Class<? extends Expander>> indexToExpanderClass : metadata
+          .indexToExpanderClass().entrySet()) {
+        try {
+          indexToExpander
+              .put(indexToExpanderClass.getKey(), indexToExpanderClass.getValue().newInstance());
+        } catch (InstantiationException e) {
+          throw new IllegalStateException(e);
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return indexToExpander;
+    }
+  }
+
+  /**
+   * The variables of an invocation, read from the arguments of the method on lookup instead of
+   * being copied into a map first. Null arguments are skipped, as if they were never assigned.
+   */
+  static final class VariableMap extends AbstractMap<String, Object> {
+
+    private final ArgumentSlots arguments;
+    /* the arguments of the method, or the expanded value of each slot */
+    private final Object[] values;
+    private final boolean valuesBySlot;
+    private Map<String, Object> copy;
+
+    VariableMap(ArgumentSlots arguments, Object[] values, boolean valuesBySlot) {
+      this.arguments = arguments;
+      this.values = values;
+      this.valuesBySlot = valuesBySlot;
+    }
+
+    @Override
+    public Object get(Object name) {
+      int[] slots = arguments.variableSlots.get(name);
+      if (slots != null) {
+        for (int slot : slots) {
+          Object value = value(slot);
+          if (value != null) {
+            return value;
+          }
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+      return get(name) != null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      if (copy == null) {
+        Map<String, Object> variables =
+            new LinkedHashMap<String, Object>(Math.max(16, arguments.variableCount * 2));
+        for (int slot = 0; slot < arguments.argumentIndexes.length; slot++) {
+          Object value = value(slot);
+          if (value != null) {
+            for (String name : arguments.argumentNames[slot]) {
+              variables.put(name, value);
+            }
+          }
+        }
+        copy = Collections.unmodifiableMap(variables);
+      }
+      return copy.entrySet();
+    }
+
+    private Object value(int slot) {
+      return valuesBySlot ? values[slot] : values[arguments.argumentIndexes[slot]];
+    }
+  }
+
+  /**
+   * Creates the handler of a parsed method, synchronous or asynchronous.
+   */
+  interface MethodHandlerFactory {
+
+    MethodHandler create(Target<?> target,
+                         MethodMetadata md,
+                         RequestTemplate.Factory buildTemplateFromArgs,
+                         Options options,
+                         Decoder decoder,
+                         ErrorDecoder errorDecoder);
+  }
+
   static final class ParseHandlersByName {
 
     private final Contract contract;
@@ -128,7 +519,8 @@ public class ReflectiveFeign extends Feign {
     private final Decoder decoder;
     private final ErrorDecoder errorDecoder;
     private final QueryMapEncoder queryMapEncoder;
-    private final SynchronousMethodHandler.Factory factory;
+    private final MethodHandlerFactory factory;
+    private final boolean lazyMethodHandlers;
 
     ParseHandlersByName(
         Contract contract,
@@ -137,7 +529,24 @@ public class ReflectiveFeign extends Feign {
         Decoder decoder,
         QueryMapEncoder queryMapEncoder,
         ErrorDecoder errorDecoder,
-        SynchronousMethodHandler.Factory factory) {
+        MethodHandlerFactory factory) {
+      this(contract, options, encoder, decoder, queryMapEncoder, errorDecoder, factory, false);
+    }
+
+    /**
+     * @param lazyMethodHandlers if handlers should only be created when their method is first
+     *        invoked, see {@link Feign.Builder#lazyMethodHandlers()}.
+     */
+    ParseHandlersByName(
+        Contract contract,
+        Options options,
+        Encoder encoder,
+        Decoder decoder,
+        QueryMapEncoder queryMapEncoder,
+        ErrorDecoder errorDecoder,
+        MethodHandlerFactory factory,
+        boolean lazyMethodHandlers) {
+      this.lazyMethodHandlers = lazyMethodHandlers;
       this.contract = contract;
       this.options = options;
       this.factory = factory;
@@ -147,30 +556,49 @@ public class ReflectiveFeign extends Feign {
       this.decoder = checkNotNull(decoder, "decoder");
     }
 
-    public Map<String, MethodHandler> apply(Target target) {
-      List<MethodMetadata> metadata = contract.parseAndValidateMetadata(target.type());
-      Map<String, MethodHandler> result = new LinkedHashMap<String, MethodHandler>();
-      for (MethodMetadata md : metadata) {
-        BuildTemplateByResolvingArgs buildTemplate;
-        if (!md.formParams().isEmpty() && md.template().bodyTemplate() == null) {
-          buildTemplate =
-              new BuildFormEncodedTemplateFromArgs(md, encoder, queryMapEncoder, target);
-        } else if (md.bodyIndex() != null) {
-          buildTemplate = new BuildEncodedTemplateFromArgs(md, encoder, queryMapEncoder, target);
-        } else {
-          buildTemplate = new BuildTemplateByResolvingArgs(md, queryMapEncoder, target);
-        }
+    public Map<String, MethodHandler> apply(Target<?> target) {
+      return apply(target, parse(target.type()));
+    }
+
+    ParsedApi parse(Class<?> type) {
+      return ParsedApi.of(type, contract.cacheKey(), true,
+          () -> contract.parseAndValidateMetadata(type));
+    }
+
+    Map<String, MethodHandler> apply(Target<?> target, ParsedApi parsed) {
+      Map<String, MethodHandler> result =
+          new LinkedHashMap<String, MethodHandler>(parsed.metadata.size() * 4 / 3 + 1);
+      for (int i = 0; i < parsed.metadata.size(); i++) {
+        MethodMetadata md = parsed.metadata.get(i);
         if (md.isIgnored()) {
           result.put(md.configKey(), args -> {
             throw new IllegalStateException(md.configKey() + " is not a method handled by feign");
           });
+        } else if (lazyMethodHandlers) {
+          int index = i;
+          result.put(md.configKey(), new LazyMethodHandler(() -> create(target, parsed, index)));
         } else {
-          result.put(md.configKey(),
-              factory.create(target, md, buildTemplate, options, decoder, errorDecoder));
+          result.put(md.configKey(), create(target, parsed, i));
         }
       }
       return result;
     }
+
+    private MethodHandler create(Target<?> target, ParsedApi parsed, int index) {
+      MethodMetadata md = parsed.metadata.get(index);
+      ArgumentSlots arguments = parsed.arguments(index);
+      BuildTemplateByResolvingArgs buildTemplate;
+      if (!md.formParams().isEmpty() && md.template().bodyTemplate() == null) {
+        buildTemplate =
+            new BuildFormEncodedTemplateFromArgs(md, arguments, encoder, queryMapEncoder, target);
+      } else if (md.bodyIndex() != null) {
+        buildTemplate =
+            new BuildEncodedTemplateFromArgs(md, arguments, encoder, queryMapEncoder, target);
+      } else {
+        buildTemplate = new BuildTemplateByResolvingArgs(md, arguments, queryMapEncoder, target);
+      }
+      return factory.create(target, md, buildTemplate, options, decoder, errorDecoder);
+    }
   }
 
   private static class BuildTemplateByResolvingArgs implements RequestTemplate.Factory {
@@ -179,68 +607,56 @@ public class ReflectiveFeign extends Feign {
 
     protected final MethodMetadata metadata;
     protected final Target<?> target;
-    private final Map<Integer, Expander> indexToExpander = new LinkedHashMap<Integer, Expander>();
 
-    private BuildTemplateByResolvingArgs(MethodMetadata metadata, QueryMapEncoder queryMapEncoder,
-        Target target) {
+    private final ArgumentSlots arguments;
+    /* indexed by slot, null if no argument is expanded */
+    private final Expander[] expanders;
+
+    private BuildTemplateByResolvingArgs(MethodMetadata metadata, ArgumentSlots arguments,
+        QueryMapEncoder queryMapEncoder, Target target) {
       this.metadata = metadata;
+      this.arguments = arguments;
+      this.expanders = arguments.expanders(metadata);
       this.target = target;
       this.queryMapEncoder = queryMapEncoder;
-      if (metadata.indexToExpander() != null) {
-        indexToExpander.putAll(metadata.indexToExpander());
-        return;
-      }
-      if (metadata.indexToExpanderClass().isEmpty()) {
-        return;
-      }
-      for (Entry<Integer, Class<? extends Expander>> indexToExpanderClass : metadata
-          .indexToExpanderClass().entrySet()) {
-        try {
-          indexToExpander
-              .put(indexToExpanderClass.getKey(), indexToExpanderClass.getValue().newInstance());
-        } catch (InstantiationException e) {
-          throw new IllegalStateException(e);
-        } catch (IllegalAccessException e) {
-          throw new IllegalStateException(e);
-        }
-      }
     }
 
     @Override
     public RequestTemplate create(Object[] argv) {
+      // copied on every call: encoders, interceptors and targets all mutate the template
       RequestTemplate mutable = RequestTemplate.from(metadata.template());
       mutable.feignTarget(target);
-      if (metadata.urlIndex() != null) {
-        int urlIndex = metadata.urlIndex();
+      ArgumentSlots arguments = this.arguments;
+      int urlIndex = arguments.urlIndex;
+      if (urlIndex != -1) {
         checkArgument(argv[urlIndex] != null, "URI parameter %s was null", urlIndex);
         mutable.target(String.valueOf(argv[urlIndex]));
       }
-      Map<String, Object> varBuilder = new LinkedHashMap<String, Object>();
-      for (Entry<Integer, Collection<String>> entry : metadata.indexToName().entrySet()) {
-        int i = entry.getKey();
-        Object value = argv[entry.getKey()];
-        if (value != null) { // Null values are skipped.
-          if (indexToExpander.containsKey(i)) {
-            value = expandElements(indexToExpander.get(i), value);
-          }
-          for (String name : entry.getValue()) {
-            varBuilder.put(name, value);
+      Object[] values = argv;
+      if (arguments.expanded) {
+        values = new Object[arguments.argumentIndexes.length];
+        for (int slot = 0; slot < values.length; slot++) {
+          Object value = argv[arguments.argumentIndexes[slot]];
+          if (value != null && expanders[slot] != null) {
+            value = expandElements(expanders[slot], value);
           }
+          values[slot] = value;
         }
       }
 
-      RequestTemplate template = resolve(argv, mutable, varBuilder);
-      if (metadata.queryMapIndex() != null) {
+      RequestTemplate template =
+          resolve(argv, mutable, new VariableMap(arguments, values, arguments.expanded));
+      if (arguments.queryMapIndex != -1) {
         // add query map parameters after initial resolve so that they take
         // precedence over any predefined values
-        Object value = argv[metadata.queryMapIndex()];
+        Object value = argv[arguments.queryMapIndex];
         Map<String, Object> queryMap = toQueryMap(value);
         template = addQueryMapQueryParameters(queryMap, template);
       }
 
-      if (metadata.headerMapIndex() != null) {
+      if (arguments.headerMapIndex != -1) {
         template =
-            addHeaderMapHeaders((Map<String, Object>) argv[metadata.headerMapIndex()], template);
+            addHeaderMapHeaders((Map<String, Object>) argv[arguments.headerMapIndex], template);
       }
 
       return template;
@@ -278,17 +694,18 @@ public class ReflectiveFeign extends Feign {
     private RequestTemplate addHeaderMapHeaders(Map<String, Object> headerMap,
                                                 RequestTemplate mutable) {
       for (Entry<String, Object> currEntry : headerMap.entrySet()) {
-        Collection<String> values = new ArrayList<String>();
+        Collection<String> values;
 
         Object currValue = currEntry.getValue();
         if (currValue instanceof Iterable<?>) {
+          values = new ArrayList<String>();
           Iterator<?> iter = ((Iterable<?>) currValue).iterator();
           while (iter.hasNext()) {
             Object nextObject = iter.next();
             values.add(nextObject == null ? null : nextObject.toString());
           }
         } else {
-          values.add(currValue == null ? null : currValue.toString());
+          values = Collections.singletonList(currValue == null ? null : currValue.toString());
         }
 
         mutable.header(currEntry.getKey(), values);
@@ -300,11 +717,12 @@ public class ReflectiveFeign extends Feign {
     private RequestTemplate addQueryMapQueryParameters(Map<String, Object> queryMap,
                                                        RequestTemplate mutable) {
       for (Entry<String, Object> currEntry : queryMap.entrySet()) {
-        Collection<String> values = new ArrayList<String>();
+        Collection<String> values;
 
         boolean encoded = metadata.queryMapEncoded();
         Object currValue = currEntry.getValue();
         if (currValue instanceof Iterable<?>) {
+          values = new ArrayList<String>();
           Iterator<?> iter = ((Iterable<?>) currValue).iterator();
           while (iter.hasNext()) {
             Object nextObject = iter.next();
@@ -313,7 +731,7 @@ public class ReflectiveFeign extends Feign {
                     : UriUtils.encode(nextObject.toString()));
           }
         } else {
-          values.add(currValue == null ? null
+          values = Collections.singletonList(currValue == null ? null
               : encoded ? currValue.toString() : UriUtils.encode(currValue.toString()));
         }
 
@@ -333,9 +751,9 @@ public class ReflectiveFeign extends Feign {
 
     private final Encoder encoder;
 
-    private BuildFormEncodedTemplateFromArgs(MethodMetadata metadata, Encoder encoder,
-        QueryMapEncoder queryMapEncoder, Target target) {
-      super(metadata, queryMapEncoder, target);
+    private BuildFormEncodedTemplateFromArgs(MethodMetadata metadata, ArgumentSlots arguments,
+        Encoder encoder, QueryMapEncoder queryMapEncoder, Target target) {
+      super(metadata, arguments, queryMapEncoder, target);
       this.encoder = encoder;
     }
 
@@ -363,11 +781,21 @@ public class ReflectiveFeign extends Feign {
   private static class BuildEncodedTemplateFromArgs extends BuildTemplateByResolvingArgs {
 
     private final Encoder encoder;
+    /* files, channels and buffers are streamed as they are, rather than encoded */
+    private final boolean streamed;
 
-    private BuildEncodedTemplateFromArgs(MethodMetadata metadata, Encoder encoder,
-        QueryMapEncoder queryMapEncoder, Target target) {
-      super(metadata, queryMapEncoder, target);
+    private BuildEncodedTemplateFromArgs(MethodMetadata metadata, ArgumentSlots arguments,
+        Encoder encoder, QueryMapEncoder queryMapEncoder, Target target) {
+      super(metadata, arguments, queryMapEncoder, target);
       this.encoder = encoder;
+      this.streamed = isStreamed(metadata.bodyType());
+    }
+
+    private static boolean isStreamed(Type bodyType) {
+      return bodyType instanceof Class
+          && (Path.class.isAssignableFrom((Class<?>) bodyType)
+              || FileChannel.class.isAssignableFrom((Class<?>) bodyType)
+              || ByteBuffer.class.isAssignableFrom((Class<?>) bodyType));
     }
 
     @Override
@@ -376,6 +804,10 @@ public class ReflectiveFeign extends Feign {
                                       Map<String, Object> variables) {
       Object body = argv[metadata.bodyIndex()];
       checkArgument(body != null, "Body parameter %s was null", metadata.bodyIndex());
+      if (streamed) {
+        stream(body, mutable);
+        return super.resolve(argv, mutable, variables);
+      }
       try {
         encoder.encode(body, metadata.bodyType(), mutable);
       } catch (EncodeException e) {
@@ -385,5 +817,20 @@ public class ReflectiveFeign extends Feign {
       }
       return super.resolve(argv, mutable, variables);
     }
+
+    @SuppressWarnings("deprecation")
+    private static void stream(Object body, RequestTemplate mutable) {
+      try {
+        if (body instanceof Path) {
+          mutable.body(Request.Body.create((Path) body));
+        } else if (body instanceof FileChannel) {
+          mutable.body(Request.Body.create((FileChannel) body));
+        } else {
+          mutable.body(Request.Body.create((ByteBuffer) body));
+        }
+      } catch (IOException e) {
+        throw new EncodeException(e.getMessage(), e);
+      }
+    }
   }
 }
@@ -13,8 +13,19 @@
  */
 package feign;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -168,6 +179,9 @@ public final class Request {
    * @return the request headers.
    */
   public Map<String, Collection<String>> headers() {
+    if (headers instanceof HttpHeaders) {
+      return headers;
+    }
     return Collections.unmodifiableMap(headers);
   }
 
@@ -182,12 +196,21 @@ public final class Request {
 
   /**
    * If present, this is the replayable body to send to the server. In some cases, this may be
-   * interpretable as text.
+   * interpretable as text. A {@link Body#isStreaming() streaming} body is buffered when this is
+   * first called, clients should {@link Body#writeTo(OutputStream) write} it instead.
    *
    * @see #charset()
    */
   public byte[] body() {
-    return body.data;
+    return body.asBytes();
+  }
+
+  /**
+   * The body to send to the server, may be {@literal null}.
+   */
+  @Experimental
+  public Body requestBody() {
+    return body;
   }
 
   public boolean isBinary() {
@@ -377,19 +400,34 @@ public final class Request {
   public static class Body {
 
     private Charset encoding;
-    private byte[] data;
+    private volatile byte[] data;
+    private final Content content;
+    private final long contentLength;
+    private final boolean replayable;
+    /* set once a content that is not replayable has been written */
+    private boolean consumed;
 
     private Body() {
-      super();
+      this(null, null);
     }
 
     private Body(byte[] data) {
-      this.data = data;
+      this(data, null);
     }
 
     private Body(byte[] data, Charset encoding) {
       this.data = data;
       this.encoding = encoding;
+      this.content = null;
+      this.contentLength = data != null ? data.length : 0;
+      this.replayable = true;
+    }
+
+    private Body(Content content, long contentLength, boolean replayable, Charset encoding) {
+      this.content = content;
+      this.contentLength = contentLength;
+      this.replayable = replayable;
+      this.encoding = encoding;
     }
 
     public Optional<Charset> getEncoding() {
@@ -398,19 +436,113 @@ public final class Request {
 
     public int length() {
       /* calculate the content length based on the data provided */
-      return data != null ? data.length : 0;
+      if (data != null) {
+        return data.length;
+      }
+      return contentLength > 0 && contentLength <= Integer.MAX_VALUE ? (int) contentLength : 0;
     }
 
+    /**
+     * @return the length of the body in bytes, or {@code -1} if a streaming body doesn't know it.
+     */
+    public long contentLength() {
+      return data != null ? data.length : contentLength;
+    }
+
+    /**
+     * @return true if the body is written by a {@link Content} rather than held in memory.
+     */
+    public boolean isStreaming() {
+      return content != null;
+    }
+
+    /**
+     * @return true if the body can be written more than once, for example when a request is
+     *         retried.
+     */
+    public boolean isReplayable() {
+      return replayable || data != null;
+    }
+
+    /**
+     * Returns the body as bytes. A streaming body is written to memory on the first call, and
+     * {@literal null} is returned if it was already sent and can't be replayed.
+     */
     public byte[] asBytes() {
+      if (data == null && content != null) {
+        buffer();
+      }
       return data;
     }
 
+    private synchronized void buffer() {
+      if (data != null || consumed) {
+        return;
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream(
+          contentLength > 0 && contentLength < Integer.MAX_VALUE - 8 ? (int) contentLength : 32);
+      try {
+        content.writeTo(out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      data = out.toByteArray();
+    }
+
+    /**
+     * Writes the body without buffering it.
+     *
+     * @throws IOException if the body can't be replayed and was already written.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+      byte[] data = this.data;
+      if (data != null) {
+        out.write(data);
+      } else if (content != null) {
+        consume();
+        content.writeTo(out);
+      }
+    }
+
+    /**
+     * Writes the body without buffering it.
+     *
+     * @throws IOException if the body can't be replayed and was already written.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+      byte[] data = this.data;
+      if (data != null) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      } else if (content != null) {
+        consume();
+        content.writeTo(channel);
+      }
+    }
+
+    private void consume() throws IOException {
+      if (replayable) {
+        return;
+      }
+      synchronized (this) {
+        if (data == null && consumed) {
+          throw new IOException("Request body can't be replayed, it was already sent");
+        }
+        consumed = true;
+      }
+    }
+
     public String asString() {
       return !isBinary()
           ? new String(data, encoding)
           : "Binary data";
     }
 
+    /**
+     * @return true if there is no text to show, which includes streaming bodies not yet buffered.
+     */
     public boolean isBinary() {
       return encoding == null || data == null;
     }
@@ -431,6 +563,23 @@ public final class Request {
       return new Body(data, charset);
     }
 
+    /**
+     * Creates a streaming body, which is written straight to the connection.
+     *
+     * @param content writes the body.
+     * @param contentLength of the body in bytes, {@code -1} if unknown.
+     * @param replayable whether {@code content} can be written more than once.
+     * @param charset of text data, {@literal null} if binary.
+     * @return a new Request.Body instance that doesn't hold the data.
+     */
+    public static Body create(Content content,
+                              long contentLength,
+                              boolean replayable,
+                              Charset charset) {
+      checkNotNull(content, "content");
+      return new Body(content, contentLength, replayable, charset);
+    }
+
     /**
      * Creates a new Request Body with charset encoded data.
      *
@@ -450,5 +599,199 @@ public final class Request {
       return new Body();
     }
 
+    /**
+     * Creates a streaming body that sends {@code file}. Clients that write to a channel transfer it
+     * without copying it onto the heap.
+     *
+     * @param file to send, its size is read now and exactly that many bytes are sent: sending fails
+     *        if the file got shorter.
+     * @return a new replayable Request.Body instance.
+     */
+    public static Body create(Path file) throws IOException {
+      checkNotNull(file, "file");
+      long size = Files.size(file);
+      return new Body(new FileContent(file, size), size, true, null);
+    }
+
+    /**
+     * Creates a streaming body that sends {@code channel} from its current position to its end.
+     * The channel's position is not changed and it is not closed.
+     *
+     * @param channel to send.
+     * @return a new replayable Request.Body instance.
+     */
+    public static Body create(FileChannel channel) throws IOException {
+      checkNotNull(channel, "channel");
+      long position = channel.position();
+      long count = Math.max(channel.size() - position, 0);
+      return new Body(new FileChannelContent(channel, position, count), count, true, null);
+    }
+
+    /**
+     * Creates a streaming body that sends the remaining bytes of {@code buffer}, which may be a
+     * direct or a memory-mapped buffer. The buffer's position is not changed.
+     *
+     * @param buffer to send.
+     * @return a new replayable Request.Body instance.
+     */
+    public static Body create(ByteBuffer buffer) {
+      checkNotNull(buffer, "buffer");
+      ByteBuffer content = buffer.slice();
+      return new Body(new ByteBufferContent(content), content.remaining(), true, null);
+    }
+
+    private static final class FileContent implements Content {
+
+      private final Path file;
+      /* the Content-Length sent, so the file is sent up to it even if it grew since */
+      private final long length;
+
+      FileContent(Path file, long length) {
+        this.file = file;
+        this.length = length;
+      }
+
+      @Override
+      public void writeTo(OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          transfer(channel, 0, length, Channels.newChannel(out));
+        }
+      }
+
+      @Override
+      public void writeTo(WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          transfer(channel, 0, length, target);
+        }
+      }
+    }
+
+    private static final class FileChannelContent implements Content {
+
+      private final FileChannel channel;
+      private final long position;
+      private final long count;
+
+      FileChannelContent(FileChannel channel, long position, long count) {
+        this.channel = channel;
+        this.position = position;
+        this.count = count;
+      }
+
+      @Override
+      public void writeTo(OutputStream out) throws IOException {
+        transfer(channel, position, count, Channels.newChannel(out));
+      }
+
+      @Override
+      public void writeTo(WritableByteChannel target) throws IOException {
+        transfer(channel, position, count, target);
+      }
+    }
+
+    /** Writes moving no bytes in a row before a target channel is given up on. */
+    static final int MAX_STALLED_WRITES = 16;
+
+    /*
+     * uses FileChannel.transferTo, which lets the OS copy the file when target is a socket. It moves
+     * nothing at the end of the file or when the target takes nothing, so the rest is copied through
+     * a buffer, which tells those apart.
+     */
+    private static void transfer(FileChannel channel,
+                                 long position,
+                                 long count,
+                                 WritableByteChannel target)
+        throws IOException {
+      long end = position + count;
+      while (position < end) {
+        long transferred = channel.transferTo(position, end - position, target);
+        if (transferred <= 0) {
+          copy(channel, position, end, target);
+          return;
+        }
+        position += transferred;
+      }
+    }
+
+    private static void copy(FileChannel channel,
+                             long position,
+                             long end,
+                             WritableByteChannel target)
+        throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(end - position, 8192));
+      while (position < end) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        int read = channel.read(buffer, position);
+        if (read < 0) {
+          throw new IOException("File was truncated while it was being sent");
+        }
+        buffer.flip();
+        write(buffer, target);
+        position += read;
+      }
+    }
+
+    /**
+     * Writes all of {@code source}, failing instead of spinning when {@code target} keeps taking
+     * nothing, as a non-blocking channel would.
+     */
+    private static void write(ByteBuffer source, WritableByteChannel target) throws IOException {
+      int stalled = 0;
+      while (source.hasRemaining()) {
+        if (target.write(source) > 0) {
+          stalled = 0;
+        } else if (++stalled >= MAX_STALLED_WRITES) {
+          throw new IOException(
+              "Channel took no bytes in " + MAX_STALLED_WRITES + " writes, is it non-blocking?");
+        }
+      }
+    }
+
+    private static final class ByteBufferContent implements Content {
+
+      private final ByteBuffer buffer;
+
+      ByteBufferContent(ByteBuffer buffer) {
+        this.buffer = buffer;
+      }
+
+      @Override
+      public void writeTo(OutputStream out) throws IOException {
+        ByteBuffer source = buffer.duplicate();
+        if (source.hasArray()) {
+          out.write(source.array(), source.arrayOffset() + source.position(), source.remaining());
+          return;
+        }
+        byte[] chunk = new byte[Math.min(source.remaining(), 8192)];
+        while (source.hasRemaining()) {
+          int length = Math.min(source.remaining(), chunk.length);
+          source.get(chunk, 0, length);
+          out.write(chunk, 0, length);
+        }
+      }
+
+      @Override
+      public void writeTo(WritableByteChannel target) throws IOException {
+        write(buffer.duplicate(), target);
+      }
+    }
+
+    /**
+     * Writes a streaming body.
+     */
+    @FunctionalInterface
+    public interface Content {
+
+      void writeTo(OutputStream out) throws IOException;
+
+      /**
+       * Override when the content can move bytes to a channel more directly than through an
+       * {@link OutputStream}. The channel must not be closed.
+       */
+      default void writeTo(WritableByteChannel channel) throws IOException {
+        writeTo(Channels.newOutputStream(channel));
+      }
+    }
   }
 }
@@ -167,8 +167,22 @@ public final class RequestTemplate implements Serializable {
 
     StringBuilder uri = new StringBuilder();
 
-    /* create a new template form this one, but explicitly */
-    RequestTemplate resolved = RequestTemplate.from(this);
+    /*
+     * create a new template from this one, queries and headers are not copied as only their
+     * resolved values are kept
+     */
+    RequestTemplate resolved = new RequestTemplate(
+        this.target,
+        this.fragment,
+        this.uriTemplate,
+        this.bodyTemplate,
+        this.method,
+        this.charset,
+        this.body,
+        this.decodeSlash,
+        this.collectionFormat,
+        this.methodMetadata,
+        this.feignTarget);
 
     if (this.uriTemplate == null) {
       /* create a new uri template using the default root */
@@ -179,16 +193,13 @@ public final class RequestTemplate implements Serializable {
     if (expanded != null) {
       uri.append(expanded);
     }
+    int pathLength = uri.length();
 
     /*
      * for simplicity, combine the queries into the uri and use the resulting uri to seed the
      * resolved template.
      */
     if (!this.queries.isEmpty()) {
-      /*
-       * since we only want to keep resolved query values, reset any queries on the resolved copy
-       */
-      resolved.queries(Collections.emptyMap());
       StringBuilder query = new StringBuilder();
       Iterator<QueryTemplate> queryTemplates = this.queries.values().iterator();
 
@@ -203,8 +214,7 @@ public final class RequestTemplate implements Serializable {
         }
       }
 
-      String queryString = query.toString();
-      if (!queryString.isEmpty()) {
+      if (query.length() != 0) {
         Matcher queryMatcher = QUERY_STRING_PATTERN.matcher(uri);
         if (queryMatcher.find()) {
           /* the uri already has a query, so any additional queries should be appended */
@@ -212,30 +222,28 @@ public final class RequestTemplate implements Serializable {
         } else {
           uri.append("?");
         }
-        uri.append(queryString);
+        uri.append(query);
       }
     }
 
     /* add the uri to result */
-    resolved.uri(uri.toString());
+    if (isLiteralUri(uri, pathLength)) {
+      /* the expanded uri is already encoded, there is no need to parse it again */
+      resolved.uriTemplate =
+          UriTemplate.literal(uri.substring(0, pathLength), !this.decodeSlash, this.charset);
+      if (uri.length() > pathLength) {
+        resolved.literalQueryTemplates(uri.substring(pathLength + 1));
+      }
+    } else {
+      resolved.uri(uri.toString());
+    }
 
     /* headers */
-    if (!this.headers.isEmpty()) {
-      /*
-       * same as the query string, we only want to keep resolved values, so clear the header map on
-       * the resolved instance
-       */
-      resolved.headers(Collections.emptyMap());
-      for (HeaderTemplate headerTemplate : this.headers.values()) {
-        /* resolve the header */
-        String header = headerTemplate.expand(variables);
-        if (!header.isEmpty()) {
-          /* split off the header values and add it to the resolved template */
-          String headerValues = header.substring(header.indexOf(" ") + 1);
-          if (!headerValues.isEmpty()) {
-            resolved.header(headerTemplate.getName(), headerValues);
-          }
-        }
+    for (HeaderTemplate headerTemplate : this.headers.values()) {
+      /* resolve the header, keeping only resolved values */
+      HeaderTemplate header = headerTemplate.resolve(variables);
+      if (header != null) {
+        resolved.headers.put(headerTemplate.getName(), header);
       }
     }
 
@@ -248,6 +256,54 @@ public final class RequestTemplate implements Serializable {
     return resolved;
   }
 
+  /**
+   * Determines if an expanded uri can be used as-is. This is the case for a relative path with no
+   * fragment, optionally followed by a query string, and with no nested expressions in either.
+   *
+   * @param uri expanded.
+   * @param pathLength where the query string begins, if present.
+   * @return true if the uri does not need to be parsed again.
+   */
+  private static boolean isLiteralUri(CharSequence uri, int pathLength) {
+    if (pathLength == 0 || uri.charAt(0) != '/') {
+      return false;
+    }
+    for (int i = 0; i < uri.length(); i++) {
+      char c = uri.charAt(i);
+      if (c == '{' || c == '#' || (c == '?' && i != pathLength)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Add already expanded and encoded query parameters to this template. Equivalent to extracting
+   * the query templates from a uri, without parsing the values again.
+   *
+   * @param queryString to split into query templates.
+   */
+  private void literalQueryTemplates(String queryString) {
+    Map<String, List<String>> queryParameters = new LinkedHashMap<>();
+    int start = 0;
+    while (start < queryString.length()) {
+      int end = queryString.indexOf('&', start);
+      if (end == -1) {
+        end = queryString.length();
+      }
+      if (end > start) {
+        SimpleImmutableEntry<String, String> parameter =
+            this.splitQueryParameter(queryString.substring(start, end));
+        queryParameters.computeIfAbsent(parameter.getKey(), name -> new ArrayList<>())
+            .add(parameter.getValue());
+      }
+      start = end + 1;
+    }
+    queryParameters.forEach((name, values) -> this.queries.put(name,
+        QueryTemplate.literal(name, values, this.charset, this.collectionFormat,
+            this.decodeSlash)));
+  }
+
   /**
    * Resolves all expressions, using the variables provided. Values not present in the {@code
    * alreadyEncoded} map are pct-encoded.
@@ -768,16 +824,16 @@ public final class RequestTemplate implements Serializable {
    * @return the currently applied headers.
    */
   public Map<String, Collection<String>> headers() {
-    Map<String, Collection<String>> headerMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    HttpHeaders.Builder builder = HttpHeaders.builder();
     this.headers.forEach((key, headerTemplate) -> {
-      List<String> values = new ArrayList<>(headerTemplate.getValues());
+      Collection<String> values = headerTemplate.getValues();
 
       /* add the expanded collection, but only if it has values */
       if (!values.isEmpty()) {
-        headerMap.put(key, Collections.unmodifiableList(values));
+        builder.add(key, values);
       }
     });
-    return Collections.unmodifiableMap(headerMap);
+    return builder.build();
   }
 
   /**
@@ -803,6 +859,23 @@ public final class RequestTemplate implements Serializable {
     return this;
   }
 
+  /**
+   * Set a streaming Body for this request, which clients write to the connection without holding
+   * it in memory. The request is sent in chunks when {@code contentLength} is unknown.
+   *
+   * @param content that writes the body.
+   * @param contentLength of the body in bytes, {@code -1} if unknown.
+   * @param replayable whether {@code content} can be written more than once, as needed to retry.
+   * @return a RequestTemplate for chaining.
+   */
+  @Experimental
+  public RequestTemplate body(Request.Body.Content content,
+                              long contentLength,
+                              boolean replayable) {
+    this.body(Request.Body.create(content, contentLength, replayable, null));
+    return this;
+  }
+
   /**
    * Set the Body for this request.
    *
@@ -818,8 +891,8 @@ public final class RequestTemplate implements Serializable {
     this.bodyTemplate = null;
 
     header(CONTENT_LENGTH);
-    if (body.length() > 0) {
-      header(CONTENT_LENGTH, String.valueOf(body.length()));
+    if (body.contentLength() > 0) {
+      header(CONTENT_LENGTH, String.valueOf(body.contentLength()));
     }
 
     return this;
@@ -15,6 +15,8 @@ package feign;
 
 import static feign.Util.*;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -36,7 +38,7 @@ public final class Response implements Closeable {
     this.request = builder.request;
     this.reason = builder.reason; // nullable
     this.headers = (builder.headers != null)
-        ? Collections.unmodifiableMap(caseInsensitiveCopyOf(builder.headers))
+        ? HttpHeaders.lowerCaseCopyOf(builder.headers)
         : new LinkedHashMap<>();
     this.body = builder.body; // nullable
 
@@ -233,6 +235,16 @@ public final class Response implements Closeable {
      * It is the responsibility of the caller to close the stream.
      */
     Reader asReader(Charset charset) throws IOException;
+
+    /**
+     * Clients that read from a channel override this, so the body can be moved to a file or a
+     * buffer without passing through a heap array. It is the responsibility of the caller to close
+     * the channel.
+     */
+    @Experimental
+    default ReadableByteChannel asChannel() throws IOException {
+      return Channels.newChannel(asInputStream());
+    }
   }
 
   private static final class InputStreamBody implements Response.Body {
@@ -352,18 +364,4 @@ public final class Response implements Closeable {
       return decodeOrDefault(data, UTF_8, "Binary data");
     }
   }
-
-  private static Map<String, Collection<String>> caseInsensitiveCopyOf(Map<String, Collection<String>> headers) {
-    Map<String, Collection<String>> result =
-        new TreeMap<String, Collection<String>>(String.CASE_INSENSITIVE_ORDER);
-
-    for (Map.Entry<String, Collection<String>> entry : headers.entrySet()) {
-      String headerName = entry.getKey();
-      if (!result.containsKey(headerName)) {
-        result.put(headerName.toLowerCase(Locale.ROOT), new LinkedList<String>());
-      }
-      result.get(headerName).addAll(entry.getValue());
-    }
-    return result;
-  }
 }
@@ -53,21 +53,9 @@ public interface Retryer extends Cloneable {
     }
 
     public void continueOrPropagate(RetryableException e) {
-      if (attempt++ >= maxAttempts) {
-        throw e;
-      }
-
-      long interval;
-      if (e.retryAfter() != null) {
-        interval = e.retryAfter().getTime() - currentTimeMillis();
-        if (interval > maxPeriod) {
-          interval = maxPeriod;
-        }
-        if (interval < 0) {
-          return;
-        }
-      } else {
-        interval = nextMaxInterval();
+      long interval = nextInterval(e);
+      if (interval < 0) {
+        return;
       }
       try {
         Thread.sleep(interval);
@@ -78,6 +66,24 @@ public interface Retryer extends Cloneable {
       sleptForMillis += interval;
     }
 
+    /**
+     * Counts an attempt and calculates how long to wait before the next one, without waiting.
+     * Shared with {@link AsyncRetryer.Default}, which schedules the attempt instead of sleeping.
+     *
+     * @return time in milliseconds from now until the next attempt, negative if it is already due.
+     * @throws RetryableException {@code e}, if there are no attempts left.
+     */
+    long nextInterval(RetryableException e) {
+      if (attempt++ >= maxAttempts) {
+        throw e;
+      }
+      if (e.retryAfter() != null) {
+        long interval = e.retryAfter().getTime() - currentTimeMillis();
+        return interval > maxPeriod ? maxPeriod : interval;
+      }
+      return nextMaxInterval();
+    }
+
     /**
      * Calculates the time interval to a retry attempt. <br>
      * The interval increases exponentially with each attempt, at a rate of nextInterval *= 1.5
@@ -14,11 +14,10 @@
 package feign;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
 import feign.InvocationHandlerFactory.MethodHandler;
 import feign.Request.Options;
 import feign.codec.Decoder;
@@ -40,20 +39,17 @@ final class SynchronousMethodHandler implements MethodHandler {
   private final Logger.Level logLevel;
   private final RequestTemplate.Factory buildTemplateFromArgs;
   private final Options options;
+  /* parameters that may receive options, null when all of them are checked */
+  private final int[] optionsIndexes;
   private final ExceptionPropagationPolicy propagationPolicy;
-
-  // only one of decoder and asyncResponseHandler will be non-null
-  private final Decoder decoder;
   private final AsyncResponseHandler asyncResponseHandler;
 
-
   private SynchronousMethodHandler(Target<?> target, Client client, Retryer retryer,
       List<RequestInterceptor> requestInterceptors, Logger logger,
       Logger.Level logLevel, MethodMetadata metadata,
       RequestTemplate.Factory buildTemplateFromArgs, Options options,
       Decoder decoder, ErrorDecoder errorDecoder, boolean decode404,
-      boolean closeAfterDecode, ExceptionPropagationPolicy propagationPolicy,
-      boolean forceDecoding) {
+      boolean closeAfterDecode, ExceptionPropagationPolicy propagationPolicy) {
 
     this.target = checkNotNull(target, "target");
     this.client = checkNotNull(client, "client for %s", target);
@@ -65,30 +61,31 @@ final class SynchronousMethodHandler implements MethodHandler {
     this.metadata = checkNotNull(metadata, "metadata for %s", target);
     this.buildTemplateFromArgs = checkNotNull(buildTemplateFromArgs, "metadata for %s", target);
     this.options = checkNotNull(options, "options for %s", target);
+    this.optionsIndexes = optionsIndexes(metadata.method());
     this.propagationPolicy = propagationPolicy;
-
-    if (forceDecoding) {
-      // internal only: usual handling will be short-circuited, and all responses will be passed to
-      // decoder directly!
-      this.decoder = decoder;
-      this.asyncResponseHandler = null;
-    } else {
-      this.decoder = null;
-      this.asyncResponseHandler = new AsyncResponseHandler(logLevel, logger, decoder, errorDecoder,
-          decode404, closeAfterDecode);
-    }
+    this.asyncResponseHandler = new AsyncResponseHandler(logLevel, logger, decoder, errorDecoder,
+        decode404, closeAfterDecode);
   }
 
   @Override
   public Object invoke(Object[] argv) throws Throwable {
     RequestTemplate template = buildTemplateFromArgs.create(argv);
     Options options = findOptions(argv);
-    Retryer retryer = this.retryer.clone();
+    // only cloned once a retry is needed, the prototype is never used directly
+    Retryer retryer = null;
     while (true) {
       try {
         return executeAndDecode(template, options);
       } catch (RetryableException e) {
         try {
+          // a streamed body can't be sent again, every retry would fail to replay it
+          Request.Body body = template.requestBody();
+          if (body != null && !body.isReplayable()) {
+            throw e;
+          }
+          if (retryer == null) {
+            retryer = this.retryer.clone();
+          }
           retryer.continueOrPropagate(e);
         } catch (RetryableException th) {
           Throwable cause = th.getCause();
@@ -118,10 +115,12 @@ final class SynchronousMethodHandler implements MethodHandler {
     try {
       response = client.execute(request, options);
       // ensure the request is set. TODO: remove in Feign 12
-      response = response.toBuilder()
-          .request(request)
-          .requestTemplate(template)
-          .build();
+      if (response.request() != request) {
+        response = response.toBuilder()
+            .request(request)
+            .requestTemplate(template)
+            .build();
+      }
     } catch (IOException e) {
       if (logLevel != Logger.Level.NONE) {
         logger.logIOException(metadata.configKey(), logLevel, e, elapsedTime(start));
@@ -130,26 +129,8 @@ final class SynchronousMethodHandler implements MethodHandler {
     }
     long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
 
-
-    if (decoder != null)
-      return decoder.decode(response, metadata.returnType());
-
-    CompletableFuture<Object> resultFuture = new CompletableFuture<>();
-    asyncResponseHandler.handleResponse(resultFuture, metadata.configKey(), response,
-        metadata.returnType(),
-        elapsedTime);
-
-    try {
-      if (!resultFuture.isDone())
-        throw new IllegalStateException("Response handling not done");
-
-      return resultFuture.join();
-    } catch (CompletionException e) {
-      Throwable cause = e.getCause();
-      if (cause != null)
-        throw cause;
-      throw e;
-    }
+    return asyncResponseHandler.handleResponse(metadata.configKey(), response,
+        metadata.returnType(), elapsedTime);
   }
 
   long elapsedTime(long start) {
@@ -164,17 +145,54 @@ final class SynchronousMethodHandler implements MethodHandler {
   }
 
   Options findOptions(Object[] argv) {
+    return findOptions(argv, optionsIndexes, options);
+  }
+
+  /**
+   * @return the first argument at {@code optionsIndexes} that is an {@link Options}, or
+   *         {@code defaults}.
+   */
+  static Options findOptions(Object[] argv, int[] optionsIndexes, Options defaults) {
     if (argv == null || argv.length == 0) {
-      return this.options;
+      return defaults;
+    }
+    if (optionsIndexes == null) {
+      for (Object arg : argv) {
+        if (arg instanceof Options) {
+          return (Options) arg;
+        }
+      }
+      return defaults;
+    }
+    for (int index : optionsIndexes) {
+      if (argv[index] instanceof Options) {
+        return (Options) argv[index];
+      }
+    }
+    return defaults;
+  }
+
+  /**
+   * @return the indexes of the parameters that may receive {@link Options}, or {@code null} if the
+   *         method is unknown and every argument must be checked.
+   */
+  static int[] optionsIndexes(Method method) {
+    if (method == null) {
+      return null;
+    }
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    int count = 0;
+    int[] indexes = new int[parameterTypes.length];
+    for (int i = 0; i < parameterTypes.length; i++) {
+      if (parameterTypes[i].isAssignableFrom(Options.class)
+          || Options.class.isAssignableFrom(parameterTypes[i])) {
+        indexes[count++] = i;
+      }
     }
-    return Stream.of(argv)
-        .filter(Options.class::isInstance)
-        .map(Options.class::cast)
-        .findFirst()
-        .orElse(this.options);
+    return Arrays.copyOf(indexes, count);
   }
 
-  static class Factory {
+  static class Factory implements ReflectiveFeign.MethodHandlerFactory {
 
     private final Client client;
     private final Retryer retryer;
@@ -184,11 +202,10 @@ final class SynchronousMethodHandler implements MethodHandler {
     private final boolean decode404;
     private final boolean closeAfterDecode;
     private final ExceptionPropagationPolicy propagationPolicy;
-    private final boolean forceDecoding;
 
     Factory(Client client, Retryer retryer, List<RequestInterceptor> requestInterceptors,
         Logger logger, Logger.Level logLevel, boolean decode404, boolean closeAfterDecode,
-        ExceptionPropagationPolicy propagationPolicy, boolean forceDecoding) {
+        ExceptionPropagationPolicy propagationPolicy) {
       this.client = checkNotNull(client, "client");
       this.retryer = checkNotNull(retryer, "retryer");
       this.requestInterceptors = checkNotNull(requestInterceptors, "requestInterceptors");
@@ -197,9 +214,9 @@ final class SynchronousMethodHandler implements MethodHandler {
       this.decode404 = decode404;
       this.closeAfterDecode = closeAfterDecode;
       this.propagationPolicy = propagationPolicy;
-      this.forceDecoding = forceDecoding;
     }
 
+    @Override
     public MethodHandler create(Target<?> target,
                                 MethodMetadata md,
                                 RequestTemplate.Factory buildTemplateFromArgs,
@@ -208,7 +225,7 @@ final class SynchronousMethodHandler implements MethodHandler {
                                 ErrorDecoder errorDecoder) {
       return new SynchronousMethodHandler(target, client, retryer, requestInterceptors, logger,
           logLevel, md, buildTemplateFromArgs, options, decoder,
-          errorDecoder, decode404, closeAfterDecode, propagationPolicy, forceDecoding);
+          errorDecoder, decode404, closeAfterDecode, propagationPolicy);
     }
   }
 }
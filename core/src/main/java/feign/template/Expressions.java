@@ -112,25 +112,31 @@ public final class Expressions {
 
     @Override
     String expand(Object variable, boolean encode) {
-      StringBuilder expanded = new StringBuilder();
+      String result;
       if (Iterable.class.isAssignableFrom(variable.getClass())) {
-        expanded.append(this.expandIterable((Iterable<?>) variable));
+        result = String.valueOf(this.expandIterable((Iterable<?>) variable));
       } else {
-        expanded.append((encode) ? encode(variable) : variable);
+        result = (encode) ? encode(variable) : variable.toString();
       }
 
       /* return the string value of the variable */
-      String result = expanded.toString();
       if (!this.matches(result)) {
-        throw new IllegalArgumentException("Value " + expanded
+        throw new IllegalArgumentException("Value " + result
             + " does not match the expression pattern: " + this.getPattern());
       }
       return result;
     }
 
 
+    /**
+     * Expand each value into a single comma separated result, in one pass over the values.
+     *
+     * @param values to expand.
+     * @return the expanded values, or {@literal null} if there are no values.
+     */
     private String expandIterable(Iterable<?> values) {
       StringBuilder result = new StringBuilder();
+      boolean separatorOnly = false;
       for (Object value : values) {
         if (value == null) {
           /* skip */
@@ -138,17 +144,17 @@ public final class Expressions {
         }
 
         /* expand the value */
-        String expanded = this.encode(value);
+        String expanded = value.toString();
         if (expanded.isEmpty()) {
           /* always append the separator */
+          separatorOnly = result.length() == 0;
           result.append(",");
         } else {
-          if (result.length() != 0) {
-            if (!result.toString().equalsIgnoreCase(",")) {
-              result.append(",");
-            }
+          if (result.length() != 0 && !separatorOnly) {
+            result.append(",");
           }
-          result.append(expanded);
+          separatorOnly = false;
+          UriUtils.appendEncoded(result, expanded, Util.UTF_8);
         }
       }
 
@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -29,8 +30,12 @@ import java.util.stream.StreamSupport;
 public final class HeaderTemplate extends Template {
 
   /* cache a copy of the variables for lookup later */
-  private LinkedHashSet<String> values;
-  private String name;
+  private final LinkedHashSet<String> values;
+  private final String name;
+  private final boolean literal;
+
+  /* resolved copy of a literal template, these do not change between expansions */
+  private volatile HeaderTemplate resolved;
 
   public static HeaderTemplate create(String name, Iterable<String> values) {
     if (name == null || name.isEmpty()) {
@@ -83,6 +88,61 @@ public final class HeaderTemplate extends Template {
         .filter(Util::isNotBlank)
         .collect(Collectors.toCollection(LinkedHashSet::new));
     this.name = name;
+    this.literal = this.isLiteral();
+  }
+
+  /**
+   * Creates a new Header Template from an already expanded value.
+   *
+   * @param name of the header.
+   * @param value expanded, used as-is.
+   */
+  private HeaderTemplate(String name, String value) {
+    super(name + " " + value, ExpansionOptions.REQUIRED, EncodingOptions.NOT_REQUIRED, false,
+        Util.UTF_8, true);
+    this.values = new LinkedHashSet<>();
+    if (Util.isNotBlank(value)) {
+      this.values.add(value);
+    }
+    this.name = name;
+    this.literal = true;
+  }
+
+  /**
+   * Resolve this template into a new Header Template containing the expanded value. Templates
+   * without expressions are only expanded once.
+   *
+   * @param variables containing the values for expansion.
+   * @return a resolved Header Template, or {@literal null} if there is no value remaining.
+   */
+  public HeaderTemplate resolve(Map<String, ?> variables) {
+    if (!this.literal) {
+      return this.resolveValues(variables);
+    }
+    HeaderTemplate result = this.resolved;
+    if (result == null) {
+      result = this.resolveValues(variables);
+      this.resolved = result;
+    }
+    return result;
+  }
+
+  private HeaderTemplate resolveValues(Map<String, ?> variables) {
+    String header = this.expand(variables);
+    if (header == null || header.isEmpty()) {
+      return null;
+    }
+
+    /* split off the header values */
+    String headerValues = header.substring(header.indexOf(" ") + 1);
+    if (headerValues.isEmpty()) {
+      return null;
+    }
+    if (headerValues.indexOf('{') != -1) {
+      /* expanded values may contain new expressions, parse them */
+      return create(this.name, Collections.singletonList(headerValues));
+    }
+    return new HeaderTemplate(this.name, headerValues);
   }
 
   public Collection<String> getValues() {
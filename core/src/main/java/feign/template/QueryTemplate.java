@@ -25,9 +25,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 /**
  * Template for a Query String parameter.
@@ -35,7 +32,7 @@ import java.util.stream.StreamSupport;
 public final class QueryTemplate {
 
   private static final String UNDEF = "undef";
-  private List<Template> values;
+  private final List<Template> values;
   private final Template name;
   private final CollectionFormat collectionFormat;
   private boolean pure = false;
@@ -83,11 +80,35 @@ public final class QueryTemplate {
     }
 
     /* remove all empty values from the array */
-    Collection<String> remaining = StreamSupport.stream(values.spliterator(), false)
-        .filter(Util::isNotBlank)
-        .collect(Collectors.toList());
+    List<String> remaining = new ArrayList<>();
+    addNotBlank(remaining, values);
 
-    return new QueryTemplate(name, remaining, charset, collectionFormat, decodeSlash);
+    return new QueryTemplate(name, remaining, charset, collectionFormat, decodeSlash, false);
+  }
+
+  /**
+   * Create a new Query Template from an already expanded and pct-encoded name and values. The name
+   * and values are not parsed for expressions and are not encoded again.
+   *
+   * @param name of the query parameter.
+   * @param values of the parameter.
+   * @param charset for the template.
+   * @param collectionFormat to use.
+   * @param decodeSlash if slash characters should be decoded
+   * @return a QueryTemplate
+   */
+  public static QueryTemplate literal(String name,
+                                      Iterable<String> values,
+                                      Charset charset,
+                                      CollectionFormat collectionFormat,
+                                      boolean decodeSlash) {
+    if (Util.isBlank(name)) {
+      throw new IllegalArgumentException("name is required.");
+    }
+
+    List<String> remaining = new ArrayList<>();
+    addNotBlank(remaining, values);
+    return new QueryTemplate(name, remaining, charset, collectionFormat, decodeSlash, true);
   }
 
   /**
@@ -102,29 +123,39 @@ public final class QueryTemplate {
                                      CollectionFormat collectionFormat,
                                      boolean decodeSlash) {
     List<String> queryValues = new ArrayList<>(queryTemplate.getValues());
-    queryValues.addAll(StreamSupport.stream(values.spliterator(), false)
-        .filter(Util::isNotBlank)
-        .collect(Collectors.toList()));
+    addNotBlank(queryValues, values);
     return create(queryTemplate.getName(), queryValues, StandardCharsets.UTF_8,
         collectionFormat, decodeSlash);
   }
 
+  private static void addNotBlank(Collection<String> target, Iterable<String> values) {
+    for (String value : values) {
+      if (Util.isNotBlank(value)) {
+        target.add(value);
+      }
+    }
+  }
+
   /**
    * Create a new Query Template.
    *
    * @param name of the query parameter.
    * @param values for the parameter.
    * @param collectionFormat to use.
+   * @param literal if the name and values have already been expanded.
    */
   private QueryTemplate(
       String name,
       Iterable<String> values,
       Charset charset,
       CollectionFormat collectionFormat,
-      boolean decodeSlash) {
-    this.values = new CopyOnWriteArrayList<>();
+      boolean decodeSlash,
+      boolean literal) {
+    this.values = (values instanceof Collection)
+        ? new ArrayList<>(((Collection<String>) values).size())
+        : new ArrayList<>();
     this.name = new Template(name, ExpansionOptions.ALLOW_UNRESOLVED, EncodingOptions.REQUIRED,
-        !decodeSlash, charset);
+        !decodeSlash, charset, literal);
     this.collectionFormat = collectionFormat;
 
     /* parse each value into a template chunk for resolution later */
@@ -140,7 +171,8 @@ public final class QueryTemplate {
               ExpansionOptions.REQUIRED,
               EncodingOptions.REQUIRED,
               !decodeSlash,
-              charset));
+              charset,
+              literal));
     }
 
     if (this.values.isEmpty()) {
@@ -151,9 +183,11 @@ public final class QueryTemplate {
   }
 
   public List<String> getValues() {
-    return Collections.unmodifiableList(this.values.stream()
-        .map(Template::toString)
-        .collect(Collectors.toList()));
+    List<String> values = new ArrayList<>(this.values.size());
+    for (Template template : this.values) {
+      values.add(template.toString());
+    }
+    return Collections.unmodifiableList(values);
   }
 
   public List<String> getVariables() {
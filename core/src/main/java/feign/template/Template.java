@@ -49,6 +49,23 @@ public class Template {
   Template(
       String value, ExpansionOptions allowUnresolved, EncodingOptions encode, boolean encodeSlash,
       Charset charset) {
+    this(value, allowUnresolved, encode, encodeSlash, charset, false);
+  }
+
+  /**
+   * Create a new Template.
+   *
+   * @param value of the template.
+   * @param allowUnresolved if unresolved expressions should remain.
+   * @param encode all values.
+   * @param encodeSlash if slash characters should be encoded.
+   * @param charset of the template.
+   * @param literal if the value is the result of a previous expansion. Literal values are used
+   *        as-is, they are not parsed for expressions and are not encoded again.
+   */
+  Template(
+      String value, ExpansionOptions allowUnresolved, EncodingOptions encode, boolean encodeSlash,
+      Charset charset, boolean literal) {
     if (value == null) {
       throw new IllegalArgumentException("template is required.");
     }
@@ -57,7 +74,13 @@ public class Template {
     this.encode = encode;
     this.encodeSlash = encodeSlash;
     this.charset = charset;
-    this.parseTemplate();
+    if (literal) {
+      if (!value.isEmpty()) {
+        this.templateChunks.add(Literal.create(value));
+      }
+    } else {
+      this.parseTemplate();
+    }
   }
 
   /**
@@ -111,7 +134,7 @@ public class Template {
       if (expanded != null) {
         if (!this.encodeSlash) {
           logger.fine("Explicit slash decoding specified, decoding all slashes in uri");
-          expanded = expanded.replaceAll("%2F", "/");
+          expanded = UriUtils.decodeSlash(expanded);
         }
         resolved = expanded;
       }
@@ -140,11 +163,16 @@ public class Template {
    * @return a List of Variable Names.
    */
   public List<String> getVariables() {
-    return this.templateChunks.stream()
-        .filter(templateChunk -> Expression.class.isAssignableFrom(templateChunk.getClass()))
-        .map(templateChunk -> ((Expression) templateChunk).getName())
-        .filter(Objects::nonNull)
-        .collect(Collectors.toList());
+    List<String> variables = new ArrayList<>();
+    for (TemplateChunk templateChunk : this.templateChunks) {
+      if (templateChunk instanceof Expression) {
+        String name = ((Expression) templateChunk).getName();
+        if (name != null) {
+          variables.add(name);
+        }
+      }
+    }
+    return variables;
   }
 
   /**
@@ -205,8 +233,14 @@ public class Template {
 
   @Override
   public String toString() {
-    return this.templateChunks.stream()
-        .map(TemplateChunk::getValue).collect(Collectors.joining());
+    if (this.templateChunks.size() == 1) {
+      return this.templateChunks.get(0).getValue();
+    }
+    StringBuilder builder = new StringBuilder();
+    for (TemplateChunk templateChunk : this.templateChunks) {
+      builder.append(templateChunk.getValue());
+    }
+    return builder.toString();
   }
 
   public boolean encodeLiteral() {
@@ -50,6 +50,19 @@ public class UriTemplate extends Template {
     return new UriTemplate(template, encodeSlash, charset);
   }
 
+  /**
+   * Create a Uri Template from an already expanded and pct-encoded uri. The uri is not parsed for
+   * expressions and is not encoded again.
+   *
+   * @param uri that has been expanded.
+   * @param encodeSlash flag if slash characters should be encoded.
+   * @param charset for the template.
+   * @return a new Uri Template instance.
+   */
+  public static UriTemplate literal(String uri, boolean encodeSlash, Charset charset) {
+    return new UriTemplate(uri, encodeSlash, charset, true);
+  }
+
   /**
    * Append a uri fragment to the template.
    *
@@ -70,6 +83,11 @@ public class UriTemplate extends Template {
    * @param charset to use when encoding.
    */
   private UriTemplate(String template, boolean encodeSlash, Charset charset) {
-    super(template, ExpansionOptions.REQUIRED, EncodingOptions.REQUIRED, encodeSlash, charset);
+    this(template, encodeSlash, charset, false);
+  }
+
+  private UriTemplate(String template, boolean encodeSlash, Charset charset, boolean literal) {
+    super(template, ExpansionOptions.REQUIRED, EncodingOptions.REQUIRED, encodeSlash, charset,
+        literal);
   }
 }
@@ -19,12 +19,25 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.charset.StandardCharsets;
 
 public class UriUtils {
 
-  private static final Pattern PCT_ENCODED_PATTERN = Pattern.compile("%[0-9A-Fa-f][0-9A-Fa-f]");
+  /* character classes for US-ASCII, indexed by character */
+  private static final byte UNRESERVED = 1;
+  private static final byte RESERVED = 2;
+  private static final byte[] CHARACTER_CLASSES = new byte[128];
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  static {
+    for (int c = 0; c < CHARACTER_CLASSES.length; c++) {
+      if (isUnreserved(c)) {
+        CHARACTER_CLASSES[c] = UNRESERVED;
+      } else if (isReserved(c)) {
+        CHARACTER_CLASSES[c] = RESERVED;
+      }
+    }
+  }
 
   /**
    * Determines if the value is already pct-encoded.
@@ -33,13 +46,22 @@ public class UriUtils {
    * @return {@literal true} if the value is already pct-encoded
    */
   public static boolean isEncoded(String value, Charset charset) {
-    for (byte b : value.getBytes(charset)) {
-      if (!isUnreserved((char) b) && b != '%') {
-        /* break if there are any unreserved character */
-        return false;
+    if (isAsciiCompatible(charset)) {
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (!isUnreservedCharacter(c) && c != '%') {
+          /* break if there are any unreserved character */
+          return false;
+        }
+      }
+    } else {
+      for (byte b : value.getBytes(charset)) {
+        if (!isUnreservedCharacter(b) && b != '%') {
+          return false;
+        }
       }
     }
-    return PCT_ENCODED_PATTERN.matcher(value).find();
+    return indexOfPctEncoded(value, 0) != -1;
   }
 
   /**
@@ -71,6 +93,27 @@ public class UriUtils {
     return encodeInternal(value, charset, allowReservedCharacters);
   }
 
+  /**
+   * Uri Encode the value, appending the result to the builder provided. Already encoded values are
+   * appended as-is. Equivalent to {@link #encode(String, Charset)}, without creating an
+   * intermediate String.
+   *
+   * @param builder to append to.
+   * @param value to encode.
+   * @param charset to use.
+   * @return the builder, for chaining.
+   */
+  public static StringBuilder appendEncoded(StringBuilder builder, String value, Charset charset) {
+    if (!isAsciiCompatible(charset)) {
+      return builder.append(encodeChunk(value, charset, false));
+    }
+    if (isEncoded(value, charset)) {
+      return builder.append(value);
+    }
+    appendChunk(builder, value, 0, value.length(), charset, false);
+    return builder;
+  }
+
   /**
    * Uri Decode the value.
    *
@@ -88,6 +131,26 @@ public class UriUtils {
     }
   }
 
+  /**
+   * Replace all pct-encoded slash characters, {@literal %2F}, with a slash.
+   *
+   * @param value to decode.
+   * @return the value with slashes decoded, or the value itself if it contains none.
+   */
+  public static String decodeSlash(String value) {
+    int index = value.indexOf("%2F");
+    if (index == -1) {
+      return value;
+    }
+    StringBuilder decoded = new StringBuilder(value.length());
+    int start = 0;
+    do {
+      decoded.append(value, start, index).append('/');
+      start = index + 3;
+    } while ((index = value.indexOf("%2F", start)) != -1);
+    return decoded.append(value, start, value.length()).toString();
+  }
+
 
   /**
    * Determines if the provided uri is an absolute uri.
@@ -112,9 +175,9 @@ public class UriUtils {
                                       Charset charset,
                                       boolean allowReservedCharacters) {
     /* value is encoded, we need to split it up and skip the parts that are already encoded */
-    Matcher matcher = PCT_ENCODED_PATTERN.matcher(value);
+    int pctEncoded = indexOfPctEncoded(value, 0);
 
-    if (!matcher.find()) {
+    if (pctEncoded == -1) {
       return encodeChunk(value, charset, true);
     }
 
@@ -122,22 +185,28 @@ public class UriUtils {
     StringBuilder encoded = new StringBuilder(length + 8);
     int index = 0;
     do {
-      /* split out the value before the encoded value */
-      String before = value.substring(index, matcher.start());
-
-      /* encode it */
-      encoded.append(encodeChunk(before, charset, allowReservedCharacters));
+      /* encode the value before the encoded value */
+      if (isAsciiCompatible(charset)) {
+        appendChunk(encoded, value, index, pctEncoded, charset, allowReservedCharacters);
+      } else {
+        encoded.append(encodeChunk(value.substring(index, pctEncoded), charset,
+            allowReservedCharacters));
+      }
 
       /* append the encoded value */
-      encoded.append(matcher.group());
+      encoded.append(value, pctEncoded, pctEncoded + 3);
 
       /* update the string search index */
-      index = matcher.end();
-    } while (matcher.find());
+      index = pctEncoded + 3;
+    } while ((pctEncoded = indexOfPctEncoded(value, index)) != -1);
 
     /* append the rest of the string */
-    String tail = value.substring(index, length);
-    encoded.append(encodeChunk(tail, charset, allowReservedCharacters));
+    if (isAsciiCompatible(charset)) {
+      appendChunk(encoded, value, index, length, charset, allowReservedCharacters);
+    } else {
+      encoded.append(encodeChunk(value.substring(index, length), charset,
+          allowReservedCharacters));
+    }
     return encoded.toString();
   }
 
@@ -153,12 +222,22 @@ public class UriUtils {
       return value;
     }
 
+    if (isAsciiCompatible(charset)) {
+      int index = indexOfUnsafe(value, 0, value.length(), allowReserved);
+      if (index == -1) {
+        /* nothing to encode */
+        return value;
+      }
+      StringBuilder encoded = new StringBuilder(value.length() + 16);
+      encoded.append(value, 0, index);
+      appendChunk(encoded, value, index, value.length(), charset, allowReserved);
+      return encoded.toString();
+    }
+
     byte[] data = value.getBytes(charset);
     try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
       for (byte b : data) {
-        if (isUnreserved((char) b)) {
-          bos.write(b);
-        } else if (isReserved((char) b) && allowReserved) {
+        if (isSafe(b, allowReserved)) {
           bos.write(b);
         } else {
           pctEncode(b, bos);
@@ -171,6 +250,81 @@ public class UriUtils {
     }
   }
 
+  /**
+   * Encode a section of the value, appending it to the builder. Only valid for charsets that
+   * encode US-ASCII characters as single bytes of the same value.
+   *
+   * @param builder to append to.
+   * @param value to encode.
+   * @param start of the section, inclusive.
+   * @param end of the section, exclusive.
+   * @param charset to use for characters outside of US-ASCII.
+   * @param allowReserved if reserved characters should be preserved.
+   */
+  private static void appendChunk(StringBuilder builder,
+                                  String value,
+                                  int start,
+                                  int end,
+                                  Charset charset,
+                                  boolean allowReserved) {
+    int index = start;
+    while (index < end) {
+      char c = value.charAt(index);
+      if (c < 128) {
+        if (isSafe(c, allowReserved)) {
+          builder.append(c);
+        } else {
+          pctEncode(c, builder);
+        }
+        index++;
+      } else {
+        /* encode the entire run of non-ascii characters, keeping surrogate pairs together */
+        int runEnd = index + 1;
+        while (runEnd < end && value.charAt(runEnd) >= 128) {
+          runEnd++;
+        }
+        for (byte b : value.substring(index, runEnd).getBytes(charset)) {
+          if (isSafe(b, allowReserved)) {
+            builder.append((char) b);
+          } else {
+            pctEncode(b, builder);
+          }
+        }
+        index = runEnd;
+      }
+    }
+  }
+
+  /**
+   * Find the first character in the section that must be pct-encoded.
+   *
+   * @return the index of the character, or {@literal -1} if there are none.
+   */
+  private static int indexOfUnsafe(String value, int start, int end, boolean allowReserved) {
+    for (int i = start; i < end; i++) {
+      if (!isSafe(value.charAt(i), allowReserved)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Find the next pct-encoded triplet, {@literal %XX}, in the value.
+   *
+   * @return the index of the triplet, or {@literal -1} if there are none.
+   */
+  private static int indexOfPctEncoded(String value, int start) {
+    int index = value.indexOf('%', start);
+    while (index != -1 && index + 2 < value.length()) {
+      if (isHexDigit(value.charAt(index + 1)) && isHexDigit(value.charAt(index + 2))) {
+        return index;
+      }
+      index = value.indexOf('%', index + 1);
+    }
+    return -1;
+  }
+
   /**
    * Percent Encode the provided byte.
    *
@@ -179,13 +333,46 @@ public class UriUtils {
    */
   private static void pctEncode(byte data, ByteArrayOutputStream bos) {
     bos.write('%');
-    char hex1 = Character.toUpperCase(Character.forDigit((data >> 4) & 0xF, 16));
-    char hex2 = Character.toUpperCase(Character.forDigit(data & 0xF, 16));
-    bos.write(hex1);
-    bos.write(hex2);
+    bos.write(HEX_DIGITS[(data >> 4) & 0xF]);
+    bos.write(HEX_DIGITS[data & 0xF]);
+  }
+
+  /**
+   * Percent Encode the provided byte.
+   *
+   * @param data to encode
+   * @param builder to append to.
+   */
+  private static void pctEncode(int data, StringBuilder builder) {
+    builder.append('%')
+        .append(HEX_DIGITS[(data >> 4) & 0xF])
+        .append(HEX_DIGITS[data & 0xF]);
   }
 
+  /**
+   * Charsets that encode US-ASCII characters as single bytes of the same value.
+   */
+  private static boolean isAsciiCompatible(Charset charset) {
+    return StandardCharsets.UTF_8.equals(charset)
+        || StandardCharsets.ISO_8859_1.equals(charset)
+        || StandardCharsets.US_ASCII.equals(charset);
+  }
 
+  private static boolean isSafe(int c, boolean allowReserved) {
+    if (c < 0 || c >= 128) {
+      return false;
+    }
+    byte characterClass = CHARACTER_CLASSES[c];
+    return characterClass == UNRESERVED || (allowReserved && characterClass == RESERVED);
+  }
+
+  private static boolean isUnreservedCharacter(int c) {
+    return c >= 0 && c < 128 && CHARACTER_CLASSES[c] == UNRESERVED;
+  }
+
+  private static boolean isHexDigit(char c) {
+    return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
 
   private static boolean isAlpha(int c) {
     return (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z');
@@ -37,7 +37,11 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Rule;
 import org.junit.Test;
@@ -518,6 +522,139 @@ public class AsyncFeignTest {
     unwrap(cf);
   }
 
+  @Test
+  public void retriesRetryableResponseAfterBackoff() throws Throwable {
+    server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "0"));
+    server.enqueue(new MockResponse().setBody("success!"));
+
+    TestInterfaceAsync api = new TestInterfaceAsyncBuilder()
+        .retryer(new AsyncRetryer.Default(1, 10, 2))
+        .target("http://localhost:" + server.getPort());
+
+    assertEquals("success!", unwrap(api.post()));
+    assertEquals(2, server.getRequestCount());
+  }
+
+  @Test
+  public void retriesIOException() throws Throwable {
+    server.enqueue(new MockResponse().setBody("success!"));
+    AtomicInteger attempts = new AtomicInteger();
+    AsyncClient<Void> client = new AsyncClient.Pseudo<>(new Client.Default(null, null));
+
+    TestInterfaceAsync api = new TestInterfaceAsyncBuilder()
+        .client((request, options, context) -> attempts.getAndIncrement() == 0
+            ? failed(new IOException("Connection reset"))
+            : client.execute(request, options, context))
+        .retryer(new AsyncRetryer.Default(1, 10, 2))
+        .target("http://localhost:" + server.getPort());
+
+    assertEquals("success!", unwrap(api.post()));
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  public void failingRetryerCompletesTheResult() throws Throwable {
+    IllegalStateException error = new IllegalStateException("retryer broke");
+
+    TestInterfaceAsync api = new TestInterfaceAsyncBuilder()
+        .client((request, options, context) -> failed(new IOException("Connection reset")))
+        .retryer(new AsyncRetryer.Default() {
+          @Override
+          public long nextAttemptDelay(RetryableException e) {
+            throw error;
+          }
+        })
+        .target("http://localhost:" + server.getPort());
+
+    try {
+      api.post().get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isSameAs(error);
+    }
+  }
+
+  @Test
+  public void rejectedRetryCompletesTheResult() throws Throwable {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    scheduler.shutdown();
+
+    TestInterfaceAsync api = new TestInterfaceAsyncBuilder()
+        .client((request, options, context) -> failed(new IOException("Connection reset")))
+        .retryer(new AsyncRetryer.Default(1, 10, 2))
+        .retryScheduler(scheduler)
+        .target("http://localhost:" + server.getPort());
+
+    try {
+      api.post().get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+    }
+  }
+
+  @Test
+  public void exhaustedRetriesCompleteWithTheOriginalCause() throws Throwable {
+    AtomicInteger attempts = new AtomicInteger();
+    IOException error = new IOException("Connection refused");
+
+    TestInterfaceAsync api = new TestInterfaceAsyncBuilder()
+        .client((request, options, context) -> {
+          attempts.incrementAndGet();
+          return failed(error);
+        })
+        .retryer(new AsyncRetryer.Default(1, 10, 3))
+        .target("http://localhost:" + server.getPort());
+
+    try {
+      unwrap(api.post());
+      fail();
+    } catch (IOException e) {
+      assertThat(e).isSameAs(error);
+    }
+    assertEquals(3, attempts.get());
+  }
+
+  private static <T> CompletableFuture<T> failed(Throwable error) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    result.completeExceptionally(error);
+    return result;
+  }
+
+  @Test
+  public void cancellingTheResultCancelsThePendingRetry() throws Throwable {
+    server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "0"));
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    scheduler.setRemoveOnCancelPolicy(true);
+    try {
+      TestInterfaceAsync api = new TestInterfaceAsyncBuilder()
+          .retryer(new AsyncRetryer.Default(TimeUnit.MINUTES.toMillis(1),
+              TimeUnit.MINUTES.toMillis(1), 2) {
+            @Override
+            public long nextAttemptDelay(RetryableException e) {
+              super.nextAttemptDelay(e);
+              return TimeUnit.MINUTES.toMillis(1);
+            }
+          })
+          .retryScheduler(scheduler)
+          .target("http://localhost:" + server.getPort());
+
+      CompletableFuture<String> cf = api.post();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (scheduler.getQueue().isEmpty() && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(scheduler.getQueue()).hasSize(1);
+
+      cf.cancel(true);
+
+      assertThat(scheduler.getQueue()).isEmpty();
+      assertEquals(1, server.getRequestCount());
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
   @Test
   public void throwsFeignExceptionIncludingBody() throws Throwable {
     server.enqueue(new MockResponse().setBody("success!"));
@@ -1021,6 +1158,21 @@ public class AsyncFeignTest {
       return this;
     }
 
+    TestInterfaceAsyncBuilder client(AsyncClient<Void> client) {
+      delegate.client(client);
+      return this;
+    }
+
+    TestInterfaceAsyncBuilder retryer(AsyncRetryer retryer) {
+      delegate.retryer(retryer);
+      return this;
+    }
+
+    TestInterfaceAsyncBuilder retryScheduler(ScheduledExecutorService retryScheduler) {
+      delegate.retryScheduler(retryScheduler);
+      return this;
+    }
+
     TestInterfaceAsyncBuilder decode404() {
       delegate.decode404();
       return this;
@@ -1070,6 +1222,44 @@ public class AsyncFeignTest {
     AsyncFeign.asyncBuilder().target(WildApi.class, "http://localhost");
   }
 
+  @Test
+  public void sendsTheContextOfTheInstance() throws Throwable {
+    server.enqueue(new MockResponse().setBody("success!"));
+    List<String> contexts = new ArrayList<>();
+    AsyncClient<String> client = new AsyncClient.Pseudo<>(new Client.Default(null, null));
+
+    TestInterfaceAsync api = AsyncFeign.<String>asyncBuilder()
+        .client((request, options, context) -> {
+          contexts.add(context.orElse(null));
+          return client.execute(request, options, context);
+        })
+        .target(TestInterfaceAsync.class, "http://localhost:" + server.getPort(), "session");
+
+    assertEquals("success!", unwrap(api.post()));
+    assertThat(contexts).containsExactly("session");
+  }
+
+  @Test
+  public void logsResponses() throws Throwable {
+    server.enqueue(new MockResponse().setBody("success!"));
+    List<String> messages = new ArrayList<>();
+
+    TestInterfaceAsync api = AsyncFeign.<Void>asyncBuilder()
+        .logLevel(Logger.Level.BASIC)
+        .logger(new Logger() {
+          @Override
+          protected void log(String configKey, String format, Object... args) {
+            messages.add(methodTag(configKey) + String.format(format, args));
+          }
+        })
+        .target(TestInterfaceAsync.class, "http://localhost:" + server.getPort());
+
+    unwrap(api.post());
+    assertThat(messages).hasSize(2);
+    assertThat(messages.get(0)).startsWith("[TestInterfaceAsync#post] ---> POST http://");
+    assertThat(messages.get(1)).startsWith("[TestInterfaceAsync#post] <--- HTTP/1.1 200 OK");
+  }
+
 
   static final class ExtendedCF<T> extends CompletableFuture<T> {
 
@@ -444,6 +444,185 @@ public class FeignBuilderTest {
     assertTrue("Responses must be closed when the decoder fails", closed.get());
   }
 
+  @Test
+  public void testNewInstanceParsesContractOnce() throws Exception {
+    server.enqueue(new MockResponse().setBody("first"));
+    server.enqueue(new MockResponse().setBody("second"));
+
+    AtomicInteger parsed = new AtomicInteger();
+    Contract contract = new Contract.Default() {
+      @Override
+      protected MethodMetadata parseAndValidateMetadata(Class<?> targetType, Method method) {
+        parsed.incrementAndGet();
+        return super.parseAndValidateMetadata(targetType, method);
+      }
+
+      @Override
+      public Object cacheKey() {
+        return "testNewInstanceParsesContractOnce";
+      }
+    };
+    String url = "http://localhost:" + server.getPort();
+    TestInterface first = Feign.builder().contract(contract).target(TestInterface.class, url);
+    int methods = parsed.get();
+    TestInterface second = Feign.builder().contract(contract)
+        .target(TestInterface.class, url + "/second");
+
+    assertEquals("contract should not be parsed again", methods, parsed.get());
+    assertEquals("first", first.getBodyAsString());
+    assertEquals("second", second.getBodyAsString());
+    assertThat(server.takeRequest()).hasPath("/api/thing");
+    assertThat(server.takeRequest()).hasPath("/second/api/thing");
+    assertEquals("default result", second.independentDefaultMethod());
+  }
+
+  @Test
+  public void testNewInstanceParsesEachContract() {
+    AtomicInteger parsed = new AtomicInteger();
+    for (int i = 0; i < ReflectiveFeign.ParsedApi.MAX_CONTRACTS_PER_TYPE + 1; i++) {
+      Feign.builder()
+          .contract(new Contract.Default() {
+            @Override
+            protected MethodMetadata parseAndValidateMetadata(Class<?> targetType,
+                                                              Method method) {
+              parsed.incrementAndGet();
+              return super.parseAndValidateMetadata(targetType, method);
+            }
+          })
+          .target(OtherTestInterface.class, "http://localhost");
+    }
+
+    assertEquals(ReflectiveFeign.ParsedApi.MAX_CONTRACTS_PER_TYPE + 1, parsed.get());
+  }
+
+  @Test
+  public void testNewInstanceParsesAgainForContractsWithoutCacheKey() {
+    AtomicInteger parsed = new AtomicInteger();
+    Contract contract = new Contract.Default() {
+      @Override
+      protected MethodMetadata parseAndValidateMetadata(Class<?> targetType, Method method) {
+        parsed.incrementAndGet();
+        return super.parseAndValidateMetadata(targetType, method);
+      }
+    };
+
+    Feign.builder().contract(contract).target(OtherTestInterface.class, "http://localhost");
+    int methods = parsed.get();
+    Feign.builder().contract(contract).target(OtherTestInterface.class, "http://localhost");
+
+    assertEquals("the contract should not be kept", 2 * methods, parsed.get());
+  }
+
+  @Test
+  public void testLazyMethodHandlers() throws Exception {
+    server.enqueue(new MockResponse().setBody("response data"));
+    server.enqueue(new MockResponse().setBody("response data"));
+    server.enqueue(new MockResponse().setBody("response data"));
+
+    String url = "http://localhost:" + server.getPort();
+    LazyTestInterface api = Feign.builder()
+        .lazyMethodHandlers()
+        .target(LazyTestInterface.class, url);
+
+    assertEquals(0, CountingExpander.instances.get());
+    assertEquals("response data", api.get());
+    assertEquals(0, CountingExpander.instances.get());
+
+    assertEquals("response data", api.expanded("thing"));
+    assertEquals("response data", api.expanded("thing"));
+    assertEquals(1, CountingExpander.instances.get());
+    assertThat(server.takeRequest()).hasPath("/");
+    assertThat(server.takeRequest()).hasPath("/things/THING");
+    assertThat(server.takeRequest()).hasPath("/things/THING");
+  }
+
+  @Test
+  public void testLazyMethodHandlersStillValidate() {
+    try {
+      Feign.builder()
+          .lazyMethodHandlers()
+          .target(InvalidTestInterface.class, "http://localhost");
+      fail("Expected an exception");
+    } catch (IllegalStateException expected) {
+      assertThat(expected).hasMessageContaining("InvalidTestInterface#get() not annotated");
+    }
+  }
+
+  interface LazyTestInterface {
+    @RequestLine("GET")
+    String get();
+
+    @RequestLine("GET /things/{thing}")
+    String expanded(@Param(value = "thing", expander = CountingExpander.class) String thing);
+  }
+
+  @Test
+  public void testNewInstanceKeepsTheFirstContractsParsed() {
+    AtomicInteger parsed = new AtomicInteger();
+    List<Contract> contracts = new ArrayList<>();
+    for (int i = 0; i < ReflectiveFeign.ParsedApi.MAX_CONTRACTS_PER_TYPE + 1; i++) {
+      Integer key = i;
+      contracts.add(new Contract.Default() {
+        @Override
+        protected MethodMetadata parseAndValidateMetadata(Class<?> targetType, Method method) {
+          parsed.incrementAndGet();
+          return super.parseAndValidateMetadata(targetType, method);
+        }
+
+        @Override
+        public Object cacheKey() {
+          return key;
+        }
+      });
+    }
+    for (Contract contract : contracts) {
+      Feign.builder().contract(contract).target(CacheTestInterface.class, "http://localhost");
+    }
+    int parses = parsed.get();
+
+    Feign.builder().contract(contracts.get(0))
+        .target(CacheTestInterface.class, "http://localhost");
+    assertEquals("the first contract should stay cached", parses, parsed.get());
+
+    Feign.builder().contract(contracts.get(contracts.size() - 1))
+        .target(CacheTestInterface.class, "http://localhost");
+    assertEquals("contracts past the limit are not cached", parses + 1, parsed.get());
+  }
+
+  @Test
+  public void testExpandersAreNotSharedBetweenTargets() throws Exception {
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+
+    String url = "http://localhost:" + server.getPort();
+    ExpanderTestInterface first = Feign.builder().target(ExpanderTestInterface.class, url);
+    ExpanderTestInterface second = Feign.builder().target(ExpanderTestInterface.class, url);
+    first.get("thing");
+    second.get("thing");
+
+    assertThat(server.takeRequest()).hasPath("/things/thing-1");
+    assertThat(server.takeRequest()).hasPath("/things/thing-1");
+  }
+
+  interface InvalidTestInterface {
+    @Headers("Accept: text/plain")
+    String get();
+  }
+
+  public static class CountingExpander implements Param.Expander {
+
+    static final AtomicInteger instances = new AtomicInteger();
+
+    public CountingExpander() {
+      instances.incrementAndGet();
+    }
+
+    @Override
+    public String expand(Object value) {
+      return value.toString().toUpperCase();
+    }
+  }
+
   interface TestInterface {
     @RequestLine("GET")
     Response getNoPath();
@@ -486,4 +665,30 @@ public class FeignBuilderTest {
       return getNoPath();
     }
   }
+
+  interface OtherTestInterface {
+    @RequestLine("GET")
+    Response getNoPath();
+  }
+
+  interface CacheTestInterface {
+    @RequestLine("GET")
+    Response getNoPath();
+  }
+
+  interface ExpanderTestInterface {
+    @RequestLine("GET /things/{thing}")
+    void get(@Param(value = "thing", expander = StatefulExpander.class) String thing);
+  }
+
+  /** Counts its calls, like an expander that isn't safe to share. */
+  public static class StatefulExpander implements Param.Expander {
+
+    private int calls;
+
+    @Override
+    public String expand(Object value) {
+      return value + "-" + ++calls;
+    }
+  }
 }
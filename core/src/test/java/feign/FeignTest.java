@@ -27,9 +27,15 @@ import okio.Buffer;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
 import feign.codec.DecodeException;
@@ -41,6 +47,7 @@ import feign.codec.StringDecoder;
 import static feign.ExceptionPropagationPolicy.UNWRAP;
 import static feign.Util.UTF_8;
 import static feign.assertj.MockWebServerAssertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.data.MapEntry.entry;
 import static org.hamcrest.CoreMatchers.isA;
 import static org.junit.Assert.assertEquals;
@@ -116,6 +123,109 @@ public class FeignTest {
         .hasBody("[netflix, denominator, password]");
   }
 
+  @Test
+  public void streamsFileBodyParam() throws Exception {
+    server.enqueue(new MockResponse());
+    Path file = Files.createTempFile("feign", ".txt");
+    try {
+      Files.write(file, "file contents".getBytes(UTF_8));
+
+      TestInterface api = new TestInterfaceBuilder().target("http://localhost:" + server.getPort());
+
+      api.upload(file);
+
+      assertThat(server.takeRequest())
+          .hasHeaders(entry("Content-Length", Collections.singletonList("13")))
+          .hasBody("file contents");
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void streamsFileChannelBodyParamFromItsPosition() throws Exception {
+    server.enqueue(new MockResponse());
+    Path file = Files.createTempFile("feign", ".txt");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap("file contents".getBytes(UTF_8)));
+      channel.position(5);
+
+      TestInterface api = new TestInterfaceBuilder().target("http://localhost:" + server.getPort());
+
+      api.upload(channel);
+
+      assertThat(server.takeRequest())
+          .hasHeaders(entry("Content-Length", Collections.singletonList("8")))
+          .hasBody("contents");
+      assertEquals(5, channel.position());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void streamsDirectByteBufferBodyParam() throws Exception {
+    server.enqueue(new MockResponse());
+    ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+    buffer.put("buffer contents".getBytes(UTF_8)).flip();
+
+    TestInterface api = new TestInterfaceBuilder().target("http://localhost:" + server.getPort());
+
+    api.upload(buffer);
+
+    assertThat(server.takeRequest())
+        .hasHeaders(entry("Content-Length", Collections.singletonList("15")))
+        .hasBody("buffer contents");
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  public void downloadsToFile() throws Exception {
+    server.enqueue(new MockResponse().setBody("file contents"));
+    Path file = Files.createTempFile("feign", ".txt");
+    try {
+      TestInterface api = new TestInterfaceBuilder().target("http://localhost:" + server.getPort());
+
+      Download download = api.download();
+
+      assertEquals(13, download.length());
+      assertEquals(13, download.to(file));
+      assertEquals("file contents", new String(Files.readAllBytes(file), UTF_8));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void downloadsInChunks() throws Exception {
+    byte[] contents = new byte[200_000];
+    new Random(7).nextBytes(contents);
+    server.enqueue(new MockResponse().setBody(new Buffer().write(contents)));
+
+    TestInterface api = new TestInterfaceBuilder().target("http://localhost:" + server.getPort());
+
+    ByteArrayOutputStream received = new ByteArrayOutputStream();
+    long length = api.download().forEach(buffer -> {
+      byte[] chunk = new byte[buffer.remaining()];
+      buffer.get(chunk);
+      received.write(chunk, 0, chunk.length);
+    });
+
+    assertEquals(contents.length, length);
+    assertTrue(Arrays.equals(contents, received.toByteArray()));
+  }
+
+  @Test
+  public void downloadErrorsAreDecoded() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(404).setBody("not found"));
+    thrown.expect(FeignException.NotFound.class);
+
+    TestInterface api = new TestInterfaceBuilder().target("http://localhost:" + server.getPort());
+
+    api.download();
+  }
+
   /**
    * The type of a parameter value may not be the desired type to encode as. Prefer the interface
    * type.
@@ -618,6 +728,42 @@ public class FeignTest {
     api.post();
   }
 
+  @Test
+  public void doesNotRetryBodiesThatCannotBeReplayed() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(503));
+
+    TestInterface api = streamingApi(false);
+
+    Throwable error = catchThrowable(() -> api.body("foo"));
+
+    assertThat(error).isInstanceOf(RetryableException.class).hasMessage("play it again sam!");
+    assertEquals(1, server.getRequestCount());
+    assertThat(server.takeRequest()).hasBody("foo");
+  }
+
+  @Test
+  public void retriesBodiesThatCanBeReplayed() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setBody("bar"));
+
+    TestInterface api = streamingApi(true);
+
+    assertThat(api.body("foo")).isEqualTo("bar");
+    assertThat(server.takeRequest()).hasBody("foo");
+    assertThat(server.takeRequest()).hasBody("foo");
+  }
+
+  private TestInterface streamingApi(boolean replayable) {
+    return Feign.builder()
+        .retryer(new Retryer.Default(1, 1, 3))
+        .encoder((object, bodyType, template) -> template.body(
+            out -> out.write(((String) object).getBytes(UTF_8)), -1, replayable))
+        .errorDecoder((methodKey, response) -> new RetryableException(response.status(),
+            "play it again sam!", HttpMethod.POST, null, response.request()))
+        .target(TestInterface.class, "http://localhost:" + server.getPort());
+  }
+
   @Test
   public void whenReturnTypeIsResponseNoErrorHandling() {
     Map<String, Collection<String>> headers = new LinkedHashMap<>();
@@ -921,6 +1067,18 @@ public class FeignTest {
     @RequestLine("POST /")
     void body(List<String> contents);
 
+    @RequestLine("POST /upload")
+    void upload(Path file);
+
+    @RequestLine("POST /upload")
+    void upload(FileChannel channel);
+
+    @RequestLine("POST /upload")
+    void upload(ByteBuffer buffer);
+
+    @RequestLine("GET /download")
+    Download download();
+
     @RequestLine("POST /")
     String body(String content);
 
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import static feign.assertj.MockWebServerAssertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import feign.ReflectiveFeign.GeneratedClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.assertj.core.data.MapEntry;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class GeneratedClientTest {
+
+  @Rule
+  public final MockWebServer server = new MockWebServer();
+
+  @Headers("Accept: application/json")
+  interface Api {
+
+    @RequestLine("GET /users/{owner}/repos?per_page={size}")
+    List<String> repos(@Param("owner") String owner, @Param("size") int size);
+
+    @RequestLine("POST /users/{owner}/repos")
+    @Headers("Content-Type: text/plain")
+    void create(@Param("owner") String owner, String name);
+  }
+
+  @Test
+  public void generatedClientName() {
+    assertThat(GeneratedClient.className(Api.class))
+        .isEqualTo("feign.GeneratedClientTest_Api_FeignClient");
+  }
+
+  @Test
+  public void generatedMetadataMatchesContract() {
+    List<MethodMetadata> parsed = new Contract.Default().parseAndValidateMetadata(Api.class);
+    List<MethodMetadata> generated = GeneratedClient.forType(Api.class).metadata();
+
+    assertThat(generated).hasSameSizeAs(parsed);
+    for (MethodMetadata expected : parsed) {
+      MethodMetadata actual = generated.stream()
+          .filter(md -> md.configKey().equals(expected.configKey()))
+          .findFirst()
+          .orElseThrow(AssertionError::new);
+      assertThat(actual.returnType()).isEqualTo(expected.returnType());
+      assertThat(actual.bodyIndex()).isEqualTo(expected.bodyIndex());
+      assertThat(actual.bodyType()).isEqualTo(expected.bodyType());
+      assertThat(actual.indexToName()).isEqualTo(expected.indexToName());
+      assertThat(actual.formParams()).isEqualTo(expected.formParams());
+      assertThat(actual.template().method()).isEqualTo(expected.template().method());
+      assertThat(actual.template().url()).isEqualTo(expected.template().url());
+      assertThat(actual.template().headers()).isEqualTo(expected.template().headers());
+    }
+  }
+
+  @Test
+  public void builderUsesGeneratedClient() throws Exception {
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+
+    Api api = Feign.builder()
+        .generatedClients()
+        .decoder((response, type) -> null)
+        .target(Api.class, "http://localhost:" + server.getPort());
+
+    assertThat(api).isInstanceOf(GeneratedClientTest_Api_FeignClient.class);
+    assertThat(api.toString()).contains("type=Api");
+
+    api.repos("netflix", 10);
+    assertThat(server.takeRequest())
+        .hasPath("/users/netflix/repos?per_page=10")
+        .hasHeaders(MapEntry.entry("Accept", Collections.singletonList("application/json")));
+
+    api.create("netflix", "feign");
+    assertThat(server.takeRequest())
+        .hasMethod("POST")
+        .hasPath("/users/netflix/repos")
+        .hasBody("feign");
+  }
+
+  @Test
+  public void defaultBuilderUsesProxy() {
+    Api api = Feign.builder().target(Api.class, "http://localhost:" + server.getPort());
+
+    assertThat(Proxy.isProxyClass(api.getClass())).isTrue();
+  }
+
+  @Test
+  public void customContractUsesProxy() {
+    Api api = Feign.builder()
+        .generatedClients()
+        .contract(new Contract.Default() {})
+        .target(Api.class, "http://localhost:" + server.getPort());
+
+    assertThat(Proxy.isProxyClass(api.getClass())).isTrue();
+  }
+
+  @Test
+  public void interfaceWithoutGeneratedClient() {
+    assertThat(GeneratedClient.forType(GeneratedClientTest.class)).isNull();
+    assertThat(GeneratedClient.forType(Runnable.class)).isNull();
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import feign.InvocationHandlerFactory.MethodHandler;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the annotation processor generates for {@link GeneratedClientTest.Api}.
+ */
+public final class GeneratedClientTest_Api_FeignClient implements GeneratedClientTest.Api {
+
+  private final Target<GeneratedClientTest.Api> target;
+  private final MethodHandler repos;
+  private final MethodHandler create;
+
+  public GeneratedClientTest_Api_FeignClient(Target<GeneratedClientTest.Api> target,
+      Map<String, MethodHandler> handlers) {
+    this.target = target;
+    this.repos = handlers.get("Api#repos(String,int)");
+    this.create = handlers.get("Api#create(String,String)");
+  }
+
+  public static List<MethodMetadata> metadata() {
+    List<MethodMetadata> metadata = new ArrayList<>(2);
+    MethodMetadata data;
+
+    data = GeneratedContract.newMethodMetadata(GeneratedClientTest.Api.class,
+        "Api#repos(String,int)",
+        GeneratedContract.parameterizedType(null, List.class, String.class));
+    GeneratedContract.classHeaders(data, "Accept: application/json");
+    GeneratedContract.requestLine(data, Request.HttpMethod.GET,
+        "/users/{owner}/repos?per_page={size}", true, CollectionFormat.EXPLODED);
+    GeneratedContract.param(data, 0, "owner", null);
+    GeneratedContract.annotatedParameter(data);
+    GeneratedContract.param(data, 1, "size", null);
+    GeneratedContract.annotatedParameter(data);
+    metadata.add(data);
+
+    data = GeneratedContract.newMethodMetadata(GeneratedClientTest.Api.class,
+        "Api#create(String,String)", void.class);
+    GeneratedContract.classHeaders(data, "Accept: application/json");
+    GeneratedContract.requestLine(data, Request.HttpMethod.POST, "/users/{owner}/repos",
+        true, CollectionFormat.EXPLODED);
+    GeneratedContract.headers(data, "Content-Type: text/plain");
+    GeneratedContract.param(data, 0, "owner", null);
+    GeneratedContract.annotatedParameter(data);
+    GeneratedContract.bodyParameter(data, 1, String.class);
+    metadata.add(data);
+    return metadata;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public List<String> repos(String owner, int size) {
+    try {
+      return (List<String>) repos.invoke(new Object[] {owner, size});
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new UndeclaredThrowableException(e);
+    }
+  }
+
+  @Override
+  public void create(String owner, String name) {
+    try {
+      create.invoke(new Object[] {owner, name});
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new UndeclaredThrowableException(e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof GeneratedClientTest_Api_FeignClient) {
+      return target.equals(((GeneratedClientTest_Api_FeignClient) obj).target);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return target.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return target.toString();
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class HttpHeadersTest {
+
+  @Test
+  public void namesAreCaseInsensitive() {
+    HttpHeaders headers = HttpHeaders.builder()
+        .add("Content-Type", "application/json")
+        .add("X-Custom", "value")
+        .build();
+
+    assertThat(headers.get("content-type")).containsExactly("application/json");
+    assertThat(headers.get("CONTENT-TYPE")).containsExactly("application/json");
+    assertThat(headers.get("x-CUSTOM")).containsExactly("value");
+    assertThat(headers.containsKey("x-custom")).isTrue();
+    assertThat(headers.get("Accept")).isNull();
+    assertThat(headers.get("Missing")).isNull();
+  }
+
+  @Test
+  public void namesOnlyVaryingInCaseAreMerged() {
+    HttpHeaders headers = HttpHeaders.builder()
+        .add("Set-Cookie", Arrays.asList("Cookie-A=Value", "Cookie-B=Value"))
+        .add("set-cookie", "Cookie-C=Value")
+        .build();
+
+    assertThat(headers).containsOnly(
+        entry("Set-Cookie", Arrays.asList("Cookie-A=Value", "Cookie-B=Value", "Cookie-C=Value")));
+  }
+
+  @Test
+  public void iteratesLikeCaseInsensitiveTreeMap() {
+    Map<String, Collection<String>> source = new LinkedHashMap<>();
+    source.put("zeta", Collections.singletonList("1"));
+    source.put("Accept", Collections.singletonList("2"));
+    source.put("X-Custom", Collections.singletonList("3"));
+    source.put("b", Collections.singletonList("4"));
+    source.put("ACCEPT", Collections.singletonList("5"));
+
+    Map<String, Collection<String>> expected = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    expected.put("Accept", Arrays.asList("2", "5"));
+    expected.put("b", Collections.singletonList("4"));
+    expected.put("X-Custom", Collections.singletonList("3"));
+    expected.put("zeta", Collections.singletonList("1"));
+
+    HttpHeaders headers = HttpHeaders.copyOf(source);
+    assertThat(headers.keySet()).containsExactly("Accept", "b", "X-Custom", "zeta");
+    assertThat(headers).isEqualTo(expected);
+    assertThat(headers.hashCode()).isEqualTo(expected.hashCode());
+  }
+
+  @Test
+  public void wrapsSource() {
+    String[][] pairs = {{"Vary", "Accept"}, {"vary", "Origin"}, {"Content-Length", "0"}};
+    HttpHeaders headers = HttpHeaders.wrap(new HttpHeaders.Source() {
+      @Override
+      public int size() {
+        return pairs.length;
+      }
+
+      @Override
+      public String name(int index) {
+        return pairs[index][0];
+      }
+
+      @Override
+      public String value(int index) {
+        return pairs[index][1];
+      }
+    });
+
+    assertThat(headers).containsExactly(
+        entry("Content-Length", Collections.singletonList("0")),
+        entry("Vary", Arrays.asList("Accept", "Origin")));
+  }
+
+  @Test
+  public void wrapSkipsNullNames() {
+    Map<String, Collection<String>> source = new LinkedHashMap<>();
+    source.put(null, Collections.singletonList("HTTP/1.1 200 OK"));
+    source.put("Date", Collections.singletonList("today"));
+
+    assertThat(HttpHeaders.wrap(source))
+        .containsOnly(entry("Date", Collections.singletonList("today")));
+  }
+
+  @Test
+  public void lowerCaseCopy() {
+    HttpHeaders headers = HttpHeaders.builder()
+        .add("Content-Type", "text/plain")
+        .add("X-Custom", "value")
+        .build();
+
+    HttpHeaders lowerCase = HttpHeaders.lowerCaseCopyOf(headers);
+    assertThat(lowerCase.keySet()).containsExactly("content-type", "x-custom");
+    assertThat(lowerCase.get("Content-Type")).containsExactly("text/plain");
+    assertThat(HttpHeaders.lowerCaseCopyOf(lowerCase)).isSameAs(lowerCase);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void isImmutable() {
+    HttpHeaders.builder().add("Accept", "*/*").build()
+        .put("Accept", Collections.singletonList("text/plain"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void valuesAreImmutable() {
+    HttpHeaders.builder().add("Accept", "*/*").build().get("Accept").add("text/plain");
+  }
+}
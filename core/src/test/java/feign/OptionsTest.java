@@ -35,6 +35,9 @@ public class OptionsTest {
 
     @RequestLine("GET /")
     String get();
+
+    @RequestLine("GET /{path}")
+    String get(@Param("path") String path, Request.Options options);
   }
 
   @Rule
@@ -66,4 +69,16 @@ public class OptionsTest {
 
     assertThat(api.get(new Request.Options(1000, 4 * 1000))).isEqualTo("foo");
   }
+
+  @Test
+  public void optionsAfterOtherArguments() {
+    final MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().setBody("foo").setBodyDelay(3, TimeUnit.SECONDS));
+
+    final OptionsInterface api = Feign.builder()
+        .options(new Request.Options(1000, 1000))
+        .target(OptionsInterface.class, server.url("/").toString());
+
+    assertThat(api.get("path", new Request.Options(1000, 4 * 1000))).isEqualTo("foo");
+  }
 }
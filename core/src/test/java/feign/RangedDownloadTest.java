@@ -0,0 +1,180 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RangedDownloadTest {
+
+  @Rule
+  public final MockWebServer server = new MockWebServer();
+
+  private final byte[] data = new byte[1000];
+  private final List<String> ranges = new CopyOnWriteArrayList<>();
+  private volatile boolean acceptRanges = true;
+  private volatile long dropRangeAt = -1;
+  private Path file;
+
+  @Before
+  public void setUp() throws Exception {
+    new Random(1).nextBytes(data);
+    file = Files.createTempFile("feign", ".bin");
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return respond(request);
+      }
+    });
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void fetchesRangesInParallel() throws Exception {
+    long length = RangedDownload.builder()
+        .parts(4)
+        .minPartSize(100)
+        .build()
+        .to(url(), file);
+
+    assertThat(length).isEqualTo(data.length);
+    assertThat(Files.readAllBytes(file)).isEqualTo(data);
+    assertThat(ranges)
+        .containsExactlyInAnyOrder("bytes=0-249", "bytes=250-499", "bytes=500-749",
+            "bytes=750-999");
+  }
+
+  @Test
+  public void fetchesRangesThroughAsyncClient() throws Exception {
+    ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      RangedDownload.builder()
+          .client(new AsyncClient.Default<>(new Client.Default(null, null), executor))
+          .parts(2)
+          .minPartSize(100)
+          .build()
+          .to(url(), file);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(Files.readAllBytes(file)).isEqualTo(data);
+    assertThat(ranges).containsExactlyInAnyOrder("bytes=0-499", "bytes=500-999");
+  }
+
+  @Test
+  public void splitsRangesLargerThanMaxPartSize() throws Exception {
+    RangedDownload.builder()
+        .parts(2)
+        .minPartSize(100)
+        .maxPartSize(400)
+        .build()
+        .to(url(), file);
+
+    assertThat(Files.readAllBytes(file)).isEqualTo(data);
+    assertThat(ranges)
+        .containsExactlyInAnyOrder("bytes=0-399", "bytes=400-799", "bytes=800-999");
+  }
+
+  @Test
+  public void retriesOnlyTheFailedRange() throws Exception {
+    dropRangeAt = 500;
+
+    RangedDownload.builder()
+        .parts(2)
+        .minPartSize(100)
+        .retryer(new Retryer.Default(1, 1, 2))
+        .build()
+        .to(url(), file);
+
+    assertThat(Files.readAllBytes(file)).isEqualTo(data);
+    assertThat(ranges).hasSize(3).contains("bytes=0-499", "bytes=500-999");
+    assertThat(ranges.stream().filter(range -> range.endsWith("-999"))).hasSize(2);
+  }
+
+  @Test
+  public void fallsBackToSingleRequestWithoutRangeSupport() throws Exception {
+    acceptRanges = false;
+
+    long length = RangedDownload.builder()
+        .minPartSize(100)
+        .build()
+        .to(url(), file);
+
+    assertThat(length).isEqualTo(data.length);
+    assertThat(Files.readAllBytes(file)).isEqualTo(data);
+    assertThat(ranges).isEmpty();
+  }
+
+  @Test
+  public void fallsBackToSingleRequestForSmallResources() throws Exception {
+    RangedDownload.builder()
+        .build()
+        .to(url(), file);
+
+    assertThat(Files.readAllBytes(file)).isEqualTo(data);
+    assertThat(ranges).isEmpty();
+  }
+
+  private String url() {
+    return "http://localhost:" + server.getPort() + "/image";
+  }
+
+  private MockResponse respond(RecordedRequest request) {
+    if (request.getMethod().equals("HEAD")) {
+      MockResponse response = new MockResponse()
+          .setHeader("Content-Length", data.length)
+          .setHeader("ETag", "\"1\"");
+      return acceptRanges ? response.setHeader("Accept-Ranges", "bytes") : response;
+    }
+    String range = request.getHeader("Range");
+    if (range == null) {
+      return new MockResponse().setBody(new Buffer().write(data));
+    }
+    ranges.add(range);
+    assertThat(request.getHeader("If-Range")).isEqualTo("\"1\"");
+    String[] bounds = range.substring("bytes=".length()).split("-");
+    int start = Integer.parseInt(bounds[0]);
+    int end = Integer.parseInt(bounds[1]);
+    MockResponse response = new MockResponse()
+        .setResponseCode(206)
+        .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + data.length)
+        .setBody(new Buffer().write(data, start, end - start + 1));
+    if (start == dropRangeAt) {
+      dropRangeAt = -1;
+      response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+    }
+    return response;
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign;
+
+import static feign.Util.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class RequestBodyTest {
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private Path file;
+
+  @Before
+  public void createFile() throws IOException {
+    file = Files.createTempFile("feign", ".txt");
+    Files.write(file, "0123456789".getBytes(UTF_8));
+  }
+
+  @After
+  public void deleteFile() throws IOException {
+    Files.delete(file);
+  }
+
+  @Test
+  public void fileBodySendsTheSizeReadWhenCreated() throws IOException {
+    Request.Body body = Request.Body.create(file);
+    Files.write(file, "abc".getBytes(UTF_8), StandardOpenOption.APPEND);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    body.writeTo(Channels.newChannel(out));
+    body.writeTo(out);
+
+    assertThat(body.contentLength()).isEqualTo(10);
+    assertThat(new String(out.toByteArray(), UTF_8)).isEqualTo("01234567890123456789");
+  }
+
+  @Test
+  public void fileBodyFailsWhenTheFileGotShorter() throws IOException {
+    Request.Body body = Request.Body.create(file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(5);
+    }
+
+    thrown.expect(IOException.class);
+    thrown.expectMessage("truncated");
+    body.writeTo(Channels.newChannel(new ByteArrayOutputStream()));
+  }
+
+  @Test
+  public void fileBodyWaitsOutChannelsTakingNothingForAWhile() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    Request.Body.create(file).writeTo(new StallingChannel(out, 3));
+
+    assertThat(new String(out.toByteArray(), UTF_8)).isEqualTo("0123456789");
+  }
+
+  @Test
+  public void fileBodyFailsOnChannelsTakingNothing() throws IOException {
+    thrown.expect(IOException.class);
+    thrown.expectMessage("non-blocking");
+    Request.Body.create(file).writeTo(new StallingChannel(new ByteArrayOutputStream(), -1));
+  }
+
+  @Test
+  public void bufferBodyFailsOnChannelsTakingNothing() throws IOException {
+    Request.Body body = Request.Body.create(ByteBuffer.wrap("0123456789".getBytes(UTF_8)));
+
+    thrown.expect(IOException.class);
+    thrown.expectMessage("non-blocking");
+    body.writeTo(new StallingChannel(new ByteArrayOutputStream(), -1));
+  }
+
+  /** Takes nothing for its first writes, or always when {@code stalls} is negative. */
+  static final class StallingChannel implements WritableByteChannel {
+
+    private final WritableByteChannel delegate;
+    private int stalls;
+
+    StallingChannel(ByteArrayOutputStream out, int stalls) {
+      this.delegate = Channels.newChannel(out);
+      this.stalls = stalls;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      if (stalls < 0) {
+        return 0;
+      }
+      if (stalls > 0) {
+        stalls--;
+        return 0;
+      }
+      return delegate.write(src);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -110,6 +111,45 @@ public class RequestTemplateTest {
         .hasUrl("/hostedzone/Z1PA6795UKMFR9");
   }
 
+  @Test
+  public void streamingBodyIsBufferedOnlyWhenRead() {
+    AtomicInteger writes = new AtomicInteger();
+    RequestTemplate template = new RequestTemplate().method(HttpMethod.POST)
+        .uri("/upload")
+        .body(out -> {
+          writes.incrementAndGet();
+          out.write(new byte[] {7, 3, -3, -7});
+        }, 4, false);
+
+    assertThat(template)
+        .hasHeaders(entry("Content-Length", Collections.singletonList("4")));
+    Request request = template.resolve(Collections.emptyMap()).request();
+    assertThat(request.headers().get("Content-Length")).containsExactly("4");
+    assertThat(request.requestBody().contentLength()).isEqualTo(4);
+    assertThat(request.requestBody().isStreaming()).isTrue();
+    assertThat(request.isBinary()).isTrue();
+    assertThat(writes.get()).isZero();
+
+    assertThat(request.body()).containsExactly(7, 3, -3, -7);
+    assertThat(request.body()).containsExactly(7, 3, -3, -7);
+    assertThat(writes.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void streamingBodyOfUnknownLengthHasNoContentLength() {
+    RequestTemplate template = new RequestTemplate().method(HttpMethod.POST)
+        .uri("/upload")
+        .header("Content-Length", "10")
+        .body(out -> out.write(7), -1, true);
+
+    assertThat(template.headers()).doesNotContainKey("Content-Length");
+    Request request = template.resolve(Collections.emptyMap()).request();
+    assertThat(request.headers()).doesNotContainKey("Content-Length");
+    assertThat(request.requestBody().contentLength()).isEqualTo(-1);
+    assertThat(request.requestBody().isStreaming()).isTrue();
+    assertThat(request.body()).containsExactly(7);
+  }
+
   @Test
   public void canInsertAbsoluteHref() {
     RequestTemplate template = new RequestTemplate().method(HttpMethod.GET)
@@ -157,6 +197,25 @@ public class RequestTemplateTest {
             entry("Queries", asList("us-east-1", "eu-west-1")));
   }
 
+  @Test
+  public void resolvedTemplateDoesNotRetainExpressions() {
+    RequestTemplate template = new RequestTemplate().method(HttpMethod.GET)
+        .uri("/users/{user}?filter={filter}")
+        .header("Auth-Token", "{token}")
+        .header("Accept", "application/json");
+
+    template = template.resolve(
+        mapOf("user", "{user}", "filter", "a b", "token", "1234"));
+
+    assertThat(template)
+        .hasUrl("/users/%7Buser%7D?filter=a%20b")
+        .hasQueries(entry("filter", Collections.singletonList("a%20b")))
+        .hasHeaders(
+            entry("Accept", Collections.singletonList("application/json")),
+            entry("Auth-Token", Collections.singletonList("1234")));
+    assertThat(template.getRequestVariables()).isEmpty();
+  }
+
   @Test
   public void resolveTemplateWithMixedCollectionFormatsByQuery() {
     RequestTemplate template = new RequestTemplate()
@@ -71,6 +71,29 @@ public class RetryerTest {
     assertEquals(1000, retryer.sleptForMillis);
   }
 
+  @Test
+  public void asyncRetryerReturnsTheBackoffWithoutSleeping() throws Exception {
+    RetryableException e = new RetryableException(-1, null, null, null, REQUEST);
+    AsyncRetryer retryer = new AsyncRetryer.Default();
+
+    assertEquals(150, retryer.nextAttemptDelay(e));
+    assertEquals(225, retryer.nextAttemptDelay(e));
+    assertEquals(337, retryer.nextAttemptDelay(e));
+    assertEquals(506, retryer.nextAttemptDelay(e));
+
+    thrown.expect(RetryableException.class);
+    retryer.nextAttemptDelay(e);
+  }
+
+  @Test
+  public void asyncRetryerConsidersRetryAfterButNotMoreThanMaxPeriod() {
+    AsyncRetryer retryer = new AsyncRetryer.Default();
+
+    long delay = retryer.nextAttemptDelay(new RetryableException(-1, null, null,
+        new Date(System.currentTimeMillis() + 5000), REQUEST));
+    assertEquals(1000, delay);
+  }
+
   @Test(expected = RetryableException.class)
   public void neverRetryAlwaysPropagates() {
     Retryer.NEVER_RETRY
@@ -102,6 +102,23 @@ public abstract class AbstractClientTest {
     assertThat(recordedRequest.getBody().readUtf8()).isEqualToIgnoringCase("foo");
   }
 
+  @Test
+  public void sendsStreamingBody() throws IOException, InterruptedException {
+    server.enqueue(new MockResponse().setBody("foo"));
+
+    TestInterface api = newBuilder()
+        .encoder((object, bodyType, template) -> template.body(
+            out -> out.write(object.toString().getBytes(UTF_8)), 3, true))
+        .target(TestInterface.class, "http://localhost:" + server.getPort());
+
+    Response response = api.post("bar");
+
+    assertThat(response.status()).isEqualTo(200);
+    RecordedRequest recordedRequest = server.takeRequest();
+    assertThat(recordedRequest.getHeader("Content-Length")).isEqualTo("3");
+    assertThat(recordedRequest.getBody().readUtf8()).isEqualTo("bar");
+  }
+
   @Test
   public void reasonPhraseIsOptional() throws IOException, InterruptedException {
     server.enqueue(new MockResponse().setStatus("HTTP/1.1 " + 200));
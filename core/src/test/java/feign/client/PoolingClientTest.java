@@ -0,0 +1,190 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.client;
+
+import static feign.Util.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import feign.Feign;
+import feign.Feign.Builder;
+import feign.PoolingClient;
+import feign.Request;
+import feign.Request.HttpMethod;
+import feign.Response;
+import feign.Util;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Test;
+
+public class PoolingClientTest extends AbstractClientTest {
+
+  private PoolingClient client = PoolingClient.builder()
+      .sslContext(trustingSSLContext())
+      .hostnameVerifier((host, session) -> true)
+      .build();
+
+  @After
+  public void closeClient() {
+    client.close();
+  }
+
+  @Override
+  public Builder newBuilder() {
+    return Feign.builder().client(client);
+  }
+
+  @Test
+  public void reusesConnections() throws Exception {
+    server.enqueue(new MockResponse().setBody("first"));
+    server.enqueue(new MockResponse().setBody("second"));
+
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("first");
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("second");
+
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(1);
+    PoolingClient.Stats stats = client.stats();
+    assertThat(stats.createdConnections()).isEqualTo(1);
+    assertThat(stats.reusedConnections()).isEqualTo(1);
+    assertThat(stats.idleConnections()).isEqualTo(1);
+    assertThat(stats.leasedConnections()).isZero();
+  }
+
+  @Test
+  public void drainsUnreadBodiesToReuseConnections() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(500).setBody("unread error"));
+    server.enqueue(new MockResponse().setChunkedBody("unread chunks", 4));
+    server.enqueue(new MockResponse());
+
+    get().close();
+    Response chunked = get();
+    assertThat(client.stats().leasedConnections()).isEqualTo(1);
+    chunked.close();
+    get().close();
+
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(1);
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(2);
+    assertThat(client.stats().createdConnections()).isEqualTo(1);
+  }
+
+  @Test
+  public void streamsChunkedBodies() throws Exception {
+    server.enqueue(new MockResponse().setChunkedBody("response body", 3));
+
+    Request.Body body = Request.Body.create(out -> out.write("request body".getBytes(UTF_8)),
+        -1, false, null);
+    Request request = Request.create(HttpMethod.POST, server.url("/").toString(),
+        Collections.emptyMap(), body, null);
+    try (Response response = client.execute(request, new Request.Options())) {
+      assertThat(response.body().length()).isNull();
+      assertThat(Util.toString(response.body().asReader(UTF_8))).isEqualTo("response body");
+    }
+
+    RecordedRequest recorded = server.takeRequest();
+    assertThat(recorded.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+    assertThat(recorded.getBody().readUtf8()).isEqualTo("request body");
+    assertThat(client.stats().idleConnections()).isEqualTo(1);
+  }
+
+  @Test
+  public void evictsIdleConnections() throws Exception {
+    client.close();
+    client = PoolingClient.builder().keepAlive(100, TimeUnit.MILLISECONDS).build();
+    server.enqueue(new MockResponse());
+
+    get().close();
+    assertThat(client.stats().idleConnections()).isEqualTo(1);
+    Thread.sleep(500);
+
+    assertThat(client.stats().idleConnections()).isZero();
+    assertThat(client.stats().evictedConnections()).isEqualTo(1);
+  }
+
+  @Test
+  public void replacesConnectionsClosedByTheServer() throws Exception {
+    server.enqueue(new MockResponse().setBody("closing")
+        .setSocketPolicy(SocketPolicy.DISCONNECT_AT_END));
+    server.enqueue(new MockResponse().setBody("reopened"));
+
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("closing");
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("reopened");
+
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(client.stats().createdConnections()).isEqualTo(2);
+  }
+
+  @Test
+  public void sendsRequestsOverTls() throws Exception {
+    server.useHttps(TrustingSSLSocketFactory.get("localhost"), false);
+    server.enqueue(new MockResponse().setBody("secure"));
+    server.enqueue(new MockResponse().setBody(new okio.Buffer().write(new byte[100_000])));
+
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("secure");
+    assertThat(Util.toByteArray(get().body().asInputStream())).hasSize(100_000);
+
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(1);
+  }
+
+  @Test
+  public void timesOutReadingTheResponse() throws Exception {
+    server.enqueue(new MockResponse().setHeadersDelay(1, TimeUnit.SECONDS));
+
+    Request request = Request.create(HttpMethod.GET, server.url("/").toString(),
+        Collections.emptyMap(), null, UTF_8, null);
+    thrown.expect(SocketTimeoutException.class);
+    client.execute(request, new Request.Options(1000, 100, true));
+  }
+
+  @Test
+  public void followsRedirects() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", "/moved")
+        .setBody("redirecting"));
+    server.enqueue(new MockResponse().setBody("moved"));
+
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("moved");
+
+    assertThat(server.takeRequest().getPath()).isEqualTo("/");
+    RecordedRequest redirected = server.takeRequest();
+    assertThat(redirected.getPath()).isEqualTo("/moved");
+    assertThat(redirected.getSequenceNumber()).isEqualTo(1);
+  }
+
+  private Response get() throws IOException {
+    Request request = Request.create(HttpMethod.GET, server.url("/").toString(),
+        Collections.emptyMap(), null, UTF_8, null);
+    return client.execute(request, new Request.Options());
+  }
+
+  private static SSLContext trustingSSLContext() {
+    try {
+      SSLContext context = SSLContext.getInstance("TLS");
+      context.init(null,
+          new TrustManager[] {(X509TrustManager) TrustingSSLSocketFactory.get()}, null);
+      return context;
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -14,6 +14,8 @@
 package feign.template;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import java.util.ArrayList;
@@ -97,4 +99,21 @@ public class HeaderTemplateTest {
         equalTo(Arrays.asList("test 2", "test 1")));
   }
 
+  @Test
+  public void it_should_resolve_literal_templates_once() {
+    HeaderTemplate headerTemplate = HeaderTemplate.create("hello", Arrays.asList("emre", "savci"));
+    HeaderTemplate resolved = headerTemplate.resolve(Collections.emptyMap());
+    assertThat(new ArrayList<>(resolved.getValues()),
+        equalTo(Collections.singletonList("emre, savci")));
+    assertThat(headerTemplate.resolve(Collections.emptyMap()), sameInstance(resolved));
+  }
+
+  @Test
+  public void it_should_resolve_expressions() {
+    HeaderTemplate headerTemplate = HeaderTemplate.create("token", Arrays.asList("{token}"));
+    assertThat(new ArrayList<>(
+        headerTemplate.resolve(Collections.singletonMap("token", "1234")).getValues()),
+        equalTo(Collections.singletonList("1234")));
+    assertThat(headerTemplate.resolve(Collections.emptyMap()), nullValue());
+  }
 }
@@ -17,8 +17,11 @@ package feign.template;
 import static org.assertj.core.api.Assertions.assertThat;
 import feign.CollectionFormat;
 import feign.Util;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import org.junit.Test;
 
 public class QueryTemplateTest {
@@ -196,4 +199,35 @@ public class QueryTemplateTest {
     /* dollar will be pct-encoded */
     assertThat(expanded).isEqualToIgnoringCase("%24collection=1%2C2");
   }
+
+  @Test
+  public void literalTemplateRemovesBlankValues() {
+    QueryTemplate template =
+        QueryTemplate.literal("name", Arrays.asList("a%20b", "", null, "c"), Util.UTF_8,
+            CollectionFormat.EXPLODED, true);
+    assertThat(template.getValues()).containsExactly("a%20b", "c");
+    assertThat(template.getVariables()).isEmpty();
+    assertThat(template.toString()).isEqualTo("name=a%20b&name=c");
+  }
+
+  @Test
+  public void expandLargeCollection() {
+    List<String> values = new ArrayList<>();
+    StringBuilder exploded = new StringBuilder();
+    StringBuilder pipes = new StringBuilder("ids=");
+    for (int i = 0; i < 10000; i++) {
+      values.add("id " + i);
+      exploded.append((i == 0) ? "" : "&").append("ids=id%20").append(i);
+      pipes.append((i == 0) ? "" : "%7C").append("id%20").append(i);
+    }
+    Map<String, ?> variables = Collections.singletonMap("ids", values);
+
+    QueryTemplate template =
+        QueryTemplate.create("ids", Collections.singletonList("{ids}"), Util.UTF_8);
+    assertThat(template.expand(variables)).isEqualTo(exploded.toString());
+
+    template = QueryTemplate.create("ids", Collections.singletonList("{ids}"), Util.UTF_8,
+        CollectionFormat.PIPES);
+    assertThat(template.expand(variables)).isEqualTo(pipes.toString());
+  }
 }
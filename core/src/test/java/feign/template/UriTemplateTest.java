@@ -299,4 +299,12 @@ public class UriTemplateTest {
     String expanded = uriTemplate.expand(Collections.singletonMap("url", "https://www.google.com"));
     assertThat(expanded).isEqualToIgnoringCase("/get?url=https%3A%2F%2Fwww.google.com");
   }
+
+  @Test
+  public void literalTemplateIsNotParsedOrEncodedAgain() {
+    UriTemplate uriTemplate = UriTemplate.literal("/users/%7Bname%7D/a%20b", true, Util.UTF_8);
+    assertThat(uriTemplate.getVariables()).isEmpty();
+    assertThat(uriTemplate.expand(Collections.singletonMap("name", "value")))
+        .isEqualTo("/users/%7Bname%7D/a%20b");
+  }
 }
@@ -41,4 +41,38 @@ public class UriUtilsTest {
     String encoded = UriUtils.encode(withReserved, UTF_8, true);
     assertThat(encoded).isEqualTo("/api/user@host:port#section[a-z]/data");
   }
+
+  @Test
+  public void unreservedValuesAreNotCopied() {
+    String value = "already-safe_value.1~";
+    assertThat(UriUtils.encode(value, UTF_8)).isSameAs(value);
+    assertThat(UriUtils.encode(value, UTF_8, true)).isSameAs(value);
+  }
+
+  @Test
+  public void pctEncodeNonAsciiCharacters() {
+    assertThat(UriUtils.encode("caf\u00e9 \uD83D\uDE00", UTF_8))
+        .isEqualTo("caf%C3%A9%20%F0%9F%98%80");
+  }
+
+  @Test
+  public void pctEncodedValuesAreSkipped() {
+    assertThat(UriUtils.encode("a%20b", UTF_8)).isEqualTo("a%20b");
+    assertThat(UriUtils.encode("a b%20c%zz", UTF_8, true)).isEqualTo("a%20b%20c%25zz");
+  }
+
+  @Test
+  public void appendEncoded() {
+    StringBuilder builder = new StringBuilder("q=");
+    UriUtils.appendEncoded(builder, "a&b", UTF_8);
+    UriUtils.appendEncoded(builder, "%2F", UTF_8);
+    assertThat(builder.toString()).isEqualTo("q=a%26b%2F");
+  }
+
+  @Test
+  public void decodeSlash() {
+    String value = "no-slashes";
+    assertThat(UriUtils.decodeSlash(value)).isSameAs(value);
+    assertThat(UriUtils.decodeSlash("%2Fa%2Fb%2f")).isEqualTo("/a/b%2f");
+  }
 }
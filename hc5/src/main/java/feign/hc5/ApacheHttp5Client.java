@@ -14,24 +14,32 @@
 package feign.hc5;
 
 import static feign.Util.UTF_8;
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
+import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.apache.hc.client5.http.config.Configurable;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.http.*;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
 import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
-import org.apache.hc.core5.http.io.entity.StringEntity;
-import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
-import org.apache.hc.core5.net.URIBuilder;
-import org.apache.hc.core5.net.URLEncodedUtils;
+import org.apache.hc.core5.http.message.BasicClassicHttpRequest;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import feign.*;
+import feign.HttpHeaders;
 
 /**
  * This module directs Feign's http requests to Apache's
@@ -43,10 +51,11 @@ import feign.*;
  */
 /*
  */
-public final class ApacheHttp5Client implements Client {
+public final class ApacheHttp5Client implements Client, Closeable {
   private static final String ACCEPT_HEADER_NAME = "Accept";
 
   private final HttpClient client;
+  private final PoolingHttpClientConnectionManager connectionManager;
 
   public ApacheHttp5Client() {
     this(HttpClientBuilder.create().build());
@@ -54,17 +63,85 @@ public final class ApacheHttp5Client implements Client {
 
   public ApacheHttp5Client(HttpClient client) {
     this.client = client;
+    this.connectionManager = null;
   }
 
+  private ApacheHttp5Client(Builder builder) {
+    this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+        .setMaxConnPerRoute(builder.maxConnectionsPerRoute)
+        .setMaxConnTotal(builder.maxConnectionsTotal)
+        .setConnectionTimeToLive(builder.timeToLive)
+        .setValidateAfterInactivity(builder.validateAfterInactivity)
+        .setDefaultSocketConfig(SocketConfig.custom()
+            .setSndBufSize(builder.sendBufferSize)
+            .setRcvBufSize(builder.receiveBufferSize)
+            .build())
+        .build();
+    final HttpClientBuilder clientBuilder = HttpClientBuilder.create()
+        .setConnectionManager(connectionManager)
+        .evictExpiredConnections();
+    if (TimeValue.isPositive(builder.idleTimeout)) {
+      clientBuilder.evictIdleConnections(builder.idleTimeout);
+    }
+    this.client = clientBuilder.build();
+  }
+
+  /**
+   * Configures a client whose connection pool suits many concurrent calls, unlike the defaults of
+   * {@link HttpClientBuilder}, which allow 5 connections per route and never close idle ones. The
+   * client runs a thread evicting connections: {@link #close() close} it when done with it.
+   */
+  @Experimental
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Statistics of the whole pool, for clients created by {@link #builder()}.
+   */
+  @Experimental
+  public PoolStats totalStats() {
+    return connectionManager().getTotalStats();
+  }
+
+  /**
+   * Statistics of the pool of each route that has been used, for clients created by
+   * {@link #builder()}. Each call reads the live pool.
+   */
+  @Experimental
+  public Map<HttpRoute, PoolStats> routeStats() {
+    final PoolingHttpClientConnectionManager connectionManager = connectionManager();
+    final Map<HttpRoute, PoolStats> stats = new LinkedHashMap<>();
+    for (final HttpRoute route : connectionManager.getRoutes()) {
+      stats.put(route, connectionManager.getStats(route));
+    }
+    return stats;
+  }
+
+  private PoolingHttpClientConnectionManager connectionManager() {
+    if (connectionManager == null) {
+      throw new IllegalStateException(
+          "Pool statistics are only kept by clients created by ApacheHttp5Client.builder()");
+    }
+    return connectionManager;
+  }
+
+  /**
+   * Closes the pooled connections of a client created by {@link #builder()}, or the given client
+   * if it is {@link Closeable}.
+   */
   @Override
-  public Response execute(Request request, Request.Options options) throws IOException {
-    ClassicHttpRequest httpUriRequest;
-    try {
-      httpUriRequest = toClassicHttpRequest(request, options);
-    } catch (final URISyntaxException e) {
-      throw new IOException("URL '" + request.url() + "' couldn't be parsed into a URI", e);
+  public void close() throws IOException {
+    if (client instanceof Closeable) {
+      ((Closeable) client).close();
     }
-    final HttpHost target = HttpHost.create(URI.create(request.url()));
+  }
+
+  @Override
+  public Response execute(Request request, Request.Options options) throws IOException {
+    final URI uri = toURI(request);
+    final ClassicHttpRequest httpUriRequest = toClassicHttpRequest(request, uri);
+    final HttpHost target = HttpHost.create(uri);
     final HttpClientContext context = configureTimeouts(options);
 
     final ClassicHttpResponse httpResponse =
@@ -72,35 +149,39 @@ public final class ApacheHttp5Client implements Client {
     return toFeignResponse(httpResponse, request);
   }
 
+  /**
+   * Parses the url of {@code request} once, keeping it as Feign encoded it.
+   */
+  static URI toURI(Request request) throws IOException {
+    try {
+      return new URI(request.url());
+    } catch (final URISyntaxException e) {
+      throw new IOException("URL '" + request.url() + "' couldn't be parsed into a URI", e);
+    }
+  }
+
   protected HttpClientContext configureTimeouts(Request.Options options) {
     final HttpClientContext context = new HttpClientContext();
-    // per request timeouts
-    final RequestConfig requestConfig =
-        (client instanceof Configurable
-            ? RequestConfig.copy(((Configurable) client).getConfig())
-            : RequestConfig.custom())
-                .setConnectTimeout(options.connectTimeout(), options.connectTimeoutUnit())
-                .setResponseTimeout(options.readTimeout(), options.readTimeoutUnit())
-                .build();
-    context.setRequestConfig(requestConfig);
+    context.setRequestConfig(toRequestConfig(client, options));
     return context;
   }
 
-  ClassicHttpRequest toClassicHttpRequest(Request request, Request.Options options)
-      throws URISyntaxException {
-    final ClassicRequestBuilder requestBuilder =
-        ClassicRequestBuilder.create(request.httpMethod().name());
-
-    final URI uri = new URIBuilder(request.url()).build();
+  /**
+   * Per request timeouts, on top of the configuration of {@code client} if it has one.
+   */
+  static RequestConfig toRequestConfig(Object client, Request.Options options) {
+    return (client instanceof Configurable
+        ? RequestConfig.copy(((Configurable) client).getConfig())
+        : RequestConfig.custom())
+            .setConnectTimeout(options.connectTimeout(), options.connectTimeoutUnit())
+            .setResponseTimeout(options.readTimeout(), options.readTimeoutUnit())
+            .build();
+  }
 
-    requestBuilder.setUri(uri.getScheme() + "://" + uri.getAuthority() + uri.getRawPath());
-
-    // request query params
-    final List<NameValuePair> queryParams =
-        URLEncodedUtils.parse(uri, requestBuilder.getCharset());
-    for (final NameValuePair queryParam : queryParams) {
-      requestBuilder.addParameter(queryParam);
-    }
+  static ClassicHttpRequest toClassicHttpRequest(Request request, URI uri) {
+    // the url is already encoded, so its path and query are sent as they are
+    final ClassicHttpRequest httpRequest =
+        new BasicClassicHttpRequest(request.httpMethod().name(), uri);
 
     // request headers
     boolean hasAcceptHeader = false;
@@ -117,35 +198,32 @@ public final class ApacheHttp5Client implements Client {
       }
 
       for (final String headerValue : headerEntry.getValue()) {
-        requestBuilder.addHeader(headerName, headerValue);
+        httpRequest.addHeader(headerName, headerValue);
       }
     }
     // some servers choke on the default accept string, so we'll set it to anything
     if (!hasAcceptHeader) {
-      requestBuilder.addHeader(ACCEPT_HEADER_NAME, "*/*");
+      httpRequest.addHeader(ACCEPT_HEADER_NAME, "*/*");
     }
 
-    // request body
-    // final Body requestBody = request.requestBody();
-    byte[] data = request.body();
+    // request body, wrapped rather than copied
+    final Request.Body requestBody = request.requestBody();
+    if (requestBody != null && requestBody.isStreaming()) {
+      httpRequest.setEntity(new StreamingEntity(requestBody, getContentType(request)));
+      return httpRequest;
+    }
+    final byte[] data = request.body();
     if (data != null) {
-      HttpEntity entity;
-      if (request.isBinary()) {
-        entity = new ByteArrayEntity(data, null);
-      } else {
-        final ContentType contentType = getContentType(request);
-        entity = new StringEntity(new String(data), contentType);
-      }
-
-      requestBuilder.setEntity(entity);
+      httpRequest.setEntity(
+          new ByteArrayEntity(data, request.isBinary() ? null : getContentType(request)));
     } else {
-      requestBuilder.setEntity(new ByteArrayEntity(new byte[0], null));
+      httpRequest.setEntity(new ByteArrayEntity(new byte[0], null));
     }
 
-    return requestBuilder.build();
+    return httpRequest;
   }
 
-  private ContentType getContentType(Request request) {
+  private static ContentType getContentType(Request request) {
     ContentType contentType = null;
     for (final Map.Entry<String, Collection<String>> entry : request.headers().entrySet()) {
       if (entry.getKey().equalsIgnoreCase("Content-Type")) {
@@ -162,35 +240,91 @@ public final class ApacheHttp5Client implements Client {
     return contentType;
   }
 
-  Response toFeignResponse(ClassicHttpResponse httpResponse, Request request) throws IOException {
-    final int statusCode = httpResponse.getCode();
+  /**
+   * Writes a streaming {@link Request.Body} straight to the connection.
+   */
+  static final class StreamingEntity extends AbstractHttpEntity {
 
-    final String reason = httpResponse.getReasonPhrase();
+    private final Request.Body body;
 
-    final Map<String, Collection<String>> headers = new HashMap<String, Collection<String>>();
-    for (final Header header : httpResponse.getHeaders()) {
-      final String name = header.getName();
-      final String value = header.getValue();
+    StreamingEntity(Request.Body body, ContentType contentType) {
+      super(contentType, null);
+      this.body = body;
+    }
 
-      Collection<String> headerValues = headers.get(name);
-      if (headerValues == null) {
-        headerValues = new ArrayList<String>();
-        headers.put(name, headerValues);
+    @Override
+    public boolean isRepeatable() {
+      return body.isReplayable();
+    }
+
+    @Override
+    public long getContentLength() {
+      return body.contentLength();
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      final byte[] data = body.asBytes();
+      if (data == null) {
+        throw new IOException("Request body can't be replayed, it was already sent");
       }
-      headerValues.add(value);
+      return new ByteArrayInputStream(data);
     }
 
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+      body.writeTo(outStream);
+    }
+
+    @Override
+    public boolean isStreaming() {
+      return false;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  Response toFeignResponse(ClassicHttpResponse httpResponse, Request request) throws IOException {
+    return toFeignResponse(httpResponse, httpResponse.getEntity(), request);
+  }
+
+  static Response toFeignResponse(HttpResponse httpResponse, HttpEntity entity, Request request) {
+    final int statusCode = httpResponse.getCode();
+
+    final String reason = httpResponse.getReasonPhrase();
+
+    final Map<String, Collection<String>> headers = toMap(httpResponse.getHeaders());
+
     return Response.builder()
         .status(statusCode)
         .reason(reason)
         .headers(headers)
         .request(request)
-        .body(toFeignBody(httpResponse))
+        .body(toFeignBody(entity))
         .build();
   }
 
-  Response.Body toFeignBody(ClassicHttpResponse httpResponse) {
-    final HttpEntity entity = httpResponse.getEntity();
+  private static Map<String, Collection<String>> toMap(final Header[] headers) {
+    return HttpHeaders.wrap(new HttpHeaders.Source() {
+      @Override
+      public int size() {
+        return headers.length;
+      }
+
+      @Override
+      public String name(int index) {
+        return headers[index].getName();
+      }
+
+      @Override
+      public String value(int index) {
+        return headers[index].getValue();
+      }
+    });
+  }
+
+  static Response.Body toFeignBody(HttpEntity entity) {
     if (entity == null) {
       return null;
     }
@@ -231,4 +365,92 @@ public final class ApacheHttp5Client implements Client {
       }
     };
   }
+
+  /**
+   * Settings of the connection pool of an {@link ApacheHttp5Client}.
+   */
+  @Experimental
+  public static final class Builder {
+
+    private int maxConnectionsPerRoute = 50;
+    private int maxConnectionsTotal = 200;
+    private TimeValue timeToLive = TimeValue.ofMinutes(5);
+    private TimeValue idleTimeout = TimeValue.ofSeconds(30);
+    private TimeValue validateAfterInactivity = TimeValue.ofSeconds(2);
+    private int sendBufferSize;
+    private int receiveBufferSize;
+
+    Builder() {}
+
+    /**
+     * The most connections open to a single route, {@code 50} by default.
+     */
+    public Builder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+      checkArgument(maxConnectionsPerRoute > 0, "maxConnectionsPerRoute must be positive");
+      this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+      return this;
+    }
+
+    /**
+     * The most connections open to all routes, {@code 200} by default.
+     */
+    public Builder maxConnectionsTotal(int maxConnectionsTotal) {
+      checkArgument(maxConnectionsTotal > 0, "maxConnectionsTotal must be positive");
+      this.maxConnectionsTotal = maxConnectionsTotal;
+      return this;
+    }
+
+    /**
+     * How long a connection is used at most, so that DNS changes are eventually picked up. Five
+     * minutes by default, {@code 0} to keep connections as long as the server does.
+     */
+    public Builder timeToLive(long duration, TimeUnit unit) {
+      checkArgument(duration >= 0, "timeToLive must not be negative");
+      this.timeToLive = duration == 0 ? TimeValue.NEG_ONE_MILLISECONDS
+          : TimeValue.of(duration, checkNotNull(unit, "unit"));
+      return this;
+    }
+
+    /**
+     * How long a connection may stay idle in the pool before a background thread closes it, 30
+     * seconds by default. {@code 0} disables eviction of idle connections.
+     */
+    public Builder idleTimeout(long duration, TimeUnit unit) {
+      checkArgument(duration >= 0, "idleTimeout must not be negative");
+      this.idleTimeout = TimeValue.of(duration, checkNotNull(unit, "unit"));
+      return this;
+    }
+
+    /**
+     * How long a connection may stay idle before it's checked for a close by the server before
+     * being reused, 2 seconds by default.
+     */
+    public Builder validateAfterInactivity(long duration, TimeUnit unit) {
+      checkArgument(duration >= 0, "validateAfterInactivity must not be negative");
+      this.validateAfterInactivity = TimeValue.of(duration, checkNotNull(unit, "unit"));
+      return this;
+    }
+
+    /**
+     * The size of the socket send buffer ({@code SO_SNDBUF}), the system default if {@code 0}.
+     */
+    public Builder sendBufferSize(int sendBufferSize) {
+      checkArgument(sendBufferSize >= 0, "sendBufferSize must not be negative");
+      this.sendBufferSize = sendBufferSize;
+      return this;
+    }
+
+    /**
+     * The size of the socket receive buffer ({@code SO_RCVBUF}), the system default if {@code 0}.
+     */
+    public Builder receiveBufferSize(int receiveBufferSize) {
+      checkArgument(receiveBufferSize >= 0, "receiveBufferSize must not be negative");
+      this.receiveBufferSize = receiveBufferSize;
+      return this;
+    }
+
+    public ApacheHttp5Client build() {
+      return new ApacheHttp5Client(this);
+    }
+  }
 }
@@ -0,0 +1,478 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.hc5;
+
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.io.entity.BasicHttpEntity;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.nio.support.classic.SharedInputBuffer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import feign.AsyncClient;
+import feign.Experimental;
+import feign.Request;
+import feign.Response;
+
+/**
+ * This module directs Feign's asynchronous requests to Apache's non-blocking
+ * <a href="https://hc.apache.org/httpcomponents-client-5.0.x/index.html">HttpAsyncClient 5</a>,
+ * which multiplexes HTTP/2 streams and serves any number of requests with a fixed number of I/O
+ * threads. Ex.
+ *
+ * <pre>
+ * GitHub github = AsyncFeign.asyncBuilder().client(new AsyncApacheHttp5Client())
+ *     .target(GitHub.class, "https://api.github.com");
+ * </pre>
+ *
+ * <p>
+ * Requests and responses are converted like those of {@link ApacheHttp5Client}. The response
+ * completes as soon as its head arrives, and its body is streamed: the I/O reactor only reads as
+ * much as the reader of the body makes room for. The context, if any, is the
+ * {@link HttpClientContext} of the exchange, to share cookies or authentication between requests.
+ * </p>
+ */
+@Experimental
+public final class AsyncApacheHttp5Client implements AsyncClient<HttpClientContext> {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /*
+   * Writing streaming request bodies, and reading response bodies that are still on their way,
+   * blocks, so neither can run on the I/O reactor.
+   */
+  private static final ExecutorService WORKERS = Executors.newCachedThreadPool(new ThreadFactory());
+
+  private final CloseableHttpAsyncClient client;
+
+  public AsyncApacheHttp5Client() {
+    this(startedClient(HttpAsyncClients.createDefault()));
+  }
+
+  /**
+   * @param client already {@link CloseableHttpAsyncClient#start() started}.
+   */
+  public AsyncApacheHttp5Client(CloseableHttpAsyncClient client) {
+    this.client = client;
+  }
+
+  private static CloseableHttpAsyncClient startedClient(CloseableHttpAsyncClient client) {
+    client.start();
+    return client;
+  }
+
+  @Override
+  public CompletableFuture<Response> execute(Request request,
+                                             Request.Options options,
+                                             Optional<HttpClientContext> requestContext) {
+    final CompletableFuture<Response> result = new CompletableFuture<>();
+    final ClassicHttpRequest httpRequest;
+    final AsyncEntityProducer entityProducer;
+    try {
+      httpRequest =
+          ApacheHttp5Client.toClassicHttpRequest(request, ApacheHttp5Client.toURI(request));
+      entityProducer = toEntityProducer(request, httpRequest.getEntity());
+    } catch (final IOException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    final HttpClientContext context = requestContext.orElseGet(HttpClientContext::create);
+    context.setRequestConfig(ApacheHttp5Client.toRequestConfig(client, options));
+
+    final StreamingResponseConsumer consumer = new StreamingResponseConsumer(request);
+    final Future<Response> exchange = client.execute(
+        new BasicRequestProducer(httpRequest, entityProducer), consumer, context,
+        new FutureCallback<Response>() {
+
+          @Override
+          public void completed(Response response) {
+            if (consumer.ended) {
+              complete(response);
+            } else {
+              // decoding will wait for the rest of the body
+              WORKERS.execute(() -> complete(response));
+            }
+          }
+
+          private void complete(Response response) {
+            if (!result.complete(response)) {
+              response.close();
+            }
+          }
+
+          @Override
+          public void failed(Exception e) {
+            result.completeExceptionally(e);
+          }
+
+          @Override
+          public void cancelled() {
+            result.cancel(false);
+          }
+        });
+    consumer.exchange(exchange);
+    result.whenComplete((response, throwable) -> {
+      if (result.isCancelled()) {
+        exchange.cancel(true);
+      }
+    });
+    return result;
+  }
+
+  private static AsyncEntityProducer toEntityProducer(Request request, HttpEntity entity) {
+    if (entity == null) {
+      return null;
+    }
+    if (entity instanceof ApacheHttp5Client.StreamingEntity) {
+      return new StreamingEntityProducer(entity);
+    }
+    // the bytes Feign encoded, rather than a copy read from the entity
+    final byte[] data = request.body();
+    return AsyncEntityProducers.create(data != null ? data : new byte[0],
+        ContentType.parse(entity.getContentType()));
+  }
+
+  /**
+   * Writes a streaming {@link Request.Body} from a worker thread, which waits while the I/O reactor
+   * drains what it wrote, so at most one buffer of the body is held in memory.
+   */
+  private static final class StreamingEntityProducer implements AsyncEntityProducer {
+
+    private final HttpEntity entity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    /* the writer appends, the reactor takes from the start */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private volatile DataStreamChannel channel;
+    private boolean started;
+    private boolean written;
+    private boolean ended;
+    private boolean aborted;
+    private IOException failure;
+
+    StreamingEntityProducer(HttpEntity entity) {
+      this.entity = entity;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return false;
+    }
+
+    @Override
+    public String getContentType() {
+      return entity.getContentType();
+    }
+
+    @Override
+    public String getContentEncoding() {
+      return entity.getContentEncoding();
+    }
+
+    @Override
+    public long getContentLength() {
+      return entity.getContentLength();
+    }
+
+    @Override
+    public boolean isChunked() {
+      return entity.getContentLength() < 0;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+      return null;
+    }
+
+    @Override
+    public int available() {
+      lock.lock();
+      try {
+        return buffer.position();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void produce(DataStreamChannel channel) throws IOException {
+      lock.lock();
+      try {
+        if (failure != null) {
+          throw failure;
+        }
+        if (!started) {
+          started = true;
+          this.channel = channel;
+          WORKERS.execute(this::write);
+        }
+        if (buffer.position() > 0) {
+          buffer.flip();
+          channel.write(buffer);
+          buffer.compact();
+          drained.signalAll();
+        }
+        if (written && buffer.position() == 0 && !ended) {
+          ended = true;
+          channel.endStream();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void write() {
+      try {
+        entity.writeTo(new OutputStream() {
+
+          @Override
+          public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+              final int count = append(b, off, len);
+              off += count;
+              len -= count;
+              // outside of the lock, which the reactor takes while producing
+              channel.requestOutput();
+            }
+          }
+        });
+      } catch (final IOException e) {
+        lock.lock();
+        try {
+          failure = e;
+        } finally {
+          lock.unlock();
+        }
+      }
+      lock.lock();
+      try {
+        written = true;
+      } finally {
+        lock.unlock();
+      }
+      channel.requestOutput();
+    }
+
+    private int append(byte[] b, int off, int len) throws IOException {
+      lock.lock();
+      try {
+        while (!aborted && !buffer.hasRemaining()) {
+          drained.await();
+        }
+        if (aborted) {
+          throw new IOException("Request was aborted");
+        }
+        final int count = Math.min(len, buffer.remaining());
+        buffer.put(b, off, count);
+        return count;
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(e.getMessage());
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void failed(Exception cause) {
+      releaseResources();
+    }
+
+    @Override
+    public void releaseResources() {
+      lock.lock();
+      try {
+        aborted = true;
+        drained.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Passes the body to the input stream of the response through a bounded buffer. Bodies that fit
+   * in the buffer are received before the exchange completes, others are streamed: the exchange
+   * completes with the head of the response. Closing the body before its end cancels the exchange.
+   */
+  private static final class StreamingResponseConsumer
+      implements AsyncResponseConsumer<Response> {
+
+    private final Request request;
+    private final SharedInputBuffer buffer = new SharedInputBuffer(BUFFER_SIZE);
+    private volatile Exception failure;
+    private volatile boolean ended;
+    private volatile boolean closed;
+    private volatile Future<?> exchange;
+    private volatile Runnable completion;
+
+    StreamingResponseConsumer(Request request) {
+      this.request = request;
+    }
+
+    void exchange(Future<?> exchange) {
+      this.exchange = exchange;
+      if (closed && !ended) {
+        exchange.cancel(true);
+      }
+    }
+
+    @Override
+    public void consumeResponse(HttpResponse response,
+                                EntityDetails entityDetails,
+                                HttpContext context,
+                                FutureCallback<Response> resultCallback) {
+      if (entityDetails == null) {
+        ended = true;
+        resultCallback.completed(ApacheHttp5Client.toFeignResponse(response, null, request));
+        return;
+      }
+      final long length = entityDetails.getContentLength();
+      final HttpEntity entity = new BasicHttpEntity(new BodyStream(), length,
+          ContentType.parse(entityDetails.getContentType()), entityDetails.getContentEncoding());
+      final Response result = ApacheHttp5Client.toFeignResponse(response, entity, request);
+      if (length >= 0 && length <= BUFFER_SIZE) {
+        completion = () -> resultCallback.completed(result);
+      } else {
+        resultCallback.completed(result);
+      }
+    }
+
+    @Override
+    public void informationResponse(HttpResponse response, HttpContext context) {}
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+      buffer.updateCapacity(capacityChannel);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) {
+      buffer.fill(src);
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) {
+      ended = true;
+      buffer.markEndStream();
+      final Runnable completion = this.completion;
+      if (completion != null) {
+        this.completion = null;
+        completion.run();
+      }
+    }
+
+    @Override
+    public void failed(Exception cause) {
+      failure = cause;
+      buffer.abort();
+    }
+
+    @Override
+    public void releaseResources() {}
+
+    private final class BodyStream extends InputStream {
+
+      @Override
+      public int read() throws IOException {
+        return checkFailure(buffer.read());
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+          return 0;
+        }
+        return checkFailure(buffer.read(b, off, len));
+      }
+
+      @Override
+      public int available() {
+        return buffer.length();
+      }
+
+      /* an aborted buffer reads as the end of the stream */
+      private int checkFailure(int read) throws IOException {
+        if (read == -1 && !ended) {
+          if (closed) {
+            throw new IOException("Response body is closed");
+          }
+          final Exception cause = failure;
+          throw cause instanceof IOException ? (IOException) cause
+              : new IOException("Response body was interrupted", cause);
+        }
+        return read;
+      }
+
+      @Override
+      public void close() {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        if (!ended) {
+          buffer.abort();
+          final Future<?> exchange = StreamingResponseConsumer.this.exchange;
+          if (exchange != null) {
+            exchange.cancel(true);
+          }
+        }
+      }
+    }
+  }
+
+  private static final class ThreadFactory implements java.util.concurrent.ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "feign-hc5-body-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -13,17 +13,23 @@
  */
 package feign.hc5;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assume.assumeTrue;
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.core5.pool.PoolStats;
 import org.junit.Test;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
 import feign.Feign;
 import feign.Feign.Builder;
+import feign.Request;
+import feign.Request.HttpMethod;
+import feign.Response;
 import feign.client.AbstractClientTest;
 import feign.jaxrs.JAXRSContract;
 import okhttp3.mockwebserver.MockResponse;
@@ -61,6 +67,60 @@ public class ApacheHttp5ClientTest extends AbstractClientTest {
     assertEquals("", request2.getBody().readString(StandardCharsets.UTF_8));
   }
 
+  @Test
+  public void sendsTheEncodedUrlAsItIs() throws Exception {
+    server.enqueue(new MockResponse());
+
+    try (ApacheHttp5Client client = new ApacheHttp5Client()) {
+      final String target = "/a%20b/c%2Fd?q=x%2By%20z&empty=&flag";
+      final Request request = Request.create(HttpMethod.GET, server.url("/").toString()
+          .replaceFirst("/$", target), Collections.emptyMap(), null, StandardCharsets.UTF_8, null);
+      client.execute(request, new Request.Options()).close();
+
+      assertThat(server.takeRequest().getPath()).isEqualTo(target);
+    }
+  }
+
+  @Test
+  public void reportsPoolStatistics() throws Exception {
+    server.enqueue(new MockResponse().setBody("foo"));
+
+    try (ApacheHttp5Client client = ApacheHttp5Client.builder()
+        .maxConnectionsPerRoute(3)
+        .maxConnectionsTotal(10)
+        .build()) {
+      final Request request = Request.create(HttpMethod.GET, server.url("/").toString(),
+          Collections.emptyMap(), null, StandardCharsets.UTF_8, null);
+      final Response response = client.execute(request, new Request.Options());
+
+      assertThat(client.totalStats().getLeased()).isEqualTo(1);
+      assertThat(client.totalStats().getMax()).isEqualTo(10);
+
+      response.close();
+
+      assertThat(client.totalStats().getLeased()).isEqualTo(0);
+      assertThat(client.routeStats()).hasSize(1);
+      final PoolStats routeStats = client.routeStats().values().iterator().next();
+      assertThat(routeStats.getAvailable()).isEqualTo(1);
+      assertThat(routeStats.getMax()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void keepsNoPoolStatisticsForGivenClients() {
+    thrown.expect(IllegalStateException.class);
+
+    new ApacheHttp5Client(HttpClientBuilder.create().build()).totalStats();
+  }
+
+  @Test
+  public void defaultClientHasNoPoolOfItsOwn() {
+    // only builders opt in to the pool, and to the thread evicting its connections
+    thrown.expect(IllegalStateException.class);
+
+    new ApacheHttp5Client().totalStats();
+  }
+
   @Override
   public void testVeryLongResponseNullLength() {
     assumeTrue("HC5 client seems to hang with response size equalto Long.MAX", false);
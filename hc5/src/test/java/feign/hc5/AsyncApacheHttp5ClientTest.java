@@ -0,0 +1,164 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.hc5;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import org.apache.hc.client5.http.cookie.BasicCookieStore;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.junit.Rule;
+import org.junit.Test;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import feign.AsyncFeign;
+import feign.Request;
+import feign.RequestLine;
+import feign.Response;
+import feign.Util;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+/**
+ * Tests {@link AsyncApacheHttp5Client} as the client of {@link AsyncFeign}.
+ */
+public class AsyncApacheHttp5ClientTest {
+
+  @Rule
+  public final MockWebServer server = new MockWebServer();
+
+  public interface TestInterface {
+
+    @RequestLine("GET /")
+    CompletableFuture<String> get();
+
+    @RequestLine("GET /")
+    CompletableFuture<Response> response();
+
+    @RequestLine("POST /")
+    CompletableFuture<String> post(String body);
+
+    @RequestLine("POST /")
+    CompletableFuture<String> upload(ByteBuffer body);
+  }
+
+  @Test
+  public void sendsRequestsAsynchronously() throws Exception {
+    // both calls are in flight at once, so they may reach the server in either order
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().setBody(request.getMethod() + " "
+            + request.getHeader("Accept") + " " + request.getBody().readUtf8());
+      }
+    });
+
+    TestInterface api = newApi(new Request.Options());
+
+    CompletableFuture<String> first = api.get();
+    CompletableFuture<String> second = api.post("baz");
+    assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("GET */* ");
+    assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("POST */* baz");
+  }
+
+  @Test
+  public void sendsStreamingBodiesWithTheirLength() throws Exception {
+    server.enqueue(new MockResponse().setBody("foo"));
+    byte[] data = new byte[256 * 1024];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+
+    TestInterface api = newApi(new Request.Options());
+
+    assertThat(api.upload(ByteBuffer.wrap(data)).get(5, TimeUnit.SECONDS)).isEqualTo("foo");
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Length")).isEqualTo(String.valueOf(data.length));
+    assertThat(request.getBody().readByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  public void streamsResponseBodies() throws Exception {
+    byte[] data = new byte[1024 * 1024];
+    server.enqueue(new MockResponse().setBody(new Buffer().write(data)));
+
+    TestInterface api = newApi(new Request.Options());
+
+    try (Response response = api.response().get(5, TimeUnit.SECONDS);
+        InputStream body = response.body().asInputStream()) {
+      assertThat(response.status()).isEqualTo(200);
+      assertThat(response.body().length()).isEqualTo(data.length);
+      assertThat(Util.toByteArray(body)).isEqualTo(data);
+    }
+  }
+
+  @Test
+  public void failsReadingATruncatedBody() throws Exception {
+    server.enqueue(new MockResponse().setBody(new Buffer().write(new byte[1024 * 1024]))
+        .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+
+    TestInterface api = newApi(new Request.Options());
+
+    try (Response response = api.response().get(5, TimeUnit.SECONDS)) {
+      Throwable thrown = catchThrowable(() -> Util.toByteArray(response.body().asInputStream()));
+      assertThat(thrown).isInstanceOf(IOException.class);
+    }
+  }
+
+  @Test
+  public void completesExceptionallyAfterReadTimeout() {
+    // the reactor checks timeouts every second
+    server.enqueue(new MockResponse().setBody("foo").setHeadersDelay(3, TimeUnit.SECONDS));
+
+    TestInterface api =
+        newApi(new Request.Options(1, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS, true));
+
+    Throwable thrown = catchThrowable(() -> api.get().get(5, TimeUnit.SECONDS));
+    assertThat(thrown)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IOException.class);
+  }
+
+  @Test
+  public void sharesTheContextOfTheInstance() throws Exception {
+    server.enqueue(new MockResponse().setBody("foo").addHeader("Set-Cookie", "session=1"));
+    server.enqueue(new MockResponse().setBody("bar"));
+    HttpClientContext context = HttpClientContext.create();
+    context.setCookieStore(new BasicCookieStore());
+
+    TestInterface api = AsyncFeign.<HttpClientContext>asyncBuilder()
+        .client(new AsyncApacheHttp5Client())
+        .target(TestInterface.class, "http://localhost:" + server.getPort(), context);
+
+    api.get().get(5, TimeUnit.SECONDS);
+    api.get().get(5, TimeUnit.SECONDS);
+    assertThat(server.takeRequest().getHeader("Cookie")).isNull();
+    assertThat(server.takeRequest().getHeader("Cookie")).isEqualTo("session=1");
+    assertThat(context.getCookieStore().getCookies()).hasSize(1);
+  }
+
+  private TestInterface newApi(Request.Options options) {
+    return AsyncFeign.<HttpClientContext>asyncBuilder()
+        .client(new AsyncApacheHttp5Client())
+        .options(options)
+        .target(TestInterface.class, "http://localhost:" + server.getPort());
+  }
+}
@@ -16,37 +16,44 @@ package feign.httpclient;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.Configurable;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import feign.Client;
+import feign.Experimental;
+import feign.HttpHeaders;
 import feign.Request;
 import feign.Response;
 import feign.Util;
 import static feign.Util.UTF_8;
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
 
 /**
  * This module directs Feign's http requests to Apache's
@@ -59,10 +66,11 @@ import static feign.Util.UTF_8;
 /*
  * Based on Square, Inc's Retrofit ApacheClient implementation
  */
-public final class ApacheHttpClient implements Client {
+public final class ApacheHttpClient implements Client, Closeable {
   private static final String ACCEPT_HEADER_NAME = "Accept";
 
   private final HttpClient client;
+  private final PoolingHttpClientConnectionManager connectionManager;
 
   public ApacheHttpClient() {
     this(HttpClientBuilder.create().build());
@@ -70,6 +78,77 @@ public final class ApacheHttpClient implements Client {
 
   public ApacheHttpClient(HttpClient client) {
     this.client = client;
+    this.connectionManager = null;
+  }
+
+  private ApacheHttpClient(Builder builder) {
+    this.connectionManager = new PoolingHttpClientConnectionManager(
+        builder.timeToLiveMillis, TimeUnit.MILLISECONDS);
+    connectionManager.setMaxTotal(builder.maxConnectionsTotal);
+    connectionManager.setDefaultMaxPerRoute(builder.maxConnectionsPerRoute);
+    connectionManager.setValidateAfterInactivity(builder.validateAfterInactivityMillis);
+    connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+        .setSndBufSize(builder.sendBufferSize)
+        .setRcvBufSize(builder.receiveBufferSize)
+        .build());
+    HttpClientBuilder clientBuilder = HttpClientBuilder.create()
+        .setConnectionManager(connectionManager)
+        .evictExpiredConnections();
+    if (builder.idleTimeoutMillis > 0) {
+      clientBuilder.evictIdleConnections(builder.idleTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    this.client = clientBuilder.build();
+  }
+
+  /**
+   * Configures a client whose connection pool suits many concurrent calls, unlike the defaults of
+   * {@link HttpClientBuilder}, which allow 2 connections per route and never close idle ones. The
+   * client runs a thread evicting connections: {@link #close() close} it when done with it.
+   */
+  @Experimental
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Statistics of the whole pool, for clients created by {@link #builder()}.
+   */
+  @Experimental
+  public PoolStats totalStats() {
+    return connectionManager().getTotalStats();
+  }
+
+  /**
+   * Statistics of the pool of each route that has been used, for clients created by
+   * {@link #builder()}. Each call reads the live pool.
+   */
+  @Experimental
+  public Map<HttpRoute, PoolStats> routeStats() {
+    PoolingHttpClientConnectionManager connectionManager = connectionManager();
+    Map<HttpRoute, PoolStats> stats = new LinkedHashMap<>();
+    for (HttpRoute route : connectionManager.getRoutes()) {
+      stats.put(route, connectionManager.getStats(route));
+    }
+    return stats;
+  }
+
+  private PoolingHttpClientConnectionManager connectionManager() {
+    if (connectionManager == null) {
+      throw new IllegalStateException(
+          "Pool statistics are only kept by clients created by ApacheHttpClient.builder()");
+    }
+    return connectionManager;
+  }
+
+  /**
+   * Closes the pooled connections of a client created by {@link #builder()}, or the given client
+   * if it is {@link Closeable}.
+   */
+  @Override
+  public void close() throws IOException {
+    if (client instanceof Closeable) {
+      ((Closeable) client).close();
+    }
   }
 
   @Override
@@ -97,16 +176,8 @@ public final class ApacheHttpClient implements Client {
                 .build();
     requestBuilder.setConfig(requestConfig);
 
-    URI uri = new URIBuilder(request.url()).build();
-
-    requestBuilder.setUri(uri.getScheme() + "://" + uri.getAuthority() + uri.getRawPath());
-
-    // request query params
-    List<NameValuePair> queryParams =
-        URLEncodedUtils.parse(uri, requestBuilder.getCharset());
-    for (NameValuePair queryParam : queryParams) {
-      requestBuilder.addParameter(queryParam);
-    }
+    // the url is already encoded, so it's parsed once and sent as it is
+    requestBuilder.setUri(new URI(request.url()));
 
     // request headers
     boolean hasAcceptHeader = false;
@@ -131,18 +202,13 @@ public final class ApacheHttpClient implements Client {
       requestBuilder.addHeader(ACCEPT_HEADER_NAME, "*/*");
     }
 
-    // request body
-    if (request.body() != null) {
-      HttpEntity entity = null;
-      if (request.charset() != null) {
-        ContentType contentType = getContentType(request);
-        String content = new String(request.body(), request.charset());
-        entity = new StringEntity(content, contentType);
-      } else {
-        entity = new ByteArrayEntity(request.body());
-      }
-
-      requestBuilder.setEntity(entity);
+    // request body, wrapped rather than copied
+    Request.Body body = request.requestBody();
+    if (body != null && body.isStreaming()) {
+      requestBuilder.setEntity(new StreamingEntity(body, getContentType(request)));
+    } else if (request.body() != null) {
+      requestBuilder.setEntity(new ByteArrayEntity(request.body(),
+          request.charset() != null ? getContentType(request) : null));
     } else {
       requestBuilder.setEntity(new ByteArrayEntity(new byte[0]));
     }
@@ -166,24 +232,57 @@ public final class ApacheHttpClient implements Client {
     return contentType;
   }
 
+  /**
+   * Writes a streaming {@link Request.Body} straight to the connection.
+   */
+  static final class StreamingEntity extends AbstractHttpEntity {
+
+    private final Request.Body body;
+
+    StreamingEntity(Request.Body body, ContentType contentType) {
+      this.body = body;
+      if (contentType != null) {
+        setContentType(contentType.toString());
+      }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return body.isReplayable();
+    }
+
+    @Override
+    public long getContentLength() {
+      return body.contentLength();
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      byte[] data = body.asBytes();
+      if (data == null) {
+        throw new IOException("Request body can't be replayed, it was already sent");
+      }
+      return new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+      body.writeTo(outStream);
+    }
+
+    @Override
+    public boolean isStreaming() {
+      return false;
+    }
+  }
+
   Response toFeignResponse(HttpResponse httpResponse, Request request) throws IOException {
     StatusLine statusLine = httpResponse.getStatusLine();
     int statusCode = statusLine.getStatusCode();
 
     String reason = statusLine.getReasonPhrase();
 
-    Map<String, Collection<String>> headers = new HashMap<String, Collection<String>>();
-    for (Header header : httpResponse.getAllHeaders()) {
-      String name = header.getName();
-      String value = header.getValue();
-
-      Collection<String> headerValues = headers.get(name);
-      if (headerValues == null) {
-        headerValues = new ArrayList<String>();
-        headers.put(name, headerValues);
-      }
-      headerValues.add(value);
-    }
+    Map<String, Collection<String>> headers = toMap(httpResponse.getAllHeaders());
 
     return Response.builder()
         .status(statusCode)
@@ -194,6 +293,25 @@ public final class ApacheHttpClient implements Client {
         .build();
   }
 
+  private static Map<String, Collection<String>> toMap(Header[] headers) {
+    return HttpHeaders.wrap(new HttpHeaders.Source() {
+      @Override
+      public int size() {
+        return headers.length;
+      }
+
+      @Override
+      public String name(int index) {
+        return headers[index].getName();
+      }
+
+      @Override
+      public String value(int index) {
+        return headers[index].getValue();
+      }
+    });
+  }
+
   Response.Body toFeignBody(HttpResponse httpResponse) {
     final HttpEntity entity = httpResponse.getEntity();
     if (entity == null) {
@@ -236,4 +354,93 @@ public final class ApacheHttpClient implements Client {
       }
     };
   }
+
+  /**
+   * Settings of the connection pool of an {@link ApacheHttpClient}.
+   */
+  @Experimental
+  public static final class Builder {
+
+    private int maxConnectionsPerRoute = 50;
+    private int maxConnectionsTotal = 200;
+    private long timeToLiveMillis = TimeUnit.MINUTES.toMillis(5);
+    private long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+    private int validateAfterInactivityMillis = 2000;
+    private int sendBufferSize;
+    private int receiveBufferSize;
+
+    Builder() {}
+
+    /**
+     * The most connections open to a single route, {@code 50} by default.
+     */
+    public Builder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+      checkArgument(maxConnectionsPerRoute > 0, "maxConnectionsPerRoute must be positive");
+      this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+      return this;
+    }
+
+    /**
+     * The most connections open to all routes, {@code 200} by default.
+     */
+    public Builder maxConnectionsTotal(int maxConnectionsTotal) {
+      checkArgument(maxConnectionsTotal > 0, "maxConnectionsTotal must be positive");
+      this.maxConnectionsTotal = maxConnectionsTotal;
+      return this;
+    }
+
+    /**
+     * How long a connection is used at most, so that DNS changes are eventually picked up. Five
+     * minutes by default, {@code 0} to keep connections as long as the server does.
+     */
+    public Builder timeToLive(long duration, TimeUnit unit) {
+      checkArgument(duration >= 0, "timeToLive must not be negative");
+      long millis = checkNotNull(unit, "unit").toMillis(duration);
+      this.timeToLiveMillis = millis == 0 ? -1 : millis;
+      return this;
+    }
+
+    /**
+     * How long a connection may stay idle in the pool before a background thread closes it, 30
+     * seconds by default. {@code 0} disables eviction of idle connections.
+     */
+    public Builder idleTimeout(long duration, TimeUnit unit) {
+      checkArgument(duration >= 0, "idleTimeout must not be negative");
+      this.idleTimeoutMillis = checkNotNull(unit, "unit").toMillis(duration);
+      return this;
+    }
+
+    /**
+     * How long a connection may stay idle before it's checked for a close by the server before
+     * being reused, 2 seconds by default.
+     */
+    public Builder validateAfterInactivity(long duration, TimeUnit unit) {
+      checkArgument(duration >= 0, "validateAfterInactivity must not be negative");
+      this.validateAfterInactivityMillis =
+          (int) Math.min(Integer.MAX_VALUE, checkNotNull(unit, "unit").toMillis(duration));
+      return this;
+    }
+
+    /**
+     * The size of the socket send buffer ({@code SO_SNDBUF}), the system default if {@code 0}.
+     */
+    public Builder sendBufferSize(int sendBufferSize) {
+      checkArgument(sendBufferSize >= 0, "sendBufferSize must not be negative");
+      this.sendBufferSize = sendBufferSize;
+      return this;
+    }
+
+    /**
+     * The size of the socket receive buffer ({@code SO_RCVBUF}), the system default if {@code 0}.
+     */
+    public Builder receiveBufferSize(int receiveBufferSize) {
+      checkArgument(receiveBufferSize >= 0, "receiveBufferSize must not be negative");
+      this.receiveBufferSize = receiveBufferSize;
+      return this;
+    }
+
+    public ApacheHttpClient build() {
+      return new ApacheHttpClient(this);
+    }
+  }
 }
@@ -15,17 +15,23 @@ package feign.httpclient;
 
 import feign.Feign;
 import feign.Feign.Builder;
+import feign.Request;
+import feign.Request.HttpMethod;
+import feign.Response;
 import feign.client.AbstractClientTest;
 import feign.jaxrs.JAXRSContract;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.RecordedRequest;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.pool.PoolStats;
 import org.junit.Test;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -60,6 +66,60 @@ public class ApacheHttpClientTest extends AbstractClientTest {
     assertEquals("", request2.getBody().readString(StandardCharsets.UTF_8));
   }
 
+  @Test
+  public void sendsTheEncodedUrlAsItIs() throws Exception {
+    server.enqueue(new MockResponse());
+
+    try (ApacheHttpClient client = new ApacheHttpClient()) {
+      String target = "/a%20b/c%2Fd?q=x%2By%20z&empty=&flag";
+      Request request = Request.create(HttpMethod.GET, server.url("/").toString()
+          .replaceFirst("/$", target), Collections.emptyMap(), null, StandardCharsets.UTF_8, null);
+      client.execute(request, new Request.Options()).close();
+
+      assertThat(server.takeRequest().getPath()).isEqualTo(target);
+    }
+  }
+
+  @Test
+  public void reportsPoolStatistics() throws Exception {
+    server.enqueue(new MockResponse().setBody("foo"));
+
+    try (ApacheHttpClient client = ApacheHttpClient.builder()
+        .maxConnectionsPerRoute(3)
+        .maxConnectionsTotal(10)
+        .build()) {
+      Request request = Request.create(HttpMethod.GET, server.url("/").toString(),
+          Collections.emptyMap(), null, StandardCharsets.UTF_8, null);
+      Response response = client.execute(request, new Request.Options());
+
+      assertThat(client.totalStats().getLeased()).isEqualTo(1);
+      assertThat(client.totalStats().getMax()).isEqualTo(10);
+
+      response.close();
+
+      assertThat(client.totalStats().getLeased()).isEqualTo(0);
+      assertThat(client.routeStats()).hasSize(1);
+      PoolStats routeStats = client.routeStats().values().iterator().next();
+      assertThat(routeStats.getAvailable()).isEqualTo(1);
+      assertThat(routeStats.getMax()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void keepsNoPoolStatisticsForGivenClients() {
+    thrown.expect(IllegalStateException.class);
+
+    new ApacheHttpClient(HttpClientBuilder.create().build()).totalStats();
+  }
+
+  @Test
+  public void defaultClientHasNoPoolOfItsOwn() {
+    // only builders opt in to the pool, and to the thread evicting its connections
+    thrown.expect(IllegalStateException.class);
+
+    new ApacheHttpClient().totalStats();
+  }
+
   @Path("/")
   public interface JaxRsTestInterface {
     @PUT
@@ -13,8 +13,9 @@
  */
 package feign.http2client;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
@@ -26,13 +27,26 @@ import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpRequest.Builder;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import feign.*;
+import feign.HttpHeaders;
 import feign.Request.Options;
 
-public class Http2Client implements Client {
+/**
+ * Sends requests through a {@link HttpClient}. Response bodies are streamed rather than buffered.
+ * As an {@link AsyncClient}, requests are sent with {@link HttpClient#sendAsync}, so no thread is
+ * held while waiting for responses, and many requests can share the streams of one HTTP/2
+ * connection.
+ *
+ * <p>
+ * The read timeout of the {@link Options} applies to each request. The connect timeout and the
+ * redirect policy belong to the {@link HttpClient}, see {@link #Http2Client(Options)}.
+ * </p>
+ */
+public class Http2Client implements Client, AsyncClient<Object> {
 
   private final HttpClient client;
 
@@ -43,35 +57,95 @@ public class Http2Client implements Client {
         .build());
   }
 
+  /**
+   * Creates a client connecting within the connect timeout of {@code options}, and following
+   * redirects if they say so.
+   */
+  public Http2Client(Options options) {
+    this(newClientBuilder(options).build());
+  }
+
   public Http2Client(HttpClient client) {
     this.client = Util.checkNotNull(client, "HttpClient must not be null");
   }
 
   @Override
   public Response execute(Request request, Options options) throws IOException {
-    final HttpRequest httpRequest = newRequestBuilder(request).build();
+    final HttpRequest httpRequest = newRequestBuilder(request, options).build();
 
-    HttpResponse<byte[]> httpResponse;
+    HttpResponse<InputStream> httpResponse;
     try {
-      httpResponse = client.send(httpRequest, BodyHandlers.ofByteArray());
+      httpResponse = client.send(httpRequest, BodyHandlers.ofInputStream());
     } catch (final InterruptedException e) {
-      throw new IOException("Invalid uri " + request.url(), e);
+      Thread.currentThread().interrupt();
+      final InterruptedIOException interrupted =
+          new InterruptedIOException("Interrupted sending " + request.url());
+      interrupted.initCause(e);
+      throw interrupted;
     }
 
+    return toFeignResponse(request, httpResponse);
+  }
+
+  @Override
+  public CompletableFuture<Response> execute(Request request,
+                                             Options options,
+                                             Optional<Object> requestContext) {
+    final CompletableFuture<Response> result = new CompletableFuture<>();
+    final HttpRequest httpRequest;
+    try {
+      httpRequest = newRequestBuilder(request, options).build();
+    } catch (final IOException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+
+    final CompletableFuture<HttpResponse<InputStream>> future =
+        client.sendAsync(httpRequest, BodyHandlers.ofInputStream());
+    future.whenComplete((httpResponse, throwable) -> {
+      if (throwable != null) {
+        result.completeExceptionally(throwable instanceof CompletionException
+            && throwable.getCause() != null ? throwable.getCause() : throwable);
+      } else if (!result.complete(toFeignResponse(request, httpResponse))) {
+        // cancelled while the headers were on their way
+        Util.ensureClosed(httpResponse.body());
+      }
+    });
+    result.whenComplete((response, throwable) -> {
+      if (result.isCancelled()) {
+        future.cancel(true);
+      }
+    });
+    return result;
+  }
+
+  private Response toFeignResponse(Request request, HttpResponse<InputStream> httpResponse) {
     final OptionalLong length = httpResponse.headers().firstValueAsLong("Content-Length");
 
-    final Response response = Response.builder()
-        .body(new ByteArrayInputStream(httpResponse.body()),
-            length.isPresent() ? (int) length.getAsLong() : null)
+    return Response.builder()
+        .body(httpResponse.body(),
+            length.isPresent() && length.getAsLong() <= Integer.MAX_VALUE
+                ? (int) length.getAsLong()
+                : null)
         .reason(httpResponse.headers().firstValue("Reason-Phrase").orElse("OK"))
         .request(request)
         .status(httpResponse.statusCode())
-        .headers(castMapCollectType(httpResponse.headers().map()))
+        // wrapped rather than copied, keeping the order of values
+        .headers(HttpHeaders.wrap(httpResponse.headers().map()))
         .build();
-    return response;
   }
 
-  private Builder newRequestBuilder(Request request) throws IOException {
+  private static HttpClient.Builder newClientBuilder(Options options) {
+    final HttpClient.Builder builder = HttpClient.newBuilder()
+        .followRedirects(options.isFollowRedirects() ? Redirect.ALWAYS : Redirect.NEVER)
+        .version(Version.HTTP_2);
+    if (options.connectTimeoutMillis() > 0) {
+      builder.connectTimeout(Duration.ofMillis(options.connectTimeoutMillis()));
+    }
+    return builder;
+  }
+
+  private Builder newRequestBuilder(Request request, Options options) throws IOException {
     URI uri;
     try {
       uri = new URI(request.url());
@@ -80,22 +154,24 @@ public class Http2Client implements Client {
     }
 
     final BodyPublisher body;
-    final byte[] data = request.body();
-    if (data == null) {
+    final Request.Body requestBody = request.requestBody();
+    if (requestBody != null && requestBody.isStreaming()) {
+      body = new StreamingBodyPublisher(requestBody);
+    } else if (request.body() == null) {
       body = BodyPublishers.noBody();
     } else {
-      body = BodyPublishers.ofByteArray(data);
+      body = BodyPublishers.ofByteArray(request.body());
     }
 
     final Builder requestBuilder = HttpRequest.newBuilder()
         .uri(uri)
         .version(Version.HTTP_2);
-
-    final Map<String, Collection<String>> headers = filterRestrictedHeaders(request.headers());
-    if (!headers.isEmpty()) {
-      requestBuilder.headers(asString(headers));
+    if (options.readTimeoutMillis() > 0) {
+      requestBuilder.timeout(Duration.ofMillis(options.readTimeoutMillis()));
     }
 
+    addHeaders(requestBuilder, request.headers());
+
     switch (request.httpMethod()) {
       case GET:
         return requestBuilder.GET();
@@ -127,33 +203,26 @@ public class Http2Client implements Client {
     DISALLOWED_HEADERS_SET = Collections.unmodifiableSet(treeSet);
   }
 
-  private Map<String, Collection<String>> filterRestrictedHeaders(Map<String, Collection<String>> headers) {
-    final Map<String, Collection<String>> filteredHeaders = headers.keySet()
-        .stream()
-        .filter(headerName -> !DISALLOWED_HEADERS_SET.contains(headerName))
-        .collect(Collectors.toMap(
-            Function.identity(),
-            headers::get));
-
-    filteredHeaders.computeIfAbsent("Accept", key -> List.of("*/*"));
-
-    return filteredHeaders;
-  }
-
-  private Map<String, Collection<String>> castMapCollectType(Map<String, List<String>> map) {
-    final Map<String, Collection<String>> result = new HashMap<>();
-    map.forEach((key, value) -> result.put(key, new HashSet<>(value)));
-    return result;
-  }
-
-  private String[] asString(Map<String, Collection<String>> headers) {
-    return headers.entrySet().stream()
-        .flatMap(entry -> entry.getValue()
-            .stream()
-            .map(value -> Arrays.asList(entry.getKey(), value))
-            .flatMap(List::stream))
-        .collect(Collectors.toList())
-        .toArray(new String[0]);
+  /**
+   * Copies the headers the client allows, in their order, defaulting {@code Accept} to anything.
+   */
+  private static void addHeaders(Builder requestBuilder, Map<String, Collection<String>> headers) {
+    boolean hasAcceptHeader = false;
+    for (final Map.Entry<String, Collection<String>> header : headers.entrySet()) {
+      final String name = header.getKey();
+      if (DISALLOWED_HEADERS_SET.contains(name)) {
+        continue;
+      }
+      if (name.equalsIgnoreCase("Accept")) {
+        hasAcceptHeader = true;
+      }
+      for (final String value : header.getValue()) {
+        requestBuilder.header(name, value);
+      }
+    }
+    if (!hasAcceptHeader) {
+      requestBuilder.header("Accept", "*/*");
+    }
   }
 
 }
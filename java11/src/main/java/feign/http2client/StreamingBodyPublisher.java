@@ -0,0 +1,169 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.http2client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import feign.Request;
+
+/**
+ * Publishes a streaming {@link Request.Body} in chunks, as the {@link java.net.http.HttpClient}
+ * asks for them. The body is written on a thread of its own, which waits while the client has no
+ * demand, so at most one chunk is held in memory.
+ */
+final class StreamingBodyPublisher implements BodyPublisher {
+
+  private static final int CHUNK_SIZE = 16 * 1024;
+
+  /*
+   * Writers block until the client asks for more, so they can't share the client's executor
+   * without risking to starve it.
+   */
+  private static final ExecutorService WRITERS = Executors.newCachedThreadPool(new ThreadFactory());
+
+  private final Request.Body body;
+
+  StreamingBodyPublisher(Request.Body body) {
+    this.body = body;
+  }
+
+  @Override
+  public long contentLength() {
+    return body.contentLength();
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+    ChunkStream stream = new ChunkStream(subscriber);
+    subscriber.onSubscribe(stream);
+    WRITERS.execute(stream::run);
+  }
+
+  private final class ChunkStream extends OutputStream implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super ByteBuffer> subscriber;
+    private byte[] chunk = new byte[CHUNK_SIZE];
+    private int count;
+
+    /* guarded by this */
+    private long demand;
+    private boolean cancelled;
+
+    ChunkStream(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    void run() {
+      try {
+        body.writeTo(this);
+        publish();
+        if (!isCancelled()) {
+          subscriber.onComplete();
+        }
+      } catch (Throwable e) {
+        if (!isCancelled()) {
+          subscriber.onError(e);
+        }
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == chunk.length) {
+        publish();
+      }
+      chunk[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (count == chunk.length) {
+          publish();
+        }
+        int length = Math.min(len, chunk.length - count);
+        System.arraycopy(b, off, chunk, count, length);
+        count += length;
+        off += length;
+        len -= length;
+      }
+    }
+
+    /* hands the current chunk to the subscriber, which may keep it */
+    private void publish() throws IOException {
+      if (count == 0) {
+        return;
+      }
+      synchronized (this) {
+        while (demand == 0 && !cancelled) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while sending the request body");
+          }
+        }
+        if (cancelled) {
+          throw new IOException("Request body subscription was cancelled");
+        }
+        demand--;
+      }
+      subscriber.onNext(ByteBuffer.wrap(chunk, 0, count));
+      chunk = new byte[CHUNK_SIZE];
+      count = 0;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancel();
+        subscriber.onError(new IllegalArgumentException("non-positive subscription request"));
+        return;
+      }
+      synchronized (this) {
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        notifyAll();
+      }
+    }
+
+    @Override
+    public synchronized void cancel() {
+      cancelled = true;
+      notifyAll();
+    }
+
+    private synchronized boolean isCancelled() {
+      return cancelled;
+    }
+  }
+
+  private static final class ThreadFactory implements java.util.concurrent.ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "feign-http2-body-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
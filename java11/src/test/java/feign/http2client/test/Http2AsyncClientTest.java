@@ -0,0 +1,111 @@
+/**
+ * Copyright 2012-2019 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.http2client.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static feign.Util.UTF_8;
+import java.net.http.HttpTimeoutException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import feign.AsyncFeign;
+import feign.Request;
+import feign.RequestLine;
+import feign.Response;
+import feign.http2client.Http2Client;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Tests {@link Http2Client} as the client of {@link AsyncFeign}.
+ */
+public class Http2AsyncClientTest {
+
+  @Rule
+  public final MockWebServer server = new MockWebServer();
+
+  public interface TestInterface {
+
+    @RequestLine("GET /")
+    CompletableFuture<String> get();
+
+    @RequestLine("POST /")
+    CompletableFuture<String> post(String body);
+  }
+
+  @Test
+  public void sendsRequestsAsynchronously() throws Exception {
+    // both calls are in flight at once, so they may reach the server in either order
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().setBody(request.getMethod() + " " + request.getBody().readUtf8());
+      }
+    });
+
+    TestInterface api = newApi(new Request.Options());
+
+    CompletableFuture<String> first = api.get();
+    CompletableFuture<String> second = api.post("baz");
+    assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("GET ");
+    assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("POST baz");
+  }
+
+  @Test
+  public void keepsTheOrderOfHeaderValues() throws Exception {
+    server.enqueue(new MockResponse()
+        .addHeader("Link", "<second>")
+        .addHeader("Link", "<first>")
+        .addHeader("Link", "<second>"));
+
+    Request request = Request.create(Request.HttpMethod.GET, server.url("/").toString(),
+        Collections.singletonMap("X-Values", Arrays.asList("b", "a")), null, UTF_8, null);
+    Response response = new Http2Client()
+        .execute(request, new Request.Options(), Optional.empty())
+        .get(5, TimeUnit.SECONDS);
+
+    assertThat(response.headers().get("link")).containsExactly("<second>", "<first>", "<second>");
+    RecordedRequest recorded = server.takeRequest();
+    assertThat(recorded.getHeaders().values("X-Values")).containsExactly("b", "a");
+    assertThat(recorded.getHeader("Accept")).isEqualTo("*/*");
+  }
+
+  @Test
+  public void completesExceptionallyAfterReadTimeout() {
+    server.enqueue(new MockResponse().setBody("foo").setHeadersDelay(1, TimeUnit.SECONDS));
+
+    TestInterface api =
+        newApi(new Request.Options(1, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS, true));
+
+    Throwable thrown = catchThrowable(() -> api.get().get(5, TimeUnit.SECONDS));
+    assertThat(thrown)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(HttpTimeoutException.class);
+  }
+
+  private TestInterface newApi(Request.Options options) {
+    return AsyncFeign.<Object>asyncBuilder()
+        .client(new Http2Client())
+        .options(options)
+        .target(TestInterface.class, "http://localhost:" + server.getPort());
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.http2client.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static feign.Util.UTF_8;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import feign.http2client.Http2Client;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Tests {@link Http2Client} as a synchronous client against a local server, unlike
+ * {@link Http2ClientTest} which needs a public HTTP/2 server.
+ */
+public class Http2ClientLocalTest {
+
+  @Rule
+  public final MockWebServer server = new MockWebServer();
+
+  private final Http2Client client = new Http2Client();
+
+  @Test
+  public void sendsHeaderValuesInOrder() throws Exception {
+    server.enqueue(new MockResponse());
+
+    Map<String, Collection<String>> headers = new LinkedHashMap<>();
+    headers.put("X-Values", Arrays.asList("b", "a", "b"));
+    headers.put("x-other", Arrays.asList("c"));
+    get(headers);
+
+    RecordedRequest recorded = server.takeRequest();
+    assertThat(recorded.getHeaders().values("X-Values")).containsExactly("b", "a", "b");
+    assertThat(recorded.getHeaders().values("X-Other")).containsExactly("c");
+  }
+
+  @Test
+  public void keepsAcceptHeadersWhateverTheirCase() throws Exception {
+    server.enqueue(new MockResponse());
+
+    get(headers("accept", "application/json"));
+
+    assertThat(server.takeRequest().getHeaders().values("Accept"))
+        .containsExactly("application/json");
+  }
+
+  @Test
+  public void skipsHeadersTheClientSetsWhateverTheirCase() throws Exception {
+    server.enqueue(new MockResponse());
+
+    Map<String, Collection<String>> headers = new LinkedHashMap<>();
+    headers.put("connection", Arrays.asList("close"));
+    headers.put("CONTENT-LENGTH", Arrays.asList("100"));
+    headers.put("X-Kept", Arrays.asList("yes"));
+    execute(Request.HttpMethod.POST, headers, Request.Body.create("foo", UTF_8));
+
+    RecordedRequest recorded = server.takeRequest();
+    assertThat(recorded.getHeader("Connection")).isNotEqualTo("close");
+    assertThat(recorded.getHeader("Content-Length")).isEqualTo("3");
+    assertThat(recorded.getHeader("X-Kept")).isEqualTo("yes");
+    assertThat(recorded.getBody().readUtf8()).isEqualTo("foo");
+  }
+
+  @Test
+  public void readsHeaderValuesInOrderWhateverTheirCase() throws Exception {
+    server.enqueue(new MockResponse()
+        .addHeader("Link", "<second>")
+        .addHeader("link", "<first>")
+        .addHeader("LINK", "<second>")
+        .addHeader("X-Single", "one"));
+
+    Response response = get(new LinkedHashMap<>());
+
+    assertThat(response.headers().get("Link")).containsExactly("<second>", "<first>", "<second>");
+    assertThat(response.headers().get("LINK")).containsExactly("<second>", "<first>", "<second>");
+    assertThat(response.headers().get("x-single")).containsExactly("one");
+  }
+
+  @Test
+  public void returnsBeforeTheWholeBodyArrives() throws Exception {
+    server.enqueue(new MockResponse()
+        .setBody("0123456789")
+        .throttleBody(5, 1, TimeUnit.SECONDS));
+
+    long start = System.nanoTime();
+    Response response = get(new LinkedHashMap<>());
+    long headersMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertThat(headersMillis).isLessThan(1000);
+    assertThat(response.body().length()).isEqualTo(10);
+    try (InputStream body = response.body().asInputStream()) {
+      assertThat(new String(Util.toByteArray(body), UTF_8)).isEqualTo("0123456789");
+    }
+  }
+
+  @Test
+  public void streamsBodiesOfKnownLength() throws Exception {
+    server.enqueue(new MockResponse());
+    byte[] data = data(40 * 1024);
+
+    execute(Request.HttpMethod.POST, new LinkedHashMap<>(),
+        Request.Body.create(out -> out.write(data), data.length, true, null));
+
+    RecordedRequest recorded = server.takeRequest();
+    assertThat(recorded.getHeader("Content-Length")).isEqualTo(String.valueOf(data.length));
+    assertThat(recorded.getBody().readByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  public void streamsBodiesOfUnknownLength() throws Exception {
+    server.enqueue(new MockResponse());
+    byte[] data = data(40 * 1024);
+
+    execute(Request.HttpMethod.POST, new LinkedHashMap<>(),
+        Request.Body.create(out -> {
+          // small writes, so chunks fill up across calls
+          for (int i = 0; i < data.length; i += 1000) {
+            out.write(data, i, Math.min(1000, data.length - i));
+          }
+        }, -1, false, null));
+
+    RecordedRequest recorded = server.takeRequest();
+    assertThat(recorded.getHeader("Content-Length")).isNull();
+    assertThat(recorded.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+    assertThat(recorded.getBody().readByteArray()).isEqualTo(data);
+  }
+
+  private Response get(Map<String, Collection<String>> headers) throws IOException {
+    return execute(Request.HttpMethod.GET, headers, Request.Body.empty());
+  }
+
+  private Response execute(Request.HttpMethod method,
+                           Map<String, Collection<String>> headers,
+                           Request.Body body)
+      throws IOException {
+    Request request = Request.create(method, server.url("/").toString(), headers, body, null);
+    return client.execute(request, new Request.Options());
+  }
+
+  private static Map<String, Collection<String>> headers(String name, String value) {
+    Map<String, Collection<String>> headers = new LinkedHashMap<>();
+    headers.put(name, Arrays.asList(value));
+    return headers;
+  }
+
+  private static byte[] data(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) i;
+    }
+    return data;
+  }
+}
@@ -13,10 +13,14 @@
  */
 package feign.jaxrs2;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
@@ -34,10 +38,22 @@ import feign.Request.Options;
  * GitHub github =
  *     Feign.builder().client(new JaxRSClient()).target(GitHub.class, "https://api.github.com");
  * </pre>
+ *
+ * <p>
+ * A {@link javax.ws.rs.client.Client} is built for each distinct pair of timeouts, and reused for
+ * the requests with the same {@link Options}. Once there are too many of them, the requests with
+ * other timeouts each build a client that isn't cached. {@link #close()} closes the cached clients.
+ * </p>
  */
-public class JAXRSClient implements Client {
+public class JAXRSClient implements Client, Closeable {
+
+  /* few distinct options are used in practice, this bounds the open clients */
+  private static final int MAX_CLIENTS = 16;
 
   private final ClientBuilder clientBuilder;
+  /* guarded by itself, as is the builder, which isn't thread-safe */
+  private final Map<Long, javax.ws.rs.client.Client> clients = new HashMap<>();
+  private boolean closed;
 
   public JAXRSClient() {
     this(ClientBuilder.newBuilder());
@@ -49,10 +65,7 @@ public class JAXRSClient implements Client {
 
   @Override
   public feign.Response execute(feign.Request request, Options options) throws IOException {
-    final Response response = clientBuilder
-        .connectTimeout(options.connectTimeoutMillis(), TimeUnit.MILLISECONDS)
-        .readTimeout(options.readTimeoutMillis(), TimeUnit.MILLISECONDS)
-        .build()
+    final Response response = client(options)
         .target(request.url())
         .request()
         .headers(toMultivaluedMap(request.headers()))
@@ -68,6 +81,47 @@ public class JAXRSClient implements Client {
         .build();
   }
 
+  /**
+   * @return the client applying the timeouts of {@code options}, built on first use, or for each
+   *         use once {@link #MAX_CLIENTS} clients are cached.
+   */
+  javax.ws.rs.client.Client client(Options options) {
+    final int connectTimeoutMillis = options.connectTimeoutMillis();
+    final int readTimeoutMillis = options.readTimeoutMillis();
+    final Long key = ((long) connectTimeoutMillis << 32) | (readTimeoutMillis & 0xFFFFFFFFL);
+    synchronized (clients) {
+      if (closed) {
+        throw new IllegalStateException("JAXRSClient is closed");
+      }
+      javax.ws.rs.client.Client client = clients.get(key);
+      if (client == null) {
+        client = clientBuilder
+            .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+            .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+            .build();
+        // cached clients are in use by other threads, so none of them can be evicted
+        if (clients.size() < MAX_CLIENTS) {
+          clients.put(key, client);
+        }
+      }
+      return client;
+    }
+  }
+
+  /**
+   * Closes the clients built so far. Requests can't be executed any more.
+   */
+  @Override
+  public void close() {
+    final List<javax.ws.rs.client.Client> toClose;
+    synchronized (clients) {
+      closed = true;
+      toClose = new ArrayList<>(clients.values());
+      clients.clear();
+    }
+    toClose.forEach(javax.ws.rs.client.Client::close);
+  }
+
   private Entity<byte[]> createRequestEntity(feign.Request request) {
     if (request.body() == null) {
       return null;
@@ -16,10 +16,12 @@ package feign.jaxrs2;
 import static feign.Util.UTF_8;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 import feign.Feign;
 import feign.Feign.Builder;
 import feign.Headers;
+import feign.Request;
 import feign.RequestLine;
 import feign.Response;
 import feign.Util;
@@ -27,7 +29,10 @@ import feign.assertj.MockWebServerAssertions;
 import feign.client.AbstractClientTest;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.ws.rs.ProcessingException;
 import okhttp3.mockwebserver.MockResponse;
 import org.assertj.core.data.MapEntry;
@@ -126,6 +131,57 @@ public class JAXRSClientTest extends AbstractClientTest {
         .hasMethod("GET");
   }
 
+  @Test
+  public void reusesTheClientBuiltForEqualOptions() {
+    final JAXRSClient client = new JAXRSClient();
+
+    final javax.ws.rs.client.Client built =
+        client.client(new Request.Options(1, TimeUnit.SECONDS, 2, TimeUnit.SECONDS, true));
+
+    assertThat(client.client(
+        new Request.Options(1_000, TimeUnit.MILLISECONDS, 2_000, TimeUnit.MILLISECONDS, false)))
+            .isSameAs(built);
+    assertThat(client.client(
+        new Request.Options(1, TimeUnit.SECONDS, 3, TimeUnit.SECONDS, true)))
+            .isNotSameAs(built);
+    client.close();
+  }
+
+  @Test
+  public void stopsCachingClientsOnceThereAreTooManyOfThem() {
+    final JAXRSClient client = new JAXRSClient();
+    final List<javax.ws.rs.client.Client> cached = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      cached.add(
+          client.client(new Request.Options(1, TimeUnit.SECONDS, i, TimeUnit.SECONDS, true)));
+    }
+
+    final Request.Options other =
+        new Request.Options(2, TimeUnit.SECONDS, 1, TimeUnit.SECONDS, true);
+    final javax.ws.rs.client.Client uncached = client.client(other);
+
+    assertThat(client.client(other)).isNotSameAs(uncached);
+    for (int i = 0; i < 16; i++) {
+      assertThat(cached.get(i).target("http://localhost")).isNotNull();
+      assertThat(
+          client.client(new Request.Options(1, TimeUnit.SECONDS, i, TimeUnit.SECONDS, true)))
+              .isSameAs(cached.get(i));
+    }
+    client.close();
+  }
+
+  @Test
+  public void closesTheClientsItBuilt() {
+    final JAXRSClient client = new JAXRSClient();
+    final javax.ws.rs.client.Client built = client.client(new Request.Options());
+
+    client.close();
+
+    assertThatThrownBy(() -> built.target("http://localhost"))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> client.client(new Request.Options()))
+        .isInstanceOf(IllegalStateException.class);
+  }
 
   public interface JaxRSClientTestInterface {
 
@@ -0,0 +1,154 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Server} of a {@link LoadBalancer} and what the balancer learnt about it: requests in
+ * flight, latency, failures in a row and ejections. Updated by every request without locks, so
+ * readers may see the fields of two requests mixed, which only makes a choice slightly off.
+ */
+final class Host {
+
+  /** Traffic a host gets at the start of its slow start, relative to its weight. */
+  static final double MIN_WARMTH = 0.1;
+
+  /** Ejections in a row stop lengthening the time out of rotation after this many. */
+  static final int MAX_EJECTION_MULTIPLIER = 10;
+
+  final Server server;
+  private final LoadBalancer lb;
+  private final AtomicInteger outstanding = new AtomicInteger();
+  /* peak EWMA of the response time in nanos, as double bits */
+  private final AtomicLong latency = new AtomicLong();
+  private volatile long sampledAt;
+  private final AtomicInteger failures = new AtomicInteger();
+  private final AtomicInteger ejections = new AtomicInteger();
+  private volatile long ejectedUntil;
+  private volatile long warmFrom;
+
+  Host(Server server, LoadBalancer lb, long now, long warmFrom, double latency) {
+    this.server = server;
+    this.lb = lb;
+    this.latency.set(Double.doubleToRawLongBits(latency));
+    this.sampledAt = now;
+    this.ejectedUntil = now;
+    this.warmFrom = warmFrom;
+  }
+
+  /**
+   * Replaces the scheme and authority of {@code url} with the url of the server, keeping its path
+   * and query.
+   */
+  String resolve(String url) {
+    int authority = url.indexOf("://");
+    int end = authority < 0 ? 0 : authority + 3;
+    while (end < url.length()) {
+      char c = url.charAt(end);
+      if (c == '/' || c == '?' || c == '#') {
+        break;
+      }
+      end++;
+    }
+    return server.url().concat(url.substring(end));
+  }
+
+  /** Counts a request sent to this host, returning the time it started at. */
+  long start() {
+    outstanding.incrementAndGet();
+    return lb.nanoTime();
+  }
+
+  /**
+   * Counts the end of a request {@link #start() started} at {@code startedAt}, ejecting the host
+   * when it failed too many times in a row.
+   */
+  void finish(long startedAt, boolean success) {
+    long now = lb.nanoTime();
+    outstanding.decrementAndGet();
+    sample(now - startedAt, now);
+    if (success) {
+      if (failures.get() != 0) {
+        failures.set(0);
+      }
+      if (ejections.get() != 0 && now - ejectedUntil >= 0) {
+        ejections.set(0);
+      }
+    } else if (lb.ejectAfter > 0 && failures.incrementAndGet() >= lb.ejectAfter) {
+      eject(now);
+    }
+  }
+
+  private void eject(long now) {
+    failures.set(0);
+    int times = Math.min(ejections.incrementAndGet(), MAX_EJECTION_MULTIPLIER);
+    long until = now + lb.baseEjectionNanos * times;
+    ejectedUntil = until;
+    warmFrom = until;
+  }
+
+  /**
+   * Folds a response time into the EWMA, which jumps to any sample above it and otherwise moves
+   * towards it as much as time passed since the last sample.
+   */
+  private void sample(long nanos, long now) {
+    long elapsed = Math.max(now - sampledAt, 0);
+    sampledAt = now;
+    double decay = Math.exp(-elapsed / (double) lb.decayNanos);
+    for (;;) {
+      long bits = latency.get();
+      double current = Double.longBitsToDouble(bits);
+      double next = nanos > current ? nanos : current * decay + nanos * (1 - decay);
+      if (latency.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+        return;
+      }
+    }
+  }
+
+  boolean available(long now) {
+    return now - ejectedUntil >= 0;
+  }
+
+  int outstanding() {
+    return outstanding.get();
+  }
+
+  /**
+   * The response time EWMA in nanos, decayed towards zero for as long as no request finished, so
+   * that a host which was slow gets tried again after a while.
+   */
+  double latency(long now) {
+    double current = Double.longBitsToDouble(latency.get());
+    long elapsed = now - sampledAt;
+    return elapsed <= 0 ? current : current * Math.exp(-elapsed / (double) lb.decayNanos);
+  }
+
+  /** The weight of the server, reduced while the host is in slow start. */
+  double weight(long now) {
+    int weight = server.weight();
+    long age = now - warmFrom;
+    if (lb.slowStartNanos == 0 || age >= lb.slowStartNanos) {
+      return weight;
+    }
+    return weight * Math.max(MIN_WARMTH, Math.max(age, 0) / (double) lb.slowStartNanos);
+  }
+
+  @Override
+  public String toString() {
+    return "Host(" + server.url() + ", outstanding=" + outstanding + ", failures=" + failures
+        + ")";
+  }
+}
@@ -0,0 +1,312 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.loadbalancer;
+
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
+import feign.Experimental;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Picks the server of each request of a {@link LoadBalancingClient} according to a
+ * {@link Strategy}, learning from every response which servers are slow or failing.
+ *
+ * <p>
+ * A server which fails {@link Builder#ejectAfter(int) several requests in a row}, by an
+ * {@link IOException} or a 5xx status, is ejected: it gets no requests until its
+ * {@link Builder#ejectionTime(long, TimeUnit) ejection time} passed, which grows each time it gets
+ * ejected again right after coming back. When every server is ejected, all of them are used, as
+ * something is more likely wrong with the requests than with the servers. Servers coming back or
+ * newly discovered get their traffic raised gradually over their
+ * {@link Builder#slowStart(long, TimeUnit) slow start}, if one is set.
+ *
+ * <p>
+ * The servers are either a static list or come from a {@link Builder#discovery(Supplier, long,
+ * TimeUnit) discovery callback}, called again once its refresh interval passed by the first request
+ * after it. Servers found again keep what was learnt about them.
+ */
+@Experimental
+public final class LoadBalancer {
+
+  final int ejectAfter;
+  final long baseEjectionNanos;
+  final long slowStartNanos;
+  final long decayNanos;
+  private final Strategy strategy;
+  private final LongSupplier clock;
+  private final Supplier<? extends Collection<Server>> discovery;
+  private final long refreshNanos;
+  private final AtomicLong nextRefresh;
+  private final AtomicLong turns = new AtomicLong();
+  private volatile Host[] hosts = new Host[0];
+  private volatile RuntimeException discoveryFailure;
+
+  private LoadBalancer(Builder builder) {
+    this.ejectAfter = builder.ejectAfter;
+    this.baseEjectionNanos = builder.ejectionNanos;
+    this.slowStartNanos = builder.slowStartNanos;
+    this.decayNanos = builder.decayNanos;
+    this.strategy = builder.strategy;
+    this.clock = builder.clock;
+    this.discovery = builder.discovery;
+    this.refreshNanos = builder.refreshNanos;
+    long now = nanoTime();
+    update(builder.servers, now, true);
+    this.nextRefresh = new AtomicLong(now);
+    Collection<Server> discovered = discovery != null ? discover() : null;
+    if (discovered != null) {
+      update(discovered, now, true);
+      nextRefresh.set(now + refreshNanos);
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** The servers requests are currently spread over, ejected ones included. */
+  public List<Server> servers() {
+    Host[] current = hosts;
+    List<Server> servers = new ArrayList<>(current.length);
+    for (Host host : current) {
+      servers.add(host.server);
+    }
+    return Collections.unmodifiableList(servers);
+  }
+
+  public Strategy strategy() {
+    return strategy;
+  }
+
+  /**
+   * Picks the host of the next request.
+   *
+   * @throws IOException when there is no server at all, as the servers may be discovered again
+   */
+  Host choose() throws IOException {
+    long now = nanoTime();
+    if (discovery != null) {
+      refreshIfDue(now);
+    }
+    Host[] all = hosts;
+    if (all.length == 0) {
+      throw new IOException("no servers to send the request to", discoveryFailure);
+    }
+    Host[] candidates = all.length == 1 ? all : available(all, now);
+    return candidates.length == 1 ? candidates[0] : strategy.choose(this, candidates, now);
+  }
+
+  /** The hosts not ejected, or all of them when they all are. */
+  private static Host[] available(Host[] all, long now) {
+    int count = 0;
+    for (Host host : all) {
+      if (host.available(now)) {
+        count++;
+      }
+    }
+    if (count == all.length || count == 0) {
+      return all;
+    }
+    Host[] available = new Host[count];
+    int i = 0;
+    for (Host host : all) {
+      if (host.available(now)) {
+        available[i++] = host;
+      }
+    }
+    return available;
+  }
+
+  private void refreshIfDue(long now) {
+    long due = nextRefresh.get();
+    if (now - due >= 0 && nextRefresh.compareAndSet(due, now + refreshNanos)) {
+      Collection<Server> discovered = discover();
+      if (discovered != null) {
+        update(discovered, now, false);
+      }
+    }
+  }
+
+  /**
+   * Calls the discovery callback, returning null and keeping the failure to report when there are
+   * no servers if it failed.
+   */
+  private Collection<Server> discover() {
+    try {
+      Collection<Server> servers = checkNotNull(discovery.get(), "servers discovered");
+      discoveryFailure = null;
+      return servers;
+    } catch (RuntimeException e) {
+      discoveryFailure = e;
+      return null;
+    }
+  }
+
+  /**
+   * Replaces the hosts by those of {@code servers}, keeping the hosts of servers already known.
+   * New servers start in slow start, unless {@code warm}, with the highest latency of the others so
+   * that they don't draw all requests before their first response.
+   */
+  private void update(Collection<Server> servers, long now, boolean warm) {
+    Host[] current = hosts;
+    Map<Server, Host> known = new HashMap<>();
+    double latency = 0;
+    for (Host host : current) {
+      known.put(host.server, host);
+      latency = Math.max(latency, host.latency(now));
+    }
+    List<Host> next = new ArrayList<>(servers.size());
+    for (Server server : new LinkedHashSet<>(servers)) {
+      Host host = known.get(server);
+      if (host == null) {
+        host = new Host(server, this, now, warm ? now - slowStartNanos : now, latency);
+      }
+      next.add(host);
+    }
+    hosts = next.toArray(new Host[0]);
+  }
+
+  /** The host of {@code server}, if it is one of the servers. */
+  Host host(Server server) {
+    for (Host host : hosts) {
+      if (host.server.equals(server)) {
+        return host;
+      }
+    }
+    return null;
+  }
+
+  long nanoTime() {
+    return clock.getAsLong();
+  }
+
+  long nextTurn() {
+    return turns.getAndIncrement();
+  }
+
+  @Override
+  public String toString() {
+    return "LoadBalancer(strategy=" + strategy + ", servers=" + servers() + ")";
+  }
+
+  public static final class Builder {
+
+    private final List<Server> servers = new ArrayList<>();
+    private Supplier<? extends Collection<Server>> discovery;
+    private long refreshNanos;
+    private Strategy strategy = Strategy.POWER_OF_TWO_CHOICES;
+    private int ejectAfter = 5;
+    private long ejectionNanos = TimeUnit.SECONDS.toNanos(30);
+    private long slowStartNanos;
+    private long decayNanos = TimeUnit.SECONDS.toNanos(10);
+    private LongSupplier clock = System::nanoTime;
+
+    Builder() {}
+
+    /** Adds a server of weight 1. */
+    public Builder server(String url) {
+      servers.add(Server.create(url));
+      return this;
+    }
+
+    /** Adds a server getting a share of traffic proportional to {@code weight}. */
+    public Builder server(String url, int weight) {
+      servers.add(Server.create(url, weight));
+      return this;
+    }
+
+    /**
+     * Gets the servers from {@code discovery}, called when building the load balancer and then
+     * every {@code refreshInterval} by the request due. Servers added to the builder are used until
+     * the callback first succeeds. When it throws, the load balancer keeps its servers and calls
+     * again at the next refresh.
+     */
+    public Builder discovery(Supplier<? extends Collection<Server>> discovery,
+                             long refreshInterval,
+                             TimeUnit unit) {
+      checkArgument(refreshInterval > 0, "refreshInterval must be positive");
+      this.discovery = checkNotNull(discovery, "discovery");
+      this.refreshNanos = unit.toNanos(refreshInterval);
+      return this;
+    }
+
+    /** Defaults to {@link Strategy#POWER_OF_TWO_CHOICES}. */
+    public Builder strategy(Strategy strategy) {
+      this.strategy = checkNotNull(strategy, "strategy");
+      return this;
+    }
+
+    /**
+     * Ejects a server after this many failed requests in a row, 5 by default. Zero never ejects
+     * servers.
+     */
+    public Builder ejectAfter(int consecutiveFailures) {
+      checkArgument(consecutiveFailures >= 0, "consecutiveFailures must not be negative");
+      this.ejectAfter = consecutiveFailures;
+      return this;
+    }
+
+    /**
+     * How long an ejected server gets no requests, 30 seconds by default. Multiplied by the number
+     * of times in a row the server was ejected, up to ten.
+     */
+    public Builder ejectionTime(long duration, TimeUnit unit) {
+      checkArgument(duration > 0, "duration must be positive");
+      this.ejectionNanos = unit.toNanos(duration);
+      return this;
+    }
+
+    /**
+     * Raises the traffic of new servers and servers coming back from an ejection from a tenth of
+     * their weight to all of it over {@code duration}. Off by default.
+     */
+    public Builder slowStart(long duration, TimeUnit unit) {
+      checkArgument(duration >= 0, "duration must not be negative");
+      this.slowStartNanos = unit.toNanos(duration);
+      return this;
+    }
+
+    /**
+     * How fast the response time EWMA of {@link Strategy#POWER_OF_TWO_CHOICES} forgets past
+     * responses, 10 seconds by default: a response this old weighs about a third of a new one.
+     */
+    public Builder latencyDecay(long duration, TimeUnit unit) {
+      checkArgument(duration > 0, "duration must be positive");
+      this.decayNanos = unit.toNanos(duration);
+      return this;
+    }
+
+    Builder clock(LongSupplier clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public LoadBalancer build() {
+      checkArgument(!servers.isEmpty() || discovery != null,
+          "add servers or a discovery callback");
+      return new LoadBalancer(this);
+    }
+  }
+}
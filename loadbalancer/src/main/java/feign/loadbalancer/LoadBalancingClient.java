@@ -0,0 +1,79 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.loadbalancer;
+
+import static feign.Util.checkNotNull;
+import feign.Client;
+import feign.Experimental;
+import feign.Request;
+import feign.Response;
+import java.io.IOException;
+
+/**
+ * Sends each request to a server picked by a {@link LoadBalancer}, through another client. The
+ * scheme and authority of the request url are replaced with those of the server, so the target url
+ * only names the service, while its path is kept. <br>
+ * Ex.
+ *
+ * <pre>
+ * LoadBalancer lb = LoadBalancer.builder()
+ *     .server("http://10.0.0.1:8080")
+ *     .server("http://10.0.0.2:8080")
+ *     .build();
+ * MyService api = Feign.builder()
+ *     .client(new LoadBalancingClient(lb))
+ *     .target(MyService.class, "http://myService/api/v2");
+ * </pre>
+ *
+ * <p>
+ * The time until the response headers, and whether the request failed by an {@link IOException} or
+ * a 5xx status, are fed back to the load balancer. Combine with a {@link feign.Retryer} to send
+ * requests failing with an {@link IOException} to another server.
+ */
+@Experimental
+public final class LoadBalancingClient implements Client {
+
+  private final Client delegate;
+  private final LoadBalancer loadBalancer;
+
+  /** Sends requests through a {@link Client.Default}. */
+  public LoadBalancingClient(LoadBalancer loadBalancer) {
+    this(new Client.Default(null, null), loadBalancer);
+  }
+
+  public LoadBalancingClient(Client delegate, LoadBalancer loadBalancer) {
+    this.delegate = checkNotNull(delegate, "delegate");
+    this.loadBalancer = checkNotNull(loadBalancer, "loadBalancer");
+  }
+
+  public LoadBalancer loadBalancer() {
+    return loadBalancer;
+  }
+
+  @Override
+  public Response execute(Request request, Request.Options options) throws IOException {
+    Host host = loadBalancer.choose();
+    Request routed = Request.create(request.httpMethod(), host.resolve(request.url()),
+        request.headers(), request.requestBody(), request.requestTemplate());
+    long startedAt = host.start();
+    boolean success = false;
+    try {
+      Response response = delegate.execute(routed, options);
+      success = response.status() < 500;
+      return response;
+    } finally {
+      host.finish(startedAt, success);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.loadbalancer;
+
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
+import feign.Experimental;
+
+/**
+ * A server requests can be sent to, like {@code http://10.0.0.1:8080}, with the share of traffic it
+ * should get relative to the other servers of a {@link LoadBalancer}.
+ */
+@Experimental
+public final class Server {
+
+  private final String url;
+  private final int weight;
+
+  private Server(String url, int weight) {
+    this.url = url;
+    this.weight = weight;
+  }
+
+  /**
+   * A server of weight 1.
+   *
+   * @param url scheme, host and port, optionally followed by a base path, like
+   *        {@code https://10.0.0.1:8443/api}
+   */
+  public static Server create(String url) {
+    return create(url, 1);
+  }
+
+  /**
+   * @param url scheme, host and port, optionally followed by a base path, like
+   *        {@code https://10.0.0.1:8443/api}
+   * @param weight share of traffic relative to the other servers, at least 1
+   */
+  public static Server create(String url, int weight) {
+    checkNotNull(url, "url");
+    checkArgument(url.indexOf("://") > 0, "url must start with a scheme: %s", url);
+    checkArgument(weight > 0, "weight must be positive: %s", weight);
+    return new Server(url.endsWith("/") ? url.substring(0, url.length() - 1) : url, weight);
+  }
+
+  public String url() {
+    return url;
+  }
+
+  public int weight() {
+    return weight;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof Server) {
+      Server other = (Server) obj;
+      return url.equals(other.url) && weight == other.weight;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * url.hashCode() + weight;
+  }
+
+  @Override
+  public String toString() {
+    return "Server(url=" + url + ", weight=" + weight + ")";
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.loadbalancer;
+
+import feign.Experimental;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a {@link LoadBalancer} picks the server of a request among those not ejected. All of them
+ * honor server weights, reduced during slow start.
+ */
+@Experimental
+public enum Strategy {
+
+  /**
+   * Picks two servers at random and sends the request to the one with the lower cost: its response
+   * time EWMA times its requests in flight, over its weight. Reacts to slow servers within a few
+   * requests while spreading load better than always picking the best server.
+   */
+  POWER_OF_TWO_CHOICES {
+    @Override
+    Host choose(LoadBalancer lb, Host[] hosts, long now) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      int first = random.nextInt(hosts.length);
+      int second = random.nextInt(hosts.length - 1);
+      if (second >= first) {
+        second++;
+      }
+      return cost(hosts[first], now) <= cost(hosts[second], now) ? hosts[first] : hosts[second];
+    }
+
+    private double cost(Host host, long now) {
+      return (host.latency(now) + 1) * (host.outstanding() + 1) / host.weight(now);
+    }
+  },
+
+  /**
+   * Sends the request to the server with the fewest requests in flight relative to its weight,
+   * breaking ties at random.
+   */
+  LEAST_OUTSTANDING {
+    @Override
+    Host choose(LoadBalancer lb, Host[] hosts, long now) {
+      int start = ThreadLocalRandom.current().nextInt(hosts.length);
+      Host best = null;
+      double lowest = Double.MAX_VALUE;
+      for (int i = 0; i < hosts.length; i++) {
+        Host host = hosts[(start + i) % hosts.length];
+        double load = (host.outstanding() + 1) / host.weight(now);
+        if (load < lowest) {
+          lowest = load;
+          best = host;
+        }
+      }
+      return best;
+    }
+  },
+
+  /**
+   * Takes turns over the servers, each getting a share of turns proportional to its weight.
+   * Servers of equal weight are taken strictly in order; otherwise the turns are spread by the
+   * golden ratio sequence, so that a heavy server doesn't get all its turns in a row.
+   */
+  WEIGHTED_ROUND_ROBIN {
+    @Override
+    Host choose(LoadBalancer lb, Host[] hosts, long now) {
+      long turn = lb.nextTurn();
+      double first = hosts[0].weight(now);
+      double total = 0;
+      boolean equal = true;
+      for (Host host : hosts) {
+        double weight = host.weight(now);
+        equal &= weight == first;
+        total += weight;
+      }
+      if (equal) {
+        return hosts[(int) Long.remainderUnsigned(turn, hosts.length)];
+      }
+      /* the fractional part of turn times the golden ratio, in [0, 1) */
+      double position = ((turn * 0x9E3779B97F4A7C15L) >>> 11) * 0x1.0p-53 * total;
+      for (Host host : hosts) {
+        position -= host.weight(now);
+        if (position < 0) {
+          return host;
+        }
+      }
+      return hosts[hosts.length - 1];
+    }
+  };
+
+  /** Picks one of {@code hosts}, which holds at least two. */
+  abstract Host choose(LoadBalancer lb, Host[] hosts, long now);
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.loadbalancer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.isA;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class LoadBalancerTest {
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private final AtomicLong now = new AtomicLong();
+  private final Server a = Server.create("http://a:8080");
+  private final Server b = Server.create("http://b:8080");
+  private final Server c = Server.create("http://c:8080");
+
+  @Test
+  public void roundRobinTakesServersInTurn() throws IOException {
+    LoadBalancer lb = builder(Strategy.WEIGHTED_ROUND_ROBIN)
+        .server(a.url()).server(b.url()).server(c.url())
+        .build();
+
+    List<Server> chosen = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      chosen.add(lb.choose().server);
+    }
+
+    assertThat(chosen).containsExactly(a, b, c, a, b, c);
+  }
+
+  @Test
+  public void weightedRoundRobinFollowsWeights() throws IOException {
+    LoadBalancer lb = builder(Strategy.WEIGHTED_ROUND_ROBIN)
+        .server(a.url(), 3).server(b.url(), 1)
+        .build();
+
+    Map<String, Integer> counts = choose(lb, 400);
+
+    assertThat(counts.get(a.url())).isBetween(295, 305);
+    assertThat(counts.get(b.url())).isBetween(95, 105);
+  }
+
+  @Test
+  public void powerOfTwoChoicesAvoidsSlowServers() throws IOException {
+    LoadBalancer lb = builder(Strategy.POWER_OF_TWO_CHOICES)
+        .server(a.url()).server(b.url())
+        .build();
+    respond(lb.host(a), 100);
+    respond(lb.host(b), 10);
+
+    assertThat(choose(lb, 100)).containsOnlyKeys(b.url());
+  }
+
+  @Test
+  public void powerOfTwoChoicesTriesSlowServersAgainLater() throws IOException {
+    LoadBalancer lb = builder(Strategy.POWER_OF_TWO_CHOICES)
+        .server(a.url()).server(b.url())
+        .build();
+    respond(lb.host(a), 100);
+    respond(lb.host(b), 10);
+
+    now.addAndGet(SECONDS.toNanos(60));
+    respond(lb.host(b), 10);
+
+    assertThat(lb.choose().server).isEqualTo(a);
+  }
+
+  @Test
+  public void powerOfTwoChoicesAvoidsBusyServers() throws IOException {
+    LoadBalancer lb = builder(Strategy.POWER_OF_TWO_CHOICES)
+        .server(a.url()).server(b.url())
+        .build();
+    respond(lb.host(a), 10);
+    respond(lb.host(b), 10);
+    lb.host(a).start();
+
+    assertThat(choose(lb, 100)).containsOnlyKeys(b.url());
+  }
+
+  @Test
+  public void leastOutstandingAvoidsBusyServers() throws IOException {
+    LoadBalancer lb = builder(Strategy.LEAST_OUTSTANDING)
+        .server(a.url()).server(b.url()).server(c.url())
+        .build();
+    lb.host(a).start();
+    lb.host(b).start();
+
+    assertThat(choose(lb, 100)).containsOnlyKeys(c.url());
+  }
+
+  @Test
+  public void ejectsServersFailingInARow() throws IOException {
+    LoadBalancer lb = builder(Strategy.WEIGHTED_ROUND_ROBIN)
+        .server(a.url()).server(b.url())
+        .ejectAfter(2)
+        .ejectionTime(10, SECONDS)
+        .build();
+
+    fail(lb.host(a), 2);
+    assertThat(choose(lb, 10)).containsOnlyKeys(b.url());
+
+    now.addAndGet(SECONDS.toNanos(10));
+    assertThat(choose(lb, 10)).containsKeys(a.url(), b.url());
+  }
+
+  @Test
+  public void ejectsServersLongerEachTimeInARow() throws IOException {
+    LoadBalancer lb = builder(Strategy.WEIGHTED_ROUND_ROBIN)
+        .server(a.url()).server(b.url())
+        .ejectAfter(1)
+        .ejectionTime(10, SECONDS)
+        .build();
+
+    fail(lb.host(a), 1);
+    now.addAndGet(SECONDS.toNanos(10));
+    fail(lb.host(a), 1);
+
+    now.addAndGet(SECONDS.toNanos(10));
+    assertThat(choose(lb, 10)).containsOnlyKeys(b.url());
+    now.addAndGet(SECONDS.toNanos(10));
+    assertThat(choose(lb, 10)).containsKeys(a.url(), b.url());
+  }
+
+  @Test
+  public void doesNotCountFailuresSeparatedBySuccesses() throws IOException {
+    LoadBalancer lb = builder(Strategy.WEIGHTED_ROUND_ROBIN)
+        .server(a.url()).server(b.url())
+        .ejectAfter(2)
+        .build();
+
+    fail(lb.host(a), 1);
+    respond(lb.host(a), 10);
+    fail(lb.host(a), 1);
+
+    assertThat(choose(lb, 10)).containsKeys(a.url(), b.url());
+  }
+
+  @Test
+  public void usesAllServersWhenAllAreEjected() throws IOException {
+    LoadBalancer lb = builder(Strategy.WEIGHTED_ROUND_ROBIN)
+        .server(a.url()).server(b.url())
+        .ejectAfter(1)
+        .build();
+
+    fail(lb.host(a), 1);
+    fail(lb.host(b), 1);
+
+    assertThat(choose(lb, 10)).containsKeys(a.url(), b.url());
+  }
+
+  @Test
+  public void slowStartRaisesTheTrafficOfNewServers() throws IOException {
+    List<Server> servers = new ArrayList<>(Arrays.asList(a));
+    LoadBalancer lb = builder(Strategy.WEIGHTED_ROUND_ROBIN)
+        .discovery(() -> servers, 1, SECONDS)
+        .slowStart(10, SECONDS)
+        .build();
+
+    servers.add(b);
+    now.addAndGet(SECONDS.toNanos(1));
+    Map<String, Integer> counts = choose(lb, 1100);
+    assertThat(counts.get(b.url())).isBetween(90, 110);
+
+    now.addAndGet(SECONDS.toNanos(5));
+    counts = choose(lb, 1000);
+    assertThat(counts.get(b.url())).isBetween(320, 345);
+
+    now.addAndGet(SECONDS.toNanos(5));
+    counts = choose(lb, 1000);
+    assertThat(counts.get(b.url())).isEqualTo(500);
+  }
+
+  @Test
+  public void keepsWhatWasLearntOfServersDiscoveredAgain() throws IOException {
+    List<Server> servers = new ArrayList<>(Arrays.asList(a, b));
+    LoadBalancer lb = builder(Strategy.LEAST_OUTSTANDING)
+        .discovery(() -> servers, 1, SECONDS)
+        .build();
+    Host host = lb.host(a);
+    host.start();
+
+    servers.remove(b);
+    servers.add(c);
+    now.addAndGet(SECONDS.toNanos(1));
+    lb.choose();
+
+    assertThat(lb.servers()).containsExactly(a, c);
+    assertThat(lb.host(a)).isSameAs(host);
+    assertThat(lb.host(a).outstanding()).isEqualTo(1);
+  }
+
+  @Test
+  public void keepsTheServersWhenDiscoveryFails() throws IOException {
+    AtomicLong calls = new AtomicLong();
+    LoadBalancer lb = builder(Strategy.WEIGHTED_ROUND_ROBIN)
+        .discovery(() -> {
+          if (calls.getAndIncrement() > 0) {
+            throw new IllegalStateException("registry down");
+          }
+          return Arrays.asList(a, b);
+        }, 1, SECONDS)
+        .build();
+
+    now.addAndGet(SECONDS.toNanos(1));
+
+    assertThat(choose(lb, 10)).containsKeys(a.url(), b.url());
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void reportsWhyThereAreNoServers() throws IOException {
+    LoadBalancer lb = builder(Strategy.WEIGHTED_ROUND_ROBIN)
+        .discovery(() -> {
+          throw new IllegalStateException("registry down");
+        }, 1, SECONDS)
+        .build();
+
+    thrown.expect(IOException.class);
+    thrown.expectMessage("no servers");
+    thrown.expectCause(isA(IllegalStateException.class));
+    lb.choose();
+  }
+
+  @Test
+  public void resolvesUrlsAgainstTheServer() {
+    LoadBalancer lb = builder(Strategy.WEIGHTED_ROUND_ROBIN)
+        .server("https://10.0.0.1:8443/base/")
+        .build();
+    Host host = lb.host(Server.create("https://10.0.0.1:8443/base"));
+
+    assertThat(host.resolve("https://myService/api/v2?x=1"))
+        .isEqualTo("https://10.0.0.1:8443/base/api/v2?x=1");
+    assertThat(host.resolve("https://myService?x=1")).isEqualTo("https://10.0.0.1:8443/base?x=1");
+    assertThat(host.resolve("https://myService")).isEqualTo("https://10.0.0.1:8443/base");
+  }
+
+  private LoadBalancer.Builder builder(Strategy strategy) {
+    return LoadBalancer.builder().strategy(strategy).clock(now::get);
+  }
+
+  /** Completes a request to {@code host} taking {@code millis}. */
+  private void respond(Host host, long millis) {
+    long startedAt = host.start();
+    now.addAndGet(MILLISECONDS.toNanos(millis));
+    host.finish(startedAt, true);
+  }
+
+  private void fail(Host host, int times) {
+    for (int i = 0; i < times; i++) {
+      host.finish(host.start(), false);
+    }
+  }
+
+  private static Map<String, Integer> choose(LoadBalancer lb, int times) throws IOException {
+    Map<String, Integer> counts = new HashMap<>();
+    for (int i = 0; i < times; i++) {
+      counts.merge(lb.choose().server.url(), 1, Integer::sum);
+    }
+    return counts;
+  }
+}
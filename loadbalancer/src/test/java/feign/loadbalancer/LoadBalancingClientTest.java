@@ -0,0 +1,133 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.loadbalancer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import feign.Feign;
+import feign.Feign.Builder;
+import feign.PoolingClient;
+import feign.RequestLine;
+import feign.Retryer;
+import feign.client.AbstractClientTest;
+import java.net.ServerSocket;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class LoadBalancingClientTest extends AbstractClientTest {
+
+  @Rule
+  public final MockWebServer other = new MockWebServer();
+
+  private final PoolingClient delegate = new PoolingClient();
+
+  interface ServiceApi {
+
+    @RequestLine("GET /api?x=1")
+    String get();
+  }
+
+  @After
+  public void closeClient() {
+    delegate.close();
+  }
+
+  @Override
+  public Builder newBuilder() {
+    LoadBalancer lb = LoadBalancer.builder().server("http://localhost:" + server.getPort()).build();
+    return Feign.builder().client(new LoadBalancingClient(delegate, lb));
+  }
+
+  @Test
+  public void spreadsRequestsOverTheServers() throws Exception {
+    server.setDispatcher(respondingWith(200));
+    other.setDispatcher(respondingWith(200));
+
+    ServiceApi api = newApi(LoadBalancer.builder()
+        .server("http://localhost:" + server.getPort())
+        .server("http://localhost:" + other.getPort())
+        .strategy(Strategy.WEIGHTED_ROUND_ROBIN));
+    for (int i = 0; i < 4; i++) {
+      assertThat(api.get()).isEqualTo("GET /api?x=1");
+    }
+
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(other.getRequestCount()).isEqualTo(2);
+    assertThat(server.takeRequest().getHeader("Host")).isEqualTo("localhost:" + server.getPort());
+  }
+
+  @Test
+  public void ejectsServersRespondingWithErrors() throws Exception {
+    server.setDispatcher(respondingWith(503));
+    other.setDispatcher(respondingWith(200));
+
+    ServiceApi api = newApi(LoadBalancer.builder()
+        .server("http://localhost:" + server.getPort())
+        .server("http://localhost:" + other.getPort())
+        .strategy(Strategy.WEIGHTED_ROUND_ROBIN)
+        .ejectAfter(1));
+    try {
+      api.get();
+    } catch (Exception expected) {
+      /* the first turn goes to the failing server */
+    }
+    for (int i = 0; i < 4; i++) {
+      assertThat(api.get()).isEqualTo("GET /api?x=1");
+    }
+
+    assertThat(server.getRequestCount()).isEqualTo(1);
+    assertThat(other.getRequestCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void retriesServersRefusingConnectionsOnOthers() throws Exception {
+    int closedPort;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      closedPort = socket.getLocalPort();
+    }
+    server.setDispatcher(respondingWith(200));
+
+    ServiceApi api = newApi(LoadBalancer.builder()
+        .server("http://localhost:" + closedPort)
+        .server("http://localhost:" + server.getPort())
+        .strategy(Strategy.WEIGHTED_ROUND_ROBIN)
+        .ejectAfter(1));
+    for (int i = 0; i < 3; i++) {
+      assertThat(api.get()).isEqualTo("GET /api?x=1");
+    }
+
+    assertThat(server.getRequestCount()).isEqualTo(3);
+  }
+
+  private ServiceApi newApi(LoadBalancer.Builder lb) {
+    return Feign.builder()
+        .client(new LoadBalancingClient(delegate, lb.build()))
+        .retryer(new Retryer.Default(1, 1, 3))
+        .target(ServiceApi.class, "http://myService");
+  }
+
+  private static Dispatcher respondingWith(int status) {
+    return new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().setResponseCode(status)
+            .setBody(request.getMethod() + " " + request.getPath());
+      }
+    };
+  }
+}
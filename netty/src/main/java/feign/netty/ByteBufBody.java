@@ -0,0 +1,258 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.netty;
+
+import feign.Response;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+
+/**
+ * A response body read straight from the buffers Netty received it in. The event loop appends
+ * them as they arrive and the reader releases each one once it's read, or all of them when the body
+ * is closed. Past {@link #HIGH_WATER} unread bytes, the channel stops reading until the reader
+ * catches up, so a slow reader holds no more than that.
+ */
+final class ByteBufBody implements Response.Body {
+
+  static final int HIGH_WATER = 64 * 1024;
+  private static final int LOW_WATER = 16 * 1024;
+
+  private final Exchange exchange;
+  private final Integer length;
+  private final ArrayDeque<ByteBuf> buffers = new ArrayDeque<>();
+  private final InputStream inputStream = new ByteBufInputStream();
+  private int buffered;
+  private boolean paused;
+  private boolean ended;
+  private boolean closed;
+  private Throwable failure;
+
+  ByteBufBody(Exchange exchange, Integer length) {
+    this.exchange = exchange;
+    this.length = length;
+  }
+
+  /* on the event loop, which hands over its reference to buffer */
+  synchronized void offer(ByteBuf buffer) {
+    if (closed) {
+      buffer.release();
+      return;
+    }
+    buffers.add(buffer);
+    buffered += buffer.readableBytes();
+    if (buffered >= HIGH_WATER && !paused) {
+      paused = true;
+      exchange.pauseReading();
+    }
+    notifyAll();
+  }
+
+  synchronized int buffered() {
+    return buffered;
+  }
+
+  synchronized boolean isPaused() {
+    return paused;
+  }
+
+  synchronized void end() {
+    ended = true;
+    notifyAll();
+  }
+
+  synchronized void fail(Throwable cause) {
+    if (!ended && failure == null) {
+      failure = cause;
+      notifyAll();
+    }
+  }
+
+  @Override
+  public Integer length() {
+    return length;
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return false;
+  }
+
+  @Override
+  public InputStream asInputStream() {
+    return inputStream;
+  }
+
+  @Override
+  public Reader asReader(Charset charset) {
+    return new InputStreamReader(inputStream, charset);
+  }
+
+  @Override
+  public ReadableByteChannel asChannel() {
+    return new ByteBufChannel();
+  }
+
+  /**
+   * Releases the buffers not yet read. If the body hasn't been received completely, its connection
+   * is closed rather than reused.
+   */
+  @Override
+  public void close() {
+    boolean complete;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      complete = ended;
+      for (ByteBuf buffer; (buffer = buffers.poll()) != null;) {
+        buffer.release();
+      }
+      buffered = 0;
+      notifyAll();
+    }
+    if (!complete) {
+      exchange.abort();
+    }
+  }
+
+  /* waits for a buffer with bytes to read, null at the end of the body */
+  private ByteBuf readable() throws IOException {
+    while (true) {
+      if (closed) {
+        throw new IOException("Response body closed");
+      }
+      ByteBuf buffer = buffers.peek();
+      if (buffer != null) {
+        return buffer;
+      }
+      if (failure != null) {
+        throw failure instanceof IOException ? (IOException) failure
+            : new IOException(failure.getMessage(), failure);
+      }
+      if (ended) {
+        return null;
+      }
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted reading the response body");
+      }
+    }
+  }
+
+  private void consumed(ByteBuf buffer, int count) {
+    buffered -= count;
+    if (!buffer.isReadable()) {
+      buffers.poll();
+      buffer.release();
+    }
+    if (paused && buffered <= LOW_WATER) {
+      paused = false;
+      exchange.resumeReading();
+    }
+  }
+
+  private final class ByteBufInputStream extends InputStream {
+
+    @Override
+    public int read() throws IOException {
+      synchronized (ByteBufBody.this) {
+        ByteBuf buffer = readable();
+        if (buffer == null) {
+          return -1;
+        }
+        int b = buffer.readUnsignedByte();
+        consumed(buffer, 1);
+        return b;
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      synchronized (ByteBufBody.this) {
+        ByteBuf buffer = readable();
+        if (buffer == null) {
+          return -1;
+        }
+        int count = Math.min(len, buffer.readableBytes());
+        buffer.readBytes(b, off, count);
+        consumed(buffer, count);
+        return count;
+      }
+    }
+
+    @Override
+    public int available() {
+      return buffered();
+    }
+
+    @Override
+    public void close() {
+      ByteBufBody.this.close();
+    }
+  }
+
+  private final class ByteBufChannel implements ReadableByteChannel {
+
+    private boolean open = true;
+
+    @Override
+    public int read(ByteBuffer target) throws IOException {
+      if (!open) {
+        throw new ClosedChannelException();
+      }
+      if (!target.hasRemaining()) {
+        return 0;
+      }
+      synchronized (ByteBufBody.this) {
+        ByteBuf buffer = readable();
+        if (buffer == null) {
+          return -1;
+        }
+        int count = Math.min(target.remaining(), buffer.readableBytes());
+        int limit = target.limit();
+        target.limit(target.position() + count);
+        buffer.readBytes(target);
+        target.limit(limit);
+        consumed(buffer, count);
+        return count;
+      }
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() {
+      open = false;
+      ByteBufBody.this.close();
+    }
+  }
+}
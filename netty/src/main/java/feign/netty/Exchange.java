@@ -0,0 +1,439 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.netty;
+
+import static feign.Util.CONTENT_LENGTH;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import feign.Request;
+import feign.Request.Options;
+import feign.Response;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One request sent on a pooled channel, and its response. Except where noted, methods run on the
+ * event loop of the channel. The response completes the result as soon as its head is received
+ * when the caller waits for it, and otherwise once its body is received, or once
+ * {@link ByteBufBody#HIGH_WATER} bytes of it are, in which case the result is completed on the
+ * executor of the client so that the body is never read on the event loop.
+ */
+final class Exchange {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private final NettyClient client;
+  private final ChannelPool pool;
+  private final Channel channel;
+  private final NettyClient.Route route;
+  private final String target;
+  private final Request request;
+  private final Request original;
+  private final Options options;
+  private final boolean sync;
+  private final CompletableFuture<Response> result;
+  private boolean reused;
+  private boolean done;
+  private boolean delivered;
+  private boolean interim;
+  private boolean keepAlive;
+  private Response response;
+  private ByteBufBody body;
+  private long lastReadNanos;
+  private ScheduledFuture<?> readTimeout;
+
+  Exchange(NettyClient client, ChannelPool pool, Channel channel, NettyClient.Route route,
+      String target, Request request, Request original, Options options, boolean sync,
+      CompletableFuture<Response> result) {
+    this.client = client;
+    this.pool = pool;
+    this.channel = channel;
+    this.route = route;
+    this.target = target;
+    this.request = request;
+    this.original = original;
+    this.options = options;
+    this.sync = sync;
+    this.result = result;
+  }
+
+  void start() {
+    reused = channel.pipeline().get(ExchangeHandler.class).start(this);
+    result.whenComplete((r, t) -> {
+      if (result.isCancelled()) {
+        abort();
+      }
+    });
+    try {
+      writeRequest();
+    } catch (RuntimeException e) {
+      fail(e);
+      return;
+    }
+    lastReadNanos = System.nanoTime();
+    if (options.readTimeoutMillis() > 0) {
+      scheduleReadTimeout(MILLISECONDS.toNanos(options.readTimeoutMillis()));
+    }
+  }
+
+  private void writeRequest() {
+    Request.Body requestBody = request.requestBody();
+    boolean streaming = requestBody != null && requestBody.isStreaming();
+    byte[] data = requestBody != null && !streaming ? requestBody.asBytes() : null;
+    HttpMethod method = HttpMethod.valueOf(request.httpMethod().name());
+
+    HttpRequest head;
+    if (streaming) {
+      head = new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, target);
+    } else {
+      /* pooled and direct, so it's written to the socket without another copy */
+      ByteBuf content = data == null || data.length == 0 ? Unpooled.EMPTY_BUFFER
+          : channel.alloc().directBuffer(data.length).writeBytes(data);
+      head = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, target, content);
+    }
+    try {
+      HttpHeaders headers = head.headers();
+      long contentLength = -1;
+      for (Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+        String field = header.getKey();
+        if (field.equalsIgnoreCase(CONTENT_LENGTH)) {
+          for (String value : header.getValue()) {
+            contentLength = Long.parseLong(value.trim());
+          }
+        } else if (!field.equalsIgnoreCase("Transfer-Encoding")) {
+          headers.add(field, header.getValue());
+        }
+      }
+      if (!headers.contains(HttpHeaderNames.HOST)) {
+        headers.set(HttpHeaderNames.HOST, route.authority);
+      }
+      if (!headers.contains(HttpHeaderNames.ACCEPT)) {
+        headers.set(HttpHeaderNames.ACCEPT, "*/*");
+      }
+      if (streaming) {
+        if (requestBody.contentLength() >= 0) {
+          contentLength = requestBody.contentLength();
+        }
+        if (contentLength >= 0) {
+          HttpUtil.setContentLength(head, contentLength);
+        } else {
+          headers.set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        }
+      } else if (data != null || permitsBody(request.httpMethod())) {
+        HttpUtil.setContentLength(head, data != null ? data.length : 0);
+      }
+    } catch (RuntimeException e) {
+      ReferenceCountUtil.release(head);
+      throw e;
+    }
+    keepAlive = HttpUtil.isKeepAlive(head);
+
+    channel.writeAndFlush(head).addListener(written -> {
+      if (!written.isSuccess()) {
+        fail(written.cause());
+      }
+    });
+    if (streaming) {
+      client.executor().execute(() -> writeStreamingBody(requestBody));
+    }
+  }
+
+  private static boolean permitsBody(Request.HttpMethod method) {
+    return method == Request.HttpMethod.POST || method == Request.HttpMethod.PUT
+        || method == Request.HttpMethod.PATCH;
+  }
+
+  /* on the executor, as the content may block */
+  private void writeStreamingBody(Request.Body requestBody) {
+    ContentOutputStream out = new ContentOutputStream();
+    try {
+      requestBody.writeTo(out);
+      out.close();
+    } catch (IOException | RuntimeException e) {
+      out.discard();
+      channel.eventLoop().execute(() -> fail(e));
+    }
+  }
+
+  void read(Object message) {
+    lastReadNanos = System.nanoTime();
+    if (((HttpObject) message).decoderResult().isFailure()) {
+      ReferenceCountUtil.release(message);
+      fail(((HttpObject) message).decoderResult().cause());
+      return;
+    }
+    if (message instanceof HttpResponse) {
+      HttpResponse head = (HttpResponse) message;
+      int status = head.status().code();
+      interim = status >= 100 && status < 200 && status != 101;
+      if (!interim) {
+        keepAlive &= HttpUtil.isKeepAlive(head) && status != 101;
+        response = toResponse(head);
+        /* a redirect to follow is read to its end, so that its channel can be reused */
+        if (sync && !(options.isFollowRedirects() && isRedirect(status))) {
+          deliver(true);
+        }
+      }
+    }
+    if (message instanceof HttpContent) {
+      ByteBuf content = ((HttpContent) message).content();
+      if (body != null && !interim && content.isReadable()) {
+        body.offer(content);
+        if (!delivered && body.buffered() >= ByteBufBody.HIGH_WATER) {
+          deliver(false);
+        }
+      } else {
+        content.release();
+      }
+      if (message instanceof LastHttpContent) {
+        if (interim) {
+          interim = false;
+        } else if (body != null) {
+          body.end();
+          /* released first, so that a redirect followed from here can reuse the channel */
+          finish(keepAlive);
+          deliver(true);
+        }
+      }
+    }
+  }
+
+  static boolean isRedirect(int status) {
+    return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+  }
+
+  private Response toResponse(HttpResponse head) {
+    feign.HttpHeaders.Builder headers = feign.HttpHeaders.builder();
+    for (Iterator<Map.Entry<String, String>> it = head.headers().iteratorAsString(); it
+        .hasNext();) {
+      Map.Entry<String, String> header = it.next();
+      headers.add(header.getKey(), header.getValue());
+    }
+    long length = HttpUtil.getContentLength(head, -1L);
+    body = new ByteBufBody(this, length >= 0 && length <= Integer.MAX_VALUE ? (int) length : null);
+    return Response.builder()
+        .status(head.status().code())
+        .reason(head.status().reasonPhrase())
+        .headers(headers.build())
+        .request(original)
+        .body(body)
+        .build();
+  }
+
+  private void deliver(boolean onEventLoop) {
+    if (delivered) {
+      return;
+    }
+    delivered = true;
+    Response response = this.response;
+    if (onEventLoop) {
+      complete(response);
+    } else {
+      client.executor().execute(() -> complete(response));
+    }
+  }
+
+  private void complete(Response response) {
+    if (!result.complete(response)) {
+      response.close();
+    }
+  }
+
+  /**
+   * Fails the exchange, unless the channel came from the pool and broke before any response, in
+   * which case the request is sent again on another channel.
+   */
+  void fail(Throwable cause) {
+    if (done) {
+      return;
+    }
+    IOException error = cause instanceof IOException ? (IOException) cause
+        : new IOException(cause.getMessage(), cause);
+    boolean retry = reused && response == null && !result.isDone()
+        && !(error instanceof InterruptedIOException)
+        && (request.requestBody() == null || request.requestBody().isReplayable());
+    finish(false);
+    if (retry) {
+      client.acquire(route, target, request, original, options, sync, result);
+      return;
+    }
+    if (body != null) {
+      body.fail(error);
+    }
+    if (!delivered) {
+      delivered = true;
+      result.completeExceptionally(error);
+      if (body != null) {
+        body.close();
+      }
+    }
+  }
+
+  /**
+   * Closes the channel of an exchange whose response is no longer wanted. May be called from any
+   * thread.
+   */
+  void abort() {
+    channel.eventLoop().execute(() -> {
+      if (!done) {
+        if (body != null) {
+          body.fail(new IOException("Response body closed before its end"));
+        }
+        finish(false);
+      }
+    });
+  }
+
+  /* may be called from any thread */
+  void pauseReading() {
+    channel.config().setAutoRead(false);
+  }
+
+  /* may be called from any thread */
+  void resumeReading() {
+    channel.config().setAutoRead(true);
+  }
+
+  private void finish(boolean reuse) {
+    done = true;
+    if (readTimeout != null) {
+      readTimeout.cancel(false);
+    }
+    channel.pipeline().get(ExchangeHandler.class).detach(this);
+    channel.config().setAutoRead(true);
+    if (!reuse) {
+      channel.close();
+    }
+    pool.release(channel);
+  }
+
+  private void scheduleReadTimeout(long delayNanos) {
+    readTimeout = channel.eventLoop().schedule(this::checkReadTimeout, delayNanos, NANOSECONDS);
+  }
+
+  private void checkReadTimeout() {
+    if (done) {
+      return;
+    }
+    long timeoutNanos = MILLISECONDS.toNanos(options.readTimeoutMillis());
+    long now = System.nanoTime();
+    if (body != null && body.isPaused()) {
+      /* the reader is behind, not the server */
+      lastReadNanos = now;
+    }
+    long idle = now - lastReadNanos;
+    if (idle >= timeoutNanos) {
+      fail(new SocketTimeoutException("Read timed out"));
+    } else {
+      scheduleReadTimeout(timeoutNanos - idle);
+    }
+  }
+
+  /**
+   * Writes a streaming request body in pooled direct buffers, waiting while the channel is not
+   * writable so that a fast body doesn't pile up in memory.
+   */
+  private final class ContentOutputStream extends OutputStream {
+
+    private ByteBuf buffer;
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (buffer == null) {
+          buffer = channel.alloc().directBuffer(CHUNK_SIZE);
+        }
+        int count = Math.min(len, buffer.writableBytes());
+        buffer.writeBytes(b, off, count);
+        off += count;
+        len -= count;
+        if (!buffer.isWritable()) {
+          writeBuffer();
+        }
+      }
+    }
+
+    private void writeBuffer() throws IOException {
+      ByteBuf content = buffer;
+      buffer = null;
+      ChannelFuture written = channel.writeAndFlush(new DefaultHttpContent(content));
+      if (!channel.isWritable()) {
+        await(written);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (buffer != null && buffer.isReadable()) {
+        writeBuffer();
+      } else if (buffer != null) {
+        buffer.release();
+        buffer = null;
+      }
+      await(channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT));
+    }
+
+    void discard() {
+      if (buffer != null) {
+        buffer.release();
+        buffer = null;
+      }
+    }
+
+    private void await(ChannelFuture written) throws IOException {
+      try {
+        written.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted writing the request body");
+      }
+      if (!written.isSuccess()) {
+        throw written.cause() instanceof IOException ? (IOException) written.cause()
+            : new IOException(written.cause());
+      }
+    }
+  }
+}
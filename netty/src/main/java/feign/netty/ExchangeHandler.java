@@ -0,0 +1,83 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
+import java.io.IOException;
+
+/**
+ * The last handler of a pooled channel, passing what it receives to the current
+ * {@link Exchange}. A channel left idle in the pool for too long is closed, and so is one that
+ * receives anything between two exchanges.
+ */
+final class ExchangeHandler extends ChannelInboundHandlerAdapter {
+
+  private Exchange exchange;
+  private int exchanges;
+
+  /**
+   * @return true if the channel served an exchange before.
+   */
+  boolean start(Exchange exchange) {
+    this.exchange = exchange;
+    return exchanges++ > 0;
+  }
+
+  void detach(Exchange exchange) {
+    if (this.exchange == exchange) {
+      this.exchange = null;
+    }
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) {
+    if (exchange != null) {
+      exchange.read(msg);
+    } else {
+      ReferenceCountUtil.release(msg);
+      ctx.close();
+    }
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    if (exchange != null) {
+      exchange.fail(new IOException("Connection closed by the server"));
+    }
+    super.channelInactive(ctx);
+  }
+
+  @Override
+  public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+    if (exchange != null) {
+      exchange.fail(cause);
+    } else {
+      ctx.close();
+    }
+  }
+
+  @Override
+  public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+    if (evt instanceof IdleStateEvent) {
+      if (exchange == null) {
+        ctx.close();
+      }
+    } else {
+      super.userEventTriggered(ctx, evt);
+    }
+  }
+}
@@ -0,0 +1,573 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.netty;
+
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import feign.AsyncClient;
+import feign.Client;
+import feign.Experimental;
+import feign.Request;
+import feign.Request.HttpMethod;
+import feign.Request.Options;
+import feign.Response;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.ProtocolException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * Sends requests over HTTP/1.1 channels of a Netty event loop, for {@link feign.Feign} as a
+ * {@link Client} and for {@link feign.AsyncFeign} as an {@link AsyncClient}. A few event loop
+ * threads serve any number of concurrent calls: nothing blocks them, and each route (scheme, host
+ * and port) keeps a bounded pool of channels alive.
+ *
+ * <pre>
+ * NettyClient client = NettyClient.builder()
+ *     .maxConnectionsPerRoute(200)
+ *     .build();
+ *
+ * CompletableFuture&lt;User&gt; user = AsyncFeign.asyncBuilder()
+ *     .client(client)
+ *     .target(Users.class, "https://users.example.com")
+ *     .find("denominator");
+ * </pre>
+ *
+ * <p>
+ * Request bodies are written from pooled direct buffers. Response bodies are read straight from
+ * the buffers they were received in, each released once read, or when the body is closed, and the
+ * channel stops reading while {@code 64 KiB} are left unread. Asynchronous calls complete once the
+ * body is received, or once {@code 64 KiB} of it are, on the executor of the client so that
+ * decoding never blocks the event loop. Synchronous calls return as soon as the response head is
+ * received.
+ * </p>
+ *
+ * <p>
+ * Close the client to release its channels, and its event loop unless one was given to the
+ * {@link Builder}. Proxies are not supported.
+ * </p>
+ */
+@Experimental
+public final class NettyClient implements Client, AsyncClient<Object>, Closeable {
+
+  private static final int MAX_REDIRECTS = 20;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final EventLoopGroup group;
+  private final boolean ownsGroup;
+  private final Bootstrap bootstrap;
+  private final SslContext sslContext;
+  private final int maxConnectionsPerRoute;
+  private final int maxPendingAcquiresPerRoute;
+  private final long idleTimeoutMillis;
+  private final Executor executor;
+  private final ConcurrentMap<Route, ChannelPool> pools = new ConcurrentHashMap<>();
+  private volatile boolean closed;
+
+  /**
+   * A client with the defaults of the {@link Builder}, on an event loop of its own.
+   */
+  public NettyClient() {
+    this(builder());
+  }
+
+  private NettyClient(Builder builder) {
+    this.ownsGroup = builder.group == null;
+    this.group = ownsGroup ? new NioEventLoopGroup(builder.threads, threadFactory("feign-netty"))
+        : builder.group;
+    this.bootstrap = new Bootstrap()
+        .group(group)
+        .channel(builder.channelType)
+        .option(ChannelOption.ALLOCATOR, builder.allocator)
+        .option(ChannelOption.TCP_NODELAY, true);
+    this.sslContext = builder.sslContext != null ? builder.sslContext : defaultSslContext();
+    this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+    this.maxPendingAcquiresPerRoute = builder.maxPendingAcquiresPerRoute;
+    this.idleTimeoutMillis = builder.idleTimeoutMillis;
+    this.executor = builder.executor != null ? builder.executor : LazyInitializedExecutor.instance;
+  }
+
+  private static SslContext defaultSslContext() {
+    try {
+      return SslContextBuilder.forClient().build();
+    } catch (SSLException e) {
+      throw new IllegalStateException("No default SslContext", e);
+    }
+  }
+
+  @Override
+  public Response execute(Request request, Options options) throws IOException {
+    CompletableFuture<Response> response = send(request, options, true);
+    try {
+      return response.get();
+    } catch (InterruptedException e) {
+      response.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for " + request.url());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * The context is ignored, channels being shared by all calls.
+   */
+  @Override
+  public CompletableFuture<Response> execute(Request request,
+                                             Options options,
+                                             Optional<Object> requestContext) {
+    return send(request, options, false);
+  }
+
+  Executor executor() {
+    return executor;
+  }
+
+  private CompletableFuture<Response> send(Request request, Options options, boolean sync) {
+    CompletableFuture<Response> result = new CompletableFuture<>();
+    send(request, request, options, sync, 0, result);
+    return result;
+  }
+
+  /* sends request, responding as original, and follows its redirects into result */
+  private void send(Request request, Request original, Options options, boolean sync,
+                    int redirects, CompletableFuture<Response> result) {
+    CompletableFuture<Response> response = new CompletableFuture<>();
+    result.whenComplete((r, t) -> {
+      if (result.isCancelled()) {
+        response.cancel(false);
+      }
+    });
+    response.whenComplete((r, t) -> {
+      if (t != null) {
+        result.completeExceptionally(t instanceof CompletionException ? t.getCause() : t);
+        return;
+      }
+      Request redirect = options.isFollowRedirects() ? redirect(request, r) : null;
+      if (redirect == null) {
+        if (!result.complete(r)) {
+          r.close();
+        }
+        return;
+      }
+      r.close();
+      if (redirects == MAX_REDIRECTS) {
+        result.completeExceptionally(
+            new ProtocolException("Server redirected too many times (" + MAX_REDIRECTS + ")"));
+        return;
+      }
+      send(redirect, original, options, sync, redirects + 1, result);
+    });
+    try {
+      Route route = Route.parse(request.url());
+      acquire(route, Route.target(request.url()), request, original, options, sync, response);
+    } catch (MalformedURLException | RuntimeException e) {
+      response.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Starts an exchange on a channel of the pool of {@code route}, once one is free. The connect
+   * timeout bounds the wait, whether for a new connection or for a pooled one to be released.
+   */
+  void acquire(Route route, String target, Request request, Request original, Options options,
+               boolean sync, CompletableFuture<Response> result) {
+    ChannelPool pool = pool(route);
+    Future<Channel> acquired = pool.acquire();
+    ScheduledFuture<?> timeout = null;
+    if (options.connectTimeoutMillis() > 0 && !acquired.isDone()) {
+      timeout = group.schedule(() -> {
+        if (!acquired.isDone()) {
+          result.completeExceptionally(new ConnectTimeoutException(
+              "Timed out acquiring a connection to " + route.authority));
+        }
+      }, options.connectTimeoutMillis(), MILLISECONDS);
+    }
+    ScheduledFuture<?> acquireTimeout = timeout;
+    acquired.addListener((Future<Channel> future) -> {
+      if (acquireTimeout != null) {
+        acquireTimeout.cancel(false);
+      }
+      if (!future.isSuccess()) {
+        Throwable cause = future.cause();
+        result.completeExceptionally(cause instanceof IOException ? cause
+            : new IOException(cause.getMessage(), cause));
+        return;
+      }
+      Channel channel = future.getNow();
+      if (result.isDone()) {
+        pool.release(channel);
+        return;
+      }
+      Exchange exchange = new Exchange(this, pool, channel, route, target, request, original,
+          options, sync, result);
+      if (channel.eventLoop().inEventLoop()) {
+        exchange.start();
+      } else {
+        channel.eventLoop().execute(exchange::start);
+      }
+    });
+  }
+
+  private ChannelPool pool(Route route) {
+    if (closed) {
+      throw new IllegalStateException("Client closed");
+    }
+    ChannelPool pool = pools.get(route);
+    if (pool == null) {
+      pool = pools.computeIfAbsent(route, this::newPool);
+    }
+    return pool;
+  }
+
+  private ChannelPool newPool(Route route) {
+    Bootstrap routeBootstrap = bootstrap.clone()
+        .remoteAddress(InetSocketAddress.createUnresolved(route.host, route.port));
+    return new FixedChannelPool(routeBootstrap, new AbstractChannelPoolHandler() {
+      @Override
+      public void channelCreated(Channel channel) {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (route.secure) {
+          SslHandler ssl = sslContext.newHandler(channel.alloc(), route.host, route.port);
+          SSLEngine engine = ssl.engine();
+          SSLParameters parameters = engine.getSSLParameters();
+          parameters.setEndpointIdentificationAlgorithm("HTTPS");
+          engine.setSSLParameters(parameters);
+          pipeline.addLast(ssl);
+        }
+        pipeline.addLast(new HttpClientCodec());
+        if (idleTimeoutMillis > 0) {
+          pipeline.addLast(new IdleStateHandler(0, 0, idleTimeoutMillis, MILLISECONDS));
+        }
+        pipeline.addLast(new ExchangeHandler());
+      }
+    }, maxConnectionsPerRoute, maxPendingAcquiresPerRoute);
+  }
+
+  /**
+   * Closes the pooled channels, and the event loop if the client created it.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (ChannelPool pool : pools.values()) {
+      pool.close();
+    }
+    pools.clear();
+    if (ownsGroup) {
+      group.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * @return the request following the redirect in {@code response}, or null if there is none to
+   *         follow. Like {@link java.net.HttpURLConnection}, the scheme can't change.
+   */
+  private static Request redirect(Request request, Response response) {
+    int status = response.status();
+    if (!Exchange.isRedirect(status)) {
+      return null;
+    }
+    Collection<String> locations = response.headers().get("location");
+    if (locations == null || locations.isEmpty()) {
+      return null;
+    }
+    String url;
+    Route from;
+    Route to;
+    try {
+      url = URI.create(request.url()).resolve(locations.iterator().next().trim()).toString();
+      from = Route.parse(request.url());
+      to = Route.parse(url);
+    } catch (IllegalArgumentException | MalformedURLException e) {
+      return null;
+    }
+    if (from.secure != to.secure) {
+      return null;
+    }
+    HttpMethod method = request.httpMethod();
+    Request.Body body = request.requestBody();
+    boolean changesMethod = method != HttpMethod.GET && method != HttpMethod.HEAD
+        && (status == 301 || status == 302 || status == 303);
+    if (!changesMethod && body != null && !body.isReplayable()) {
+      return null;
+    }
+    Map<String, Collection<String>> headers = new LinkedHashMap<>();
+    for (Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+      String field = header.getKey();
+      if (changesMethod && (field.equalsIgnoreCase("Content-Length")
+          || field.equalsIgnoreCase("Content-Encoding")
+          || field.equalsIgnoreCase("Content-Type"))) {
+        continue;
+      }
+      if (!from.equals(to) && field.equalsIgnoreCase("Authorization")) {
+        continue;
+      }
+      headers.put(field, header.getValue());
+    }
+    return changesMethod
+        ? Request.create(HttpMethod.GET, url, headers, null, request.requestTemplate())
+        : Request.create(method, url, headers, body, request.requestTemplate());
+  }
+
+  private static ThreadFactory threadFactory(String prefix) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static class LazyInitializedExecutor {
+
+    private static final ExecutorService instance =
+        Executors.newCachedThreadPool(threadFactory("feign-netty-body"));
+  }
+
+  /**
+   * Where a channel connects: the scheme, host and port, which tell the channels that can be
+   * shared. Parsed without the allocations of {@link java.net.URL}.
+   */
+  static final class Route {
+
+    final boolean secure;
+    final String host;
+    final int port;
+    final String authority;
+
+    private Route(boolean secure, String host, int port, String authority) {
+      this.secure = secure;
+      this.host = host;
+      this.port = port;
+      this.authority = authority;
+    }
+
+    static Route parse(String url) throws MalformedURLException {
+      boolean secure = url.regionMatches(true, 0, "https://", 0, 8);
+      if (!secure && !url.regionMatches(true, 0, "http://", 0, 7)) {
+        throw new MalformedURLException("Unsupported url: " + url);
+      }
+      int authorityStart = secure ? 8 : 7;
+      int authorityEnd = authorityEnd(url, authorityStart);
+      int userInfo = url.lastIndexOf('@', authorityEnd - 1);
+      if (userInfo >= authorityStart) {
+        authorityStart = userInfo + 1;
+      }
+      String authority = url.substring(authorityStart, authorityEnd);
+      int port = secure ? 443 : 80;
+      int portStart = authority.lastIndexOf(':');
+      if (portStart < authority.lastIndexOf(']')) {
+        portStart = -1;
+      }
+      String host = portStart == -1 ? authority : authority.substring(0, portStart);
+      if (portStart != -1 && portStart < authority.length() - 1) {
+        try {
+          port = Integer.parseInt(authority.substring(portStart + 1));
+        } catch (NumberFormatException e) {
+          throw new MalformedURLException("Invalid port in url: " + url);
+        }
+      }
+      if (host.startsWith("[") && host.endsWith("]")) {
+        host = host.substring(1, host.length() - 1);
+      }
+      if (host.isEmpty() || port <= 0 || port > 65535) {
+        throw new MalformedURLException("Invalid authority in url: " + url);
+      }
+      return new Route(secure, host, port, authority);
+    }
+
+    /**
+     * @return the path and query of {@code url}, as sent in the request line.
+     */
+    static String target(String url) {
+      int authorityEnd = authorityEnd(url, url.indexOf("://") + 3);
+      int targetEnd = url.indexOf('#', authorityEnd);
+      String target = url.substring(authorityEnd, targetEnd == -1 ? url.length() : targetEnd);
+      return target.isEmpty() || target.charAt(0) != '/' ? "/" + target : target;
+    }
+
+    private static int authorityEnd(String url, int authorityStart) {
+      int authorityEnd = authorityStart;
+      while (authorityEnd < url.length() && "/?#".indexOf(url.charAt(authorityEnd)) == -1) {
+        authorityEnd++;
+      }
+      return authorityEnd;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Route)) {
+        return false;
+      }
+      Route that = (Route) obj;
+      return secure == that.secure && port == that.port && host.equalsIgnoreCase(that.host);
+    }
+
+    @Override
+    public int hashCode() {
+      return (host.toLowerCase().hashCode() * 31 + port) * 31 + (secure ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+      return (secure ? "https://" : "http://") + authority;
+    }
+  }
+
+  public static final class Builder {
+
+    private EventLoopGroup group;
+    private Class<? extends Channel> channelType = NioSocketChannel.class;
+    private int threads;
+    private ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private SslContext sslContext;
+    private int maxConnectionsPerRoute = 64;
+    private int maxPendingAcquiresPerRoute = Integer.MAX_VALUE;
+    private long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(1);
+    private Executor executor;
+
+    Builder() {}
+
+    /**
+     * Runs the channels on {@code group}, which the client doesn't shut down, for example to share
+     * it with a server or to use native transports.
+     */
+    public Builder eventLoopGroup(EventLoopGroup group, Class<? extends Channel> channelType) {
+      this.group = checkNotNull(group, "group");
+      this.channelType = checkNotNull(channelType, "channelType");
+      return this;
+    }
+
+    /**
+     * The threads of the event loop the client creates, twice the processors by default.
+     */
+    public Builder threads(int threads) {
+      checkArgument(threads >= 0, "threads must not be negative");
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Allocates the buffers of the channels, {@link PooledByteBufAllocator#DEFAULT} by default.
+     */
+    public Builder allocator(ByteBufAllocator allocator) {
+      this.allocator = checkNotNull(allocator, "allocator");
+      return this;
+    }
+
+    /**
+     * Secures {@code https} channels, with the JDK's defaults otherwise.
+     */
+    public Builder sslContext(SslContext sslContext) {
+      this.sslContext = checkNotNull(sslContext, "sslContext");
+      return this;
+    }
+
+    /**
+     * The most channels open to a route at once, {@code 64} by default. Calls beyond it wait for a
+     * channel to be released, within their connect timeout.
+     */
+    public Builder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+      checkArgument(maxConnectionsPerRoute > 0, "maxConnectionsPerRoute must be positive");
+      this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+      return this;
+    }
+
+    /**
+     * The most calls waiting for a channel of a route, unbounded by default. Calls beyond it fail.
+     */
+    public Builder maxPendingAcquiresPerRoute(int maxPendingAcquiresPerRoute) {
+      checkArgument(maxPendingAcquiresPerRoute > 0,
+          "maxPendingAcquiresPerRoute must be positive");
+      this.maxPendingAcquiresPerRoute = maxPendingAcquiresPerRoute;
+      return this;
+    }
+
+    /**
+     * How long a channel may stay idle in the pool before it's closed, a minute by default.
+     * {@code 0} keeps channels until the server closes them.
+     */
+    public Builder idleTimeout(long duration, TimeUnit unit) {
+      checkArgument(duration >= 0, "idleTimeout must not be negative");
+      this.idleTimeoutMillis = checkNotNull(unit, "unit").toMillis(duration);
+      return this;
+    }
+
+    /**
+     * Writes streaming request bodies, and completes asynchronous calls whose body is still being
+     * received. Defaults to a shared pool of daemon threads.
+     */
+    public Builder executor(Executor executor) {
+      this.executor = checkNotNull(executor, "executor");
+      return this;
+    }
+
+    public NettyClient build() {
+      return new NettyClient(this);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import feign.AsyncFeign;
+import feign.RequestLine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests {@link NettyClient} as the client of {@link AsyncFeign}.
+ */
+public class NettyAsyncClientTest {
+
+  @Rule
+  public final MockWebServer server = new MockWebServer();
+
+  private final NettyClient client = NettyClient.builder().threads(1).build();
+
+  public interface TestInterface {
+
+    @RequestLine("GET /")
+    CompletableFuture<String> get();
+
+    @RequestLine("POST /")
+    CompletableFuture<String> post(String body);
+  }
+
+  @After
+  public void closeClient() {
+    client.close();
+  }
+
+  @Test
+  public void sendsRequestsAsynchronously() throws Exception {
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().setBody(request.getMethod() + " " + request.getBody().readUtf8());
+      }
+    });
+
+    TestInterface api = newApi();
+
+    CompletableFuture<String> first = api.get();
+    CompletableFuture<String> second = api.post("baz");
+    assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("GET ");
+    assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("POST baz");
+  }
+
+  @Test
+  public void servesConcurrentCallsOnOneEventLoopThread() throws Exception {
+    List<CompletableFuture<String>> results = new ArrayList<>();
+    TestInterface api = newApi();
+    for (int i = 0; i < 20; i++) {
+      server.enqueue(new MockResponse().setBody("call " + i)
+          .setHeadersDelay(100, TimeUnit.MILLISECONDS));
+      results.add(api.get());
+    }
+
+    CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+    assertThat(results).extracting(CompletableFuture::join).allMatch(s -> s.startsWith("call "));
+  }
+
+  @Test
+  public void decodesBodiesLargerThanTheHighWaterMark() throws Exception {
+    StringBuilder body = new StringBuilder();
+    while (body.length() < 4 * ByteBufBody.HIGH_WATER) {
+      body.append("0123456789");
+    }
+    server.enqueue(new MockResponse().setBody(body.toString()));
+
+    assertThat(newApi().get().get(5, TimeUnit.SECONDS)).isEqualTo(body.toString());
+  }
+
+  @Test
+  public void cancellingTheResultClosesTheChannel() throws Exception {
+    server.enqueue(new MockResponse().setBody("foo").setHeadersDelay(5, TimeUnit.SECONDS));
+    server.enqueue(new MockResponse().setBody("bar"));
+
+    TestInterface api = newApi();
+
+    CompletableFuture<String> result = api.get();
+    server.takeRequest();
+    result.cancel(true);
+
+    assertThat(api.get().get(5, TimeUnit.SECONDS)).isEqualTo("bar");
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+  }
+
+  private TestInterface newApi() {
+    return AsyncFeign.<Object>asyncBuilder()
+        .client(client)
+        .target(TestInterface.class, "http://localhost:" + server.getPort());
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.netty;
+
+import static feign.Util.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import feign.Feign;
+import feign.Feign.Builder;
+import feign.Request;
+import feign.Request.HttpMethod;
+import feign.Response;
+import feign.Util;
+import feign.client.AbstractClientTest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Test;
+
+public class NettyClientTest extends AbstractClientTest {
+
+  private final NettyClient client = NettyClient.builder().threads(1).build();
+
+  @After
+  public void closeClient() {
+    client.close();
+  }
+
+  @Override
+  public Builder newBuilder() {
+    return Feign.builder().client(client);
+  }
+
+  @Override
+  public void testVeryLongResponseNullLength() {
+    assumeTrue("Netty reads the first of the two Content-Length headers sent", false);
+  }
+
+  @Test
+  public void reusesChannels() throws Exception {
+    server.enqueue(new MockResponse().setBody("first"));
+    server.enqueue(new MockResponse().setBody("second"));
+
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("first");
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("second");
+
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(1);
+  }
+
+  @Test
+  public void closesChannelsOfUnreadBodies() throws Exception {
+    server.enqueue(new MockResponse().setBody(new Buffer().write(new byte[1_000_000])));
+    server.enqueue(new MockResponse().setBody("next"));
+
+    get().close();
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("next");
+
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+  }
+
+  @Test
+  public void stopsReadingAheadOfSlowReaders() throws Exception {
+    byte[] data = new byte[1_000_000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    server.enqueue(new MockResponse().setBody(new Buffer().write(data)));
+
+    try (Response response = get()) {
+      InputStream body = response.body().asInputStream();
+      Thread.sleep(500);
+      /* the high water mark, and at most one more read that was under way */
+      assertThat(body.available()).isBetween(ByteBufBody.HIGH_WATER, 2 * ByteBufBody.HIGH_WATER);
+      assertThat(Util.toByteArray(body)).isEqualTo(data);
+    }
+  }
+
+  @Test
+  public void replacesChannelsClosedByTheServer() throws Exception {
+    server.enqueue(new MockResponse().setBody("closing")
+        .setSocketPolicy(SocketPolicy.DISCONNECT_AT_END));
+    server.enqueue(new MockResponse().setBody("reopened"));
+
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("closing");
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("reopened");
+
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+  }
+
+  @Test
+  public void timesOutReadingTheResponse() throws Exception {
+    server.enqueue(new MockResponse().setHeadersDelay(1, TimeUnit.SECONDS));
+
+    thrown.expect(SocketTimeoutException.class);
+    client.execute(request(), new Request.Options(1000, 100, true));
+  }
+
+  @Test
+  public void followsRedirects() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", "/moved")
+        .setBody("redirecting"));
+    server.enqueue(new MockResponse().setBody("moved"));
+
+    assertThat(Util.toString(get().body().asReader(UTF_8))).isEqualTo("moved");
+
+    assertThat(server.takeRequest().getPath()).isEqualTo("/");
+    RecordedRequest redirected = server.takeRequest();
+    assertThat(redirected.getPath()).isEqualTo("/moved");
+    assertThat(redirected.getSequenceNumber()).isEqualTo(1);
+  }
+
+  @Test
+  public void doesNotFollowRedirectsWhenDisabled() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", "/moved"));
+
+    Response response = client.execute(request(), new Request.Options(1000, 1000, false));
+
+    assertThat(response.status()).isEqualTo(302);
+    assertThat(response.headers().get("location")).containsExactly("/moved");
+  }
+
+  private Response get() throws IOException {
+    return client.execute(request(), new Request.Options());
+  }
+
+  private Request request() {
+    return Request.create(HttpMethod.GET, server.url("/").toString(),
+        Collections.emptyMap(), null, UTF_8, null);
+  }
+}
@@ -16,13 +16,21 @@ package feign.okhttp;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import feign.AsyncClient;
 import feign.Client;
+import feign.HttpHeaders;
 import feign.Request.HttpMethod;
 import okhttp3.*;
+import okio.BufferedSink;
 
 /**
  * This module directs Feign's http requests to
@@ -32,10 +40,21 @@ import okhttp3.*;
  * <pre>
  * GitHub github = Feign.builder().client(new OkHttpClient()).target(GitHub.class,
  * "https://api.github.com");
+ * </pre>
+ *
+ * <p>
+ * As an {@link AsyncClient}, calls are {@link Call#enqueue(Callback) enqueued}, so the
+ * {@link Dispatcher} of the delegate limits how many run at once, per host and overall.
+ * </p>
  */
-public final class OkHttpClient implements Client {
+public final class OkHttpClient implements Client, AsyncClient<Object> {
+
+  /* per-request options are few in practice, this only guards against unbounded variations */
+  private static final int MAX_REQUEST_SCOPED = 64;
 
   private final okhttp3.OkHttpClient delegate;
+  private final ConcurrentMap<OptionsKey, okhttp3.OkHttpClient> requestScoped =
+      new ConcurrentHashMap<>();
 
   public OkHttpClient() {
     this(new okhttp3.OkHttpClient());
@@ -71,24 +90,58 @@ public final class OkHttpClient implements Client {
       requestBuilder.addHeader("Accept", "*/*");
     }
 
-    byte[] inputBody = input.body();
+    feign.Request.Body streamingBody = input.requestBody();
+    if (streamingBody != null && !streamingBody.isStreaming()) {
+      streamingBody = null;
+    }
+    byte[] inputBody = streamingBody == null ? input.body() : null;
     boolean isMethodWithBody =
         HttpMethod.POST == input.httpMethod() || HttpMethod.PUT == input.httpMethod()
             || HttpMethod.PATCH == input.httpMethod();
     if (isMethodWithBody) {
       requestBuilder.removeHeader("Content-Type");
-      if (inputBody == null) {
+      if (inputBody == null && streamingBody == null) {
         // write an empty BODY to conform with okhttp 2.4.0+
         // http://johnfeng.github.io/blog/2015/06/30/okhttp-updates-post-wouldnt-be-allowed-to-have-null-body/
         inputBody = new byte[0];
       }
     }
 
-    RequestBody body = inputBody != null ? RequestBody.create(mediaType, inputBody) : null;
+    RequestBody body;
+    if (streamingBody != null) {
+      body = toRequestBody(mediaType, streamingBody);
+    } else {
+      body = inputBody != null ? RequestBody.create(mediaType, inputBody) : null;
+    }
     requestBuilder.method(input.httpMethod().name(), body);
     return requestBuilder.build();
   }
 
+  private static RequestBody toRequestBody(MediaType mediaType, feign.Request.Body input) {
+    return new RequestBody() {
+      @Override
+      public MediaType contentType() {
+        return mediaType;
+      }
+
+      @Override
+      public long contentLength() {
+        return input.contentLength();
+      }
+
+      @Override
+      public boolean isOneShot() {
+        return !input.isReplayable();
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        // a sink is a channel, so file and buffer bodies skip the stream copy
+        input.writeTo(sink);
+      }
+    };
+  }
+
   private static feign.Response toFeignResponse(Response response, feign.Request request)
       throws IOException {
     return feign.Response.builder()
@@ -101,7 +154,22 @@ public final class OkHttpClient implements Client {
   }
 
   private static Map<String, Collection<String>> toMap(Headers headers) {
-    return (Map) headers.toMultimap();
+    return HttpHeaders.wrap(new HttpHeaders.Source() {
+      @Override
+      public int size() {
+        return headers.size();
+      }
+
+      @Override
+      public String name(int index) {
+        return headers.name(index);
+      }
+
+      @Override
+      public String value(int index) {
+        return headers.value(index);
+      }
+    });
   }
 
   private static feign.Response.Body toBody(final ResponseBody input) throws IOException {
@@ -147,26 +215,122 @@ public final class OkHttpClient implements Client {
       public Reader asReader(Charset charset) throws IOException {
         return asReader();
       }
+
+      @Override
+      public ReadableByteChannel asChannel() {
+        // reads straight from okio's segments, without a stream in between
+        return input.source();
+      }
     };
   }
 
   @Override
   public feign.Response execute(feign.Request input, feign.Request.Options options)
       throws IOException {
-    okhttp3.OkHttpClient requestScoped;
-    if (delegate.connectTimeoutMillis() != options.connectTimeoutMillis()
-        || delegate.readTimeoutMillis() != options.readTimeoutMillis()
-        || delegate.followRedirects() != options.isFollowRedirects()) {
-      requestScoped = delegate.newBuilder()
-          .connectTimeout(options.connectTimeoutMillis(), TimeUnit.MILLISECONDS)
-          .readTimeout(options.readTimeoutMillis(), TimeUnit.MILLISECONDS)
-          .followRedirects(options.isFollowRedirects())
-          .build();
-    } else {
-      requestScoped = delegate;
-    }
     Request request = toOkHttpRequest(input);
-    Response response = requestScoped.newCall(request).execute();
+    Response response = requestScoped(options).newCall(request).execute();
     return toFeignResponse(response, input).toBuilder().request(input).build();
   }
+
+  @Override
+  public CompletableFuture<feign.Response> execute(feign.Request input,
+                                                   feign.Request.Options options,
+                                                   Optional<Object> requestContext) {
+    final CompletableFuture<feign.Response> result = new CompletableFuture<>();
+    final Call call;
+    try {
+      call = requestScoped(options).newCall(toOkHttpRequest(input));
+    } catch (RuntimeException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    call.enqueue(new Callback() {
+      @Override
+      public void onFailure(Call call, IOException e) {
+        result.completeExceptionally(e);
+      }
+
+      @Override
+      public void onResponse(Call call, Response response) {
+        final feign.Response feignResponse;
+        try {
+          feignResponse = toFeignResponse(response, input).toBuilder().request(input).build();
+        } catch (IOException | RuntimeException e) {
+          response.close();
+          result.completeExceptionally(e);
+          return;
+        }
+        // decoding happens here, so the call counts against the dispatcher's limits until it ends
+        if (!result.complete(feignResponse)) {
+          feignResponse.close();
+        }
+      }
+    });
+    result.whenComplete((response, throwable) -> {
+      if (result.isCancelled()) {
+        call.cancel();
+      }
+    });
+    return result;
+  }
+
+  /**
+   * The clients for options that differ from the delegate's are derived once and kept. They share
+   * the connection pool and the dispatcher of the delegate.
+   */
+  okhttp3.OkHttpClient requestScoped(feign.Request.Options options) {
+    final int connectTimeoutMillis = options.connectTimeoutMillis();
+    final int readTimeoutMillis = options.readTimeoutMillis();
+    final boolean followRedirects = options.isFollowRedirects();
+    if (delegate.connectTimeoutMillis() == connectTimeoutMillis
+        && delegate.readTimeoutMillis() == readTimeoutMillis
+        && delegate.followRedirects() == followRedirects) {
+      return delegate;
+    }
+    final OptionsKey key = new OptionsKey(connectTimeoutMillis, readTimeoutMillis, followRedirects);
+    okhttp3.OkHttpClient client = requestScoped.get(key);
+    if (client == null) {
+      client = delegate.newBuilder()
+          .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+          .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+          .followRedirects(followRedirects)
+          .build();
+      if (requestScoped.size() < MAX_REQUEST_SCOPED) {
+        final okhttp3.OkHttpClient cached = requestScoped.putIfAbsent(key, client);
+        if (cached != null) {
+          client = cached;
+        }
+      }
+    }
+    return client;
+  }
+
+  private static final class OptionsKey {
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final boolean followRedirects;
+
+    OptionsKey(int connectTimeoutMillis, int readTimeoutMillis, boolean followRedirects) {
+      this.connectTimeoutMillis = connectTimeoutMillis;
+      this.readTimeoutMillis = readTimeoutMillis;
+      this.followRedirects = followRedirects;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof OptionsKey)) {
+        return false;
+      }
+      final OptionsKey other = (OptionsKey) obj;
+      return connectTimeoutMillis == other.connectTimeoutMillis
+          && readTimeoutMillis == other.readTimeoutMillis
+          && followRedirects == other.followRedirects;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * connectTimeoutMillis + readTimeoutMillis) + (followRedirects ? 1 : 0);
+    }
+  }
 }
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2012-2020 The Feign Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package feign.okhttp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import feign.AsyncFeign;
+import feign.RequestLine;
+import okhttp3.Call;
+import okhttp3.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * Tests {@link OkHttpClient} as the client of {@link AsyncFeign}.
+ */
+public class OkHttpAsyncClientTest {
+
+  @Rule
+  public final MockWebServer server = new MockWebServer();
+
+  private final Dispatcher dispatcher = new Dispatcher();
+
+  public interface TestInterface {
+
+    @RequestLine("GET /")
+    CompletableFuture<String> get();
+
+    @RequestLine("POST /")
+    CompletableFuture<String> post(String body);
+  }
+
+  @Test
+  public void sendsRequestsAsynchronously() throws Exception {
+    server.enqueue(new MockResponse().setBody("foo"));
+    server.enqueue(new MockResponse().setBody("bar"));
+
+    TestInterface api = newApi();
+
+    CompletableFuture<String> first = api.get();
+    CompletableFuture<String> second = api.post("baz");
+    assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("foo");
+    assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("bar");
+    assertThat(server.takeRequest().getMethod()).isEqualTo("GET");
+    assertThat(server.takeRequest().getBody().readUtf8()).isEqualTo("baz");
+  }
+
+  @Test
+  public void queuesCallsBeyondTheDispatcherLimits() throws Exception {
+    dispatcher.setMaxRequests(1);
+    server.enqueue(new MockResponse().setBody("foo").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+    server.enqueue(new MockResponse().setBody("bar"));
+
+    TestInterface api = newApi();
+
+    CompletableFuture<String> first = api.get();
+    CompletableFuture<String> second = api.get();
+    assertThat(dispatcher.runningCallsCount()).isEqualTo(1);
+    assertThat(dispatcher.queuedCallsCount()).isEqualTo(1);
+    assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("foo");
+    assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("bar");
+  }
+
+  @Test
+  public void cancellingTheResultCancelsTheCall() throws Exception {
+    server.enqueue(new MockResponse().setBody("foo").setHeadersDelay(5, TimeUnit.SECONDS));
+
+    TestInterface api = newApi();
+
+    CompletableFuture<String> result = api.get();
+    Call call = dispatcher.runningCalls().get(0);
+    result.cancel(true);
+
+    assertThat(call.isCanceled()).isTrue();
+  }
+
+  private TestInterface newApi() {
+    OkHttpClient client = new OkHttpClient(new okhttp3.OkHttpClient.Builder()
+        .dispatcher(dispatcher)
+        .build());
+    return AsyncFeign.<Object>asyncBuilder()
+        .client(client)
+        .target(TestInterface.class, "http://localhost:" + server.getPort());
+  }
+}
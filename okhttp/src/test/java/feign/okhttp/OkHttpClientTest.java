@@ -27,6 +27,7 @@ import java.util.concurrent.TimeUnit;
 import okhttp3.mockwebserver.MockResponse;
 import org.assertj.core.data.MapEntry;
 import org.junit.Test;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 
 /** Tests client-specific behavior, such as ensuring Content-Length is sent when specified. */
@@ -101,6 +102,26 @@ public class OkHttpClientTest extends AbstractClientTest {
 
   }
 
+  @Test
+  public void reusesTheClientDerivedForEqualOptions() {
+    okhttp3.OkHttpClient delegate = new okhttp3.OkHttpClient();
+    OkHttpClient client = new OkHttpClient(delegate);
+
+    okhttp3.OkHttpClient derived =
+        client.requestScoped(new Request.Options(1, TimeUnit.SECONDS, 2, TimeUnit.SECONDS, false));
+
+    assertThat(derived).isNotSameAs(delegate);
+    assertThat(derived.readTimeoutMillis()).isEqualTo(2_000);
+    assertThat(derived.followRedirects()).isFalse();
+    assertThat(derived.connectionPool()).isSameAs(delegate.connectionPool());
+    assertThat(derived.dispatcher()).isSameAs(delegate.dispatcher());
+    assertThat(client.requestScoped(
+        new Request.Options(1_000, TimeUnit.MILLISECONDS, 2_000, TimeUnit.MILLISECONDS, false)))
+            .isSameAs(derived);
+    assertThat(client.requestScoped(
+        new Request.Options(1, TimeUnit.SECONDS, 2, TimeUnit.SECONDS, true)))
+            .isNotSameAs(derived);
+  }
 
   public interface OkHttpClientTestInterface {
 